@@ -299,6 +299,21 @@ public interface KeyValueService extends AutoCloseable {
     @Consumes(MediaType.APPLICATION_JSON)
     boolean supportsCheckAndSet();
 
+    /**
+     * Check whether a multi-cell {@link #putUnlessExists} is written to the underlying store in a single round trip,
+     * rather than with a separate request (e.g. one compare-and-set) per cell. Callers that batch cells together to
+     * save round trips should only do so when this returns true. Defaults to false, so implementations (and remote
+     * servers) that predate this method are never batched against.
+     *
+     * @return true iff putUnlessExists writes all of its cells together (for all delegates/tables, if applicable)
+     */
+    @POST
+    @Path("supports-single-round-trip-put-unless-exists")
+    @Consumes(MediaType.APPLICATION_JSON)
+    default boolean supportsSingleRoundTripPutUnlessExists() {
+        return false;
+    }
+
     /**
      * Performs a check-and-set into the key-value store.
      * Please see {@link CheckAndSetRequest} for information about how to create this request.
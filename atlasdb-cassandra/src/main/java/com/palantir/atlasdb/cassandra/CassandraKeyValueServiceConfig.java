@@ -191,6 +191,34 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return false;
     }
 
+    /**
+     * If true, hosts are chosen with probability inversely proportional to a moving average of their recent
+     * request latencies, rather than only to their numbers of open requests. This sends less traffic to hosts
+     * that are alive but slow, for example during a long GC or a heavy compaction.
+     * <p>
+     * The moving average covers every kind of request, so a host that happens to serve more range scans than point
+     * reads looks slower than it is. This is therefore off by default.
+     */
+    @Value.Default
+    public boolean latencyAwareHostSelection() {
+        return false;
+    }
+
+    /**
+     * If true, a read that has not completed after {@link #hedgedReadPercentile()} of recent read latencies is
+     * also sent to a second replica, and the first result to arrive is used. This lowers tail latency at the
+     * cost of some extra load on the cluster.
+     */
+    @Value.Default
+    public boolean hedgeReads() {
+        return false;
+    }
+
+    @Value.Default
+    public double hedgedReadPercentile() {
+        return 0.95;
+    }
+
     public abstract Optional<Integer> timestampsGetterBatchSize();
 
     public abstract Optional<CassandraJmxCompactionConfig> jmx();
@@ -216,5 +244,7 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         double evictionCheckProportion = proportionConnectionsToCheckPerEvictionRun();
         Preconditions.checkArgument(evictionCheckProportion > 0.01 && evictionCheckProportion <= 1,
                 "'proportionConnectionsToCheckPerEvictionRun' must be between 0.01 and 1");
+        Preconditions.checkArgument(hedgedReadPercentile() > 0 && hedgedReadPercentile() < 1,
+                "'hedgedReadPercentile' must be strictly between 0 and 1");
     }
 }
@@ -17,8 +17,11 @@ package com.palantir.atlasdb.keyvalue.cassandra;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -69,6 +72,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -76,6 +80,7 @@ import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -90,12 +95,15 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
 import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
@@ -109,6 +117,7 @@ import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompactionManager
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.util.AnnotatedCallable;
 import com.palantir.atlasdb.util.AnnotationType;
 import com.palantir.common.annotation.Idempotent;
@@ -152,7 +161,7 @@ public class CQLKeyValueService extends AbstractKeyValueService {
 
     protected CQLKeyValueService(CassandraKeyValueServiceConfigManager configManager,
                                  Optional<CassandraJmxCompactionManager> compactionManager) {
-        super(AbstractKeyValueService.createFixedThreadPool("Atlas CQL KVS", configManager.getConfig().poolSize()));
+        super(AbstractKeyValueService.createSharedExecutor("CqlKvs", configManager.getConfig().poolSize()));
         fieldNameProvider = new CqlFieldNameProvider(configManager.getConfig());
         this.configManager = configManager;
         this.compactionManager = compactionManager;
@@ -384,6 +393,129 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         return result;
     }
 
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        // Each row is a separate partition, so we slice rows individually, but keep at most as many queries
+        // in flight as one connection accepts so that wide requests do not overflow the driver's queue.
+        int maxConcurrentQueries = configManager.getConfig().poolSize();
+        Map<byte[], RowColumnRangeIterator> result = Maps.newHashMap();
+        Deque<Entry<CqlColumnRangePage, ResultSetFuture>> inFlight = new ArrayDeque<>(maxConcurrentQueries);
+        for (byte[] row : rows) {
+            if (inFlight.size() >= maxConcurrentQueries) {
+                addRowColumnRange(tableRef, batchColumnRangeSelection, inFlight.removeFirst(), result);
+            }
+            CqlColumnRangePage page = new CqlColumnRangePage(row, timestamp);
+            inFlight.addLast(Maps.immutableEntry(page, executeColumnRangeQuery(
+                    tableRef,
+                    row,
+                    CqlColumnRangePage.getFirstPageStart(batchColumnRangeSelection.getStartCol(), timestamp),
+                    batchColumnRangeSelection)));
+        }
+        while (!inFlight.isEmpty()) {
+            addRowColumnRange(tableRef, batchColumnRangeSelection, inFlight.removeFirst(), result);
+        }
+        return result;
+    }
+
+    private void addRowColumnRange(TableReference tableRef,
+                                   BatchColumnRangeSelection batchColumnRangeSelection,
+                                   Entry<CqlColumnRangePage, ResultSetFuture> firstPageQuery,
+                                   Map<byte[], RowColumnRangeIterator> result) {
+        CqlColumnRangePage firstPage = firstPageQuery.getKey();
+        readColumnRangePage(tableRef, firstPageQuery.getValue(), firstPage);
+        result.put(firstPage.getRow(), new LocalRowColumnRangeIterator(
+                getColumnRangeIterator(tableRef, batchColumnRangeSelection, firstPage)));
+    }
+
+    private Iterator<Entry<Cell, Value>> getColumnRangeIterator(TableReference tableRef,
+                                                                BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                CqlColumnRangePage firstPage) {
+        Iterator<Iterator<Entry<Cell, Value>>> pages = new AbstractIterator<Iterator<Entry<Cell, Value>>>() {
+            private CqlColumnRangePage currentPage = null;
+
+            @Override
+            protected Iterator<Entry<Cell, Value>> computeNext() {
+                if (currentPage == null) {
+                    currentPage = firstPage;
+                    return firstPage.getResults().entrySet().iterator();
+                }
+                java.util.Optional<CqlColumnRangePage.PageStart> nextPageStart =
+                        currentPage.getNextPageStart(batchColumnRangeSelection.getBatchHint());
+                if (!nextPageStart.isPresent()) {
+                    return endOfData();
+                }
+                CqlColumnRangePage nextPage = new CqlColumnRangePage(currentPage.getRow(), currentPage.getStartTs());
+                readColumnRangePage(
+                        tableRef,
+                        executeColumnRangeQuery(tableRef, nextPage.getRow(), nextPageStart, batchColumnRangeSelection),
+                        nextPage);
+                currentPage = nextPage;
+                return nextPage.getResults().entrySet().iterator();
+            }
+        };
+        return Iterators.concat(pages);
+    }
+
+    private ResultSetFuture executeColumnRangeQuery(TableReference tableRef,
+                                                    byte[] row,
+                                                    java.util.Optional<CqlColumnRangePage.PageStart> pageStart,
+                                                    BatchColumnRangeSelection batchColumnRangeSelection) {
+        byte[] endCol = batchColumnRangeSelection.getEndCol();
+        String query = getColumnRangeQuery(
+                tableRef,
+                pageStart.isPresent(),
+                endCol.length > 0,
+                batchColumnRangeSelection.getBatchHint());
+        List<Object> args = Lists.newArrayListWithCapacity(4);
+        args.add(ByteBuffer.wrap(row));
+        if (pageStart.isPresent()) {
+            args.add(ByteBuffer.wrap(pageStart.get().getColumn()));
+            args.add(pageStart.get().getStoredTimestamp());
+        }
+        if (endCol.length > 0) {
+            args.add(ByteBuffer.wrap(endCol));
+        }
+        PreparedStatement preparedStatement = getPreparedStatement(tableRef, query, session)
+                .setConsistencyLevel(readConsistency);
+        return session.executeAsync(preparedStatement.bind(args.toArray()));
+    }
+
+    private String getColumnRangeQuery(TableReference tableRef, boolean hasStart, boolean hasEnd, int limit) {
+        StringBuilder query = new StringBuilder("SELECT * FROM ").append(getFullTableName(tableRef))
+                .append(" WHERE ").append(fieldNameProvider.row()).append(" = ?");
+        if (hasStart) {
+            query.append(" AND (").append(fieldNameProvider.column()).append(", ")
+                    .append(fieldNameProvider.timestamp()).append(") > (?, ?)");
+        }
+        if (hasEnd) {
+            // Cassandra does not allow mixing single- and multi-column relations on clustering columns.
+            query.append(" AND (").append(fieldNameProvider.column()).append(") < (?)");
+        }
+        return query.append(" LIMIT ").append(limit).toString();
+    }
+
+    private void readColumnRangePage(TableReference tableRef,
+                                     ResultSetFuture resultSetFuture,
+                                     CqlColumnRangePage page) {
+        ResultSet resultSet;
+        try {
+            resultSet = resultSetFuture.getUninterruptibly();
+        } catch (Throwable t) {
+            throw Throwables.throwUncheckedException(t);
+        }
+        for (Row row : resultSet.all()) {
+            page.add(getColName(row), getTs(row), getValue(row));
+        }
+        String loggedColumnRangeQuery = "SELECT * FROM " + getFullTableName(tableRef)
+                + " WHERE " + fieldNameProvider.row() + " = ? AND ("
+                + fieldNameProvider.column() + ", " + fieldNameProvider.timestamp() + ") > (?, ?) ...";
+        cqlKeyValueServices.logTracedQuery(
+                loggedColumnRangeQuery, resultSet, session, cqlStatementCache.normalQuery);
+    }
+
     @Override
     public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
         if (timestampByCell.isEmpty()) {
@@ -658,13 +790,15 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         long mutationBatchSizeBytes = limitBatchSizesToServerDefaults
                 ? CQLKeyValueServices.UNCONFIGURED_DEFAULT_BATCH_SIZE_BYTES
                 : configManager.getConfig().mutationBatchSizeBytes();
-        for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(
-                values,
-                mutationBatchCount,
-                mutationBatchSizeBytes,
-                tableRef,
-                CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION)) {
-            resultSetFutures.add(getPutPartitionResultSetFuture(tableRef, partition, transactionType));
+        for (Iterable<Entry<Cell, Value>> valuesToBatch : groupForBatching(values, transactionType)) {
+            for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(
+                    valuesToBatch,
+                    mutationBatchCount,
+                    mutationBatchSizeBytes,
+                    tableRef,
+                    CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION)) {
+                resultSetFutures.add(getPutPartitionResultSetFuture(tableRef, partition, transactionType));
+            }
         }
 
         final String putQuery = getPutQueryForPossibleTransaction(tableRef, transactionType);
@@ -698,6 +832,18 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    /**
+     * Batches with conditions cannot span partitions, so lightweight transactions are only batched within a row.
+     */
+    private static Collection<? extends Iterable<Entry<Cell, Value>>> groupForBatching(
+            Iterable<Entry<Cell, Value>> values,
+            TransactionType transactionType) {
+        if (!transactionType.equals(TransactionType.LIGHTWEIGHT_TRANSACTION_REQUIRED)) {
+            return ImmutableList.of(values);
+        }
+        return Multimaps.index(values, entry -> ByteBuffer.wrap(entry.getKey().getRowName())).asMap().values();
+    }
+
     private String getPutQueryForPossibleTransaction(TableReference tableRef, TransactionType transactionType) {
         return getPutQueryForPossibleTransaction(tableRef, transactionType, CassandraConstants.NO_TTL);
     }
@@ -1180,12 +1326,65 @@ public class CQLKeyValueService extends AbstractKeyValueService {
 
     @Override
     public boolean supportsCheckAndSet() {
-        return false;
+        return true;
     }
 
     @Override
-    public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
-        throw new UnsupportedOperationException("Check and set is not yet supported for CQL KeyValueService");
+    public void checkAndSet(CheckAndSetRequest request) throws CheckAndSetException {
+        TableReference tableRef = request.table();
+        Cell cell = request.cell();
+        java.util.Optional<byte[]> oldValue = request.oldValue();
+
+        String query;
+        BoundStatement boundStatement;
+        if (oldValue.isPresent()) {
+            query = getCheckAndSetQuery(tableRef);
+            boundStatement = getPreparedStatement(tableRef, query, session).bind(
+                    ByteBuffer.wrap(request.newValue()),
+                    ByteBuffer.wrap(cell.getRowName()),
+                    ByteBuffer.wrap(cell.getColumnName()),
+                    ~AtlasDbConstants.TRANSACTION_TS,
+                    ByteBuffer.wrap(oldValue.get()));
+        } else {
+            query = getPutUnlessExistsQuery(tableRef, CassandraConstants.NO_TTL);
+            boundStatement = getPreparedStatement(tableRef, query, session).bind(
+                    ByteBuffer.wrap(cell.getRowName()),
+                    ByteBuffer.wrap(cell.getColumnName()),
+                    ~AtlasDbConstants.TRANSACTION_TS,
+                    ByteBuffer.wrap(request.newValue()));
+        }
+        boundStatement.setConsistencyLevel(writeConsistency);
+        boundStatement.setSerialConsistencyLevel(ConsistencyLevel.SERIAL);
+        if (shouldTraceQuery(tableRef)) {
+            boundStatement.enableTracing();
+        }
+
+        ResultSet resultSet;
+        try {
+            resultSet = session.executeAsync(boundStatement).getUninterruptibly();
+        } catch (Throwable t) {
+            throw Throwables.throwUncheckedException(t);
+        }
+        Row result = resultSet.one();
+        cqlKeyValueServices.logTracedQuery(query, resultSet, session, cqlStatementCache.normalQuery);
+        if (!resultSet.wasApplied()) {
+            // A failed lightweight transaction returns the current value of the cell, if there is one.
+            List<byte[]> currentValues = result != null
+                    && result.getColumnDefinitions().contains(fieldNameProvider.value())
+                    && !result.isNull(fieldNameProvider.value())
+                    ? ImmutableList.of(getValue(result))
+                    : ImmutableList.<byte[]>of();
+            throw new CheckAndSetException(cell, tableRef, oldValue.orElse(null), currentValues);
+        }
+    }
+
+    private String getCheckAndSetQuery(TableReference tableRef) {
+        return "UPDATE " + getFullTableName(tableRef)
+                + " SET " + fieldNameProvider.value() + " = ?"
+                + " WHERE " + fieldNameProvider.row() + " = ?"
+                + " AND " + fieldNameProvider.column() + " = ?"
+                + " AND " + fieldNameProvider.timestamp() + " = ?"
+                + " IF " + fieldNameProvider.value() + " = ?";
     }
 
     String getFullTableName(TableReference tableRef) {
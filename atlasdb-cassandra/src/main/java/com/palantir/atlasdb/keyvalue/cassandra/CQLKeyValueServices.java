@@ -51,12 +51,11 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.base.Throwables;
-import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.visitor.Visitor;
-import com.palantir.remoting1.tracing.Tracers;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -83,7 +82,8 @@ public final class CQLKeyValueServices {
         LIGHTWEIGHT_TRANSACTION_REQUIRED
     }
 
-    private final ExecutorService traceRetrievalExec = Tracers.wrap(PTExecutors.newFixedThreadPool(8));
+    private final ExecutorService traceRetrievalExec =
+            AbstractKeyValueService.createSharedExecutor("CqlTraceRetrieval", 8);
 
     private static final int MAX_TRIES = 20;
     private static final long TRACE_RETRIEVAL_MS_BETWEEN_TRIES = 500;
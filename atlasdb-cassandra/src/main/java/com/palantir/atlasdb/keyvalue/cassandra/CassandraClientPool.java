@@ -28,9 +28,17 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -54,6 +62,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
@@ -83,6 +92,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  *   - Pool refreshing
  *   - Pool node autodiscovery
  *   - Pool member health checking*
+ *   - Latency aware host selection and hedged reads
  *
  *   *entirely new features
  *
@@ -109,6 +119,11 @@ public class CassandraClientPool {
 
     private final MetricsManager metricsManager = new MetricsManager();
     private final RequestMetrics aggregateMetrics = new RequestMetrics(null);
+    private final LatencyAwareHostSelector hostSelector = new LatencyAwareHostSelector();
+    private final Optional<HedgingPolicy> hedgingPolicy;
+    private final Optional<ExecutorService> hedgingExecutor;
+    private final Meter hedgedRequests = metricsManager.registerMeter(
+            CassandraClientPool.class, null, "hedgedRequests");
     private final Map<InetSocketAddress, RequestMetrics> metricsByHost = new HashMap<>();
 
     public static class LightweightOppToken implements Comparable<LightweightOppToken> {
@@ -199,6 +214,26 @@ public class CassandraClientPool {
 
     private CassandraClientPool(CassandraKeyValueServiceConfig config, StartupChecks startupChecks) {
         this.config = config;
+        if (config.hedgeReads()) {
+            hedgingPolicy = Optional.of(new HedgingPolicy(config.hedgedReadPercentile()));
+            // Attempts run on a dedicated pool rather than the shared one, since callers such as the KVS fan-out
+            // already run on the shared pool and block on the attempts. An attempt beyond the connections the pools
+            // can open would only wait for a connection, so the pool is bounded by that, and requests that find it
+            // full run on the calling thread without hedging.
+            hedgingExecutor = Optional.of(Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+                    0,
+                    config.maxConnectionBurstSize() * Math.max(1, config.servers().size()),
+                    60,
+                    TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("CassandraClientPoolHedging-%d")
+                            .build())));
+        } else {
+            hedgingPolicy = Optional.empty();
+            hedgingExecutor = Optional.empty();
+        }
         config.servers().forEach(this::addPool);
         refreshDaemon = Tracers.wrap(PTExecutors.newScheduledThreadPool(1, new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -223,6 +258,7 @@ public class CassandraClientPool {
 
     public void shutdown() {
         refreshDaemon.shutdown();
+        hedgingExecutor.ifPresent(ExecutorService::shutdownNow);
         currentPools.forEach((address, cassandraClientPoolingContainer) ->
                 cassandraClientPoolingContainer.shutdownPooling());
         metricsManager.deregisterMetrics();
@@ -288,6 +324,7 @@ public class CassandraClientPool {
     private void removePool(InetSocketAddress removedServerAddress) {
         deregisterMetricsForHost(removedServerAddress);
         blacklistedHosts.remove(removedServerAddress);
+        hostSelector.removeHost(removedServerAddress);
         try {
             currentPools.get(removedServerAddress).shutdownPooling();
         } catch (Exception e) {
@@ -392,8 +429,7 @@ public class CassandraClientPool {
             livingHosts = filteredHosts;
         }
 
-        InetSocketAddress randomLivingHost = getRandomHostByActiveConnections(
-                Maps.filterKeys(currentPools, livingHosts::contains));
+        InetSocketAddress randomLivingHost = chooseHost(Maps.filterKeys(currentPools, livingHosts::contains));
         return Optional.ofNullable(pools.get(randomLivingHost));
     }
 
@@ -418,15 +454,45 @@ public class CassandraClientPool {
             log.debug("Current ring view is: {} and our current host blacklist is {}", tokenMap, blacklistedHosts);
             return getRandomGoodHost().getHost();
         } else {
-            return getRandomHostByActiveConnections(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
+            return chooseHost(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
         }
     }
 
-    private static InetSocketAddress getRandomHostByActiveConnections(
-            Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+    private InetSocketAddress chooseHost(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+        if (config.latencyAwareHostSelection()) {
+            return chooseHostByLatency(pools);
+        }
         return WeightedHosts.create(pools).getRandomHost();
     }
 
+    private InetSocketAddress chooseHostByLatency(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+        return hostSelector.selectHost(ImmutableList.copyOf(pools.keySet()), host -> {
+            CassandraClientPoolingContainer pool = pools.get(host);
+            return pool == null ? 0 : pool.getOpenRequests();
+        });
+    }
+
+    /**
+     * Picks a live host other than {@code primaryHost} to hedge a request for {@code key} to, preferring the fastest
+     * other owners of the key.
+     */
+    private Optional<InetSocketAddress> getHostForHedging(InetSocketAddress primaryHost, byte[] key) {
+        Map<InetSocketAddress, CassandraClientPoolingContainer> livePools = Maps.filterKeys(currentPools,
+                host -> !host.equals(primaryHost) && !blacklistedHosts.containsKey(host));
+        List<InetSocketAddress> hostsForKey = tokenMap.get(new LightweightOppToken(key));
+        if (hostsForKey != null) {
+            Map<InetSocketAddress, CassandraClientPoolingContainer> liveOwnerPools =
+                    Maps.filterKeys(livePools, hostsForKey::contains);
+            if (!liveOwnerPools.isEmpty()) {
+                return Optional.of(chooseHostByLatency(liveOwnerPools));
+            }
+        }
+        if (livePools.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(chooseHostByLatency(livePools));
+    }
+
     public void runOneTimeStartupChecks() {
         try {
             CassandraVerifier.ensureKeyspaceExistsAndIsUpToDate(this, config);
@@ -612,6 +678,96 @@ public class CassandraClientPool {
         }
     }
 
+    /**
+     * Like {@link #runWithRetryOnHost}, but if hedged reads are enabled and the request takes longer than the
+     * configured percentile of recent reads, it is also sent to another host, preferably another owner of
+     * {@code key}, and the first successful result is returned. {@code fn} must therefore be a read without side
+     * effects, as it may run more than once.
+     */
+    public <V, K extends Exception> V runWithHedgingOnHost(
+            InetSocketAddress specifiedHost,
+            byte[] key,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
+        if (!hedgingPolicy.isPresent()) {
+            return runWithRetryOnHost(specifiedHost, fn);
+        }
+        OptionalLong hedgeDelayNanos = hedgingPolicy.get().getHedgeDelayNanos();
+        CompletionService<V> attempts = new ExecutorCompletionService<>(hedgingExecutor.get());
+        List<Future<V>> futures = Lists.newArrayListWithCapacity(2);
+        try {
+            futures.add(attempts.submit(() -> runRecordingReadLatency(specifiedHost, fn)));
+        } catch (RejectedExecutionException e) {
+            log.debug("Not hedging a request to host {} since every hedging thread is busy.", specifiedHost);
+            return runRecordingReadLatency(specifiedHost, fn);
+        }
+        try {
+            Future<V> completedBeforeHedging = null;
+            if (hedgeDelayNanos.isPresent()) {
+                completedBeforeHedging = attempts.poll(hedgeDelayNanos.getAsLong(), TimeUnit.NANOSECONDS);
+                if (completedBeforeHedging == null) {
+                    Optional<InetSocketAddress> hedgeHost = getHostForHedging(specifiedHost, key);
+                    if (hedgeHost.isPresent()) {
+                        submitHedge(attempts, futures, specifiedHost, hedgeDelayNanos.getAsLong(), hedgeHost.get(), fn);
+                    }
+                }
+            }
+
+            ExecutionException failure = null;
+            for (int remainingAttempts = futures.size(); remainingAttempts > 0; remainingAttempts--) {
+                Future<V> completed = completedBeforeHedging != null ? completedBeforeHedging : attempts.take();
+                completedBeforeHedging = null;
+                try {
+                    return completed.get();
+                } catch (ExecutionException e) {
+                    // Wait for the other attempt, if any, before giving up.
+                    failure = e;
+                }
+            }
+            throw this.<K>rethrowCause(failure);
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } finally {
+            // The losing attempt is left to finish, so that its connection is returned to the pool intact.
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private <V, K extends Exception> void submitHedge(
+            CompletionService<V> attempts,
+            List<Future<V>> futures,
+            InetSocketAddress specifiedHost,
+            long hedgeDelayNanos,
+            InetSocketAddress hedgeHost,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) {
+        try {
+            futures.add(attempts.submit(() -> runRecordingReadLatency(hedgeHost, fn)));
+        } catch (RejectedExecutionException e) {
+            log.debug("Not hedging a request to host {} since every hedging thread is busy.", specifiedHost);
+            return;
+        }
+        log.debug("Hedging a request to host {} that took longer than {} ns with host {}.",
+                specifiedHost, hedgeDelayNanos, hedgeHost);
+        hedgedRequests.mark();
+    }
+
+    private <V, K extends Exception> V runRecordingReadLatency(
+            InetSocketAddress host,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
+        long startNanos = System.nanoTime();
+        V result = runWithRetryOnHost(host, fn);
+        hedgingPolicy.get().recordLatency(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K extends Exception> K rethrowCause(ExecutionException ex) throws K {
+        Throwable cause = ex.getCause();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw (K) cause;
+    }
+
     public <V, K extends Exception> V run(FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
         return runOnHost(getRandomGoodHost().getHost(), fn);
     }
@@ -628,12 +784,17 @@ public class CassandraClientPool {
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
 
         recordRequestOnHost(hostPool);
+        long startNanos = System.nanoTime();
         try {
-            return hostPool.runWithPooledResource(fn);
+            V result = hostPool.runWithPooledResource(fn);
+            hostSelector.recordLatency(hostPool.getHost(), System.nanoTime() - startNanos);
+            return result;
         } catch (Exception e) {
             recordExceptionOnHost(hostPool);
             if (isConnectionException(e)) {
                 recordConnectionExceptionOnHost(hostPool);
+                // Timeouts are as slow as they look; other failures, such as an exhausted pool, may be fast.
+                hostSelector.recordLatency(hostPool.getHost(), System.nanoTime() - startNanos);
             }
             throw e;
         }
@@ -140,9 +140,6 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
 public class CassandraKeyValueService extends AbstractKeyValueService {
     private final Logger log;
 
-    private static final Function<Entry<Cell, Value>, Long> ENTRY_SIZING_FUNCTION = input ->
-            input.getValue().getContents().length + 4L + Cells.getApproxSizeOfCell(input.getKey());
-
     protected final CassandraKeyValueServiceConfigManager configManager;
     private final Optional<CassandraJmxCompactionManager> compactionManager;
     private final CassandraClientPool clientPool;
@@ -185,7 +182,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                        CassandraKeyValueServiceConfigManager configManager,
                                        Optional<CassandraJmxCompactionManager> compactionManager,
                                        Optional<LeaderConfig> leaderConfig) {
-        super(AbstractKeyValueService.createFixedThreadPool("Atlas Cassandra KVS",
+        super(AbstractKeyValueService.createSharedExecutor("CassandraKvs",
                 configManager.getConfig().poolSize() * configManager.getConfig().servers().size()));
         this.log = log;
         this.configManager = configManager;
@@ -363,7 +360,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             int fetchBatchCount = configManager.getConfig().fetchBatchCount();
             for (final List<byte[]> batch : Lists.partition(rows, fetchBatchCount)) {
                 rowCount += batch.size();
-                result.putAll(clientPool.runWithRetryOnHost(host,
+                result.putAll(clientPool.runWithHedgingOnHost(host, batch.get(0),
                         new FunctionCheckedException<Client, Map<Cell, Value>, Exception>() {
                             @Override
                             public Map<Cell, Value> apply(Client client) throws Exception {
@@ -547,10 +544,10 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                         CassandraKeyValueServices.getFilteredStackTrace("com.palantir"));
             }
             for (final List<Cell> partition : Lists.partition(ImmutableList.copyOf(columnCells), fetchBatchCount)) {
-                Callable<Void> multiGetCallable = () -> clientPool.runWithRetryOnHost(host,
-                        new FunctionCheckedException<Client, Void, Exception>() {
+                FunctionCheckedException<Client, Map<ByteBuffer, List<ColumnOrSuperColumn>>, Exception> multiGet =
+                        new FunctionCheckedException<Client, Map<ByteBuffer, List<ColumnOrSuperColumn>>, Exception>() {
                             @Override
-                            public Void apply(Client client) throws Exception {
+                            public Map<ByteBuffer, List<ColumnOrSuperColumn>> apply(Client client) throws Exception {
                                 ByteBuffer start = CassandraKeyValueServices.makeCompositeBuffer(col, startTs - 1);
                                 ByteBuffer end = CassandraKeyValueServices.makeCompositeBuffer(col, -1);
                                 SliceRange slice = new SliceRange(start, end, false, loadAllTs ? Integer.MAX_VALUE : 1);
@@ -571,10 +568,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                             host);
                                 }
 
-                                Map<ByteBuffer, List<ColumnOrSuperColumn>> results =
-                                        multigetInternal(client, tableRef, rowNames, colFam, predicate, consistency);
-                                visitor.visit(results);
-                                return null;
+                                return multigetInternal(client, tableRef, rowNames, colFam, predicate, consistency);
                             }
 
                             @Override
@@ -583,7 +577,12 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                         + partition.size() + " cells" + ")";
                             }
 
-                        });
+                        };
+                // Only the first result is visited, as a hedged read may run more than once.
+                Callable<Void> multiGetCallable = () -> {
+                    visitor.visit(clientPool.runWithHedgingOnHost(host, partition.get(0).getRowName(), multiGet));
+                    return null;
+                };
                 tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
                         "Atlas loadWithTs " + partition.size() + " cells from " + tableRef + " on " + host,
                         multiGetCallable));
@@ -704,7 +703,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                                              BatchColumnRangeSelection batchColumnRangeSelection,
                                                              long startTs) {
         try {
-            return clientPool.runWithRetryOnHost(host,
+            return clientPool.runWithHedgingOnHost(host, rows.get(0),
                     new FunctionCheckedException<Client, RowColumnRangeExtractor.RowColumnRangeResult, Exception>() {
                         @Override
                         public RowColumnRangeExtractor.RowColumnRangeResult apply(Client client) throws Exception {
@@ -918,67 +917,77 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     protected void putInternal(final TableReference tableRef,
                                Iterable<Map.Entry<Cell, Value>> values,
                                final int ttl) throws Exception {
-        Map<InetSocketAddress, Map<Cell, Value>> cellsByHost = partitionMapByHost(values);
-        List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(cellsByHost.size());
-        for (final Map.Entry<InetSocketAddress, Map<Cell, Value>> entry : cellsByHost.entrySet()) {
+        List<CassandraWritePlanner.Batch<Map.Entry<Cell, Value>>> batches = newWritePlanner().plan(
+                values,
+                entry -> entry.getKey().getRowName(),
+                entry -> CassandraWritePlanner.estimateSerializedSize(
+                        tableRef, entry.getKey(), entry.getValue().getContents().length));
+        List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(batches.size());
+        for (final CassandraWritePlanner.Batch<Map.Entry<Cell, Value>> batch : batches) {
             tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
-                    "Atlas putInternal " + entry.getValue().size()
-                            + " cell values to " + tableRef + " on " + entry.getKey(),
+                    "Atlas putInternal " + batch.getWrites().size()
+                            + " cell values to " + tableRef + " on " + batch.getHost(),
                     () -> {
-                        putForSingleHostInternal(entry.getKey(), tableRef, entry.getValue().entrySet(), ttl);
+                        putForSingleHostInternal(batch.getHost(), tableRef, batch.getWrites(), ttl);
                         return null;
                     }));
         }
         runAllTasksCancelOnFailure(tasks);
     }
 
+    /**
+     * Plans writes so that each batch goes to a host owning its rows and stays within the configured
+     * {@link CassandraKeyValueServiceConfig#mutationBatchCount()} and
+     * {@link CassandraKeyValueServiceConfig#mutationBatchSizeBytes()}.
+     */
+    private CassandraWritePlanner newWritePlanner() {
+        CassandraKeyValueServiceConfig config = configManager.getConfig();
+        return new CassandraWritePlanner(
+                clientPool::getRandomHostForKey,
+                config.mutationBatchCount(),
+                config.mutationBatchSizeBytes());
+    }
+
     private void putForSingleHostInternal(final InetSocketAddress host,
                                           final TableReference tableRef,
-                                          final Iterable<Map.Entry<Cell, Value>> values,
+                                          final List<Map.Entry<Cell, Value>> batch,
                                           final int ttl) throws Exception {
+        final Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
+        for (Map.Entry<Cell, Value> e : batch) {
+            Cell cell = e.getKey();
+            Column col = createColumn(cell, e.getValue(), ttl);
+
+            ColumnOrSuperColumn colOrSup = new ColumnOrSuperColumn();
+            colOrSup.setColumn(col);
+            Mutation mutation = new Mutation();
+            mutation.setColumn_or_supercolumn(colOrSup);
+
+            ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
+
+            Map<String, List<Mutation>> rowPuts = map.get(rowName);
+            if (rowPuts == null) {
+                rowPuts = Maps.newHashMap();
+                map.put(rowName, rowPuts);
+            }
+
+            List<Mutation> tableMutations = rowPuts.get(internalTableName(tableRef));
+            if (tableMutations == null) {
+                tableMutations = Lists.newArrayList();
+                rowPuts.put(internalTableName(tableRef), tableMutations);
+            }
+
+            tableMutations.add(mutation);
+        }
         clientPool.runWithRetryOnHost(host, new FunctionCheckedException<Client, Void, Exception>() {
             @Override
             public Void apply(Client client) throws Exception {
-                final CassandraKeyValueServiceConfig config = configManager.getConfig();
-                int mutationBatchCount = config.mutationBatchCount();
-                int mutationBatchSizeBytes = config.mutationBatchSizeBytes();
-                for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(values, mutationBatchCount,
-                        mutationBatchSizeBytes, tableRef, ENTRY_SIZING_FUNCTION)) {
-                    Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
-                    for (Map.Entry<Cell, Value> e : partition) {
-                        Cell cell = e.getKey();
-                        Column col = createColumn(cell, e.getValue(), ttl);
-
-                        ColumnOrSuperColumn colOrSup = new ColumnOrSuperColumn();
-                        colOrSup.setColumn(col);
-                        Mutation mutation = new Mutation();
-                        mutation.setColumn_or_supercolumn(colOrSup);
-
-                        ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
-
-                        Map<String, List<Mutation>> rowPuts = map.get(rowName);
-                        if (rowPuts == null) {
-                            rowPuts = Maps.newHashMap();
-                            map.put(rowName, rowPuts);
-                        }
-
-                        List<Mutation> tableMutations = rowPuts.get(internalTableName(tableRef));
-                        if (tableMutations == null) {
-                            tableMutations = Lists.newArrayList();
-                            rowPuts.put(internalTableName(tableRef), tableMutations);
-                        }
-
-                        tableMutations.add(mutation);
-                    }
-                    batchMutateInternal(client, tableRef, map, writeConsistency);
-                }
-                return null;
+                return batchMutateInternal(client, tableRef, map, writeConsistency);
             }
 
             @Override
             public String toString() {
                 return "batch_mutate(" + host + ", " + tableRef.getQualifiedName() + ", "
-                        + Iterables.size(values) + " values, " + ttl + " ttl sec)";
+                        + batch.size() + " values, " + ttl + " ttl sec)";
             }
         });
     }
@@ -1004,34 +1013,22 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                 flattened.add(new TableCellAndValue(tableAndValues.getKey(), entry.getKey(), entry.getValue()));
             }
         }
-        Map<InetSocketAddress, List<TableCellAndValue>> partitionedByHost =
-                partitionByHost(flattened, TableCellAndValue.EXTRACT_ROW_NAME_FUNCTION);
+        List<CassandraWritePlanner.Batch<TableCellAndValue>> batches = newWritePlanner().plan(
+                flattened,
+                write -> write.cell.getRowName(),
+                write -> CassandraWritePlanner.estimateSerializedSize(write.tableRef, write.cell, write.value.length));
 
-        List<Callable<Void>> callables = Lists.newArrayList();
-        for (Map.Entry<InetSocketAddress, List<TableCellAndValue>> entry : partitionedByHost.entrySet()) {
-            callables.addAll(getMultiPutTasksForSingleHost(entry.getKey(), entry.getValue(), timestamp));
-        }
-        runAllTasksCancelOnFailure(callables);
-    }
-
-    private List<Callable<Void>> getMultiPutTasksForSingleHost(final InetSocketAddress host,
-                                                               Collection<TableCellAndValue> values,
-                                                               final long timestamp) {
-        Iterable<List<TableCellAndValue>> partitioned =
-                partitionByCountAndBytes(values,
-                        getMultiPutBatchCount(),
-                        getMultiPutBatchSizeBytes(),
-                        extractTableNames(values).toString(),
-                        TableCellAndValue.SIZING_FUNCTION);
-        List<Callable<Void>> tasks = Lists.newArrayList();
-        for (final List<TableCellAndValue> batch : partitioned) {
-            final Set<TableReference> tableRefs = extractTableNames(batch);
+        List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(batches.size());
+        for (final CassandraWritePlanner.Batch<TableCellAndValue> batch : batches) {
+            final InetSocketAddress host = batch.getHost();
+            final List<TableCellAndValue> writes = batch.getWrites();
+            final Set<TableReference> tableRefs = extractTableNames(writes);
             tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
-                    "Atlas multiPut of " + batch.size() + " cells into " + tableRefs + " on " + host,
-                    () -> multiPutForSingleHostInternal(host, tableRefs, batch, timestamp)
+                    "Atlas multiPut of " + writes.size() + " cells into " + tableRefs + " on " + host,
+                    () -> multiPutForSingleHostInternal(host, tableRefs, writes, timestamp)
             ));
         }
-        return tasks;
+        runAllTasksCancelOnFailure(tasks);
     }
 
     private Set<TableReference> extractTableNames(Iterable<TableCellAndValue> tableCellAndValues) {
@@ -1114,11 +1111,11 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         return col;
     }
 
-    private void batchMutateInternal(Client client,
+    private Void batchMutateInternal(Client client,
                                      TableReference tableRef,
                                      Map<ByteBuffer, Map<String, List<Mutation>>> map,
                                      ConsistencyLevel consistency) throws TException {
-        batchMutateInternal(client, ImmutableSet.of(tableRef), map, consistency);
+        return batchMutateInternal(client, ImmutableSet.of(tableRef), map, consistency);
     }
 
     private Void batchMutateInternal(Client client,
@@ -2267,12 +2264,6 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     }
 
     private static class TableCellAndValue {
-        public static final Function<TableCellAndValue, byte[]> EXTRACT_ROW_NAME_FUNCTION =
-                input -> input.cell.getRowName();
-
-        public static final Function<TableCellAndValue, Long> SIZING_FUNCTION =
-                input -> input.value.length + Cells.getApproxSizeOfCell(input.cell);
-
         private final TableReference tableRef;
         private final Cell cell;
         private final byte[] value;
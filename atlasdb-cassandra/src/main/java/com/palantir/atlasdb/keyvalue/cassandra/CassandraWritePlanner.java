@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
+
+/**
+ * Plans how to send a set of writes to Cassandra as batch_mutate calls.
+ * <p>
+ * Writes are grouped by row, and each row is assigned to a host that owns it, so that the host coordinating a
+ * batch is also a replica of everything in it. Within each host, rows are sorted by token (for the byte ordered
+ * partitioner, the row name itself), so that each batch covers as few token ranges as possible. Rows are then packed
+ * into batches capped by number of writes and by estimated serialized size. A row is only split across batches if it
+ * does not fit in one batch by itself, since writing all columns of a row together is a single write in Cassandra.
+ * <p>
+ * The planner is pure: it only depends on its inputs, including the mapping from rows to hosts.
+ */
+final class CassandraWritePlanner {
+    // Thrift binary protocol overhead of a row in the mutation map, and of its table's entry in the row's map.
+    private static final int ROW_OVERHEAD_BYTES = 10;
+    private static final int TABLE_OVERHEAD_BYTES = 9;
+    // Thrift binary protocol overhead of a Mutation holding a Column with a name, value, timestamp and ttl,
+    // plus the length prefixes, end markers and timestamp of the composite column name.
+    private static final int MUTATION_OVERHEAD_BYTES = 41;
+    private static final int COMPOSITE_COLUMN_NAME_OVERHEAD_BYTES = 14;
+
+    static final class Batch<T> {
+        private final InetSocketAddress host;
+        private final List<T> writes;
+        private final long sizeBytes;
+
+        Batch(InetSocketAddress host, List<T> writes, long sizeBytes) {
+            this.host = host;
+            this.writes = writes;
+            this.sizeBytes = sizeBytes;
+        }
+
+        InetSocketAddress getHost() {
+            return host;
+        }
+
+        List<T> getWrites() {
+            return writes;
+        }
+
+        long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Batch{host=" + host + ", writes=" + writes.size() + ", sizeBytes=" + sizeBytes + "}";
+        }
+    }
+
+    private final Function<byte[], InetSocketAddress> hostForRow;
+    private final int maxWritesPerBatch;
+    private final long maxBytesPerBatch;
+
+    /**
+     * @param hostForRow picks the host to send writes to a row to, typically one of the row's owners.
+     */
+    CassandraWritePlanner(
+            Function<byte[], InetSocketAddress> hostForRow,
+            int maxWritesPerBatch,
+            long maxBytesPerBatch) {
+        Preconditions.checkArgument(maxWritesPerBatch > 0, "maxWritesPerBatch must be positive");
+        Preconditions.checkArgument(maxBytesPerBatch > 0, "maxBytesPerBatch must be positive");
+        this.hostForRow = hostForRow;
+        this.maxWritesPerBatch = maxWritesPerBatch;
+        this.maxBytesPerBatch = maxBytesPerBatch;
+    }
+
+    /**
+     * @return the estimated size of a write of {@code valueLength} bytes to {@code cell} of {@code tableRef} once
+     *         serialized into a batch_mutate call, excluding the row name, which is counted once per row and batch.
+     */
+    static long estimateSerializedSize(TableReference tableRef, Cell cell, int valueLength) {
+        return TABLE_OVERHEAD_BYTES
+                + AbstractKeyValueService.internalTableName(tableRef).length()
+                + MUTATION_OVERHEAD_BYTES
+                + COMPOSITE_COLUMN_NAME_OVERHEAD_BYTES
+                + cell.getColumnName().length
+                + valueLength;
+    }
+
+    /**
+     * @param rowExtractor the row written by a write.
+     * @param sizer the estimated serialized size of a write, excluding its row name; see
+     *              {@link #estimateSerializedSize}.
+     * @return the batches to send. Writes to the same row appear in the order they were given in.
+     */
+    <T> List<Batch<T>> plan(Iterable<T> writes, Function<T, byte[]> rowExtractor, ToLongFunction<T> sizer) {
+        ListMultimap<ByteBuffer, T> writesByRow = LinkedListMultimap.create();
+        for (T write : writes) {
+            writesByRow.put(ByteBuffer.wrap(rowExtractor.apply(write)), write);
+        }
+
+        Map<InetSocketAddress, List<ByteBuffer>> rowsByHost = Maps.newHashMap();
+        for (ByteBuffer row : writesByRow.keySet()) {
+            InetSocketAddress host = hostForRow.apply(row.array());
+            rowsByHost.computeIfAbsent(host, unused -> Lists.newArrayList()).add(row);
+        }
+
+        ImmutableList.Builder<Batch<T>> batches = ImmutableList.builder();
+        for (Map.Entry<InetSocketAddress, List<ByteBuffer>> hostAndRows : rowsByHost.entrySet()) {
+            List<ByteBuffer> rows = hostAndRows.getValue();
+            rows.sort((row1, row2) -> UnsignedBytes.lexicographicalComparator().compare(row1.array(), row2.array()));
+            BatchBuilder<T> batch = new BatchBuilder<>(hostAndRows.getKey(), batches);
+            for (ByteBuffer row : rows) {
+                addRow(batch, row.array(), writesByRow.get(row), sizer);
+            }
+            batch.finish();
+        }
+        return batches.build();
+    }
+
+    private <T> void addRow(BatchBuilder<T> batch, byte[] row, List<T> rowWrites, ToLongFunction<T> sizer) {
+        long rowOverhead = ROW_OVERHEAD_BYTES + row.length;
+        long[] sizes = new long[rowWrites.size()];
+        long rowSize = rowOverhead;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = sizer.applyAsLong(rowWrites.get(i));
+            rowSize += sizes[i];
+        }
+
+        if (!batch.fits(rowWrites.size(), rowSize)) {
+            batch.finish();
+        }
+        if (batch.fits(rowWrites.size(), rowSize)) {
+            batch.addAll(rowWrites, rowSize);
+            return;
+        }
+
+        // The row is too large for a batch of its own, so split it, paying for the row name in each part.
+        boolean rowStarted = false;
+        for (int i = 0; i < sizes.length; i++) {
+            long size = rowStarted ? sizes[i] : rowOverhead + sizes[i];
+            if (rowStarted && !batch.fits(1, size)) {
+                batch.finish();
+                rowStarted = false;
+                size = rowOverhead + sizes[i];
+            }
+            batch.add(rowWrites.get(i), size);
+            rowStarted = true;
+        }
+    }
+
+    private final class BatchBuilder<T> {
+        private final InetSocketAddress host;
+        private final ImmutableList.Builder<Batch<T>> batches;
+        private List<T> writes = Lists.newArrayList();
+        private long sizeBytes = 0;
+
+        BatchBuilder(InetSocketAddress host, ImmutableList.Builder<Batch<T>> batches) {
+            this.host = host;
+            this.batches = batches;
+        }
+
+        boolean fits(int numWrites, long bytes) {
+            return writes.size() + numWrites <= maxWritesPerBatch && sizeBytes + bytes <= maxBytesPerBatch;
+        }
+
+        void add(T write, long bytes) {
+            writes.add(write);
+            sizeBytes += bytes;
+        }
+
+        void addAll(List<T> newWrites, long bytes) {
+            writes.addAll(newWrites);
+            sizeBytes += bytes;
+        }
+
+        void finish() {
+            if (!writes.isEmpty()) {
+                batches.add(new Batch<>(host, ImmutableList.copyOf(writes), sizeBytes));
+                writes = Lists.newArrayList();
+                sizeBytes = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+/**
+ * One page of a clustering-column slice over a single row, as read by the CQL key value service.
+ * <p>
+ * Within a row, CQL returns cells ordered by column and then by inverted timestamp, i.e. newest version first.
+ * The first version of each column below the start timestamp is the one visible to the reader; older versions
+ * are skipped. {@link #getNextPageStart(int)} tells the caller where to resume reading after this page.
+ */
+class CqlColumnRangePage {
+    /**
+     * The exclusive lower bound of a page, as a (column, stored timestamp) clustering key.
+     * Stored timestamps are the bitwise inverse of the Atlas timestamps.
+     */
+    static final class PageStart {
+        private final byte[] column;
+        private final long storedTimestamp;
+
+        PageStart(byte[] column, long storedTimestamp) {
+            this.column = column;
+            this.storedTimestamp = storedTimestamp;
+        }
+
+        byte[] getColumn() {
+            return column;
+        }
+
+        long getStoredTimestamp() {
+            return storedTimestamp;
+        }
+    }
+
+    private final byte[] row;
+    private final long startTs;
+    private final LinkedHashMap<Cell, Value> results = new LinkedHashMap<>();
+
+    private int rawCellCount = 0;
+    private byte[] lastColumn = null;
+    private boolean lastColumnCompleted = false;
+
+    CqlColumnRangePage(byte[] row, long startTs) {
+        this.row = row;
+        this.startTs = startTs;
+    }
+
+    byte[] getRow() {
+        return row;
+    }
+
+    long getStartTs() {
+        return startTs;
+    }
+
+    /**
+     * @return where the first page of a slice starting at {@code startCol} should start, or empty if the slice
+     *         has no lower bound.
+     */
+    static Optional<PageStart> getFirstPageStart(byte[] startCol, long startTs) {
+        if (startCol.length == 0) {
+            return Optional.empty();
+        }
+        // Versions of the start column written at or after startTs have stored timestamps <= ~startTs.
+        return Optional.of(new PageStart(startCol, ~startTs));
+    }
+
+    void add(byte[] column, long timestamp, byte[] value) {
+        rawCellCount++;
+        if (lastColumn == null || !Arrays.equals(lastColumn, column)) {
+            lastColumn = column;
+            lastColumnCompleted = false;
+        }
+        if (!lastColumnCompleted && timestamp < startTs) {
+            results.put(Cell.create(row, column), Value.create(value, timestamp));
+            lastColumnCompleted = true;
+        }
+    }
+
+    Map<Cell, Value> getResults() {
+        return results;
+    }
+
+    /**
+     * @param pageSize the number of cells this page was asked for.
+     * @return where the next page should start, or empty if this page reached the end of the slice.
+     */
+    Optional<PageStart> getNextPageStart(int pageSize) {
+        if (rawCellCount < pageSize || lastColumn == null) {
+            return Optional.empty();
+        }
+        if (lastColumnCompleted) {
+            // We already have the visible version of the last column; skip its older versions.
+            return Optional.of(new PageStart(lastColumn, Long.MAX_VALUE));
+        }
+        // Every version of the last column we read so far was too new; resume at the first visible one.
+        return Optional.of(new PageStart(lastColumn, ~startTs));
+    }
+}
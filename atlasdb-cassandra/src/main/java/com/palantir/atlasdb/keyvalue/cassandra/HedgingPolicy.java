@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides how long to wait for a read before also sending it to a second host: reads slower than the given percentile
+ * of recent read latencies are hedged. The delay is recomputed from the latest latencies every
+ * {@link #SAMPLES_BETWEEN_UPDATES} reads, and is unknown until {@link #MIN_SAMPLES} reads have been recorded.
+ */
+class HedgingPolicy {
+    @VisibleForTesting
+    static final int MIN_SAMPLES = 100;
+    @VisibleForTesting
+    static final int SAMPLES_BETWEEN_UPDATES = 100;
+    private static final int WINDOW_SIZE = 1024;
+
+    private final double percentile;
+    private final Reservoir recentLatencies = new SlidingWindowReservoir(WINDOW_SIZE);
+    private final AtomicLong numSamples = new AtomicLong();
+    private volatile long hedgeDelayNanos = -1;
+
+    HedgingPolicy(double percentile) {
+        Preconditions.checkArgument(percentile > 0 && percentile < 1,
+                "percentile must be in (0, 1), but was %s", percentile);
+        this.percentile = percentile;
+    }
+
+    void recordLatency(long latencyNanos) {
+        recentLatencies.update(latencyNanos);
+        long samples = numSamples.incrementAndGet();
+        if (samples >= MIN_SAMPLES && samples % SAMPLES_BETWEEN_UPDATES == 0) {
+            hedgeDelayNanos = (long) recentLatencies.getSnapshot().getValue(percentile);
+        }
+    }
+
+    OptionalLong getHedgeDelayNanos() {
+        long delay = hedgeDelayNanos;
+        return delay < 0 ? OptionalLong.empty() : OptionalLong.of(delay);
+    }
+}
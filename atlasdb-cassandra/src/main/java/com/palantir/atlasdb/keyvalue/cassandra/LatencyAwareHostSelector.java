@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Picks hosts at random with probability inversely proportional to their expected latency, so that a host which is
+ * alive but slow (e.g. in a long GC or a heavy compaction) receives less traffic without having to be blacklisted.
+ * <p>
+ * The expected latency of a host is an exponentially weighted moving average of the latencies recorded for it,
+ * multiplied by one more than its number of open requests. Hosts for which no latency has been recorded yet are
+ * assumed to be as fast as the fastest known host, so that new hosts are tried. Since every host keeps a non-zero
+ * chance of being picked, a slow host that recovers is noticed after a few more requests.
+ */
+class LatencyAwareHostSelector {
+    @VisibleForTesting
+    static final double DEFAULT_SMOOTHING_FACTOR = 0.1;
+
+    private final double smoothingFactor;
+    private final Map<InetSocketAddress, AtomicLong> latencyAverageBitsByHost = Maps.newConcurrentMap();
+
+    LatencyAwareHostSelector() {
+        this(DEFAULT_SMOOTHING_FACTOR);
+    }
+
+    /**
+     * @param smoothingFactor the weight of each new latency in a host's moving average, between 0 and 1.
+     */
+    LatencyAwareHostSelector(double smoothingFactor) {
+        Preconditions.checkArgument(smoothingFactor > 0 && smoothingFactor <= 1,
+                "smoothingFactor must be in (0, 1], but was %s", smoothingFactor);
+        this.smoothingFactor = smoothingFactor;
+    }
+
+    void recordLatency(InetSocketAddress host, long latencyNanos) {
+        AtomicLong averageBits = latencyAverageBitsByHost.computeIfAbsent(host,
+                unused -> new AtomicLong(Double.doubleToLongBits(Double.NaN)));
+        while (true) {
+            long oldBits = averageBits.get();
+            double oldAverage = Double.longBitsToDouble(oldBits);
+            double newAverage = Double.isNaN(oldAverage)
+                    ? latencyNanos
+                    : oldAverage + smoothingFactor * (latencyNanos - oldAverage);
+            if (averageBits.compareAndSet(oldBits, Double.doubleToLongBits(newAverage))) {
+                return;
+            }
+        }
+    }
+
+    void removeHost(InetSocketAddress host) {
+        latencyAverageBitsByHost.remove(host);
+    }
+
+    /**
+     * @return the moving average of the latencies recorded for {@code host}, or NaN if none have been recorded.
+     */
+    double getAverageLatencyNanos(InetSocketAddress host) {
+        AtomicLong averageBits = latencyAverageBitsByHost.get(host);
+        return averageBits == null ? Double.NaN : Double.longBitsToDouble(averageBits.get());
+    }
+
+    InetSocketAddress selectHost(Collection<InetSocketAddress> hosts, ToIntFunction<InetSocketAddress> openRequests) {
+        return selectHost(hosts, openRequests, ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param random a number in [0, 1) choosing where in the cumulative weights of {@code hosts} to pick.
+     */
+    @VisibleForTesting
+    InetSocketAddress selectHost(
+            Collection<InetSocketAddress> hosts,
+            ToIntFunction<InetSocketAddress> openRequests,
+            double random) {
+        Preconditions.checkArgument(!hosts.isEmpty(), "hosts should be non-empty");
+        double fastestKnownLatency = Double.POSITIVE_INFINITY;
+        for (InetSocketAddress host : hosts) {
+            double latency = getAverageLatencyNanos(host);
+            if (!Double.isNaN(latency)) {
+                fastestKnownLatency = Math.min(fastestKnownLatency, latency);
+            }
+        }
+        double defaultLatency = Double.isInfinite(fastestKnownLatency) ? 1.0 : fastestKnownLatency;
+
+        double[] weights = new double[hosts.size()];
+        double totalWeight = 0;
+        int index = 0;
+        for (InetSocketAddress host : hosts) {
+            double latency = getAverageLatencyNanos(host);
+            double expectedLatency = Math.max(Double.isNaN(latency) ? defaultLatency : latency, 1.0)
+                    * (Math.max(openRequests.applyAsInt(host), 0) + 1);
+            weights[index] = 1.0 / expectedLatency;
+            totalWeight += weights[index];
+            index++;
+        }
+
+        double target = random * totalWeight;
+        index = 0;
+        InetSocketAddress chosen = null;
+        for (InetSocketAddress host : hosts) {
+            chosen = host;
+            target -= weights[index++];
+            if (target < 0) {
+                break;
+            }
+        }
+        return chosen;
+    }
+}
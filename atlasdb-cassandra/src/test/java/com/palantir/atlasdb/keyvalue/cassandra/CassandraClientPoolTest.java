@@ -19,6 +19,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -29,6 +30,10 @@ import java.net.UnknownHostException;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.cassandra.thrift.Cassandra;
 import org.junit.Before;
@@ -40,6 +45,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.FunctionCheckedException;
 
@@ -53,6 +59,8 @@ public class CassandraClientPoolTest {
     private static final String HOSTNAME_3 = "3.0.0.0";
     private static final InetSocketAddress HOST_1 = new InetSocketAddress(HOSTNAME_1, DEFAULT_PORT);
     private static final InetSocketAddress HOST_2 = new InetSocketAddress(HOSTNAME_2, DEFAULT_PORT);
+    private static final byte[] KEY = PtBytes.toBytes("key");
+    private static final long SLOW_REQUEST_MILLIS = 10_000;
     private MetricRegistry metricRegistry;
 
     @Before
@@ -207,6 +215,67 @@ public class CassandraClientPoolTest {
         verifyBlacklistMetric(1);
     }
 
+    @Test
+    public void hedgedRequestReturnsResultFromAnotherHostIfTheFirstIsSlow() {
+        CassandraClientPool cassandraClientPool = hedgingClientPoolWithServersInCurrentPool(
+                ImmutableSet.of(HOST_1, HOST_2));
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_2), "fast", 0);
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            cassandraClientPool.runWithHedgingOnHost(HOST_2, KEY, input -> null);
+        }
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_1), "slow", SLOW_REQUEST_MILLIS);
+
+        long startNanos = System.nanoTime();
+        Object result = cassandraClientPool.runWithHedgingOnHost(HOST_1, KEY, input -> null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertThat(result, equalTo("fast"));
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < SLOW_REQUEST_MILLIS / 2);
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void requestIsNotHedgedBeforeEnoughLatenciesAreKnown() {
+        CassandraClientPool cassandraClientPool = hedgingClientPoolWithServersInCurrentPool(
+                ImmutableSet.of(HOST_1, HOST_2));
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_1), "slow", 100);
+
+        Object result = cassandraClientPool.runWithHedgingOnHost(HOST_1, KEY, input -> null);
+
+        assertThat(result, equalTo("slow"));
+        verifyNumberOfAttemptsOnHost(HOST_2, cassandraClientPool, 0);
+        cassandraClientPool.shutdown();
+    }
+
+    @Test
+    public void requestRunsOnTheCallingThreadWhenEveryHedgingThreadIsBusy() throws Exception {
+        CassandraClientPool cassandraClientPool = hedgingClientPoolWithServersInCurrentPool(
+                ImmutableSet.of(HOST_1, HOST_2));
+        CountDownLatch hedgingThreadsBusy = new CountDownLatch(2);
+        CountDownLatch releaseHedgingThreads = new CountDownLatch(1);
+        when(cassandraClientPool.currentPools.get(HOST_1).runWithPooledResource(
+                Mockito.<FunctionCheckedException<Cassandra.Client, Object, Exception>>any()))
+                .thenAnswer(invocation -> {
+                    if (Thread.currentThread().getName().startsWith("CassandraClientPoolHedging")) {
+                        hedgingThreadsBusy.countDown();
+                        releaseHedgingThreads.await();
+                    }
+                    return Thread.currentThread();
+                });
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        for (int i = 0; i < 2; i++) {
+            callers.submit(() -> cassandraClientPool.runWithHedgingOnHost(HOST_1, KEY, input -> null));
+        }
+        assertTrue(hedgingThreadsBusy.await(10, TimeUnit.SECONDS));
+
+        Object result = cassandraClientPool.runWithHedgingOnHost(HOST_1, KEY, input -> null);
+
+        assertThat(result, equalTo(Thread.currentThread()));
+        releaseHedgingThreads.countDown();
+        callers.shutdown();
+        cassandraClientPool.shutdown();
+    }
+
     private void verifyNumberOfAttemptsOnHost(InetSocketAddress host,
                                               CassandraClientPool cassandraClientPool,
                                               int numAttempts) {
@@ -228,15 +297,34 @@ public class CassandraClientPoolTest {
         return clientPoolWith(ImmutableSet.of(), servers, Optional.of(exception));
     }
 
+    private CassandraClientPool hedgingClientPoolWithServersInCurrentPool(ImmutableSet<InetSocketAddress> servers) {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        when(config.latencyAwareHostSelection()).thenReturn(true);
+        when(config.hedgeReads()).thenReturn(true);
+        when(config.hedgedReadPercentile()).thenReturn(0.5);
+        when(config.maxConnectionBurstSize()).thenReturn(2);
+        return clientPoolWith(config, servers, Optional.empty());
+    }
+
     private CassandraClientPool clientPoolWith(
             ImmutableSet<InetSocketAddress> servers,
             ImmutableSet<InetSocketAddress> serversInPool,
             Optional<Exception> failureMode) {
+        return clientPoolWith(mockConfig(servers), serversInPool, failureMode);
+    }
+
+    private CassandraKeyValueServiceConfig mockConfig(ImmutableSet<InetSocketAddress> servers) {
         CassandraKeyValueServiceConfig config = mock(CassandraKeyValueServiceConfig.class);
         when(config.poolRefreshIntervalSeconds()).thenReturn(POOL_REFRESH_INTERVAL_SECONDS);
         when(config.timeBetweenConnectionEvictionRunsSeconds()).thenReturn(TIME_BETWEEN_EVICTION_RUNS_SECONDS);
         when(config.servers()).thenReturn(servers);
+        return config;
+    }
 
+    private CassandraClientPool clientPoolWith(
+            CassandraKeyValueServiceConfig config,
+            ImmutableSet<InetSocketAddress> serversInPool,
+            Optional<Exception> failureMode) {
         CassandraClientPool cassandraClientPool = CassandraClientPool.createWithoutChecksForTesting(config);
 
         serversInPool.forEach(address ->
@@ -265,6 +353,19 @@ public class CassandraClientPoolTest {
         }
     }
 
+    private void setResultForHost(CassandraClientPoolingContainer poolingContainer, Object result, long delayMillis) {
+        try {
+            when(poolingContainer.runWithPooledResource(
+                    Mockito.<FunctionCheckedException<Cassandra.Client, Object, Exception>>any()))
+                    .thenAnswer(invocation -> {
+                        Thread.sleep(delayMillis);
+                        return result;
+                    });
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     private void runNoopOnHost(InetSocketAddress host, CassandraClientPool pool) {
         pool.runOnHost(host, input -> null);
     }
@@ -62,4 +62,15 @@ public class CassandraKeyValueServiceConfigTest {
     public void notUsingSslIfSslParamNotPresentAndSslConfigurationNotPresent() {
         assertFalse(CASSANDRA_CONFIG.usingSsl());
     }
+
+    @Test
+    public void latencyAwareHostSelectionAndHedgedReadsAreOffByDefault() {
+        assertFalse(CASSANDRA_CONFIG.latencyAwareHostSelection());
+        assertFalse(CASSANDRA_CONFIG.hedgeReads());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hedgedReadPercentileMustBeBelowOne() {
+        CASSANDRA_CONFIG.withHedgedReadPercentile(1.0);
+    }
 }
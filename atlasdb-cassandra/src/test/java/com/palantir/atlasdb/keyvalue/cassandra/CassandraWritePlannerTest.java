@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class CassandraWritePlannerTest {
+    private static final InetSocketAddress HOST_1 = new InetSocketAddress("cassandra1", 9160);
+    private static final InetSocketAddress HOST_2 = new InetSocketAddress("cassandra2", 9160);
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+
+    @Test
+    public void groupsWritesByOwningHost() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = plan(100, 1_000_000,
+                cell("a1", "c"), cell("b1", "c"), cell("a2", "c"), cell("b2", "c"));
+
+        assertThat(batches.size(), is(2));
+        for (CassandraWritePlanner.Batch<Cell> batch : batches) {
+            for (Cell cell : batch.getWrites()) {
+                assertThat(batch.getHost(), is(ownerOf(cell.getRowName())));
+            }
+        }
+    }
+
+    @Test
+    public void ordersRowsByTokenWithinAHost() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = plan(100, 1_000_000,
+                cell("a3", "c"), cell("a1", "c"), cell("a2", "c"));
+
+        assertThat(rows(Iterables.getOnlyElement(batches)), contains("a1", "a2", "a3"));
+    }
+
+    @Test
+    public void keepsWritesToARowInOrder() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = plan(100, 1_000_000,
+                cell("a1", "c2"), cell("a2", "c"), cell("a1", "c1"));
+
+        List<Cell> writes = Iterables.getOnlyElement(batches).getWrites();
+        assertThat(writes, contains(cell("a1", "c2"), cell("a1", "c1"), cell("a2", "c")));
+    }
+
+    @Test
+    public void capsBatchesByNumberOfWrites() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = plan(2, 1_000_000,
+                cell("a1", "c"), cell("a2", "c"), cell("a3", "c"), cell("a4", "c"), cell("a5", "c"));
+
+        assertThat(batches.stream().map(batch -> batch.getWrites().size()).collect(Collectors.toList()),
+                containsInAnyOrder(2, 2, 1));
+    }
+
+    @Test
+    public void capsBatchesBySerializedSize() {
+        long maxBytes = 3 * writeSize(1000) + 100;
+        List<CassandraWritePlanner.Batch<Cell>> batches = new CassandraWritePlanner(
+                CassandraWritePlannerTest::ownerOf, 100, maxBytes).plan(
+                        ImmutableList.of(cell("a1", "c"), cell("a2", "c"), cell("a3", "c"), cell("a4", "c")),
+                        Cell::getRowName,
+                        cell -> writeSize(1000));
+
+        assertThat(batches.size(), is(2));
+        for (CassandraWritePlanner.Batch<Cell> batch : batches) {
+            assertTrue(batch.getSizeBytes() <= maxBytes);
+        }
+    }
+
+    @Test
+    public void doesNotSplitARowThatFitsInABatch() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = plan(3, 1_000_000,
+                cell("a1", "c"), cell("a2", "c1"), cell("a2", "c2"), cell("a2", "c3"));
+
+        assertThat(batches.size(), is(2));
+        assertThat(rows(batches.get(0)), contains("a1"));
+        assertThat(rows(batches.get(1)), contains("a2", "a2", "a2"));
+    }
+
+    @Test
+    public void splitsARowThatIsTooLargeForOneBatch() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = plan(2, 1_000_000,
+                cell("a1", "c1"), cell("a1", "c2"), cell("a1", "c3"), cell("a1", "c4"), cell("a1", "c5"));
+
+        assertThat(batches.stream().map(batch -> batch.getWrites().size()).collect(Collectors.toList()),
+                contains(2, 2, 1));
+        assertThat(batches.stream().flatMap(batch -> batch.getWrites().stream()).collect(Collectors.toList()),
+                contains(cell("a1", "c1"), cell("a1", "c2"), cell("a1", "c3"), cell("a1", "c4"), cell("a1", "c5")));
+    }
+
+    @Test
+    public void sendsAWriteLargerThanTheSizeLimitOnItsOwn() {
+        List<CassandraWritePlanner.Batch<Cell>> batches = new CassandraWritePlanner(
+                CassandraWritePlannerTest::ownerOf, 100, 1000).plan(
+                        ImmutableList.of(cell("a1", "c"), cell("a2", "c"), cell("a3", "c")),
+                        Cell::getRowName,
+                        cell -> cell.equals(cell("a2", "c")) ? 5000 : 10);
+
+        assertThat(batches.size(), is(3));
+        assertThat(batches.get(1).getWrites(), contains(cell("a2", "c")));
+    }
+
+    @Test
+    public void planningNoWritesProducesNoBatches() {
+        assertTrue(plan(100, 1_000_000).isEmpty());
+    }
+
+    @Test
+    public void estimatedSizeGrowsWithTableNameColumnAndValue() {
+        Cell cell = cell("row", "col");
+        long size = CassandraWritePlanner.estimateSerializedSize(TABLE, cell, 10);
+
+        assertTrue(size > "ns__table".length() + "col".length() + 10);
+        assertThat(CassandraWritePlanner.estimateSerializedSize(TABLE, cell, 20), is(size + 10));
+        assertThat(CassandraWritePlanner.estimateSerializedSize(TABLE, cell("row", "column"), 10), is(size + 3));
+        assertThat(CassandraWritePlanner.estimateSerializedSize(
+                TableReference.createFromFullyQualifiedName("ns.longer_table"), cell, 10), is(size + 7));
+    }
+
+    private static List<CassandraWritePlanner.Batch<Cell>> plan(int maxWrites, long maxBytes, Cell... cells) {
+        return new CassandraWritePlanner(CassandraWritePlannerTest::ownerOf, maxWrites, maxBytes).plan(
+                ImmutableList.copyOf(cells),
+                Cell::getRowName,
+                cell -> CassandraWritePlanner.estimateSerializedSize(TABLE, cell, 10));
+    }
+
+    private static long writeSize(int valueLength) {
+        return CassandraWritePlanner.estimateSerializedSize(TABLE, cell("a1", "c"), valueLength);
+    }
+
+    // Rows starting with 'a' are owned by the first host, and all others by the second.
+    private static InetSocketAddress ownerOf(byte[] row) {
+        return row[0] == 'a' ? HOST_1 : HOST_2;
+    }
+
+    private static List<String> rows(CassandraWritePlanner.Batch<Cell> batch) {
+        return batch.getWrites().stream()
+                .map(cell -> PtBytes.toString(cell.getRowName()))
+                .collect(Collectors.toList());
+    }
+
+    private static Cell cell(String row, String column) {
+        return Cell.create(PtBytes.toBytes(row), PtBytes.toBytes(column));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+public class CqlColumnRangePageTest {
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final byte[] COL_1 = PtBytes.toBytes("col1");
+    private static final byte[] COL_2 = PtBytes.toBytes("col2");
+    private static final long START_TS = 100L;
+
+    private final CqlColumnRangePage page = new CqlColumnRangePage(ROW, START_TS);
+
+    @Test
+    public void keepsOnlyTheLatestVisibleVersionOfEachColumn() {
+        page.add(COL_1, 150L, value(1));
+        page.add(COL_1, 90L, value(2));
+        page.add(COL_1, 80L, value(3));
+        page.add(COL_2, 70L, value(4));
+
+        Map<Cell, Value> results = page.getResults();
+        assertEquals(2, results.size());
+        assertArrayEquals(value(2), results.get(Cell.create(ROW, COL_1)).getContents());
+        assertEquals(90L, results.get(Cell.create(ROW, COL_1)).getTimestamp());
+        assertArrayEquals(value(4), results.get(Cell.create(ROW, COL_2)).getContents());
+    }
+
+    @Test
+    public void returnsColumnsInTheOrderTheyWereRead() {
+        page.add(COL_1, 10L, value(1));
+        page.add(COL_2, 10L, value(2));
+
+        assertEquals(
+                ImmutableList.of(Cell.create(ROW, COL_1), Cell.create(ROW, COL_2)),
+                ImmutableList.copyOf(page.getResults().keySet()));
+    }
+
+    @Test
+    public void aShortPageEndsTheRange() {
+        page.add(COL_1, 10L, value(1));
+
+        assertFalse(page.getNextPageStart(2).isPresent());
+    }
+
+    @Test
+    public void anEmptyPageEndsTheRange() {
+        assertFalse(page.getNextPageStart(0).isPresent());
+        assertFalse(page.getNextPageStart(10).isPresent());
+    }
+
+    @Test
+    public void skipsOlderVersionsOfACompletedColumn() {
+        page.add(COL_1, 10L, value(1));
+        page.add(COL_2, 20L, value(2));
+
+        Optional<CqlColumnRangePage.PageStart> nextPageStart = page.getNextPageStart(2);
+        assertTrue(nextPageStart.isPresent());
+        assertArrayEquals(COL_2, nextPageStart.get().getColumn());
+        assertEquals(Long.MAX_VALUE, nextPageStart.get().getStoredTimestamp());
+    }
+
+    @Test
+    public void resumesAtTheFirstVisibleVersionOfAnIncompleteColumn() {
+        page.add(COL_1, 10L, value(1));
+        page.add(COL_2, 200L, value(2));
+
+        Optional<CqlColumnRangePage.PageStart> nextPageStart = page.getNextPageStart(2);
+        assertTrue(nextPageStart.isPresent());
+        assertArrayEquals(COL_2, nextPageStart.get().getColumn());
+        assertEquals(~START_TS, nextPageStart.get().getStoredTimestamp());
+        assertEquals(Cell.create(ROW, COL_1), Iterables.getOnlyElement(page.getResults().keySet()));
+    }
+
+    @Test
+    public void firstPageOfAnUnboundedRangeHasNoStart() {
+        assertFalse(CqlColumnRangePage.getFirstPageStart(PtBytes.EMPTY_BYTE_ARRAY, START_TS).isPresent());
+    }
+
+    @Test
+    public void firstPageStartsAtTheFirstVisibleVersionOfTheStartColumn() {
+        Optional<CqlColumnRangePage.PageStart> firstPageStart = CqlColumnRangePage.getFirstPageStart(COL_1, START_TS);
+        assertTrue(firstPageStart.isPresent());
+        assertArrayEquals(COL_1, firstPageStart.get().getColumn());
+        assertEquals(~START_TS, firstPageStart.get().getStoredTimestamp());
+    }
+
+    private static byte[] value(int value) {
+        return PtBytes.toBytes(value);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class HedgingPolicyTest {
+    private final HedgingPolicy policy = new HedgingPolicy(0.9);
+
+    @Test
+    public void noDelayUntilEnoughLatenciesAreRecorded() {
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES - 1; i++) {
+            policy.recordLatency(i);
+        }
+        assertFalse(policy.getHedgeDelayNanos().isPresent());
+    }
+
+    @Test
+    public void delayIsThePercentileOfRecentLatencies() {
+        for (int i = 1; i <= HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.recordLatency(i);
+        }
+        assertEquals(90.0, policy.getHedgeDelayNanos().getAsLong(), 1.0);
+    }
+
+    @Test
+    public void delayFollowsChangesInLatency() {
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.recordLatency(10);
+        }
+        assertEquals(10, policy.getHedgeDelayNanos().getAsLong());
+
+        for (int i = 0; i < 2000; i++) {
+            policy.recordLatency(1000);
+        }
+        assertEquals(1000, policy.getHedgeDelayNanos().getAsLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileMustBeBelowOne() {
+        new HedgingPolicy(1.0);
+    }
+}
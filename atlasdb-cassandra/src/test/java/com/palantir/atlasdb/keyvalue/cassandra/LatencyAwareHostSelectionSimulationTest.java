@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+/**
+ * Demonstrates the effect of latency aware host selection and hedging on tail latency, using simulated hosts.
+ */
+public class LatencyAwareHostSelectionSimulationTest {
+    private static final int NUM_HOSTS = 6;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final int NUM_REQUESTS = 20_000;
+    private static final long SEED = 42L;
+    private static final double P99 = 0.99;
+
+    @Test
+    public void latencyAwareSelectionAvoidsASlowHost() {
+        SimulatedCassandraHosts.Result random = runWithOneSlowHost(false);
+        SimulatedCassandraHosts.Result latencyAware = runWithOneSlowHost(true);
+
+        // One in six requests goes to the slow host when choosing owners at random...
+        assertThat(random.getPercentileMillis(P99), greaterThanOrEqualTo(200L));
+        // ...but it only gets a small fraction of requests once it is known to be slow.
+        assertThat(latencyAware.getPercentileMillis(P99), lessThanOrEqualTo(3L));
+    }
+
+    @Test
+    public void hedgingCutsOffUnpredictableStalls() {
+        SimulatedCassandraHosts.Result unhedged = runWithStallingHosts(Optional.empty());
+        SimulatedCassandraHosts.Result hedged = runWithStallingHosts(Optional.of(new HedgingPolicy(0.95)));
+
+        // Stalls of individual requests cannot be predicted by a moving average...
+        assertThat(unhedged.getPercentileMillis(P99), greaterThanOrEqualTo(100L));
+        // ...but a hedged request only waits for the hedge delay and a second, fast attempt.
+        assertThat(hedged.getPercentileMillis(P99), lessThan(10L));
+        assertThat(hedged.getNumHedgedRequests(), lessThan(NUM_REQUESTS / 10));
+    }
+
+    private static SimulatedCassandraHosts.Result runWithOneSlowHost(boolean latencyAware) {
+        SimulatedCassandraHosts hosts = new SimulatedCassandraHosts(REPLICATION_FACTOR, SEED);
+        hosts.addHost(SimulatedCassandraHosts.uniformLatency(200, 250));
+        for (int i = 1; i < NUM_HOSTS; i++) {
+            hosts.addHost(SimulatedCassandraHosts.uniformLatency(1, 3));
+        }
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        SimulatedCassandraHosts.HostChooser chooser = latencyAware
+                ? SimulatedCassandraHosts.latencyAwareHostChooser(selector)
+                : hosts.randomHostChooser();
+        return hosts.run(NUM_REQUESTS, chooser, selector, Optional.empty());
+    }
+
+    private static SimulatedCassandraHosts.Result runWithStallingHosts(Optional<HedgingPolicy> hedgingPolicy) {
+        SimulatedCassandraHosts hosts = new SimulatedCassandraHosts(REPLICATION_FACTOR, SEED);
+        for (int i = 0; i < NUM_HOSTS; i++) {
+            hosts.addHost(SimulatedCassandraHosts.withStalls(SimulatedCassandraHosts.uniformLatency(1, 3), 0.03, 100));
+        }
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        return hosts.run(NUM_REQUESTS, SimulatedCassandraHosts.latencyAwareHostChooser(selector), selector,
+                hedgingPolicy);
+    }
+}
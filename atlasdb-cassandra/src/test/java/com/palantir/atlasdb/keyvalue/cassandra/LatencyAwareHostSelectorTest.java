@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+public class LatencyAwareHostSelectorTest {
+    private static final InetSocketAddress HOST_1 = new InetSocketAddress("1.0.0.0", 5000);
+    private static final InetSocketAddress HOST_2 = new InetSocketAddress("2.0.0.0", 5000);
+    private static final InetSocketAddress HOST_3 = new InetSocketAddress("3.0.0.0", 5000);
+    private static final List<InetSocketAddress> HOSTS = ImmutableList.of(HOST_1, HOST_2, HOST_3);
+    private static final int NUM_TRIALS = 1000;
+
+    private final LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+
+    @Test
+    public void firstLatencyRecordedIsTheAverage() {
+        selector.recordLatency(HOST_1, 100);
+
+        assertEquals(100.0, selector.getAverageLatencyNanos(HOST_1), 0.0);
+        assertTrue(Double.isNaN(selector.getAverageLatencyNanos(HOST_2)));
+    }
+
+    @Test
+    public void averageMovesTowardsNewLatencies() {
+        selector.recordLatency(HOST_1, 100);
+        selector.recordLatency(HOST_1, 200);
+
+        assertEquals(100 + LatencyAwareHostSelector.DEFAULT_SMOOTHING_FACTOR * 100,
+                selector.getAverageLatencyNanos(HOST_1), 1e-9);
+    }
+
+    @Test
+    public void hostsWithoutLatenciesArePickedUniformly() {
+        Map<InetSocketAddress, Integer> picks = pickManyTimes(ImmutableMap.of());
+
+        for (InetSocketAddress host : HOSTS) {
+            assertEquals(NUM_TRIALS / 3.0, picks.get(host), NUM_TRIALS / 30.0);
+        }
+    }
+
+    @Test
+    public void fasterHostsArePickedMoreOften() {
+        selector.recordLatency(HOST_1, millis(1));
+        selector.recordLatency(HOST_2, millis(1));
+        selector.recordLatency(HOST_3, millis(100));
+
+        Map<InetSocketAddress, Integer> picks = pickManyTimes(ImmutableMap.of());
+
+        // The slow host should get 1/201 of the requests.
+        assertTrue(picks.get(HOST_3) < NUM_TRIALS / 100);
+        assertEquals(picks.get(HOST_1), picks.get(HOST_2), NUM_TRIALS / 10.0);
+    }
+
+    @Test
+    public void hostsWithMoreOpenRequestsArePickedLessOften() {
+        selector.recordLatency(HOST_1, millis(1));
+        selector.recordLatency(HOST_2, millis(1));
+        selector.recordLatency(HOST_3, millis(1));
+
+        Map<InetSocketAddress, Integer> picks = pickManyTimes(ImmutableMap.of(HOST_3, 9));
+
+        // The busy host should get 1/21 of the requests.
+        assertTrue(picks.get(HOST_3) < NUM_TRIALS / 15);
+    }
+
+    @Test
+    public void hostsWithoutLatenciesAreAssumedToBeAsFastAsTheFastestHost() {
+        selector.recordLatency(HOST_1, millis(1));
+        selector.recordLatency(HOST_2, millis(100));
+
+        Map<InetSocketAddress, Integer> picks = pickManyTimes(ImmutableMap.of());
+
+        assertEquals(picks.get(HOST_1), picks.get(HOST_3), NUM_TRIALS / 10.0);
+    }
+
+    @Test
+    public void slowHostIsPickedAgainOnceItRecovers() {
+        selector.recordLatency(HOST_1, millis(1));
+        selector.recordLatency(HOST_2, millis(1));
+        selector.recordLatency(HOST_3, millis(100));
+        for (int i = 0; i < 50; i++) {
+            selector.recordLatency(HOST_3, millis(1));
+        }
+
+        Map<InetSocketAddress, Integer> picks = pickManyTimes(ImmutableMap.of());
+
+        assertTrue(picks.get(HOST_3) > NUM_TRIALS / 5);
+    }
+
+    @Test
+    public void removedHostsForgetTheirLatencies() {
+        selector.recordLatency(HOST_1, 100);
+        selector.removeHost(HOST_1);
+
+        assertTrue(Double.isNaN(selector.getAverageLatencyNanos(HOST_1)));
+    }
+
+    @Test
+    public void randomValueSelectsHostsByCumulativeWeight() {
+        selector.recordLatency(HOST_1, 100);
+        selector.recordLatency(HOST_2, 100);
+        selector.recordLatency(HOST_3, 200);
+
+        // Weights are 2:2:1.
+        assertEquals(HOST_1, selector.selectHost(HOSTS, host -> 0, 0.0));
+        assertEquals(HOST_1, selector.selectHost(HOSTS, host -> 0, 0.39));
+        assertEquals(HOST_2, selector.selectHost(HOSTS, host -> 0, 0.41));
+        assertEquals(HOST_3, selector.selectHost(HOSTS, host -> 0, 0.81));
+        assertEquals(HOST_3, selector.selectHost(HOSTS, host -> 0, 0.999));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotSelectFromNoHosts() {
+        selector.selectHost(ImmutableList.of(), host -> 0);
+    }
+
+    private Map<InetSocketAddress, Integer> pickManyTimes(Map<InetSocketAddress, Integer> openRequests) {
+        Map<InetSocketAddress, Integer> picks = Maps.newHashMap();
+        for (InetSocketAddress host : HOSTS) {
+            picks.put(host, 0);
+        }
+        for (int i = 0; i < NUM_TRIALS; i++) {
+            // Evenly spaced random values make the proportions exact up to rounding.
+            InetSocketAddress host = selector.selectHost(
+                    HOSTS, address -> openRequests.getOrDefault(address, 0), (i + 0.5) / NUM_TRIALS);
+            picks.merge(host, 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A simulated cluster of Cassandra hosts with configurable latencies, for evaluating host selection and hedging
+ * without a real Cassandra. Requests for random keys are sent one at a time, in virtual time, to hosts chosen
+ * among the owners of the key, and their latencies are recorded with the given selector and hedging policy just as
+ * {@link CassandraClientPool} records them.
+ */
+final class SimulatedCassandraHosts {
+    interface LatencyModel {
+        long sampleLatencyNanos(Random random);
+    }
+
+    interface HostChooser {
+        InetSocketAddress choose(List<InetSocketAddress> candidates);
+    }
+
+    static final class Result {
+        private final long[] sortedLatencies;
+        private final int numHedgedRequests;
+
+        private Result(long[] sortedLatencies, int numHedgedRequests) {
+            this.sortedLatencies = sortedLatencies;
+            this.numHedgedRequests = numHedgedRequests;
+        }
+
+        long getPercentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sortedLatencies[Math.max(index, 0)]);
+        }
+
+        int getNumHedgedRequests() {
+            return numHedgedRequests;
+        }
+    }
+
+    private static final int NUM_KEYS = 1000;
+
+    private final int replicationFactor;
+    private final Random random;
+    private final List<InetSocketAddress> hosts = Lists.newArrayList();
+    private final Map<InetSocketAddress, LatencyModel> latencyModels = Maps.newHashMap();
+
+    SimulatedCassandraHosts(int replicationFactor, long seed) {
+        this.replicationFactor = replicationFactor;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return a latency uniformly distributed between the given bounds.
+     */
+    static LatencyModel uniformLatency(long minMillis, long maxMillis) {
+        return random -> TimeUnit.MILLISECONDS.toNanos(minMillis)
+                + (long) (random.nextDouble() * TimeUnit.MILLISECONDS.toNanos(maxMillis - minMillis));
+    }
+
+    /**
+     * @return a latency drawn from {@code normalLatency}, except that a proportion {@code stallProbability} of
+     *         requests stall for {@code stallMillis}, e.g. because they arrive during a GC pause.
+     */
+    static LatencyModel withStalls(LatencyModel normalLatency, double stallProbability, long stallMillis) {
+        return random -> random.nextDouble() < stallProbability
+                ? TimeUnit.MILLISECONDS.toNanos(stallMillis)
+                : normalLatency.sampleLatencyNanos(random);
+    }
+
+    HostChooser randomHostChooser() {
+        return candidates -> candidates.get(random.nextInt(candidates.size()));
+    }
+
+    static HostChooser latencyAwareHostChooser(LatencyAwareHostSelector selector) {
+        return candidates -> selector.selectHost(candidates, host -> 0);
+    }
+
+    InetSocketAddress addHost(LatencyModel latencyModel) {
+        InetSocketAddress host = InetSocketAddress.createUnresolved("host" + hosts.size(), 9160);
+        hosts.add(host);
+        latencyModels.put(host, latencyModel);
+        return host;
+    }
+
+    /**
+     * Key {@code k} is owned by {@code replicationFactor} consecutive hosts, starting from host {@code k % n}.
+     */
+    List<InetSocketAddress> getOwners(int key) {
+        ImmutableList.Builder<InetSocketAddress> owners = ImmutableList.builder();
+        for (int i = 0; i < replicationFactor; i++) {
+            owners.add(hosts.get((key + i) % hosts.size()));
+        }
+        return owners.build();
+    }
+
+    /**
+     * Runs {@code numRequests} requests. If {@code hedgingPolicy} is present, a request slower than its delay is
+     * also sent to another owner of the key, and completes when the first of the two attempts does.
+     */
+    Result run(
+            int numRequests,
+            HostChooser chooser,
+            LatencyAwareHostSelector selector,
+            Optional<HedgingPolicy> hedgingPolicy) {
+        Preconditions.checkState(hosts.size() >= replicationFactor, "not enough hosts");
+        long[] latencies = new long[numRequests];
+        int numHedgedRequests = 0;
+        for (int i = 0; i < numRequests; i++) {
+            List<InetSocketAddress> owners = getOwners(random.nextInt(NUM_KEYS));
+            InetSocketAddress primaryHost = chooser.choose(owners);
+            long primaryLatency = sendRequest(primaryHost, selector, hedgingPolicy);
+            latencies[i] = primaryLatency;
+
+            OptionalLong hedgeDelay = hedgingPolicy.isPresent()
+                    ? hedgingPolicy.get().getHedgeDelayNanos()
+                    : OptionalLong.empty();
+            if (hedgeDelay.isPresent() && primaryLatency > hedgeDelay.getAsLong()) {
+                List<InetSocketAddress> otherOwners = Lists.newArrayList(owners);
+                otherOwners.remove(primaryHost);
+                long hedgeLatency = sendRequest(chooser.choose(otherOwners), selector, hedgingPolicy);
+                latencies[i] = Math.min(primaryLatency, hedgeDelay.getAsLong() + hedgeLatency);
+                numHedgedRequests++;
+            }
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, numHedgedRequests);
+    }
+
+    private long sendRequest(
+            InetSocketAddress host,
+            LatencyAwareHostSelector selector,
+            Optional<HedgingPolicy> hedgingPolicy) {
+        long latency = latencyModels.get(host).sampleLatencyNanos(random);
+        selector.recordLatency(host, latency);
+        hedgingPolicy.ifPresent(policy -> policy.recordLatency(latency));
+        return latency;
+    }
+}
@@ -1018,6 +1018,15 @@ public final class TableMetadataPersistence {
      * <code>optional bool appendHeavyAndReadLight = 11;</code>
      */
     boolean getAppendHeavyAndReadLight();
+
+    /**
+     * <code>optional int32 commitLockStripes = 12;</code>
+     */
+    boolean hasCommitLockStripes();
+    /**
+     * <code>optional int32 commitLockStripes = 12;</code>
+     */
+    int getCommitLockStripes();
   }
   /**
    * Protobuf type {@code com.palantir.atlasdb.protos.generated.TableMetadata}
@@ -1166,6 +1175,11 @@ public final class TableMetadataPersistence {
               appendHeavyAndReadLight_ = input.readBool();
               break;
             }
+            case 96: {
+              bitField0_ |= 0x00000800;
+              commitLockStripes_ = input.readInt32();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1383,6 +1397,21 @@ public final class TableMetadataPersistence {
       return appendHeavyAndReadLight_;
     }
 
+    public static final int COMMITLOCKSTRIPES_FIELD_NUMBER = 12;
+    private int commitLockStripes_;
+    /**
+     * <code>optional int32 commitLockStripes = 12;</code>
+     */
+    public boolean hasCommitLockStripes() {
+      return ((bitField0_ & 0x00000800) == 0x00000800);
+    }
+    /**
+     * <code>optional int32 commitLockStripes = 12;</code>
+     */
+    public int getCommitLockStripes() {
+      return commitLockStripes_;
+    }
+
     private void initFields() {
       rowName_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.NameMetadataDescription.getDefaultInstance();
       columns_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ColumnMetadataDescription.getDefaultInstance();
@@ -1395,6 +1424,7 @@ public final class TableMetadataPersistence {
       sweepStrategy_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy.NOTHING;
       explicitCompressionBlockSizeKiloBytes_ = 0;
       appendHeavyAndReadLight_ = false;
+      commitLockStripes_ = 0;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -1462,6 +1492,9 @@ public final class TableMetadataPersistence {
       if (((bitField0_ & 0x00000400) == 0x00000400)) {
         output.writeBool(11, appendHeavyAndReadLight_);
       }
+      if (((bitField0_ & 0x00000800) == 0x00000800)) {
+        output.writeInt32(12, commitLockStripes_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -1515,6 +1548,10 @@ public final class TableMetadataPersistence {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(11, appendHeavyAndReadLight_);
       }
+      if (((bitField0_ & 0x00000800) == 0x00000800)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(12, commitLockStripes_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -1664,6 +1701,8 @@ public final class TableMetadataPersistence {
         bitField0_ = (bitField0_ & ~0x00000200);
         appendHeavyAndReadLight_ = false;
         bitField0_ = (bitField0_ & ~0x00000400);
+        commitLockStripes_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000800);
         return this;
       }
 
@@ -1744,6 +1783,10 @@ public final class TableMetadataPersistence {
           to_bitField0_ |= 0x00000400;
         }
         result.appendHeavyAndReadLight_ = appendHeavyAndReadLight_;
+        if (((from_bitField0_ & 0x00000800) == 0x00000800)) {
+          to_bitField0_ |= 0x00000800;
+        }
+        result.commitLockStripes_ = commitLockStripes_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -1793,6 +1836,9 @@ public final class TableMetadataPersistence {
         if (other.hasAppendHeavyAndReadLight()) {
           setAppendHeavyAndReadLight(other.getAppendHeavyAndReadLight());
         }
+        if (other.hasCommitLockStripes()) {
+          setCommitLockStripes(other.getCommitLockStripes());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -2372,6 +2418,38 @@ public final class TableMetadataPersistence {
         return this;
       }
 
+      private int commitLockStripes_ ;
+      /**
+       * <code>optional int32 commitLockStripes = 12;</code>
+       */
+      public boolean hasCommitLockStripes() {
+        return ((bitField0_ & 0x00000800) == 0x00000800);
+      }
+      /**
+       * <code>optional int32 commitLockStripes = 12;</code>
+       */
+      public int getCommitLockStripes() {
+        return commitLockStripes_;
+      }
+      /**
+       * <code>optional int32 commitLockStripes = 12;</code>
+       */
+      public Builder setCommitLockStripes(int value) {
+        bitField0_ |= 0x00000800;
+        commitLockStripes_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int32 commitLockStripes = 12;</code>
+       */
+      public Builder clearCommitLockStripes() {
+        bitField0_ = (bitField0_ & ~0x00000800);
+        commitLockStripes_ = 0;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:com.palantir.atlasdb.protos.generated.TableMetadata)
     }
 
@@ -8814,7 +8892,7 @@ public final class TableMetadataPersistence {
     java.lang.String[] descriptorData = {
       "\nEmain/proto/com/palantir/atlasdb/protos" +
       "/TableMetadataPersistence.proto\022%com.pal" +
-      "antir.atlasdb.protos.generated\"\234\005\n\rTable" +
+      "antir.atlasdb.protos.generated\"\267\005\n\rTable" +
       "Metadata\022O\n\007rowName\030\001 \002(\0132>.com.palantir" +
       ".atlasdb.protos.generated.NameMetadataDe" +
       "scription\022Q\n\007columns\030\002 \002(\0132@.com.palanti" +
@@ -8831,64 +8909,64 @@ public final class TableMetadataPersistence {
       "y\030\t \001(\01624.com.palantir.atlasdb.protos.ge" +
       "nerated.SweepStrategy\022-\n%explicitCompres" +
       "sionBlockSizeKiloBytes\030\n \001(\005\022\037\n\027appendHe" +
-      "avyAndReadLight\030\013 \001(\010\"\214\001\n\027NameMetadataDe",
-      "scription\022R\n\tnameParts\030\001 \003(\0132?.com.palan" +
-      "tir.atlasdb.protos.generated.NameCompone" +
-      "ntDescription\022\035\n\025hasFirstComponentHash\030\002" +
-      " \001(\010\"\362\001\n\030NameComponentDescription\022\025\n\rcom" +
-      "ponentName\030\001 \002(\t\022>\n\004type\030\002 \002(\01620.com.pal" +
-      "antir.atlasdb.protos.generated.ValueType" +
-      "\022D\n\005order\030\003 \002(\01625.com.palantir.atlasdb.p" +
-      "rotos.generated.ValueByteOrder\022\035\n\025hasUni" +
-      "formPartitioner\030\004 \001(\010\022\032\n\022explicitPartiti" +
-      "ons\030\005 \003(\t\"\310\001\n\031ColumnMetadataDescription\022",
-      "S\n\014namedColumns\030\001 \003(\0132=.com.palantir.atl" +
-      "asdb.protos.generated.NamedColumnDescrip" +
-      "tion\022V\n\rdynamicColumn\030\002 \001(\0132?.com.palant" +
-      "ir.atlasdb.protos.generated.DynamicColum" +
-      "nDescription\"\300\001\n\030DynamicColumnDescriptio" +
-      "n\022V\n\016columnNameDesc\030\001 \002(\0132>.com.palantir" +
-      ".atlasdb.protos.generated.NameMetadataDe" +
-      "scription\022L\n\005value\030\002 \002(\0132=.com.palantir." +
-      "atlasdb.protos.generated.ColumnValueDesc" +
-      "ription\"\213\001\n\026NamedColumnDescription\022\021\n\tsh",
-      "ortName\030\001 \002(\t\022\020\n\010longName\030\002 \002(\t\022L\n\005value" +
-      "\030\003 \002(\0132=.com.palantir.atlasdb.protos.gen" +
-      "erated.ColumnValueDescription\"\274\003\n\026Column" +
-      "ValueDescription\022>\n\004type\030\001 \002(\01620.com.pal" +
-      "antir.atlasdb.protos.generated.ValueType" +
-      "\022\021\n\tclassName\030\002 \001(\t\022M\n\013compression\030\003 \001(\016" +
-      "22.com.palantir.atlasdb.protos.generated" +
-      ".Compression:\004NONE\022H\n\006format\030\004 \001(\01628.com" +
-      ".palantir.atlasdb.protos.generated.Colum" +
-      "nValueFormat\022\032\n\022canonicalClassName\030\005 \001(\t",
-      "\022\037\n\023protoFileDescriptor\030\006 \001(\014B\002\030\001\022\030\n\020pro" +
-      "toMessageName\030\007 \001(\t\022_\n\027protoFileDescript" +
-      "orTree\030\010 \001(\0132>.com.palantir.atlasdb.prot" +
-      "os.generated.FileDescriptorTreeProto\"\214\001\n" +
-      "\027FileDescriptorTreeProto\022\033\n\023protoFileDes" +
-      "criptor\030\001 \002(\014\022T\n\014dependencies\030\002 \003(\0132>.co" +
-      "m.palantir.atlasdb.protos.generated.File" +
-      "DescriptorTreeProto*\305\001\n\tValueType\022\014\n\010VAR" +
-      "_LONG\020\001\022\016\n\nFIXED_LONG\020\002\022\n\n\006STRING\020\003\022\010\n\004B" +
-      "LOB\020\004\022\023\n\017VAR_SIGNED_LONG\020\005\022\034\n\030FIXED_LONG",
-      "_LITTLE_ENDIAN\020\006\022\016\n\nSHA256HASH\020\007\022\016\n\nVAR_" +
-      "STRING\020\010\022\027\n\023NULLABLE_FIXED_LONG\020\t\022\016\n\nSIZ" +
-      "ED_BLOB\020\n\022\010\n\004UUID\020\013*#\n\013Compression\022\010\n\004NO" +
-      "NE\020\001\022\n\n\006SNAPPY\020\002*N\n\021ColumnValueFormat\022\t\n" +
-      "\005PROTO\020\001\022\017\n\013PERSISTABLE\020\002\022\016\n\nVALUE_TYPE\020" +
-      "\003\022\r\n\tPERSISTER\020\004*/\n\016ValueByteOrder\022\r\n\tAS" +
-      "CENDING\020\001\022\016\n\nDESCENDING\020\002*\215\001\n\024TableConfl" +
-      "ictHandler\022\016\n\nIGNORE_ALL\020\001\022\030\n\024RETRY_ON_W" +
-      "RITE_WRITE\020\002\022\032\n\026RETRY_ON_VALUE_CHANGED\020\003" +
-      "\022\020\n\014SERIALIZABLE\020\004\022\035\n\031RETRY_ON_WRITE_WRI",
-      "TE_CELL\020\005*F\n\rCachePriority\022\013\n\007COLDEST\020\000\022" +
-      "\010\n\004COLD\020 \022\010\n\004WARM\020@\022\007\n\003HOT\020`\022\013\n\007HOTTEST\020" +
-      "\177**\n\021PartitionStrategy\022\013\n\007ORDERED\020\000\022\010\n\004H" +
-      "ASH\020\001*<\n\rSweepStrategy\022\013\n\007NOTHING\020\000\022\020\n\014C" +
-      "ONSERVATIVE\020\001\022\014\n\010THOROUGH\020\002*;\n\022Expiratio" +
-      "nStrategy\022\t\n\005NEVER\020\000\022\032\n\026INDIVIDUALLY_SPE" +
-      "CIFIED\020\001"
+      "avyAndReadLight\030\013 \001(\010\022\031\n\021commitLockStrip",
+      "es\030\014 \001(\005\"\214\001\n\027NameMetadataDescription\022R\n\t" +
+      "nameParts\030\001 \003(\0132?.com.palantir.atlasdb.p" +
+      "rotos.generated.NameComponentDescription" +
+      "\022\035\n\025hasFirstComponentHash\030\002 \001(\010\"\362\001\n\030Name" +
+      "ComponentDescription\022\025\n\rcomponentName\030\001 " +
+      "\002(\t\022>\n\004type\030\002 \002(\01620.com.palantir.atlasdb" +
+      ".protos.generated.ValueType\022D\n\005order\030\003 \002" +
+      "(\01625.com.palantir.atlasdb.protos.generat" +
+      "ed.ValueByteOrder\022\035\n\025hasUniformPartition" +
+      "er\030\004 \001(\010\022\032\n\022explicitPartitions\030\005 \003(\t\"\310\001\n",
+      "\031ColumnMetadataDescription\022S\n\014namedColum" +
+      "ns\030\001 \003(\0132=.com.palantir.atlasdb.protos.g" +
+      "enerated.NamedColumnDescription\022V\n\rdynam" +
+      "icColumn\030\002 \001(\0132?.com.palantir.atlasdb.pr" +
+      "otos.generated.DynamicColumnDescription\"" +
+      "\300\001\n\030DynamicColumnDescription\022V\n\016columnNa" +
+      "meDesc\030\001 \002(\0132>.com.palantir.atlasdb.prot" +
+      "os.generated.NameMetadataDescription\022L\n\005" +
+      "value\030\002 \002(\0132=.com.palantir.atlasdb.proto" +
+      "s.generated.ColumnValueDescription\"\213\001\n\026N",
+      "amedColumnDescription\022\021\n\tshortName\030\001 \002(\t" +
+      "\022\020\n\010longName\030\002 \002(\t\022L\n\005value\030\003 \002(\0132=.com." +
+      "palantir.atlasdb.protos.generated.Column" +
+      "ValueDescription\"\274\003\n\026ColumnValueDescript" +
+      "ion\022>\n\004type\030\001 \002(\01620.com.palantir.atlasdb" +
+      ".protos.generated.ValueType\022\021\n\tclassName" +
+      "\030\002 \001(\t\022M\n\013compression\030\003 \001(\01622.com.palant" +
+      "ir.atlasdb.protos.generated.Compression:" +
+      "\004NONE\022H\n\006format\030\004 \001(\01628.com.palantir.atl" +
+      "asdb.protos.generated.ColumnValueFormat\022",
+      "\032\n\022canonicalClassName\030\005 \001(\t\022\037\n\023protoFile" +
+      "Descriptor\030\006 \001(\014B\002\030\001\022\030\n\020protoMessageName" +
+      "\030\007 \001(\t\022_\n\027protoFileDescriptorTree\030\010 \001(\0132" +
+      ">.com.palantir.atlasdb.protos.generated." +
+      "FileDescriptorTreeProto\"\214\001\n\027FileDescript" +
+      "orTreeProto\022\033\n\023protoFileDescriptor\030\001 \002(\014" +
+      "\022T\n\014dependencies\030\002 \003(\0132>.com.palantir.at" +
+      "lasdb.protos.generated.FileDescriptorTre" +
+      "eProto*\305\001\n\tValueType\022\014\n\010VAR_LONG\020\001\022\016\n\nFI" +
+      "XED_LONG\020\002\022\n\n\006STRING\020\003\022\010\n\004BLOB\020\004\022\023\n\017VAR_",
+      "SIGNED_LONG\020\005\022\034\n\030FIXED_LONG_LITTLE_ENDIA" +
+      "N\020\006\022\016\n\nSHA256HASH\020\007\022\016\n\nVAR_STRING\020\010\022\027\n\023N" +
+      "ULLABLE_FIXED_LONG\020\t\022\016\n\nSIZED_BLOB\020\n\022\010\n\004" +
+      "UUID\020\013*#\n\013Compression\022\010\n\004NONE\020\001\022\n\n\006SNAPP" +
+      "Y\020\002*N\n\021ColumnValueFormat\022\t\n\005PROTO\020\001\022\017\n\013P" +
+      "ERSISTABLE\020\002\022\016\n\nVALUE_TYPE\020\003\022\r\n\tPERSISTE" +
+      "R\020\004*/\n\016ValueByteOrder\022\r\n\tASCENDING\020\001\022\016\n\n" +
+      "DESCENDING\020\002*\215\001\n\024TableConflictHandler\022\016\n" +
+      "\nIGNORE_ALL\020\001\022\030\n\024RETRY_ON_WRITE_WRITE\020\002\022" +
+      "\032\n\026RETRY_ON_VALUE_CHANGED\020\003\022\020\n\014SERIALIZA",
+      "BLE\020\004\022\035\n\031RETRY_ON_WRITE_WRITE_CELL\020\005*F\n\r" +
+      "CachePriority\022\013\n\007COLDEST\020\000\022\010\n\004COLD\020 \022\010\n\004" +
+      "WARM\020@\022\007\n\003HOT\020`\022\013\n\007HOTTEST\020\177**\n\021Partitio" +
+      "nStrategy\022\013\n\007ORDERED\020\000\022\010\n\004HASH\020\001*<\n\rSwee" +
+      "pStrategy\022\013\n\007NOTHING\020\000\022\020\n\014CONSERVATIVE\020\001" +
+      "\022\014\n\010THOROUGH\020\002*;\n\022ExpirationStrategy\022\t\n\005" +
+      "NEVER\020\000\022\032\n\026INDIVIDUALLY_SPECIFIED\020\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -8907,7 +8985,7 @@ public final class TableMetadataPersistence {
     internal_static_com_palantir_atlasdb_protos_generated_TableMetadata_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_com_palantir_atlasdb_protos_generated_TableMetadata_descriptor,
-        new java.lang.String[] { "RowName", "Columns", "ConflictHandler", "CachePriority", "PartitionStrategy", "RangeScanAllowed", "ExplicitCompression", "NegativeLookups", "SweepStrategy", "ExplicitCompressionBlockSizeKiloBytes", "AppendHeavyAndReadLight", });
+        new java.lang.String[] { "RowName", "Columns", "ConflictHandler", "CachePriority", "PartitionStrategy", "RangeScanAllowed", "ExplicitCompression", "NegativeLookups", "SweepStrategy", "ExplicitCompressionBlockSizeKiloBytes", "AppendHeavyAndReadLight", "CommitLockStripes", });
     internal_static_com_palantir_atlasdb_protos_generated_NameMetadataDescription_descriptor =
       getDescriptor().getMessageTypes().get(1);
     internal_static_com_palantir_atlasdb_protos_generated_NameMetadataDescription_fieldAccessorTable = new
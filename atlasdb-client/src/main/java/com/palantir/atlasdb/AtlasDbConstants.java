@@ -91,6 +91,7 @@ public class AtlasDbConstants {
     public static final char SCRUB_TABLE_SEPARATOR_CHAR = '\0';
 
     public static final boolean DEFAULT_ENABLE_SWEEP = false;
+    public static final boolean DEFAULT_ENABLE_GROUP_COMMIT = false;
     public static final long DEFAULT_SWEEP_PAUSE_MILLIS = 5 * 1000;
     public static final long DEFAULT_SWEEP_PERSISTENT_LOCK_WAIT_MILLIS = 30_000L;
     public static final int DEFAULT_SWEEP_BATCH_SIZE = 1000;
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * A compact summary of the transactions table for every start timestamp in [lower bound, watermark).
+ * <p>
+ * The watermark is only ever advanced to an immutable timestamp. Every transaction which started below an
+ * immutable timestamp has finished, so its entry in the transactions table, if it has one, can no longer change
+ * from committed to aborted or the other way around. A transaction in the summarized range is therefore either
+ * known to have committed, known to have been rolled back, or unknown: a start timestamp without an entry may
+ * not have been a transaction at all, or it may belong to a transaction that died before committing and has not
+ * been rolled back yet, so callers still have to resolve those the usual way.
+ * <p>
+ * Committed start timestamps are kept as one bit per timestamp, in chunks of {@code chunkSpan} timestamps. The
+ * few rolled back transactions of each chunk are kept as a sorted array. The oldest chunks are dropped once the
+ * summary spans more than {@code maxSpan} timestamps.
+ */
+@ThreadSafe
+public final class ResolvedTransactionWatermark {
+    public enum Outcome {
+        COMMITTED,
+        ABORTED,
+        UNKNOWN
+    }
+
+    /**
+     * Reads the entries of the transactions table.
+     */
+    public interface TransactionTableScanner {
+        /**
+         * @return the commit timestamp of every transaction with an entry in the transactions table whose start
+         *         timestamp is in [fromInclusive, toExclusive), keyed by start timestamp.
+         */
+        Map<Long, Long> getCommitTimestamps(long fromInclusive, long toExclusive);
+    }
+
+    private static final int DEFAULT_CHUNK_SPAN = 1 << 16;
+    private static final long DEFAULT_MAX_SPAN = 1L << 24;
+    private static final long UNINITIALIZED = Long.MIN_VALUE;
+    private static final long FAILED_COMMIT_TS = -1L;
+
+    private static final class Chunk {
+        private final long base;
+        private final long[] committedWords;
+        private volatile long[] aborted = new long[0];
+
+        Chunk(long base, int chunkSpan) {
+            this.base = base;
+            this.committedWords = new long[chunkSpan / Long.SIZE];
+        }
+
+        Outcome getOutcome(long startTs) {
+            int index = (int) (startTs - base);
+            if ((committedWords[index / Long.SIZE] & (1L << index)) != 0) {
+                return Outcome.COMMITTED;
+            }
+            return Arrays.binarySearch(aborted, startTs) >= 0 ? Outcome.ABORTED : Outcome.UNKNOWN;
+        }
+
+        /**
+         * Bits are only ever set, so a reader racing with this still sees every bit below the watermark.
+         */
+        void record(Map<Long, Long> entries) {
+            long[] newAborted = new long[entries.size()];
+            int numAborted = 0;
+            for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+                if (entry.getValue() == FAILED_COMMIT_TS) {
+                    newAborted[numAborted++] = entry.getKey();
+                } else {
+                    int index = (int) (entry.getKey() - base);
+                    committedWords[index / Long.SIZE] |= 1L << index;
+                }
+            }
+            if (numAborted != 0) {
+                long[] merged = Arrays.copyOf(aborted, aborted.length + numAborted);
+                System.arraycopy(newAborted, 0, merged, aborted.length, numAborted);
+                Arrays.sort(merged);
+                aborted = merged;
+            }
+        }
+    }
+
+    private final int chunkSpan;
+    private final long maxSpan;
+    private final long minAdvance;
+    private final Lock advanceLock = new ReentrantLock();
+    private final ConcurrentNavigableMap<Long, Chunk> chunks = new ConcurrentSkipListMap<>();
+
+    // Chunks are written before the watermark is raised past them, and read after it is read.
+    private volatile long watermark = UNINITIALIZED;
+    private volatile long lowerBound = UNINITIALIZED;
+
+    public static ResolvedTransactionWatermark create() {
+        return new ResolvedTransactionWatermark(DEFAULT_CHUNK_SPAN, DEFAULT_MAX_SPAN, DEFAULT_CHUNK_SPAN / 16);
+    }
+
+    @VisibleForTesting
+    ResolvedTransactionWatermark(int chunkSpan, long maxSpan, long minAdvance) {
+        Preconditions.checkArgument(chunkSpan > 0 && chunkSpan % Long.SIZE == 0,
+                "chunkSpan must be a positive multiple of 64, but was %s", chunkSpan);
+        Preconditions.checkArgument(maxSpan >= chunkSpan, "maxSpan must be at least chunkSpan");
+        Preconditions.checkArgument(minAdvance > 0, "minAdvance must be positive, but was %s", minAdvance);
+        this.chunkSpan = chunkSpan;
+        this.maxSpan = maxSpan;
+        this.minAdvance = minAdvance;
+    }
+
+    /**
+     * @return whether the transaction which started at {@code startTs} is known to have committed or to have been
+     *         rolled back, or {@link Outcome#UNKNOWN} if it is outside the summary or has no entry.
+     */
+    public Outcome getOutcome(long startTs) {
+        long currentWatermark = watermark;
+        if (startTs >= currentWatermark || startTs < lowerBound) {
+            return Outcome.UNKNOWN;
+        }
+        Chunk chunk = chunks.get(getChunkBase(startTs));
+        return chunk == null ? Outcome.UNKNOWN : chunk.getOutcome(startTs);
+    }
+
+    /**
+     * Summarizes the transactions table up to {@code immutableTimestamp}, which must be an immutable timestamp.
+     * At most one chunk is read per call, and nothing is done if another thread is already advancing the
+     * watermark, so readers never wait for each other here. If the watermark has fallen more than the maximum
+     * span behind, the summary starts afresh at {@code immutableTimestamp}.
+     */
+    public void advance(long immutableTimestamp, TransactionTableScanner scanner) {
+        if (!isWorthAdvancing(immutableTimestamp, watermark) || !advanceLock.tryLock()) {
+            return;
+        }
+        try {
+            long from = watermark;
+            if (from == UNINITIALIZED || immutableTimestamp - from > maxSpan) {
+                reset(immutableTimestamp);
+                return;
+            }
+            if (!isWorthAdvancing(immutableTimestamp, from)) {
+                return;
+            }
+            long chunkBase = getChunkBase(from);
+            long to = Math.min(immutableTimestamp, chunkBase + chunkSpan);
+            Map<Long, Long> entries = scanner.getCommitTimestamps(from, to);
+            Chunk chunk = chunks.get(chunkBase);
+            if (chunk == null) {
+                chunk = new Chunk(chunkBase, chunkSpan);
+                chunks.put(chunkBase, chunk);
+            }
+            chunk.record(entries);
+            watermark = to;
+            while (to - lowerBound > maxSpan) {
+                long firstBase = chunks.firstKey();
+                lowerBound = firstBase + chunkSpan;
+                chunks.remove(firstBase);
+            }
+        } finally {
+            advanceLock.unlock();
+        }
+    }
+
+    public void clear() {
+        advanceLock.lock();
+        try {
+            reset(UNINITIALIZED);
+        } finally {
+            advanceLock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    long getWatermark() {
+        return watermark;
+    }
+
+    @VisibleForTesting
+    long getLowerBound() {
+        return lowerBound;
+    }
+
+    private boolean isWorthAdvancing(long immutableTimestamp, long currentWatermark) {
+        return currentWatermark == UNINITIALIZED || immutableTimestamp - currentWatermark >= minAdvance;
+    }
+
+    private void reset(long timestamp) {
+        watermark = UNINITIALIZED;
+        lowerBound = timestamp;
+        chunks.clear();
+        watermark = timestamp;
+    }
+
+    private long getChunkBase(long timestamp) {
+        return Math.floorDiv(timestamp, (long) chunkSpan) * chunkSpan;
+    }
+}
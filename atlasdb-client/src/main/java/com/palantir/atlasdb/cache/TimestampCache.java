@@ -29,6 +29,7 @@ import com.palantir.atlasdb.util.AtlasDbMetrics;
 public class TimestampCache {
 
     private final Cache<Long, Long> startToCommitTimestampCache;
+    private final ResolvedTransactionWatermark resolvedTransactions = ResolvedTransactionWatermark.create();
 
     public static TimestampCache create() {
         TimestampCache timestampCache = new TimestampCache(createDefaultCache());
@@ -72,10 +73,18 @@ public class TimestampCache {
         startToCommitTimestampCache.put(startTimestamp, commitTimestamp);
     }
 
+    /**
+     * The summary of transactions below the immutable timestamp, shared by the transactions using this cache.
+     */
+    public ResolvedTransactionWatermark getResolvedTransactions() {
+        return resolvedTransactions;
+    }
+
     /**
      * Clear all values from the cache.
      */
     public void clear() {
         startToCommitTimestampCache.invalidateAll();
+        resolvedTransactions.clear();
     }
 }
@@ -28,12 +28,12 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
@@ -59,11 +59,14 @@ import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.Maps2;
+import com.palantir.common.concurrent.ConcurrencyLimitedExecutorService;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.concurrent.SharedExecutors;
 import com.palantir.remoting1.tracing.Tracers;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -93,11 +96,23 @@ public abstract class AbstractKeyValueService implements KeyValueService {
      * @param threadNamePrefix thread name prefix
      * @param poolSize fixed thread pool size
      * @return a new fixed size thread pool with a keep alive time of 1 minute.
+     * @deprecated use {@link #createSharedExecutor(String, int)}, which does not create threads of its own.
      */
+    @Deprecated
     protected static ExecutorService createFixedThreadPool(String threadNamePrefix, int poolSize) {
-        ThreadPoolExecutor executor = PTExecutors.newFixedThreadPool(poolSize,
-                new NamedThreadFactory(threadNamePrefix, false));
-        executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+        return createSharedExecutor(threadNamePrefix, poolSize);
+    }
+
+    /**
+     * @param name name used to report the executor's metrics
+     * @param maxConcurrency maximum number of tasks run at once
+     * @return an executor running at most maxConcurrency tasks at a time on the process-wide shared pool,
+     * propagating the submitter's trace.
+     */
+    public static ExecutorService createSharedExecutor(String name, int maxConcurrency) {
+        ConcurrencyLimitedExecutorService executor =
+                SharedExecutors.newConcurrencyLimitedExecutor(name, maxConcurrency);
+        AtlasDbMetrics.registerExecutor(executor, MetricRegistry.name(KeyValueService.class, name));
         return Tracers.wrap(executor);
     }
 
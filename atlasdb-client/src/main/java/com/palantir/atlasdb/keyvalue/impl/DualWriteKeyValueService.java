@@ -109,6 +109,11 @@ public class DualWriteKeyValueService implements KeyValueService {
         return delegate1.supportsCheckAndSet();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return delegate1.supportsSingleRoundTripPutUnlessExists() && delegate2.supportsSingleRoundTripPutUnlessExists();
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
         delegate1.checkAndSet(checkAndSetRequest);
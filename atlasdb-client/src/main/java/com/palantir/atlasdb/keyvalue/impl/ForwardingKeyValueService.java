@@ -160,6 +160,11 @@ public abstract class ForwardingKeyValueService extends ForwardingObject impleme
         return delegate().supportsCheckAndSet();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return delegate().supportsSingleRoundTripPutUnlessExists();
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest request) {
         delegate().checkAndSet(request);
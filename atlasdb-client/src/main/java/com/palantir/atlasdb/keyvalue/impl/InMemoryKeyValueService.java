@@ -27,7 +27,9 @@ import java.util.SortedMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -64,30 +66,40 @@ import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
-import com.palantir.common.concurrent.PTExecutors;
-import com.palantir.remoting1.tracing.Tracers;
+import com.palantir.common.time.Clock;
+import com.palantir.common.time.SystemClock;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 /**
  * In-memory (non-durable) key-value store implementation.
  * <p>
  * Intended for testing use only.
+ * <p>
+ * Cells written with a time-to-live are kept in a per-table index ordered by expiration time, and expired
+ * versions are removed the next time the table is accessed.
  */
 @ThreadSafe
 public class InMemoryKeyValueService extends AbstractKeyValueService {
     private final ConcurrentMap<TableReference, Table> tables = Maps.newConcurrentMap();
     private final ConcurrentMap<TableReference, byte[]> tableMetadata = Maps.newConcurrentMap();
+    private final Clock clock;
     private volatile boolean createTablesAutomatically;
 
     public InMemoryKeyValueService(boolean createTablesAutomatically) {
-        this(createTablesAutomatically,
-                Tracers.wrap(PTExecutors.newFixedThreadPool(16, PTExecutors.newNamedThreadFactory(true))));
+        this(createTablesAutomatically, createSharedExecutor("InMemoryKvs", 16));
     }
 
     public InMemoryKeyValueService(boolean createTablesAutomatically,
                                    ExecutorService executor) {
+        this(createTablesAutomatically, executor, new SystemClock());
+    }
+
+    public InMemoryKeyValueService(boolean createTablesAutomatically,
+                                   ExecutorService executor,
+                                   Clock clock) {
         super(executor);
         this.createTablesAutomatically = createTablesAutomatically;
+        this.clock = clock;
     }
 
     @Override
@@ -384,18 +396,30 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
                 true);
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return true;
+    }
+
     private void putInternal(
             TableReference tableRef,
             Collection<Map.Entry<Cell, Value>> values,
             boolean doNotOverwriteWithSameValue) {
         Table table = getTableMap(tableRef);
+        long nowMillis = clock.getTimeMillis();
         for (Map.Entry<Cell, Value> e : values) {
             byte[] contents = e.getValue().getContents();
             long timestamp = e.getValue().getTimestamp();
 
             Key key = getKey(table, e.getKey(), timestamp);
-            byte[] oldContents = putIfAbsent(table, key, contents);
-            if (oldContents != null && (doNotOverwriteWithSameValue || !Arrays.equals(oldContents, contents))) {
+            byte[] storedContents = copyOf(contents);
+            byte[] oldContents = table.entries.putIfAbsent(key, storedContents);
+            if (oldContents == null) {
+                long expirationTimeMillis = KeyValueServices.getExpirationTimeMillis(e.getKey(), nowMillis);
+                if (expirationTimeMillis != Long.MAX_VALUE) {
+                    table.addExpiringEntry(key, storedContents, expirationTimeMillis);
+                }
+            } else if (doNotOverwriteWithSameValue || !Arrays.equals(oldContents, contents)) {
                 throw new KeyAlreadyExistsException("We already have a value for this timestamp");
             }
         }
@@ -479,6 +503,7 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         Table table = tables.get(tableRef);
         if (table != null) {
             table.entries.clear();
+            table.expiringEntries.clear();
         } else {
             throw new IllegalStateException(
                     String.format("Truncate called on a table (%s) that did not exist", tableRef));
@@ -519,9 +544,57 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
 
     static class Table {
         final ConcurrentSkipListMap<Key, byte[]> entries;
+        final ConcurrentSkipListSet<ExpiringEntry> expiringEntries;
+        private final AtomicLong expiringEntrySequence = new AtomicLong();
 
         Table() {
             this.entries = new ConcurrentSkipListMap<>();
+            this.expiringEntries = new ConcurrentSkipListSet<>();
+        }
+
+        void addExpiringEntry(Key key, byte[] storedContents, long expirationTimeMillis) {
+            expiringEntries.add(new ExpiringEntry(
+                    expirationTimeMillis, expiringEntrySequence.getAndIncrement(), key, storedContents));
+        }
+
+        void removeExpiredEntries(Clock clock) {
+            if (expiringEntries.isEmpty()) {
+                return;
+            }
+            long nowMillis = clock.getTimeMillis();
+            for (ExpiringEntry expiringEntry : expiringEntries) {
+                if (expiringEntry.expirationTimeMillis > nowMillis) {
+                    return;
+                }
+                if (expiringEntries.remove(expiringEntry)) {
+                    // Compares the stored array by identity, so a version that has been deleted and written again
+                    // since it was indexed is left alone.
+                    entries.remove(expiringEntry.key, expiringEntry.storedContents);
+                }
+            }
+        }
+    }
+
+    private static class ExpiringEntry implements Comparable<ExpiringEntry> {
+        private final long expirationTimeMillis;
+        private final long sequence;
+        private final Key key;
+        private final byte[] storedContents;
+
+        ExpiringEntry(long expirationTimeMillis, long sequence, Key key, byte[] storedContents) {
+            this.expirationTimeMillis = expirationTimeMillis;
+            this.sequence = sequence;
+            this.key = key;
+            this.storedContents = storedContents;
+        }
+
+        @Override
+        public int compareTo(ExpiringEntry other) {
+            int comparison = Longs.compare(expirationTimeMillis, other.expirationTimeMillis);
+            if (comparison != 0) {
+                return comparison;
+            }
+            return Longs.compare(sequence, other.sequence);
         }
     }
 
@@ -533,6 +606,7 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         if (table == null) {
             throw new IllegalArgumentException("table " + tableRef.getQualifiedName() + " does not exist");
         }
+        table.removeExpiredEntries(clock);
         return table;
     }
 
@@ -159,6 +159,21 @@ public class KeyValueServices {
         });
     }
 
+    /**
+     * @return the wall-clock time, in milliseconds, at which a version of {@code cell} written at
+     *         {@code writeTimeMillis} expires, or {@link Long#MAX_VALUE} if the cell has no time-to-live.
+     */
+    public static long getExpirationTimeMillis(Cell cell, long writeTimeMillis) {
+        long ttlMillis = cell.getTtlDurationMillis();
+        if (ttlMillis <= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (writeTimeMillis > Long.MAX_VALUE - ttlMillis) {
+            return Long.MAX_VALUE;
+        }
+        return writeTimeMillis + ttlMillis;
+    }
+
     // TODO: kill this when we can properly implement this on all KVSes
     public static Map<byte[], RowColumnRangeIterator> filterGetRowsToColumnRange(KeyValueService kvs, TableReference tableRef, Iterable<byte[]> rows, BatchColumnRangeSelection columnRangeSelection, long timestamp) {
         log.warn("Using inefficient postfiltering for getRowsColumnRange because the KVS doesn't support it natively. Production " +
@@ -15,20 +15,33 @@
  */
 package com.palantir.atlasdb.keyvalue.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import org.mpierce.metrics.reservoir.hdrhistogram.HdrHistogramReservoir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
-import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
@@ -41,41 +54,42 @@ import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ForwardingClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
+/**
+ * Profiles the calls made to a key value service. At the TRACE level, every call is logged with its duration.
+ * <p>
+ * Calls that read or write data are also recorded in HdrHistogram-backed metrics of the given registry, per method
+ * but not per table, so that the number of metrics stays bounded: {@code ProfilingKeyValueService.<method>.latency}
+ * covers every call, {@code failures} the calls that threw, and {@code cells} and {@code bytes} the data of the
+ * calls that succeeded. Calls slower than a threshold are counted in the {@code ProfilingKeyValueService.slowCalls}
+ * meter, and the slowest of them are kept with their table, outcome and arguments in the
+ * {@code ProfilingKeyValueService.slowestCalls} gauge. For {@code getRange}, the latency covers reading the whole
+ * range, and is recorded once the iterator is exhausted, closed, or throws.
+ */
 public class ProfilingKeyValueService implements KeyValueService {
     private static final Logger log = LoggerFactory.getLogger(ProfilingKeyValueService.class);
 
-    private static <T> long byteSize(Map<Cell, T> values) {
-        long sizeInBytes = 0;
-        for (Entry<Cell, T> valueEntry : values.entrySet()) {
-            sizeInBytes += Cells.getApproxSizeOfCell(valueEntry.getKey());
-            T value = valueEntry.getValue();
-            if (value instanceof byte[]) {
-                sizeInBytes += ((byte[]) value).length;
-            } else if (value instanceof Long) {
-                sizeInBytes += Longs.BYTES;
-            }
-        }
-        return sizeInBytes;
-    }
+    public static final long DEFAULT_SLOW_CALL_THRESHOLD_MILLIS = 1000;
+    public static final int DEFAULT_SLOWEST_CALLS_SIZE = 100;
 
-    private static <T> long byteSize(Multimap<Cell, T> values) {
-        long sizeInBytes = 0;
-        for (Cell cell : values.keySet()) {
-            sizeInBytes += Cells.getApproxSizeOfCell(cell) + values.get(cell).size();
-        }
-        return sizeInBytes;
-    }
+    private static final int MAX_DESCRIBED_BYTES = 32;
+    private static final long NOT_MEASURED = -1;
 
     public static ProfilingKeyValueService create(KeyValueService delegate) {
-        return new ProfilingKeyValueService(delegate);
+        return create(delegate, AtlasDbMetrics.getMetricRegistry(),
+                DEFAULT_SLOW_CALL_THRESHOLD_MILLIS, DEFAULT_SLOWEST_CALLS_SIZE);
     }
 
-    private static void logCellsAndSize(String method, String tableName, int numCells, long sizeInBytes, Stopwatch stopwatch) {
-        log.trace("Call to KVS.{} on table {} for {} cells of overall size {} bytes took {} ms.",
-                method, tableName, numCells, sizeInBytes, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    public static ProfilingKeyValueService create(KeyValueService delegate,
+                                                  MetricRegistry metricRegistry,
+                                                  long slowCallThresholdMillis,
+                                                  int slowestCallsSize) {
+        return new ProfilingKeyValueService(delegate, metricRegistry, slowCallThresholdMillis, slowestCallsSize);
     }
 
     private static void logTime(String method, Stopwatch stopwatch) {
@@ -98,20 +112,43 @@ public class ProfilingKeyValueService implements KeyValueService {
     }
 
     private final KeyValueService delegate;
-
-    private ProfilingKeyValueService(KeyValueService delegate) {
+    private final MetricRegistry metricRegistry;
+    private final long slowCallThresholdNanos;
+    private final Meter slowCalls;
+    private final SlowestKvsCalls slowestCalls;
+    private final ConcurrentMap<String, OperationMetrics> metricsByMethod = new ConcurrentHashMap<>();
+
+    private ProfilingKeyValueService(KeyValueService delegate,
+                                     MetricRegistry metricRegistry,
+                                     long slowCallThresholdMillis,
+                                     int slowestCallsSize) {
+        Preconditions.checkArgument(slowCallThresholdMillis >= 0,
+                "slowCallThresholdMillis cannot be negative, but was %s", slowCallThresholdMillis);
         this.delegate = delegate;
+        this.metricRegistry = metricRegistry;
+        this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMillis);
+        this.slowCalls = metricRegistry.meter(MetricRegistry.name(ProfilingKeyValueService.class, "slowCalls"));
+        this.slowestCalls = getOrRegister(MetricRegistry.name(ProfilingKeyValueService.class, "slowestCalls"),
+                new SlowestKvsCalls(slowestCallsSize));
+    }
+
+    /**
+     * @return the slowest calls slower than the slow call threshold, slowest first. They are shared by every
+     * instance using the same metric registry.
+     */
+    public List<SlowestKvsCalls.SlowCall> getSlowestCalls() {
+        return slowestCalls.getCalls();
     }
 
     @Override
     public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.addGarbageCollectionSentinelValues(tableRef, cells);
-            log.trace("Call to KVS.addGarbageCollectionSentinelValues on table {} over {} cells took {} ms.",
-                    tableRef, cells.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
-        } else {
+        CallRecorder call = new CallRecorder("addGarbageCollectionSentinelValues", tableRef,
+                () -> describeCells(cells));
+        try {
             delegate.addGarbageCollectionSentinelValues(tableRef, cells);
+            call.succeeded(cells.size(), NOT_MEASURED);
+        } finally {
+            call.record();
         }
     }
 
@@ -139,23 +176,23 @@ public class ProfilingKeyValueService implements KeyValueService {
 
     @Override
     public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.delete(tableRef, keys);
-            logCellsAndSize("delete", tableRef.getQualifiedName(), keys.keySet().size(), byteSize(keys), stopwatch);
-        } else {
+        CallRecorder call = new CallRecorder("delete", tableRef, () -> describeCells(keys.keySet()));
+        try {
             delegate.delete(tableRef, keys);
+            call.succeeded(keys.size(), NOT_MEASURED);
+        } finally {
+            call.record();
         }
     }
 
     @Override
     public void deleteRange(TableReference tableRef, RangeRequest range) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.deleteRange(tableRef, range);
-            logTimeAndTableRange("deleteRange", tableRef.getQualifiedName(), range, stopwatch);
-        } else {
+        CallRecorder call = new CallRecorder("deleteRange", tableRef, range::toString);
+        try {
             delegate.deleteRange(tableRef, range);
+            call.succeeded(NOT_MEASURED, NOT_MEASURED);
+        } finally {
+            call.record();
         }
     }
 
@@ -183,18 +220,13 @@ public class ProfilingKeyValueService implements KeyValueService {
 
     @Override
     public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            long sizeInBytes = 0;
+        CallRecorder call = new CallRecorder("get", tableRef, () -> describeCells(timestampByCell.keySet()));
+        try {
             Map<Cell, Value> result = delegate.get(tableRef, timestampByCell);
-            for (Entry<Cell, Value> entry : result.entrySet()) {
-                sizeInBytes += Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().getContents().length + 4L;
-            }
-            log.trace("Call to KVS.get on table {}, requesting {} cells took {} ms and returned {} bytes.",
-                    tableRef, timestampByCell.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS), sizeInBytes);
+            call.succeeded(result.size(), byteSizeOfValues(result));
             return result;
-        } else {
-            return delegate.get(tableRef, timestampByCell);
+        } finally {
+            call.record();
         }
     }
 
@@ -212,13 +244,13 @@ public class ProfilingKeyValueService implements KeyValueService {
 
     @Override
     public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
+        CallRecorder call = new CallRecorder("getAllTimestamps", tableRef, () -> describeCells(cells));
+        try {
             Multimap<Cell, Long> result = delegate.getAllTimestamps(tableRef, cells, timestamp);
-            logCellsAndSize("getAllTimestamps", tableRef.getQualifiedName(), cells.size(), cells.size() * Longs.BYTES, stopwatch);
+            call.succeeded(result.size(), NOT_MEASURED);
             return result;
-        } else {
-            return delegate.getAllTimestamps(tableRef, cells, timestamp);
+        } finally {
+            call.record();
         }
     }
 
@@ -228,26 +260,40 @@ public class ProfilingKeyValueService implements KeyValueService {
     }
 
     @Override
-    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(TableReference tableRef, Iterable<RangeRequest> rangeRequests, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> result = delegate.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
-            logTimeAndTable("getFirstBatchForRanges", tableRef.getQualifiedName(), stopwatch);
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        CallRecorder call = new CallRecorder("getFirstBatchForRanges", tableRef,
+                () -> Iterables.size(rangeRequests) + " ranges, first " + Iterables.getFirst(rangeRequests, null));
+        try {
+            Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> result =
+                    delegate.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+            long cells = 0;
+            long bytes = 0;
+            for (TokenBackedBasicResultsPage<RowResult<Value>, byte[]> page : result.values()) {
+                for (RowResult<Value> row : page.getResults()) {
+                    cells += row.getColumns().size();
+                    bytes += byteSizeOfRow(row);
+                }
+            }
+            call.succeeded(cells, bytes);
             return result;
-        } else {
-            return delegate.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+        } finally {
+            call.record();
         }
     }
 
     @Override
     public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
+        CallRecorder call = new CallRecorder("getLatestTimestamps", tableRef,
+                () -> describeCells(timestampByCell.keySet()));
+        try {
             Map<Cell, Long> result = delegate.getLatestTimestamps(tableRef, timestampByCell);
-            logCellsAndSize("getLatestTimestamps", tableRef.getQualifiedName(), timestampByCell.size(), byteSize(timestampByCell), stopwatch);
+            call.succeeded(result.size(), NOT_MEASURED);
             return result;
-        } else {
-            return delegate.getLatestTimestamps(tableRef, timestampByCell);
+        } finally {
+            call.record();
         }
     }
 
@@ -276,15 +322,19 @@ public class ProfilingKeyValueService implements KeyValueService {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            ClosableIterator<RowResult<Value>> result = delegate.getRange(tableRef, rangeRequest, timestamp);
-            logTimeAndTableRange("getRange", tableRef.getQualifiedName(), rangeRequest, stopwatch);
-            return result;
-        } else {
-            return delegate.getRange(tableRef, rangeRequest, timestamp);
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                       RangeRequest rangeRequest,
+                                                       long timestamp) {
+        long start = System.nanoTime();
+        ClosableIterator<RowResult<Value>> result;
+        try {
+            result = delegate.getRange(tableRef, rangeRequest, timestamp);
+        } catch (RuntimeException | Error e) {
+            record("getRange", tableRef.getQualifiedName(), System.nanoTime() - start,
+                    SlowestKvsCalls.Outcome.FAILURE, NOT_MEASURED, NOT_MEASURED, rangeRequest::toString);
+            throw e;
         }
+        return new RecordingRangeIterator(tableRef, rangeRequest, System.nanoTime() - start, result);
     }
 
     @Override
@@ -300,52 +350,51 @@ public class ProfilingKeyValueService implements KeyValueService {
     }
 
     @Override
-    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows, ColumnSelection columnSelection, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            long sizeInBytes = 0;
+    public Map<Cell, Value> getRows(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp) {
+        CallRecorder call = new CallRecorder("getRows", tableRef, () -> describeRows(rows));
+        try {
             Map<Cell, Value> result = delegate.getRows(tableRef, rows, columnSelection, timestamp);
-            for (Entry<Cell, Value> entry : result.entrySet()) {
-                sizeInBytes += Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().getContents().length;
-            }
-            log.trace("Call to KVS.getRows on table {} requesting {} columns from {} rows took {} ms and returned {} bytes.",
-                    tableRef,
-                    columnSelection.allColumnsSelected() ? "all" : Iterables.size(columnSelection.getSelectedColumns()),
-                    Iterables.size(rows),
-                    stopwatch.elapsed(TimeUnit.MILLISECONDS),
-                    sizeInBytes);
+            call.succeeded(result.size(), byteSizeOfValues(result));
             return result;
-        } else {
-            return delegate.getRows(tableRef, rows, columnSelection, timestamp);
+        } finally {
+            call.record();
         }
     }
 
     @Override
     public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
+        long start = System.nanoTime();
+        SlowestKvsCalls.Outcome outcome = SlowestKvsCalls.Outcome.FAILURE;
+        long cells = NOT_MEASURED;
+        long bytes = NOT_MEASURED;
+        try {
             delegate.multiPut(valuesByTable, timestamp);
-            int totalCells = 0;
-            long totalBytes = 0;
+            outcome = SlowestKvsCalls.Outcome.SUCCESS;
+            cells = 0;
+            bytes = 0;
             for (Map<Cell, byte[]> values : valuesByTable.values()) {
-                totalCells += values.size();
-                totalBytes += byteSize(values);
+                cells += values.size();
+                bytes += byteSizeOfContents(values);
             }
-            log.trace("Call to KVS.multiPut on {} tables putting {} total cells of {} total bytes took {} ms.",
-                    valuesByTable.keySet().size(), totalCells, totalBytes, stopwatch.elapsed(TimeUnit.MILLISECONDS));
-        } else {
-            delegate.multiPut(valuesByTable, timestamp);
+        } finally {
+            record("multiPut", valuesByTable.size() + " tables", System.nanoTime() - start, outcome, cells, bytes,
+                    () -> "first table " + Iterables.getFirst(valuesByTable.keySet(), null) + ", timestamp "
+                            + timestamp);
         }
     }
 
     @Override
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.put(tableRef, values, timestamp);
-            logCellsAndSize("put", tableRef.getQualifiedName(), values.keySet().size(), byteSize(values), stopwatch);
-        } else {
+        CallRecorder call = new CallRecorder("put", tableRef,
+                () -> describeCells(values.keySet()) + ", timestamp " + timestamp);
+        try {
             delegate.put(tableRef, values, timestamp);
+            call.succeeded(values.size(), byteSizeOfContents(values));
+        } finally {
+            call.record();
         }
     }
 
@@ -373,12 +422,12 @@ public class ProfilingKeyValueService implements KeyValueService {
 
     @Override
     public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.putUnlessExists(tableRef, values);
-            logCellsAndSize("putUnlessExists", tableRef.getQualifiedName(), values.keySet().size(), byteSize(values), stopwatch);
-        } else {
+        CallRecorder call = new CallRecorder("putUnlessExists", tableRef, () -> describeCells(values.keySet()));
+        try {
             delegate.putUnlessExists(tableRef, values);
+            call.succeeded(values.size(), byteSizeOfContents(values));
+        } finally {
+            call.record();
         }
     }
 
@@ -387,25 +436,34 @@ public class ProfilingKeyValueService implements KeyValueService {
         return delegate.supportsCheckAndSet();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return delegate.supportsSingleRoundTripPutUnlessExists();
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest request) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.checkAndSet(request);
-            logCellsAndSize("checkAndSet", request.table().getQualifiedName(), 1, request.newValue().length, stopwatch);
-        } else {
+        CallRecorder call = new CallRecorder("checkAndSet", request.table(), () -> request.cell().toString());
+        try {
             delegate.checkAndSet(request);
+            call.succeeded(1, Cells.getApproxSizeOfCell(request.cell()) + request.newValue().length);
+        } finally {
+            call.record();
         }
     }
 
     @Override
     public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            delegate.putWithTimestamps(tableRef, values);
-            logCellsAndSize("putWithTimestamps", tableRef.getQualifiedName(), values.keySet().size(), byteSize(values), stopwatch);
-        } else {
+        CallRecorder call = new CallRecorder("putWithTimestamps", tableRef, () -> describeCells(values.keySet()));
+        try {
             delegate.putWithTimestamps(tableRef, values);
+            long bytes = 0;
+            for (Entry<Cell, Value> entry : values.entries()) {
+                bytes += Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().getContents().length;
+            }
+            call.succeeded(values.size(), bytes);
+        } finally {
+            call.record();
         }
     }
 
@@ -454,18 +512,19 @@ public class ProfilingKeyValueService implements KeyValueService {
     }
 
     @Override
-    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef, Iterable<byte[]> rows,
-                                                                  BatchColumnRangeSelection batchColumnRangeSelection, long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            Map<byte[], RowColumnRangeIterator> result = delegate.getRowsColumnRange(tableRef, rows,
-                    batchColumnRangeSelection, timestamp);
-            log.trace("Call to KVS.getRowsColumnRange on table {} for {} rows with range {} took {} ms.",
-                    tableRef.getQualifiedName(), Iterables.size(rows), batchColumnRangeSelection, stopwatch.elapsed(TimeUnit.MILLISECONDS));
-            logTimeAndTable("getRowsColumnRange", tableRef.getQualifiedName(), stopwatch);
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection columnRangeSelection,
+                                                                  long timestamp) {
+        CallRecorder call = new CallRecorder("getRowsColumnRange", tableRef,
+                () -> describeRows(rows) + ", " + columnRangeSelection);
+        try {
+            Map<byte[], RowColumnRangeIterator> result =
+                    delegate.getRowsColumnRange(tableRef, rows, columnRangeSelection, timestamp);
+            call.succeeded(NOT_MEASURED, NOT_MEASURED);
             return result;
-        } else {
-            return delegate.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        } finally {
+            call.record();
         }
     }
 
@@ -475,20 +534,276 @@ public class ProfilingKeyValueService implements KeyValueService {
                                                      ColumnRangeSelection columnRangeSelection,
                                                      int cellBatchHint,
                                                      long timestamp) {
-        if (log.isTraceEnabled()) {
-            Stopwatch stopwatch = Stopwatch.createStarted();
+        CallRecorder call = new CallRecorder("getRowsColumnRangeCellBatch", tableRef,
+                () -> describeRows(rows) + ", " + columnRangeSelection + ", batch hint " + cellBatchHint);
+        try {
             RowColumnRangeIterator result =
                     delegate.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
-            log.trace("Call to KVS.getRowsColumnRangeCellBatch on table {} for {} rows with range {} and batch hint {} took {} ms.",
-                      tableRef.getQualifiedName(),
-                      Iterables.size(rows),
-                      columnRangeSelection,
-                      cellBatchHint,
-                      stopwatch.elapsed(TimeUnit.MILLISECONDS));
-            logTimeAndTable("getRowsColumnRangeCellBatch", tableRef.getQualifiedName(), stopwatch);
+            call.succeeded(NOT_MEASURED, NOT_MEASURED);
             return result;
-        } else {
-            return delegate.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        } finally {
+            call.record();
+        }
+    }
+
+    /**
+     * Times one call from its construction; {@link #record()} must be called from a {@code finally} block, so that
+     * calls that throw are recorded as failures.
+     */
+    private final class CallRecorder {
+        private final String method;
+        private final TableReference tableRef;
+        private final Supplier<String> arguments;
+        private final long startNanos = System.nanoTime();
+
+        private SlowestKvsCalls.Outcome outcome = SlowestKvsCalls.Outcome.FAILURE;
+        private long cells = NOT_MEASURED;
+        private long bytes = NOT_MEASURED;
+
+        CallRecorder(String method, TableReference tableRef, Supplier<String> arguments) {
+            this.method = method;
+            this.tableRef = tableRef;
+            this.arguments = arguments;
+        }
+
+        void succeeded(long succeededCells, long succeededBytes) {
+            this.outcome = SlowestKvsCalls.Outcome.SUCCESS;
+            this.cells = succeededCells;
+            this.bytes = succeededBytes;
+        }
+
+        void record() {
+            ProfilingKeyValueService.this.record(method, tableRef.getQualifiedName(),
+                    System.nanoTime() - startNanos, outcome, cells, bytes, arguments);
+        }
+    }
+
+    private void record(String method,
+                        String table,
+                        long durationNanos,
+                        SlowestKvsCalls.Outcome outcome,
+                        long cells,
+                        long bytes,
+                        Supplier<String> arguments) {
+        OperationMetrics metrics = getOperationMetrics(method);
+        metrics.latency.update(durationNanos, TimeUnit.NANOSECONDS);
+        if (outcome == SlowestKvsCalls.Outcome.FAILURE) {
+            metrics.failures().update(durationNanos, TimeUnit.NANOSECONDS);
+        }
+        if (cells != NOT_MEASURED) {
+            metrics.cells().update(cells);
+        }
+        if (bytes != NOT_MEASURED) {
+            metrics.bytes().update(bytes);
+        }
+        if (durationNanos >= slowCallThresholdNanos) {
+            slowCalls.mark();
+            if (slowestCalls.isSlowEnough(durationNanos)) {
+                slowestCalls.add(new SlowestKvsCalls.SlowCall(method, table, durationNanos,
+                        System.currentTimeMillis(), outcome, arguments.get()));
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Call to KVS.{} on table {} for {} took {} ms and {} ({} cells, {} bytes).",
+                    method, table, arguments.get(), TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                    outcome == SlowestKvsCalls.Outcome.SUCCESS ? "succeeded" : "failed",
+                    cells == NOT_MEASURED ? "unknown" : cells,
+                    bytes == NOT_MEASURED ? "unknown" : bytes);
+        }
+    }
+
+    private OperationMetrics getOperationMetrics(String method) {
+        OperationMetrics metrics = metricsByMethod.get(method);
+        if (metrics == null) {
+            metrics = metricsByMethod.computeIfAbsent(method,
+                    unused -> new OperationMetrics(MetricRegistry.name(ProfilingKeyValueService.class, method)));
+        }
+        return metrics;
+    }
+
+    private final class OperationMetrics {
+        private final String prefix;
+        private final Timer latency;
+        private volatile Timer failures;
+        private volatile Histogram cells;
+        private volatile Histogram bytes;
+
+        OperationMetrics(String prefix) {
+            this.prefix = prefix;
+            this.latency = getOrRegister(MetricRegistry.name(prefix, "latency"),
+                    new Timer(new HdrHistogramReservoir()));
+        }
+
+        Timer failures() {
+            if (failures == null) {
+                failures = getOrRegister(MetricRegistry.name(prefix, "failures"),
+                        new Timer(new HdrHistogramReservoir()));
+            }
+            return failures;
+        }
+
+        Histogram cells() {
+            if (cells == null) {
+                cells = getOrRegister(MetricRegistry.name(prefix, "cells"),
+                        new Histogram(new HdrHistogramReservoir()));
+            }
+            return cells;
+        }
+
+        Histogram bytes() {
+            if (bytes == null) {
+                bytes = getOrRegister(MetricRegistry.name(prefix, "bytes"),
+                        new Histogram(new HdrHistogramReservoir()));
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Registers the given metric, or returns the one already registered under the same name, e.g. by another
+     * instance of this class sharing the registry.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Metric> T getOrRegister(String name, T metric) {
+        synchronized (metricRegistry) {
+            Metric existing = metricRegistry.getMetrics().get(name);
+            if (existing != null) {
+                Preconditions.checkState(existing.getClass().isInstance(metric),
+                        "A metric of type %s is already registered as %s", existing.getClass(), name);
+                return (T) existing;
+            }
+            return metricRegistry.register(name, metric);
+        }
+    }
+
+    private final class RecordingRangeIterator extends ForwardingClosableIterator<RowResult<Value>> {
+        private final TableReference tableRef;
+        private final RangeRequest rangeRequest;
+        private final ClosableIterator<RowResult<Value>> delegate;
+
+        private long iteratingNanos;
+        private long cells = 0;
+        private long bytes = 0;
+        private boolean recorded = false;
+
+        RecordingRangeIterator(TableReference tableRef,
+                               RangeRequest rangeRequest,
+                               long openingNanos,
+                               ClosableIterator<RowResult<Value>> delegate) {
+            this.tableRef = tableRef;
+            this.rangeRequest = rangeRequest;
+            this.iteratingNanos = openingNanos;
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected ClosableIterator<RowResult<Value>> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext;
+            try {
+                hasNext = super.hasNext();
+            } catch (RuntimeException | Error e) {
+                iteratingNanos += System.nanoTime() - start;
+                recordOnce(SlowestKvsCalls.Outcome.FAILURE);
+                throw e;
+            }
+            iteratingNanos += System.nanoTime() - start;
+            if (!hasNext) {
+                recordOnce(SlowestKvsCalls.Outcome.SUCCESS);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public RowResult<Value> next() {
+            long start = System.nanoTime();
+            RowResult<Value> row;
+            try {
+                row = super.next();
+            } catch (RuntimeException | Error e) {
+                iteratingNanos += System.nanoTime() - start;
+                recordOnce(SlowestKvsCalls.Outcome.FAILURE);
+                throw e;
+            }
+            iteratingNanos += System.nanoTime() - start;
+            cells += row.getColumns().size();
+            bytes += byteSizeOfRow(row);
+            return row;
+        }
+
+        @Override
+        public void close() {
+            try {
+                super.close();
+            } finally {
+                recordOnce(SlowestKvsCalls.Outcome.SUCCESS);
+            }
+        }
+
+        // Only the time spent in the key value service counts, not the time the caller spends between rows.
+        private void recordOnce(SlowestKvsCalls.Outcome outcome) {
+            if (!recorded) {
+                recorded = true;
+                record("getRange", tableRef.getQualifiedName(), iteratingNanos, outcome, cells, bytes,
+                        rangeRequest::toString);
+            }
+        }
+    }
+
+    private static long byteSizeOfValues(Map<Cell, Value> values) {
+        long bytes = 0;
+        for (Entry<Cell, Value> entry : values.entrySet()) {
+            bytes += Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().getContents().length;
+        }
+        return bytes;
+    }
+
+    private static long byteSizeOfContents(Map<Cell, byte[]> values) {
+        long bytes = 0;
+        for (Entry<Cell, byte[]> entry : values.entrySet()) {
+            bytes += Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().length;
+        }
+        return bytes;
+    }
+
+    private static long byteSizeOfRow(RowResult<Value> row) {
+        long bytes = 0;
+        for (Entry<byte[], Value> column : row.getColumns().entrySet()) {
+            bytes += row.getRowName().length + column.getKey().length
+                    + TransactionConstants.APPROX_IN_MEM_CELL_OVERHEAD_BYTES
+                    + column.getValue().getContents().length;
+        }
+        return bytes;
+    }
+
+    @VisibleForTesting
+    static String describeCells(Collection<Cell> cells) {
+        Cell first = Iterables.getFirst(cells, null);
+        if (first == null) {
+            return "0 cells";
+        }
+        return cells.size() + " cells, first row " + describeBytes(first.getRowName())
+                + " column " + describeBytes(first.getColumnName());
+    }
+
+    @VisibleForTesting
+    static String describeRows(Iterable<byte[]> rows) {
+        byte[] first = Iterables.getFirst(rows, null);
+        if (first == null) {
+            return "0 rows";
+        }
+        return Iterables.size(rows) + " rows, first " + describeBytes(first);
+    }
+
+    private static String describeBytes(byte[] bytes) {
+        if (bytes.length <= MAX_DESCRIBED_BYTES) {
+            return PtBytes.encodeHexString(bytes);
         }
+        return PtBytes.encodeHexString(Arrays.copyOf(bytes, MAX_DESCRIBED_BYTES)) + "...";
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps the slowest key value service calls, up to a fixed number of them. As a {@link Gauge}, it reports them
+ * slowest first, so that any metrics reporter, e.g. over JMX, can show them.
+ */
+@ThreadSafe
+public final class SlowestKvsCalls implements Gauge<List<String>> {
+    public enum Outcome {
+        SUCCESS,
+        /** The call threw, e.g. because it timed out. */
+        FAILURE
+    }
+
+    public static final class SlowCall {
+        private final String method;
+        private final String table;
+        private final long durationNanos;
+        private final long finishedAtMillis;
+        private final Outcome outcome;
+        private final String arguments;
+
+        SlowCall(String method,
+                 String table,
+                 long durationNanos,
+                 long finishedAtMillis,
+                 Outcome outcome,
+                 String arguments) {
+            this.method = method;
+            this.table = table;
+            this.durationNanos = durationNanos;
+            this.finishedAtMillis = finishedAtMillis;
+            this.outcome = outcome;
+            this.arguments = arguments;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * @return the qualified name of the table, or the number of tables for calls spanning several of them.
+         */
+        public String getTable() {
+            return table;
+        }
+
+        public long getDuration(TimeUnit unit) {
+            return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @return the wall-clock time at which the call completed, in milliseconds since the epoch.
+         */
+        public long getFinishedAtMillis() {
+            return finishedAtMillis;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return a short description of the call's arguments, e.g. the number of cells and the first of them.
+         */
+        public String getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("method", method)
+                    .add("table", table)
+                    .add("durationMillis", getDuration(TimeUnit.MILLISECONDS))
+                    .add("finishedAtMillis", finishedAtMillis)
+                    .add("outcome", outcome)
+                    .add("arguments", arguments)
+                    .toString();
+        }
+    }
+
+    private static final Comparator<SlowCall> BY_DURATION = Comparator.comparingLong(call -> call.durationNanos);
+
+    private final int capacity;
+
+    /** The fastest kept call is at the head, so that it is the one evicted. */
+    @GuardedBy("this")
+    private final PriorityQueue<SlowCall> calls;
+
+    /** Calls faster than this would be evicted straight away, so callers need not describe or add them. */
+    private volatile long minimumDurationNanos = 0;
+
+    public SlowestKvsCalls(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive, but was %s", capacity);
+        this.capacity = capacity;
+        this.calls = new PriorityQueue<>(capacity, BY_DURATION);
+    }
+
+    /**
+     * @return whether a call that took this long would be kept; checking does not lock.
+     */
+    public boolean isSlowEnough(long durationNanos) {
+        return durationNanos >= minimumDurationNanos;
+    }
+
+    public synchronized void add(SlowCall call) {
+        if (calls.size() == capacity) {
+            if (call.durationNanos <= calls.peek().durationNanos) {
+                return;
+            }
+            calls.poll();
+        }
+        calls.add(call);
+        if (calls.size() == capacity) {
+            minimumDurationNanos = calls.peek().durationNanos + 1;
+        }
+    }
+
+    /**
+     * @return the kept calls, slowest first.
+     */
+    public synchronized List<SlowCall> getCalls() {
+        return calls.stream().sorted(BY_DURATION.reversed()).collect(Collectors.toList());
+    }
+
+    public synchronized void clear() {
+        calls.clear();
+        minimumDurationNanos = 0;
+    }
+
+    @Override
+    public List<String> getValue() {
+        return getCalls().stream().map(SlowCall::toString).collect(Collectors.toList());
+    }
+}
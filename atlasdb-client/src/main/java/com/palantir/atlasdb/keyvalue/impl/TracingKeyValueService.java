@@ -333,6 +333,11 @@ public final class TracingKeyValueService extends ForwardingObject implements Ke
         return delegate().supportsCheckAndSet();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return delegate().supportsSingleRoundTripPutUnlessExists();
+    }
+
     @Override
     public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
         //noinspection unused - try-with-resources closes trace
@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
 import com.palantir.atlasdb.table.description.TableDefinition;
 import com.palantir.atlasdb.table.description.ValueType;
 
@@ -30,6 +31,7 @@ public class StreamStoreDefinitionBuilder {
     private Map<String, StreamTableDefinitionBuilder> streamTables =
             Maps.newHashMapWithExpectedSize(StreamTableType.values().length);
     private int inMemoryThreshold = AtlasDbConstants.DEFAULT_STREAM_IN_MEMORY_THRESHOLD;
+    private int uploadParallelism = AbstractPersistentStreamStore.DEFAULT_UPLOAD_PARALLELISM;
     private boolean compressStream;
 
     public StreamStoreDefinitionBuilder(String shortName, String longName, ValueType valueType) {
@@ -68,6 +70,15 @@ public class StreamStoreDefinitionBuilder {
         return this;
     }
 
+    /**
+     * Stores up to this many blocks of a stream concurrently, each in its own transaction, when the stream is stored
+     * outside of a caller's transaction. Defaults to 1, which stores the blocks one after another.
+     */
+    public StreamStoreDefinitionBuilder uploadParallelism(int uploadParallelism) {
+        this.uploadParallelism = uploadParallelism;
+        return this;
+    }
+
     public StreamStoreDefinition build() {
         Map<String, TableDefinition> tablesToCreate = streamTables.entrySet().stream()
                 .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().build()));
@@ -75,6 +86,7 @@ public class StreamStoreDefinitionBuilder {
         Preconditions.checkArgument(valueType.getJavaClassName().equals("long"), "Stream ids must be a long");
         Preconditions.checkArgument(inMemoryThreshold <= StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD,
                 "inMemoryThreshold cannot be greater than %s", StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD);
+        Preconditions.checkArgument(uploadParallelism > 0, "uploadParallelism must be positive");
 
         return new StreamStoreDefinition(
                 tablesToCreate,
@@ -82,6 +94,7 @@ public class StreamStoreDefinitionBuilder {
                 longName,
                 valueType,
                 inMemoryThreshold,
+                uploadParallelism,
                 compressStream);
     }
 
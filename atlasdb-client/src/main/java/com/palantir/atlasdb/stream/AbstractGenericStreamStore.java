@@ -41,11 +41,14 @@ import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.SharedExecutors;
 import com.palantir.util.ByteArrayIOStream;
 
 public abstract class AbstractGenericStreamStore<ID> implements GenericStreamStore<ID> {
     protected static final Logger log = LoggerFactory.getLogger(AbstractGenericStreamStore.class);
 
+    public static final int DEFAULT_PREFETCH_DEPTH = 0;
+
     @CheckForNull protected final TransactionManager txnMgr;
 
     protected AbstractGenericStreamStore(TransactionManager txManager) {
@@ -138,8 +141,20 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
             }
         };
 
+        int prefetchDepth = getPrefetchDepth();
         try {
-            return BlockConsumingInputStream.create(pageRefresher, totalBlocks, blocksInMemory);
+            if (prefetchDepth == 0 || txnMgr == null) {
+                return BlockConsumingInputStream.create(pageRefresher, totalBlocks, blocksInMemory);
+            }
+            // The parent transaction may only be used from the reader's thread, so we only load blocks in the
+            // background once it has finished, at which point the page refresher reads in its own transactions.
+            return BlockConsumingInputStream.createWithPrefetch(
+                    pageRefresher,
+                    totalBlocks,
+                    blocksInMemory,
+                    prefetchDepth,
+                    SharedExecutors.newConcurrencyLimitedExecutor("stream-store-prefetch", prefetchDepth),
+                    () -> !parent.isUncommitted());
         } catch (IOException e) {
             throw Throwables.throwUncheckedException(e);
         }
@@ -151,6 +166,17 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
         return Math.max(1, blocksInMemory);
     }
 
+    /**
+     * @return how many further batches of {@link #getNumberOfBlocksThatFitInMemory()} blocks a stream returned by
+     *         this store loads in the background while the current batch is being read. A stream holds at most
+     *         {@code 1 + getPrefetchDepth()} batches in memory; 0, the default, loads each batch only when it is
+     *         needed. Batches are only loaded ahead once the transaction the stream was loaded in has finished, and
+     *         are then read in their own read-only transactions.
+     */
+    protected int getPrefetchDepth() {
+        return DEFAULT_PREFETCH_DEPTH;
+    }
+
     @Override
     public final File loadStreamAsFile(Transaction transaction, ID id) {
         StreamMetadata metadata = getMetadata(transaction, id);
@@ -19,7 +19,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
@@ -28,10 +34,12 @@ import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
@@ -41,10 +49,14 @@ import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.Pair;
 import com.palantir.util.crypto.Sha256Hash;
 
 public abstract class AbstractPersistentStreamStore extends AbstractGenericStreamStore<Long> implements PersistentStreamStore {
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 1;
+    public static final int DEFAULT_BLOCKS_PER_UPLOAD_BATCH = 1;
+
     protected AbstractPersistentStreamStore(TransactionManager txManager) {
         super(txManager);
     }
@@ -183,28 +195,174 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
                 .build();
     }
 
+    /**
+     * @return how many batches of blocks {@link #storeStream(InputStream)} stores concurrently, each in its own
+     *         transaction. At most this many batches are held in memory while a stream is stored; 1 (the default)
+     *         stores the batches one after another. Only takes effect if
+     *         {@link #storesBlocksWithoutChangingMetadata()}.
+     */
+    protected int getUploadParallelism() {
+        return DEFAULT_UPLOAD_PARALLELISM;
+    }
+
+    /**
+     * @return how many blocks {@link #storeStream(InputStream)} stores in each transaction.
+     */
+    protected int getBlocksPerUploadBatch() {
+        return DEFAULT_BLOCKS_PER_UPLOAD_BATCH;
+    }
+
+    /**
+     * @return whether {@link #storeBlock} leaves the stream's metadata unchanged, so that blocks of one stream can
+     *         be stored in concurrent transactions without conflicting. Stream stores generated by earlier versions
+     *         rewrite the stream length with every block, so they store their blocks one batch at a time.
+     */
+    protected boolean storesBlocksWithoutChangingMetadata() {
+        return false;
+    }
+
     private void storeBlocksFromStream(@Nullable Transaction t, long id, InputStream stream) throws IOException {
-        long blockNumber = 0;
+        int parallelism = storesBlocksWithoutChangingMetadata() ? getUploadParallelism() : 1;
+        if (t == null && (parallelism > 1 || getBlocksPerUploadBatch() > 1)) {
+            storeBlocksInBatches(id, stream, parallelism);
+            return;
+        }
 
+        long blockNumber = 0;
         while (true) {
-            byte[] bytesToStore = new byte[BLOCK_SIZE_IN_BYTES];
-            int length = ByteStreams.read(stream, bytesToStore, 0, BLOCK_SIZE_IN_BYTES);
-            // Store only relevant data if it only filled a partial block
-            if (length == 0) {
+            byte[] block = readBlock(stream);
+            if (block == null) {
                 break;
             }
-            if (length < BLOCK_SIZE_IN_BYTES) {
+            storeBlockWithNonNullTransaction(t, id, blockNumber, block);
+            if (block.length < BLOCK_SIZE_IN_BYTES) {
                 // This is the last block.
-                storeBlockWithNonNullTransaction(t, id, blockNumber, PtBytes.head(bytesToStore, length));
                 break;
-            } else {
-                // Store a full block.
-                storeBlockWithNonNullTransaction(t, id, blockNumber, bytesToStore);
             }
             blockNumber++;
         }
     }
 
+    /**
+     * Reads the stream one batch of blocks at a time and hands each batch to a separate transaction. With a
+     * parallelism above 1, batches are stored on threads of their own while later batches are being read; blocks
+     * touch the stream's metadata without changing it, so the transactions of one stream do not conflict with
+     * each other.
+     */
+    private void storeBlocksInBatches(long id, InputStream stream, int parallelism) throws IOException {
+        Preconditions.checkNotNull(txnMgr);
+        int blocksPerBatch = getBlocksPerUploadBatch();
+        Preconditions.checkArgument(parallelism > 0, "upload parallelism must be positive, but was %s", parallelism);
+        Preconditions.checkArgument(blocksPerBatch > 0, "blocks per upload batch must be positive, but was %s",
+                blocksPerBatch);
+
+        // Each batch commits a transaction, which may itself wait on pooled work, so the batches get threads of
+        // their own rather than sharing a pool with the rest of the process.
+        ExecutorService executor = parallelism > 1
+                ? PTExecutors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                        .setNameFormat("stream-store-upload-" + id + "-%d")
+                        .setDaemon(true)
+                        .build())
+                : null;
+        Deque<Future<?>> batchesInFlight = new ArrayDeque<>(parallelism);
+        try {
+            long blockNumber = 0;
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                // Wait for a batch to finish before reading the next one, so that memory use stays bounded.
+                if (batchesInFlight.size() >= parallelism) {
+                    waitForBatch(batchesInFlight.removeFirst());
+                }
+
+                List<byte[]> batch = Lists.newArrayListWithCapacity(blocksPerBatch);
+                while (batch.size() < blocksPerBatch) {
+                    byte[] block = readBlock(stream);
+                    if (block == null) {
+                        endOfStream = true;
+                        break;
+                    }
+                    batch.add(block);
+                    if (block.length < BLOCK_SIZE_IN_BYTES) {
+                        endOfStream = true;
+                        break;
+                    }
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                long firstBlockNumber = blockNumber;
+                if (executor == null) {
+                    storeBatch(id, firstBlockNumber, batch);
+                } else {
+                    batchesInFlight.addLast(executor.submit(() -> storeBatch(id, firstBlockNumber, batch)));
+                }
+                blockNumber += batch.size();
+            }
+
+            while (!batchesInFlight.isEmpty()) {
+                waitForBatch(batchesInFlight.removeFirst());
+            }
+        } finally {
+            // If we failed, let the batches already submitted finish, so that none of them is still writing when
+            // the caller records the failure in the stream's metadata.
+            for (Future<?> batch : batchesInFlight) {
+                waitForBatchIgnoringFailures(batch);
+            }
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private void storeBatch(long id, long firstBlockNumber, List<byte[]> blocks) {
+        txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) throws RuntimeException {
+                for (int i = 0; i < blocks.size(); i++) {
+                    storeBlock(t, id, firstBlockNumber + i, blocks.get(i));
+                }
+                return null;
+            }
+        });
+    }
+
+    private static void waitForBatch(Future<?> batch) {
+        try {
+            batch.get();
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Interrupted while storing stream blocks.", e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private static void waitForBatchIgnoringFailures(Future<?> batch) {
+        try {
+            batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Failed to store a batch of stream blocks after storing the stream had already failed.",
+                    e.getCause());
+        }
+    }
+
+    /**
+     * @return the next block of the stream, which is shorter than {@link #BLOCK_SIZE_IN_BYTES} only if it is the
+     *         last one, or null if the stream has no more bytes.
+     */
+    @Nullable
+    private static byte[] readBlock(InputStream stream) throws IOException {
+        byte[] bytesToStore = new byte[BLOCK_SIZE_IN_BYTES];
+        int length = ByteStreams.read(stream, bytesToStore, 0, BLOCK_SIZE_IN_BYTES);
+        if (length == 0) {
+            return null;
+        }
+        // Store only relevant data if it only filled a partial block
+        return length < BLOCK_SIZE_IN_BYTES ? PtBytes.head(bytesToStore, length) : bytesToStore;
+    }
+
     protected void storeBlockWithNonNullTransaction(@Nullable Transaction t, final long id, final long blockNumber, final byte[] bytesToStore) {
         if (t != null) {
             storeBlock(t, id, blockNumber, bytesToStore);
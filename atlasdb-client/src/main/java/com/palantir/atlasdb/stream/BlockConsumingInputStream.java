@@ -18,15 +18,37 @@ package com.palantir.atlasdb.stream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nullable;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.schema.stream.StreamStoreDefinition;
+import com.palantir.common.base.Throwables;
 
+/**
+ * Reads a stream that is stored as a sequence of blocks, holding {@code blocksInMemory} blocks in memory at a time.
+ * <p>
+ * If created with a prefetch depth, the stream loads up to that many further batches of {@code blocksInMemory}
+ * blocks asynchronously while the current batch is being consumed, so reading is not bounded by the latency of
+ * loading each batch in turn. At most {@code 1 + prefetchDepth} batches are held in memory at once. The stream shuts
+ * its prefetch executor down once it has been read to the end or closed.
+ */
 public final class BlockConsumingInputStream extends InputStream {
     private final BlockGetter blockGetter;
     private final long numBlocks;
     private final int blocksInMemory;
+    private final int prefetchDepth;
+    @Nullable private final ExecutorService prefetchExecutor;
+    private final BooleanSupplier prefetchAllowed;
+    private final Deque<Future<byte[]>> prefetchedBatches = new ArrayDeque<>();
 
     private long nextBlockToRead;
 
@@ -38,7 +60,43 @@ public final class BlockConsumingInputStream extends InputStream {
             long numBlocks,
             int blocksInMemory) throws IOException {
         ensureExpectedArraySizeDoesNotOverflow(blockGetter, blocksInMemory);
-        return new BlockConsumingInputStream(blockGetter, numBlocks, blocksInMemory);
+        return new BlockConsumingInputStream(blockGetter, numBlocks, blocksInMemory, 0, null, () -> false);
+    }
+
+    /**
+     * Creates a stream that loads up to {@code prefetchDepth} batches of {@code blocksInMemory} blocks ahead of the
+     * reader on {@code prefetchExecutor}. The block getter must support being called from several threads at once.
+     * A prefetch depth of 0 loads each batch synchronously when it is needed, as {@link #create} does.
+     */
+    public static BlockConsumingInputStream createWithPrefetch(
+            BlockGetter blockGetter,
+            long numBlocks,
+            int blocksInMemory,
+            int prefetchDepth,
+            ExecutorService prefetchExecutor) throws IOException {
+        return createWithPrefetch(blockGetter, numBlocks, blocksInMemory, prefetchDepth, prefetchExecutor, () -> true);
+    }
+
+    /**
+     * As {@link #createWithPrefetch(BlockGetter, long, int, int, ExecutorService)}, but batches are only loaded ahead
+     * of the reader once {@code prefetchAllowed} returns true; until then, each batch is loaded on the reader's thread
+     * when it is needed. Once {@code prefetchAllowed} has returned true it must keep doing so, and only from then on
+     * does the block getter need to support being called from other threads.
+     */
+    public static BlockConsumingInputStream createWithPrefetch(
+            BlockGetter blockGetter,
+            long numBlocks,
+            int blocksInMemory,
+            int prefetchDepth,
+            ExecutorService prefetchExecutor,
+            BooleanSupplier prefetchAllowed) throws IOException {
+        ensureExpectedArraySizeDoesNotOverflow(blockGetter, blocksInMemory);
+        Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth must not be negative, but was %s",
+                prefetchDepth);
+        Preconditions.checkNotNull(prefetchExecutor, "prefetchExecutor");
+        Preconditions.checkNotNull(prefetchAllowed, "prefetchAllowed");
+        return new BlockConsumingInputStream(
+                blockGetter, numBlocks, blocksInMemory, prefetchDepth, prefetchExecutor, prefetchAllowed);
     }
 
     // we don't want to actually create a very large array in tests, as the external test VM would run out of memory.
@@ -57,10 +115,19 @@ public final class BlockConsumingInputStream extends InputStream {
                 expectedBufferSize);
     }
 
-    private BlockConsumingInputStream(BlockGetter blockGetter, long numBlocks, int blocksInMemory) {
+    private BlockConsumingInputStream(
+            BlockGetter blockGetter,
+            long numBlocks,
+            int blocksInMemory,
+            int prefetchDepth,
+            @Nullable ExecutorService prefetchExecutor,
+            BooleanSupplier prefetchAllowed) {
         this.blockGetter = blockGetter;
         this.numBlocks = numBlocks;
         this.blocksInMemory = blocksInMemory;
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchAllowed = prefetchAllowed;
         this.nextBlockToRead = 0L;
         this.positionInBuffer = 0;
         this.buffer = new byte[0];
@@ -72,16 +139,12 @@ public final class BlockConsumingInputStream extends InputStream {
             return buffer[positionInBuffer++] & 0xff;
         }
 
-        if (nextBlockToRead < numBlocks) {
-            boolean reloaded = refillBuffer();
-            if (!reloaded) {
-                return -1;
-            }
-
-            return buffer[positionInBuffer++] & 0xff;
+        boolean reloaded = refillBuffer();
+        if (!reloaded) {
+            return -1;
         }
 
-        return -1;
+        return buffer[positionInBuffer++] & 0xff;
     }
 
     @Override
@@ -117,20 +180,84 @@ public final class BlockConsumingInputStream extends InputStream {
         return bytesRead;
     }
 
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> batch : prefetchedBatches) {
+            batch.cancel(false);
+        }
+        prefetchedBatches.clear();
+        nextBlockToRead = numBlocks;
+        buffer = new byte[0];
+        positionInBuffer = 0;
+        shutDownPrefetchExecutor();
+    }
+
     private boolean refillBuffer() throws IOException {
+        if (prefetchDepth == 0 || (prefetchedBatches.isEmpty() && !prefetchAllowed.getAsBoolean())) {
+            boolean refilled = refillBufferSynchronously();
+            if (!refilled) {
+                shutDownPrefetchExecutor();
+            }
+            return refilled;
+        }
+
+        schedulePrefetches();
+        Future<byte[]> nextBatch = prefetchedBatches.pollFirst();
+        if (nextBatch == null) {
+            shutDownPrefetchExecutor();
+            return false;
+        }
+        buffer = getPrefetchedBatch(nextBatch);
+        positionInBuffer = 0;
+        schedulePrefetches();
+        return true;
+    }
+
+    private boolean refillBufferSynchronously() throws IOException {
         // since blocksInMemory is an int, the min is guaranteed to fit in an int
         int numBlocksToGet = (int) Math.min(blocksLeft(), blocksInMemory);
         if (numBlocksToGet <= 0) {
             return false;
         }
 
+        buffer = loadBlocks(nextBlockToRead, numBlocksToGet);
+        nextBlockToRead += numBlocksToGet;
+        positionInBuffer = 0;
+        return true;
+    }
+
+    private void schedulePrefetches() {
+        while (prefetchedBatches.size() < prefetchDepth && blocksLeft() > 0) {
+            long firstBlock = nextBlockToRead;
+            int numBlocksToGet = (int) Math.min(blocksLeft(), blocksInMemory);
+            prefetchedBatches.addLast(prefetchExecutor.submit(() -> loadBlocks(firstBlock, numBlocksToGet)));
+            nextBlockToRead += numBlocksToGet;
+        }
+    }
+
+    private void shutDownPrefetchExecutor() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdown();
+        }
+    }
+
+    private static byte[] getPrefetchedBatch(Future<byte[]> batch) throws IOException {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for blocks to be loaded");
+        } catch (ExecutionException e) {
+            Throwables.rewrapAndThrowIfInstance(e.getCause(), IOException.class);
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private byte[] loadBlocks(long firstBlock, int numBlocksToGet) throws IOException {
         int expectedLength = blockGetter.expectedBlockLength() * numBlocksToGet;
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(expectedLength)) {
-            blockGetter.get(nextBlockToRead, numBlocksToGet, outputStream);
-            nextBlockToRead += numBlocksToGet;
-            buffer = outputStream.toByteArray();
-            positionInBuffer = 0;
-            return true;
+            blockGetter.get(firstBlock, numBlocksToGet, outputStream);
+            return outputStream.toByteArray();
         }
     }
 
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.util.crypto.Sha256Hash;
+
+/**
+ * Stores streams as sequences of content-defined chunks on top of a {@link PersistentStreamStore}, so that streams
+ * with mostly the same content, such as successive versions of a large document, share the storage of the chunks
+ * they have in common.
+ * <p>
+ * Each chunk is stored as a stream of its own and is addressed by its hash through the store's hash index, so a
+ * chunk that is already stored is never written again. A chunked stream is a small manifest stream listing its
+ * chunks. Chunks are reference counted with the store's usual stream references: marking a chunked stream as used
+ * by a reference also marks each of its chunks as used by that reference, and unmarking it releases them again. A
+ * chunk that is no longer used by any stream is then deleted by the store's index cleanup task, like any other
+ * unreferenced stream.
+ * <p>
+ * Chunked streams must only be marked, unmarked and loaded through this class; loading one directly from the
+ * underlying store returns its manifest.
+ */
+public final class ChunkingStreamStore {
+    private static final int MANIFEST_FORMAT_VERSION = 1;
+    // Bounds how many chunks are held in memory while their hashes are looked up.
+    private static final int CHUNKS_PER_LOOKUP = 8;
+
+    private final TransactionManager txnMgr;
+    private final PersistentStreamStore streamStore;
+    private final ContentDefinedChunker chunker;
+
+    public ChunkingStreamStore(TransactionManager txnMgr, PersistentStreamStore streamStore) {
+        this(txnMgr, streamStore, ContentDefinedChunker.withDefaultChunkSizes());
+    }
+
+    public ChunkingStreamStore(
+            TransactionManager txnMgr,
+            PersistentStreamStore streamStore,
+            ContentDefinedChunker chunker) {
+        this.txnMgr = Preconditions.checkNotNull(txnMgr);
+        this.streamStore = Preconditions.checkNotNull(streamStore);
+        this.chunker = Preconditions.checkNotNull(chunker);
+    }
+
+    /**
+     * Stores {@code stream} as chunks, reusing any chunks that are already stored, and marks the result as used by
+     * {@code reference}. As with {@link PersistentStreamStore#getByHashOrStoreStreamAndMarkAsUsed}, new chunks are
+     * stored in transactions of their own, while existing chunks are looked up and all references are written in
+     * {@code t}, so that a chunk being cleaned up concurrently makes {@code t} fail rather than lose data.
+     *
+     * @return the id of the chunked stream.
+     */
+    public long storeStreamAndMarkAsUsed(Transaction t, InputStream stream, byte[] reference) {
+        List<ChunkReference> chunks = Lists.newArrayList();
+        Map<Sha256Hash, Long> chunkIdsByHash = Maps.newHashMap();
+        ContentDefinedChunker.ChunkReader reader = chunker.newReader(stream);
+        try {
+            List<byte[]> batch = Lists.newArrayListWithCapacity(CHUNKS_PER_LOOKUP);
+            for (byte[] chunk = reader.next(); chunk != null; chunk = reader.next()) {
+                batch.add(chunk);
+                if (batch.size() == CHUNKS_PER_LOOKUP) {
+                    chunks.addAll(getOrStoreChunks(t, batch, chunkIdsByHash));
+                    batch.clear();
+                }
+            }
+            chunks.addAll(getOrStoreChunks(t, batch, chunkIdsByHash));
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to store stream.", e);
+        }
+
+        long id = getOrStoreStream(t, encodeManifest(chunks));
+        markStreamAsUsed(t, id, chunks, reference);
+        return id;
+    }
+
+    public void markStreamAsUsed(Transaction t, long id, byte[] reference) {
+        markStreamAsUsed(t, id, readManifest(t, id), reference);
+    }
+
+    /**
+     * Releases {@code reference}'s use of the chunked stream and of each of its chunks.
+     */
+    public void unmarkStreamAsUsed(Transaction t, long id, byte[] reference) {
+        Map<Long, byte[]> chunkReferences = Maps.newHashMap();
+        for (ChunkReference chunk : readManifest(t, id)) {
+            chunkReferences.put(chunk.getId(), getChunkReference(id, reference));
+        }
+        streamStore.unmarkStreamsAsUsed(t, chunkReferences);
+        streamStore.unmarkStreamAsUsed(t, id, reference);
+    }
+
+    /**
+     * Loads a chunked stream. Chunks are loaded one at a time as the stream is read; once {@code t} has finished,
+     * the remaining chunks are loaded in read-only transactions of their own.
+     */
+    public InputStream loadStream(Transaction t, long id) {
+        Iterator<ChunkReference> chunks = readManifest(t, id).iterator();
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return chunks.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                long chunkId = chunks.next().getId();
+                if (t.isUncommitted()) {
+                    return loadChunk(t, chunkId);
+                }
+                return txnMgr.runTaskReadOnly(txn -> loadChunk(txn, chunkId));
+            }
+        });
+    }
+
+    /**
+     * @return the ids of the chunks of a chunked stream, in order.
+     */
+    public List<Long> getChunkIds(Transaction t, long id) {
+        return ImmutableList.copyOf(Lists.transform(readManifest(t, id), ChunkReference::getId));
+    }
+
+    private List<ChunkReference> getOrStoreChunks(
+            Transaction t,
+            List<byte[]> chunks,
+            Map<Sha256Hash, Long> chunkIdsByHash) {
+        List<Sha256Hash> hashes = ImmutableList.copyOf(Lists.transform(chunks, Sha256Hash::computeHash));
+        Set<Sha256Hash> hashesToLookUp = Sets.difference(ImmutableSet.copyOf(hashes), chunkIdsByHash.keySet());
+        chunkIdsByHash.putAll(streamStore.lookupStreamIdsByHash(t, ImmutableSet.copyOf(hashesToLookUp)));
+
+        ImmutableList.Builder<ChunkReference> references = ImmutableList.builder();
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] chunk = chunks.get(i);
+            Sha256Hash hash = hashes.get(i);
+            Long chunkId = chunkIdsByHash.get(hash);
+            if (chunkId == null) {
+                chunkId = streamStore.storeStream(new ByteArrayInputStream(chunk)).getLhSide();
+                chunkIdsByHash.put(hash, chunkId);
+            }
+            references.add(new ChunkReference(chunkId, chunk.length));
+        }
+        return references.build();
+    }
+
+    private long getOrStoreStream(Transaction t, byte[] bytes) {
+        Sha256Hash hash = Sha256Hash.computeHash(bytes);
+        Long existingId = streamStore.lookupStreamIdsByHash(t, ImmutableSet.of(hash)).get(hash);
+        if (existingId != null) {
+            return existingId;
+        }
+        return streamStore.storeStream(new ByteArrayInputStream(bytes)).getLhSide();
+    }
+
+    private void markStreamAsUsed(Transaction t, long id, List<ChunkReference> chunks, byte[] reference) {
+        Map<Long, byte[]> chunkReferences = Maps.newHashMap();
+        for (ChunkReference chunk : chunks) {
+            chunkReferences.put(chunk.getId(), getChunkReference(id, reference));
+        }
+        streamStore.markStreamsAsUsed(t, chunkReferences);
+        streamStore.markStreamAsUsed(t, id, reference);
+    }
+
+    private InputStream loadChunk(Transaction t, long chunkId) {
+        Optional<InputStream> chunk = streamStore.loadSingleStream(t, chunkId);
+        Preconditions.checkState(chunk.isPresent(), "Chunk %s of a chunked stream is missing", chunkId);
+        return chunk.get();
+    }
+
+    private List<ChunkReference> readManifest(Transaction t, long id) {
+        Optional<InputStream> manifest = streamStore.loadSingleStream(t, id);
+        Preconditions.checkArgument(manifest.isPresent(),
+                "Unable to load chunked stream %s because it was never stored.", id);
+        try (InputStream stream = manifest.get()) {
+            return decodeManifest(ByteStreams.toByteArray(stream));
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to read chunked stream manifest.", e);
+        }
+    }
+
+    /**
+     * A chunk's references are kept apart per chunked stream, so that two streams sharing a chunk and marked as
+     * used by the same reference can be released independently.
+     */
+    private static byte[] getChunkReference(long id, byte[] reference) {
+        return Bytes.concat(reference, PtBytes.toBytes(id));
+    }
+
+    private static byte[] encodeManifest(List<ChunkReference> chunks) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MANIFEST_FORMAT_VERSION);
+            output.writeInt(chunks.size());
+            for (ChunkReference chunk : chunks) {
+                output.writeLong(chunk.getId());
+                output.writeLong(chunk.getLength());
+            }
+        } catch (IOException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<ChunkReference> decodeManifest(byte[] bytes) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        int version = input.readInt();
+        Preconditions.checkState(version == MANIFEST_FORMAT_VERSION, "Unknown chunked stream format %s", version);
+        int numChunks = input.readInt();
+        ImmutableList.Builder<ChunkReference> chunks = ImmutableList.builder();
+        for (int i = 0; i < numChunks; i++) {
+            chunks.add(new ChunkReference(input.readLong(), input.readLong()));
+        }
+        return chunks.build();
+    }
+
+    private static final class ChunkReference {
+        private final long id;
+        private final long length;
+
+        ChunkReference(long id, long length) {
+            this.id = id;
+            this.length = length;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        long getLength() {
+            return length;
+        }
+    }
+}
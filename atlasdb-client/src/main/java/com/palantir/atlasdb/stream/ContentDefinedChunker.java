@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Splits streams into variable-sized chunks whose boundaries depend only on the bytes near them, so that an edit to
+ * a stream changes only the chunks around the edit. Two versions of a large document that differ in a few places
+ * therefore share most of their chunks, however much the edits shift the rest of the content.
+ * <p>
+ * Boundaries are found with a gear hash, a rolling hash over (roughly) the last 64 bytes: a chunk ends after the
+ * first byte at which the top bits of the hash are all zero, but never before {@code minChunkSize} bytes and always
+ * at {@code maxChunkSize} bytes. The gear table is generated from a fixed seed, so chunk boundaries are stable
+ * across JVMs and releases; changing it would stop new chunks from matching chunks stored earlier.
+ */
+public final class ContentDefinedChunker {
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 256 * 1024;
+    public static final int DEFAULT_AVERAGE_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final long GEAR_SEED = 0x5eed_c4f3_d0c5L;
+    private static final long[] GEAR = createGearTable();
+
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long boundaryMask;
+
+    /**
+     * @param minChunkSize the smallest chunk to produce, except for the last chunk of a stream.
+     * @param averageChunkSize the approximate expected size of a chunk of random data.
+     * @param maxChunkSize the largest chunk to produce.
+     */
+    public ContentDefinedChunker(int minChunkSize, int averageChunkSize, int maxChunkSize) {
+        Preconditions.checkArgument(0 < minChunkSize && minChunkSize < averageChunkSize
+                && averageChunkSize < maxChunkSize,
+                "Chunk sizes must satisfy 0 < min < average < max, but were %s, %s and %s",
+                minChunkSize, averageChunkSize, maxChunkSize);
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        // Past the minimum size, a boundary is found after 2^bits bytes on average.
+        int boundaryBits = 31 - Integer.numberOfLeadingZeros(averageChunkSize - minChunkSize);
+        this.boundaryMask = boundaryBits == 0 ? 0L : -1L << (64 - boundaryBits);
+    }
+
+    public static ContentDefinedChunker withDefaultChunkSizes() {
+        return new ContentDefinedChunker(DEFAULT_MIN_CHUNK_SIZE, DEFAULT_AVERAGE_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE);
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * @return a reader that splits {@code stream} into chunks. It holds at most {@code maxChunkSize} bytes of the
+     *         stream in memory besides the chunk it last returned.
+     */
+    public ChunkReader newReader(InputStream stream) {
+        return new ChunkReader(stream);
+    }
+
+    public final class ChunkReader {
+        private final InputStream stream;
+        private final byte[] buffer = new byte[maxChunkSize];
+        private int bufferedBytes = 0;
+        private boolean endOfStream = false;
+
+        private ChunkReader(InputStream stream) {
+            this.stream = Preconditions.checkNotNull(stream);
+        }
+
+        /**
+         * @return the next chunk of the stream, or null if the whole stream has been returned.
+         */
+        @Nullable
+        public byte[] next() throws IOException {
+            fillBuffer();
+            if (bufferedBytes == 0) {
+                return null;
+            }
+            int chunkLength = findChunkLength();
+            byte[] chunk = Arrays.copyOf(buffer, chunkLength);
+            System.arraycopy(buffer, chunkLength, buffer, 0, bufferedBytes - chunkLength);
+            bufferedBytes -= chunkLength;
+            return chunk;
+        }
+
+        private void fillBuffer() throws IOException {
+            if (!endOfStream && bufferedBytes < buffer.length) {
+                int read = ByteStreams.read(stream, buffer, bufferedBytes, buffer.length - bufferedBytes);
+                bufferedBytes += read;
+                endOfStream = bufferedBytes < buffer.length;
+            }
+        }
+
+        private int findChunkLength() {
+            if (bufferedBytes <= minChunkSize) {
+                return bufferedBytes;
+            }
+            // The hash only depends on the last 64 bytes, so there is no need to hash the start of a chunk.
+            long hash = 0L;
+            for (int i = Math.max(0, minChunkSize - Long.SIZE); i < bufferedBytes; i++) {
+                hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+                if (i + 1 >= minChunkSize && (hash & boundaryMask) == 0) {
+                    return i + 1;
+                }
+            }
+            // Either the buffer holds a whole max-sized chunk, or this is the end of the stream.
+            return bufferedBytes;
+        }
+    }
+
+    private static long[] createGearTable() {
+        // java.util.Random's algorithm is fixed by its specification, so this table never changes.
+        Random random = new Random(GEAR_SEED);
+        long[] gear = new long[256];
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        return gear;
+    }
+}
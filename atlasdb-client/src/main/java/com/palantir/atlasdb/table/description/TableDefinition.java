@@ -201,6 +201,24 @@ public class TableDefinition extends AbstractDefinition {
         return maxValueSize;
     }
 
+    /**
+     * Makes committing transactions lock one of {@code numStripes} stripes per written row (or cell, for
+     * {@link ConflictHandler#RETRY_ON_WRITE_WRITE_CELL}) of this table, instead of one lock per row or cell.
+     * This bounds the number of commit locks a transaction takes on the table, at the cost of false contention
+     * between transactions writing different rows that map to the same stripe.
+     * <p>
+     * The number of stripes is persisted with the table metadata, so that every client derives the same locks.
+     * Changing it on an existing table is only safe while no client is writing to the table.
+     */
+    public void commitLockStripes(int numStripes) {
+        Preconditions.checkArgument(numStripes > 0, "numStripes must be positive, but was %s", numStripes);
+        commitLockStripes = numStripes;
+    }
+
+    public int getCommitLockStripes() {
+        return commitLockStripes;
+    }
+
     public void genericTableName(String name) {
         genericTableName = name;
     }
@@ -245,6 +263,7 @@ public class TableDefinition extends AbstractDefinition {
     private Set<String> fixedColumnShortNames = Sets.newHashSet();
     private Set<String> fixedColumnLongNames = Sets.newHashSet();
     private boolean noColumns = false;
+    private int commitLockStripes = 0;
 
     public TableMetadata toTableMetadata() {
         Preconditions.checkState(!rowNameComponents.isEmpty(), "No row name components defined.");
@@ -268,7 +287,8 @@ public class TableDefinition extends AbstractDefinition {
                 negativeLookups,
                 sweepStrategy,
                 expirationStrategy,
-                appendHeavyAndReadLight);
+                appendHeavyAndReadLight,
+                commitLockStripes);
     }
 
     private ColumnMetadataDescription getColumnMetadataDescription() {
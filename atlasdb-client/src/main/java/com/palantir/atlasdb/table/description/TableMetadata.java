@@ -42,6 +42,7 @@ public class TableMetadata implements Persistable {
     final SweepStrategy sweepStrategy;
     final ExpirationStrategy expirationStrategy;
     final boolean appendHeavyAndReadLight;
+    final int commitLockStripes;
 
     public TableMetadata() {
         this(
@@ -78,6 +79,37 @@ public class TableMetadata implements Persistable {
                          SweepStrategy sweepStrategy,
                          ExpirationStrategy expirationStrategy,
                          boolean appendHeavyAndReadLight) {
+        this(
+                rowMetadata,
+                columns,
+                conflictHandler,
+                cachePriority,
+                partitionStrategy,
+                rangeScanAllowed,
+                explicitCompressionBlockSizeKB,
+                negativeLookups,
+                sweepStrategy,
+                expirationStrategy,
+                appendHeavyAndReadLight,
+                0);
+    }
+
+    /**
+     * @param commitLockStripes if positive, committing transactions take at most this many commit locks on the
+     *                          table, one per stripe of rows they wrote; zero means one lock per row or cell.
+     */
+    public TableMetadata(NameMetadataDescription rowMetadata,
+                         ColumnMetadataDescription columns,
+                         ConflictHandler conflictHandler,
+                         CachePriority cachePriority,
+                         PartitionStrategy partitionStrategy,
+                         boolean rangeScanAllowed,
+                         int explicitCompressionBlockSizeKB,
+                         boolean negativeLookups,
+                         SweepStrategy sweepStrategy,
+                         ExpirationStrategy expirationStrategy,
+                         boolean appendHeavyAndReadLight,
+                         int commitLockStripes) {
         if (rangeScanAllowed) {
             Preconditions.checkArgument(
                     partitionStrategy == PartitionStrategy.ORDERED,
@@ -94,6 +126,9 @@ public class TableMetadata implements Persistable {
         this.sweepStrategy = sweepStrategy;
         this.expirationStrategy = expirationStrategy;
         this.appendHeavyAndReadLight = appendHeavyAndReadLight;
+        Preconditions.checkArgument(commitLockStripes >= 0,
+                "commitLockStripes must not be negative, but was %s", commitLockStripes);
+        this.commitLockStripes = commitLockStripes;
     }
 
     public NameMetadataDescription getRowMetadata() {
@@ -144,6 +179,14 @@ public class TableMetadata implements Persistable {
         return appendHeavyAndReadLight;
     }
 
+    public boolean hasCommitLockStripes() {
+        return commitLockStripes > 0;
+    }
+
+    public int getCommitLockStripes() {
+        return commitLockStripes;
+    }
+
     @Override
     public byte[] persistToBytes() {
         return persistToProto().build().toByteArray();
@@ -173,6 +216,9 @@ public class TableMetadata implements Persistable {
         builder.setSweepStrategy(sweepStrategy);
         // expiration strategy doesn't need to be persisted.
         builder.setAppendHeavyAndReadLight(appendHeavyAndReadLight);
+        if (hasCommitLockStripes()) {
+            builder.setCommitLockStripes(commitLockStripes);
+        }
         return builder;
     }
 
@@ -205,6 +251,10 @@ public class TableMetadata implements Persistable {
         if (message.hasAppendHeavyAndReadLight()) {
             appendHeavyAndReadLight = message.getAppendHeavyAndReadLight();
         }
+        int commitLockStripes = 0;
+        if (message.hasCommitLockStripes()) {
+            commitLockStripes = message.getCommitLockStripes();
+        }
 
         return new TableMetadata(
                 NameMetadataDescription.hydrateFromProto(message.getRowName()),
@@ -217,7 +267,8 @@ public class TableMetadata implements Persistable {
                 negativeLookups,
                 sweepStrategy,
                 ExpirationStrategy.NEVER,
-                appendHeavyAndReadLight);
+                appendHeavyAndReadLight,
+                commitLockStripes);
     }
 
     @Override
@@ -233,6 +284,7 @@ public class TableMetadata implements Persistable {
                 + ", negativeLookups = " + negativeLookups
                 + ", sweepStrategy = " + sweepStrategy
                 + ", appendHeavyAndReadLight = " + appendHeavyAndReadLight
+                + ", commitLockStripes = " + commitLockStripes
                 + "]";
     }
 
@@ -251,6 +303,7 @@ public class TableMetadata implements Persistable {
         result = prime * result + (negativeLookups? 0 : 1);
         result = prime * result + (sweepStrategy.hashCode());
         result = prime * result + (appendHeavyAndReadLight? 0 : 1);
+        result = prime * result + commitLockStripes;
         return result;
     }
 
@@ -307,6 +360,9 @@ public class TableMetadata implements Persistable {
         if (appendHeavyAndReadLight != other.appendHeavyAndReadLight) {
             return false;
         }
+        if (commitLockStripes != other.commitLockStripes) {
+            return false;
+        }
 
         return true;
     }
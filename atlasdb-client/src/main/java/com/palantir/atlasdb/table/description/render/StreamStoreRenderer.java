@@ -91,14 +91,16 @@ public class StreamStoreRenderer {
     private final String packageName;
     private final String schemaName;
     private final int inMemoryThreshold;
+    private final int uploadParallelism;
     private final boolean clientSideCompression;
 
-    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, boolean clientSideCompression) {
+    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, int uploadParallelism, boolean clientSideCompression) {
         this.name = name;
         this.streamIdType = streamIdType;
         this.packageName = packageName;
         this.schemaName = schemaName;
         this.inMemoryThreshold = inMemoryThreshold;
+        this.uploadParallelism = uploadParallelism;
         this.clientSideCompression = clientSideCompression;
     }
 
@@ -157,10 +159,16 @@ public class StreamStoreRenderer {
                     line();
                     getInMemoryThreshold();
                     line();
+                    if (uploadParallelism != AbstractPersistentStreamStore.DEFAULT_UPLOAD_PARALLELISM) {
+                        getUploadParallelism();
+                        line();
+                    }
                     storeBlock();
                     line();
                     touchMetadataWhileStoringForConflicts();
                     line();
+                    storesBlocksWithoutChangingMetadata();
+                    line();
                     putMetadataAndHashIndexTask();
                     line();
                     getNumberOfBlocksFromMetadata();
@@ -259,9 +267,16 @@ public class StreamStoreRenderer {
                     line(StreamMetadataRow, " row = ", StreamMetadataRow, ".of(id);");
                     line("StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();");
                     line("Preconditions.checkState(metadata.getStatus() == Status.STORING, \"This stream is being cleaned up while storing blocks: \" + id);");
-                    line("Builder builder = StreamMetadata.newBuilder(metadata);");
-                    line("builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);");
-                    line("metaTable.putMetadata(row, builder.build());");
+                    line("// Rewriting the metadata unchanged conflicts with a concurrent cleanup, but not with other blocks");
+                    line("// of this stream that are being stored in parallel.");
+                    line("metaTable.putMetadata(row, metadata);");
+                } line("}");
+            }
+
+            private void storesBlocksWithoutChangingMetadata() {
+                line("@Override");
+                line("protected boolean storesBlocksWithoutChangingMetadata() {"); {
+                    line("return true;");
                 } line("}");
             }
 
@@ -314,6 +329,13 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void getUploadParallelism() {
+                line("@Override");
+                line("protected int getUploadParallelism() {"); {
+                    line("return ", String.valueOf(uploadParallelism), ";");
+                } line("}");
+            }
+
             private void createTempFile() {
                 line("@Override");
                 line("protected File createTempFile(", StreamId, " id) throws IOException {"); {
@@ -27,7 +27,6 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -47,11 +46,11 @@ public class CachingTransaction extends ForwardingTransaction {
 
     final Transaction delegate;
 
-    private final LoadingCache<String, ConcurrentMap<Cell, byte[]>> columnTableCache = CacheBuilder.newBuilder()
+    private final LoadingCache<TableReference, ConcurrentMap<Cell, byte[]>> columnTableCache = CacheBuilder.newBuilder()
             .softValues()
-            .build(new CacheLoader<String, ConcurrentMap<Cell, byte[]>>() {
+            .build(new CacheLoader<TableReference, ConcurrentMap<Cell, byte[]>>() {
         @Override
-        public ConcurrentMap<Cell, byte[]> load(String key) throws Exception {
+        public ConcurrentMap<Cell, byte[]> load(TableReference key) throws Exception {
             return Maps.newConcurrentMap();
         }
     });
@@ -114,7 +113,7 @@ public class CachingTransaction extends ForwardingTransaction {
                                  Iterable<RowResult<byte[]>> rowView) {
         for (RowResult<byte[]> loadedRow : rowView) {
             for (Map.Entry<Cell, byte[]> e : loadedRow.getCells()) {
-                cacheLoadedColumns(colCache, ImmutableSet.of(e.getKey()), ImmutableMap.of(e.getKey(), e.getValue()));
+                colCache.putIfAbsent(e.getKey(), e.getValue());
             }
         }
     }
@@ -183,7 +182,6 @@ public class CachingTransaction extends ForwardingTransaction {
     }
 
     private ConcurrentMap<Cell, byte[]> getColCacheForTable(TableReference tableRef) {
-        String tableName = tableRef.getQualifiedName();
-        return columnTableCache.getUnchecked(tableName);
+        return columnTableCache.getUnchecked(tableRef);
     }
 }
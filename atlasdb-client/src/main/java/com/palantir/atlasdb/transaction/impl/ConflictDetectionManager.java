@@ -18,6 +18,7 @@ package com.palantir.atlasdb.transaction.impl;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 import com.google.common.collect.Maps;
@@ -28,6 +29,7 @@ public class ConflictDetectionManager {
     private final Supplier<Map<TableReference, ConflictHandler>> supplier;
     private final Map<TableReference, ConflictHandler> overrides;
     private final RecomputingSupplier<Map<TableReference, ConflictHandler>> cachedResult;
+    private final RecomputingSupplier<Map<TableReference, Integer>> cachedCommitLockStripes;
 
     /**
      * @param supplier A {@link Supplier} which returns the current conflict detection
@@ -36,6 +38,18 @@ public class ConflictDetectionManager {
      *                 {@link #recompute()} in order to be picked up.
      */
     ConflictDetectionManager(Supplier<Map<TableReference, ConflictHandler>> supplier) {
+        this(supplier, Collections::emptyMap);
+    }
+
+    /**
+     * @param commitLockStripesSupplier A {@link Supplier} which returns the number of commit lock
+     *                                  stripes of each striped table, as persisted in its
+     *                                  {@link com.palantir.atlasdb.table.description.TableMetadata}.
+     *                                  It is cached in the same way as the conflict handlers.
+     */
+    ConflictDetectionManager(
+            Supplier<Map<TableReference, ConflictHandler>> supplier,
+            Supplier<Map<TableReference, Integer>> commitLockStripesSupplier) {
         this.supplier = supplier;
         this.overrides = Maps.newConcurrentMap();
         this.cachedResult = RecomputingSupplier.create(() -> {
@@ -43,6 +57,8 @@ public class ConflictDetectionManager {
             ret.putAll(overrides);
             return Collections.unmodifiableMap(ret);
         });
+        this.cachedCommitLockStripes = RecomputingSupplier.create(
+                () -> Collections.unmodifiableMap(new HashMap<>(commitLockStripesSupplier.get())));
     }
 
     public void setConflictDetectionMode(TableReference table, ConflictHandler handler) {
@@ -55,6 +71,17 @@ public class ConflictDetectionManager {
         cachedResult.recompute();
     }
 
+    /**
+     * Striping is part of the table's persisted metadata (see
+     * {@link com.palantir.atlasdb.table.description.TableMetadata#getCommitLockStripes()}), so that every client
+     * writing to the table derives the same commit lock descriptors.
+     *
+     * @return the number of commit lock stripes for the table, or empty if it takes a lock per row or cell.
+     */
+    public Optional<Integer> getCommitLockStripes(TableReference table) {
+        return Optional.ofNullable(cachedCommitLockStripes.get().get(table));
+    }
+
     public boolean isEmptyOrContainsTable(TableReference tableRef) {
         Map<TableReference, ConflictHandler> tableToConflict = cachedResult.get();
         return tableToConflict.isEmpty() || tableToConflict.containsKey(tableRef);
@@ -66,5 +93,6 @@ public class ConflictDetectionManager {
 
     public void recompute() {
         cachedResult.recompute();
+        cachedCommitLockStripes.recompute();
     }
 }
@@ -34,11 +34,15 @@ public class ConflictDetectionManagers {
     }
 
     public static ConflictDetectionManager createDefault(KeyValueService kvs) {
-        return new ConflictDetectionManager(getTablesToConflictDetectSupplier(kvs));
+        return new ConflictDetectionManager(
+                getTablesToConflictDetectSupplier(kvs),
+                () -> getCommitLockStripes(kvs));
     }
 
     public static ConflictDetectionManager createFromSchema(Schema schema) {
-        return new ConflictDetectionManager(() -> getTablesToConflictDetect(schema));
+        return new ConflictDetectionManager(
+                () -> getTablesToConflictDetect(schema),
+                () -> getCommitLockStripes(schema));
     }
 
     public static ConflictDetectionManager fromMap(final Map<TableReference, ConflictHandler> map) {
@@ -73,6 +77,29 @@ public class ConflictDetectionManagers {
         }));
     }
 
+    private static Map<TableReference, Integer> getCommitLockStripes(KeyValueService kvs) {
+        Map<TableReference, Integer> ret = Maps.newHashMap();
+        for (Map.Entry<TableReference, byte[]> e : kvs.getMetadataForTables().entrySet()) {
+            if (e.getValue() != null && e.getValue().length > 0) {
+                TableMetadata metadata = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(e.getValue());
+                if (metadata.hasCommitLockStripes()) {
+                    ret.put(e.getKey(), metadata.getCommitLockStripes());
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static Map<TableReference, Integer> getCommitLockStripes(Schema schema) {
+        Map<TableReference, Integer> ret = Maps.newHashMap();
+        for (Map.Entry<TableReference, TableMetadata> e : schema.getAllTablesAndIndexMetadata().entrySet()) {
+            if (e.getValue().hasCommitLockStripes()) {
+                ret.put(e.getKey(), e.getValue().getCommitLockStripes());
+            }
+        }
+        return ret;
+    }
+
     private static Map<TableReference, ConflictHandler> getTablesToConflictDetect(Schema schema) {
         Map<TableReference, ConflictHandler> ret = Maps.newHashMap();
         for (Map.Entry<TableReference, TableMetadata> e : schema.getAllTablesAndIndexMetadata().entrySet()) {
@@ -15,17 +15,25 @@
  */
 package com.palantir.atlasdb.util;
 
+import java.util.Collections;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
+import com.palantir.common.concurrent.ConcurrencyLimitedExecutorService;
+import com.palantir.common.concurrent.SharedExecutors;
 import com.palantir.tritium.event.log.LoggingInvocationEventHandler;
 import com.palantir.tritium.event.log.LoggingLevel;
 import com.palantir.tritium.event.metrics.MetricsInvocationEventHandler;
@@ -41,6 +49,9 @@ public final class AtlasDbMetrics {
     @VisibleForTesting
     static volatile MetricRegistry metrics;
 
+    private static final ConcurrentMap<String, Set<ConcurrencyLimitedExecutorService>> registeredExecutors =
+            new ConcurrentHashMap<>();
+
     private AtlasDbMetrics() {}
 
     public static synchronized void setMetricRegistry(MetricRegistry metricRegistry) {
@@ -92,4 +103,48 @@ public final class AtlasDbMetrics {
         }
     }
 
+    /**
+     * Registers gauges for the number of running and queued tasks of the given executor, along with gauges for the
+     * shared pool it runs on. Executors registered under the same prefix, e.g. those of several key value service
+     * instances, are reported together; an executor stops being reported once it has been garbage collected.
+     * <p>
+     * The shared pool is saturated when its {@code utilization} (the fraction of its maximum threads that are busy)
+     * is 1 and tasks are {@code queued}.
+     */
+    public static void registerExecutor(ConcurrencyLimitedExecutorService executor, String metricsPrefix) {
+        Set<ConcurrencyLimitedExecutorService> executors = registeredExecutors.computeIfAbsent(metricsPrefix,
+                unused -> Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>())));
+        executors.add(executor);
+
+        MetricRegistry metricRegistry = getMetricRegistry();
+        replaceGauge(metricRegistry, MetricRegistry.name(metricsPrefix, "running"),
+                () -> sum(executors, ConcurrencyLimitedExecutorService::getActiveTaskCount));
+        replaceGauge(metricRegistry, MetricRegistry.name(metricsPrefix, "queued"),
+                () -> sum(executors, ConcurrencyLimitedExecutorService::getQueuedTaskCount));
+
+        replaceGauge(metricRegistry, MetricRegistry.name(SharedExecutors.class, "threads"),
+                () -> SharedExecutors.getSharedPool().getPoolSize());
+        replaceGauge(metricRegistry, MetricRegistry.name(SharedExecutors.class, "active"),
+                () -> SharedExecutors.getSharedPool().getActiveCount());
+        replaceGauge(metricRegistry, MetricRegistry.name(SharedExecutors.class, "queued"),
+                () -> SharedExecutors.getSharedPool().getQueue().size());
+        replaceGauge(metricRegistry, MetricRegistry.name(SharedExecutors.class, "maxThreads"),
+                () -> SharedExecutors.getSharedPool().getMaximumPoolSize());
+        replaceGauge(metricRegistry, MetricRegistry.name(SharedExecutors.class, "utilization"),
+                () -> (double) SharedExecutors.getSharedPool().getActiveCount()
+                        / SharedExecutors.getSharedPool().getMaximumPoolSize());
+    }
+
+    private static int sum(
+            Set<ConcurrencyLimitedExecutorService> executors,
+            ToIntFunction<ConcurrencyLimitedExecutorService> count) {
+        synchronized (executors) {
+            return executors.stream().mapToInt(count).sum();
+        }
+    }
+
+    private static synchronized void replaceGauge(MetricRegistry metricRegistry, String name, Gauge<?> gauge) {
+        metricRegistry.remove(name);
+        metricRegistry.register(name, gauge);
+    }
 }
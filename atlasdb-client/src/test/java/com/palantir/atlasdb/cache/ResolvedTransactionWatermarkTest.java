@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.cache.ResolvedTransactionWatermark.Outcome;
+
+public class ResolvedTransactionWatermarkTest {
+    private static final int CHUNK_SPAN = 128;
+    private static final long MAX_SPAN = 4 * CHUNK_SPAN;
+    private static final long MIN_ADVANCE = 8;
+
+    private final NavigableMap<Long, Long> transactionsTable = new TreeMap<>();
+    private final List<long[]> scans = Lists.newArrayList();
+    private final ResolvedTransactionWatermark.TransactionTableScanner scanner = (from, to) -> {
+        scans.add(new long[] {from, to});
+        return transactionsTable.subMap(from, true, to, false);
+    };
+    private final ResolvedTransactionWatermark watermark =
+            new ResolvedTransactionWatermark(CHUNK_SPAN, MAX_SPAN, MIN_ADVANCE);
+
+    @Test
+    public void nothingIsKnownBeforeTheFirstAdvance() {
+        transactionsTable.put(10L, 11L);
+        assertThat(watermark.getOutcome(10L), is(Outcome.UNKNOWN));
+    }
+
+    @Test
+    public void firstAdvanceStartsTheSummaryWithoutScanning() {
+        transactionsTable.put(10L, 11L);
+        watermark.advance(100L, scanner);
+
+        assertThat(scans.isEmpty(), is(true));
+        assertThat(watermark.getWatermark(), is(100L));
+        assertThat(watermark.getOutcome(10L), is(Outcome.UNKNOWN));
+    }
+
+    @Test
+    public void summarizesCommittedAndAbortedTransactions() {
+        watermark.advance(100L, scanner);
+        transactionsTable.put(100L, 102L);
+        transactionsTable.put(103L, -1L);
+        transactionsTable.put(110L, 120L);
+        transactionsTable.put(125L, 126L);
+        watermark.advance(125L, scanner);
+
+        assertThat(watermark.getOutcome(100L), is(Outcome.COMMITTED));
+        assertThat(watermark.getOutcome(103L), is(Outcome.ABORTED));
+        assertThat(watermark.getOutcome(110L), is(Outcome.COMMITTED));
+        // no entry, e.g. a commit timestamp or a transaction which has not been rolled back yet
+        assertThat(watermark.getOutcome(102L), is(Outcome.UNKNOWN));
+        // at or above the watermark
+        assertThat(watermark.getOutcome(125L), is(Outcome.UNKNOWN));
+        // below the lower bound
+        assertThat(watermark.getOutcome(99L), is(Outcome.UNKNOWN));
+    }
+
+    @Test
+    public void doesNotScanForSmallAdvances() {
+        watermark.advance(100L, scanner);
+        watermark.advance(100L + MIN_ADVANCE - 1, scanner);
+        watermark.advance(90L, scanner);
+
+        assertThat(scans.isEmpty(), is(true));
+        assertThat(watermark.getWatermark(), is(100L));
+    }
+
+    @Test
+    public void scansAtMostOneChunkPerAdvance() {
+        watermark.advance(100L, scanner);
+        transactionsTable.put(200L, 201L);
+        watermark.advance(300L, scanner);
+
+        assertThat(watermark.getWatermark(), is((long) CHUNK_SPAN));
+        assertThat(watermark.getOutcome(200L), is(Outcome.UNKNOWN));
+
+        watermark.advance(300L, scanner);
+        assertThat(watermark.getWatermark(), is(2L * CHUNK_SPAN));
+        assertThat(watermark.getOutcome(200L), is(Outcome.COMMITTED));
+        assertThat(scans.size(), is(2));
+    }
+
+    @Test
+    public void dropsTheOldestChunksBeyondTheMaximumSpan() {
+        watermark.advance(0L, scanner);
+        transactionsTable.put(1L, 2L);
+        for (long ts = CHUNK_SPAN; ts <= MAX_SPAN + CHUNK_SPAN; ts += CHUNK_SPAN) {
+            watermark.advance(ts, scanner);
+        }
+        assertThat(watermark.getWatermark(), is(MAX_SPAN + CHUNK_SPAN));
+        assertThat(watermark.getLowerBound(), is((long) CHUNK_SPAN));
+        assertThat(watermark.getOutcome(1L), is(Outcome.UNKNOWN));
+    }
+
+    @Test
+    public void startsAfreshWhenFarBehind() {
+        watermark.advance(100L, scanner);
+        transactionsTable.put(105L, 106L);
+        watermark.advance(120L, scanner);
+        assertThat(watermark.getOutcome(105L), is(Outcome.COMMITTED));
+
+        watermark.advance(120L + MAX_SPAN + 1, scanner);
+        assertThat(watermark.getLowerBound(), is(120L + MAX_SPAN + 1));
+        assertThat(watermark.getOutcome(105L), is(Outcome.UNKNOWN));
+        assertThat(scans.size(), is(1));
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        watermark.advance(100L, scanner);
+        transactionsTable.put(105L, 106L);
+        watermark.advance(120L, scanner);
+        watermark.clear();
+
+        assertThat(watermark.getOutcome(105L), is(Outcome.UNKNOWN));
+        watermark.advance(200L, scanner);
+        assertThat(watermark.getLowerBound(), is(200L));
+    }
+
+    @Test
+    public void handlesEntriesAcrossWordBoundaries() {
+        watermark.advance(0L, scanner);
+        Map<Long, Long> entries = new TreeMap<>();
+        for (long ts = 0; ts < CHUNK_SPAN; ts += 3) {
+            entries.put(ts, ts % 2 == 0 ? ts + 1 : -1L);
+        }
+        transactionsTable.putAll(entries);
+        watermark.advance(CHUNK_SPAN, scanner);
+
+        for (long ts = 0; ts < CHUNK_SPAN; ts++) {
+            Outcome expected = !entries.containsKey(ts) ? Outcome.UNKNOWN
+                    : ts % 2 == 0 ? Outcome.COMMITTED : Outcome.ABORTED;
+            assertThat(watermark.getOutcome(ts), is(expected));
+        }
+    }
+}
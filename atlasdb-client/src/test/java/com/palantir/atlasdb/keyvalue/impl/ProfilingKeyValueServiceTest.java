@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+
+public class ProfilingKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("ns.other");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long TIMESTAMP = 10L;
+    private static final long NEVER_SLOW = Long.MAX_VALUE;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private KeyValueService delegate;
+
+    @Before
+    public void setUp() {
+        delegate = new InMemoryKeyValueService(false);
+        delegate.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        delegate.createTable(OTHER_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @Test
+    public void recordsLatencyCellsAndBytesPerMethod() {
+        ProfilingKeyValueService kvs = create(NEVER_SLOW);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        kvs.get(TABLE, ImmutableMap.of(CELL, TIMESTAMP + 1));
+
+        assertEquals(1, timer("put", "latency").getCount());
+        assertEquals(1, histogram("put", "cells").getSnapshot().getMax());
+        assertEquals(1, timer("get", "latency").getCount());
+        assertEquals(1, histogram("get", "cells").getSnapshot().getMax());
+        long expectedBytes = Cells.getApproxSizeOfCell(CELL) + VALUE.length;
+        assertEquals(expectedBytes, histogram("put", "bytes").getSnapshot().getMax());
+        assertEquals(expectedBytes, histogram("get", "bytes").getSnapshot().getMax());
+        assertTrue(kvs.getSlowestCalls().isEmpty());
+    }
+
+    @Test
+    public void doesNotNameMetricsAfterTables() {
+        ProfilingKeyValueService kvs = create(NEVER_SLOW);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        kvs.put(OTHER_TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+
+        assertEquals(2, timer("put", "latency").getCount());
+        for (String name : metricRegistry.getNames()) {
+            assertFalse(name, name.contains(TABLE.getQualifiedName()));
+        }
+    }
+
+    @Test
+    public void recordsRangeReadsWhenTheIteratorIsExhausted() {
+        ProfilingKeyValueService kvs = create(NEVER_SLOW);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+
+        try (ClosableIterator<RowResult<Value>> range = kvs.getRange(TABLE, RangeRequest.all(), TIMESTAMP + 1)) {
+            assertFalse(metricRegistry.getTimers().containsKey(name("getRange", "latency")));
+            assertEquals(1, Iterators.size(range));
+        }
+
+        assertEquals(1, timer("getRange", "latency").getCount());
+        assertEquals(1, histogram("getRange", "cells").getSnapshot().getMax());
+    }
+
+    @Test
+    public void capturesSlowCallsWithTheirArguments() {
+        ProfilingKeyValueService kvs = create(0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+
+        SlowestKvsCalls.SlowCall slowCall = Iterables.getOnlyElement(kvs.getSlowestCalls());
+        assertEquals(TABLE.getQualifiedName(), slowCall.getTable());
+        assertEquals("put", slowCall.getMethod());
+        assertTrue(slowCall.getArguments().contains(PtBytes.encodeHexString(CELL.getRowName())));
+        assertEquals(1, metricRegistry.meter(
+                MetricRegistry.name(ProfilingKeyValueService.class, "slowCalls")).getCount());
+    }
+
+    @Test
+    public void exposesTheSlowestCallsAsAGauge() {
+        ProfilingKeyValueService kvs = create(0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+
+        Gauge<?> gauge = metricRegistry.getGauges().get(
+                MetricRegistry.name(ProfilingKeyValueService.class, "slowestCalls"));
+        assertEquals(ImmutableList.of(Iterables.getOnlyElement(kvs.getSlowestCalls()).toString()), gauge.getValue());
+    }
+
+    @Test
+    public void recordsCallsThatThrowAsFailures() {
+        KeyValueService failingDelegate = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return delegate;
+            }
+
+            @Override
+            public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+                throw new IllegalStateException("timed out");
+            }
+        };
+        ProfilingKeyValueService kvs = ProfilingKeyValueService.create(failingDelegate, metricRegistry, 0, 10);
+
+        try {
+            kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(1, timer("put", "latency").getCount());
+        assertEquals(1, timer("put", "failures").getCount());
+        assertNull(histogram("put", "cells"));
+        SlowestKvsCalls.SlowCall slowCall = Iterables.getOnlyElement(kvs.getSlowestCalls());
+        assertEquals(SlowestKvsCalls.Outcome.FAILURE, slowCall.getOutcome());
+    }
+
+    @Test
+    public void doesNotRecordSuccessfulCallsAsFailures() {
+        ProfilingKeyValueService kvs = create(0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+
+        assertNull(timer("put", "failures"));
+        assertEquals(SlowestKvsCalls.Outcome.SUCCESS,
+                Iterables.getOnlyElement(kvs.getSlowestCalls()).getOutcome());
+    }
+
+    @Test
+    public void keepsOnlyTheSlowestCalls() {
+        SlowestKvsCalls slowestCalls = new SlowestKvsCalls(2);
+        for (long durationMillis : new long[] {30, 10, 50, 20}) {
+            if (slowestCalls.isSlowEnough(TimeUnit.MILLISECONDS.toNanos(durationMillis))) {
+                slowestCalls.add(new SlowestKvsCalls.SlowCall("get", TABLE.getQualifiedName(),
+                        TimeUnit.MILLISECONDS.toNanos(durationMillis), 0, SlowestKvsCalls.Outcome.SUCCESS, ""));
+            }
+        }
+
+        List<SlowestKvsCalls.SlowCall> calls = slowestCalls.getCalls();
+        assertEquals(2, calls.size());
+        assertEquals(50, calls.get(0).getDuration(TimeUnit.MILLISECONDS));
+        assertEquals(30, calls.get(1).getDuration(TimeUnit.MILLISECONDS));
+        assertFalse(slowestCalls.isSlowEnough(TimeUnit.MILLISECONDS.toNanos(30)));
+    }
+
+    @Test
+    public void sharesMetricsBetweenInstancesUsingTheSameRegistry() {
+        create(0).put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        Timer timer = timer("put", "latency");
+        ProfilingKeyValueService kvs = create(0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP + 1);
+
+        assertSame(timer, timer("put", "latency"));
+        assertEquals(2, timer.getCount());
+        assertEquals(2, kvs.getSlowestCalls().size());
+    }
+
+    @Test
+    public void describesOnlyTheFirstCell() {
+        Map<Cell, byte[]> values = ImmutableMap.of(CELL, VALUE, Cell.create(PtBytes.toBytes("r2"), VALUE), VALUE);
+        String description = ProfilingKeyValueService.describeCells(values.keySet());
+
+        assertTrue(description.startsWith("2 cells, first row " + PtBytes.encodeHexString(CELL.getRowName())));
+    }
+
+    private ProfilingKeyValueService create(long slowCallThresholdMillis) {
+        return ProfilingKeyValueService.create(delegate, metricRegistry, slowCallThresholdMillis, 10);
+    }
+
+    private Timer timer(String method, String metric) {
+        return metricRegistry.getTimers().get(name(method, metric));
+    }
+
+    private Histogram histogram(String method, String metric) {
+        return metricRegistry.getHistograms().get(name(method, metric));
+    }
+
+    private static String name(String method, String metric) {
+        return MetricRegistry.name(ProfilingKeyValueService.class, method, metric);
+    }
+}
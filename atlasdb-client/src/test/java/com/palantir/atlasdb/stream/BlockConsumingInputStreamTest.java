@@ -22,6 +22,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -29,11 +30,18 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.schema.stream.StreamStoreDefinition;
 
 @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -91,6 +99,8 @@ public class BlockConsumingInputStreamTest {
         }
     };
 
+    private final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(2);
+
     private BlockConsumingInputStream dataStream;
 
     @Before
@@ -98,6 +108,11 @@ public class BlockConsumingInputStreamTest {
         dataStream = BlockConsumingInputStream.create(dataConsumer, 1, 1);
     }
 
+    @After
+    public void tearDown() {
+        prefetchExecutor.shutdownNow();
+    }
+
     @Test(expected = NullPointerException.class)
     public void cantReadToNullArray() throws IOException {
         dataStream.read(null, 1, 1);
@@ -291,6 +306,129 @@ public class BlockConsumingInputStreamTest {
         verify(spiedGetter, times(1)).get(anyLong(), eq(1L), any());
     }
 
+    @Test
+    public void canReadAllBlocksWithPrefetching() throws IOException {
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                threeByteConsumer, 3, 1, 2, prefetchExecutor);
+        byte[] result = new byte[stored.length + 1];
+        int read = stream.read(result);
+        assertEquals(stored.length, read);
+        assertArrayEquals(stored, Arrays.copyOf(result, stored.length));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void prefetchesBatchesAheadOfTheReader() throws IOException {
+        BlockGetter spiedGetter = Mockito.spy(singleByteConsumer);
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                spiedGetter, DATA_SIZE, 1, 2, MoreExecutors.newDirectExecutorService());
+
+        assertEquals('d', stream.read());
+        verify(spiedGetter).get(eq(0L), eq(1L), any());
+        verify(spiedGetter).get(eq(1L), eq(1L), any());
+        verify(spiedGetter).get(eq(2L), eq(1L), any());
+        verify(spiedGetter, never()).get(eq(3L), anyLong(), any());
+
+        assertEquals('a', stream.read());
+        verify(spiedGetter).get(eq(3L), eq(1L), any());
+    }
+
+    @Test
+    public void zeroPrefetchDepthLoadsBlocksOnDemand() throws IOException {
+        BlockGetter spiedGetter = Mockito.spy(singleByteConsumer);
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                spiedGetter, DATA_SIZE, 1, 0, prefetchExecutor);
+
+        assertEquals('d', stream.read());
+        verify(spiedGetter, times(1)).get(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void loadsBlocksOnTheReadersThreadUntilPrefetchingIsAllowed() throws IOException {
+        AtomicBoolean prefetchAllowed = new AtomicBoolean(false);
+        BlockGetter spiedGetter = Mockito.spy(singleByteConsumer);
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                spiedGetter, DATA_SIZE, 1, 2, MoreExecutors.newDirectExecutorService(), prefetchAllowed::get);
+
+        assertEquals('d', stream.read());
+        verify(spiedGetter, times(1)).get(anyLong(), anyLong(), any());
+
+        prefetchAllowed.set(true);
+        assertEquals('a', stream.read());
+        verify(spiedGetter).get(eq(1L), eq(1L), any());
+        verify(spiedGetter).get(eq(2L), eq(1L), any());
+        verify(spiedGetter).get(eq(3L), eq(1L), any());
+    }
+
+    @Test
+    public void shutsDownThePrefetchExecutorWhenClosed() throws IOException {
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                singleByteConsumer, DATA_SIZE, 1, 1, prefetchExecutor);
+        stream.read();
+
+        stream.close();
+
+        assertTrue(prefetchExecutor.isShutdown());
+    }
+
+    @Test
+    public void shutsDownThePrefetchExecutorWhenReadToTheEnd() throws IOException {
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                singleByteConsumer, DATA_SIZE, 1, 1, prefetchExecutor);
+
+        assertEquals(DATA_SIZE, stream.read(new byte[DATA_SIZE_PLUS_ONE]));
+        assertEquals(-1, stream.read());
+
+        assertTrue(prefetchExecutor.isShutdown());
+    }
+
+    @Test
+    public void loadsPrefetchedBatchesConcurrently() throws IOException {
+        // Each load waits for the other one to start, so this only completes if both run at the same time.
+        CountDownLatch bothLoadsStarted = new CountDownLatch(2);
+        BlockGetter rendezvousGetter = new BlockGetter() {
+            @Override
+            public void get(long firstBlock, long numBlocks, OutputStream destination) {
+                bothLoadsStarted.countDown();
+                try {
+                    assertTrue(bothLoadsStarted.await(10, TimeUnit.SECONDS));
+                    destination.write(data, (int) firstBlock, (int) numBlocks);
+                } catch (InterruptedException | IOException e) {
+                    fail();
+                }
+            }
+
+            @Override
+            public int expectedBlockLength() {
+                return data.length;
+            }
+        };
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                rendezvousGetter, 2, 1, 2, prefetchExecutor);
+
+        byte[] result = new byte[2];
+        assertEquals(2, stream.read(result));
+        assertArrayEquals(Arrays.copyOf(data, 2), result);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void prefetchFailuresArePropagatedToTheReader() throws IOException {
+        BlockGetter failingGetter = new BlockGetter() {
+            @Override
+            public void get(long firstBlock, long numBlocks, OutputStream destination) {
+                throw new IllegalStateException("could not load block " + firstBlock);
+            }
+
+            @Override
+            public int expectedBlockLength() {
+                return data.length;
+            }
+        };
+        BlockConsumingInputStream stream = BlockConsumingInputStream.createWithPrefetch(
+                failingGetter, 2, 1, 1, prefetchExecutor);
+        stream.read();
+    }
+
     private void expectNextBytesFromStream(BlockConsumingInputStream stream, String expectedOutput) throws IOException {
         byte[] chunk = new byte[2];
         int read = stream.read(chunk);
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.palantir.util.crypto.Sha256Hash;
+
+public class ContentDefinedChunkerTest {
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int AVERAGE_CHUNK_SIZE = 4096;
+    private static final int MAX_CHUNK_SIZE = 16384;
+
+    private final ContentDefinedChunker chunker =
+            new ContentDefinedChunker(MIN_CHUNK_SIZE, AVERAGE_CHUNK_SIZE, MAX_CHUNK_SIZE);
+
+    @Test
+    public void emptyStreamHasNoChunks() throws IOException {
+        assertNull(chunker.newReader(new ByteArrayInputStream(new byte[0])).next());
+    }
+
+    @Test
+    public void streamNoLongerThanTheMinimumChunkSizeIsOneChunk() throws IOException {
+        byte[] data = randomBytes(MIN_CHUNK_SIZE, 0);
+        List<byte[]> chunks = chunk(data);
+        assertEquals(1, chunks.size());
+        assertArrayEquals(data, chunks.get(0));
+    }
+
+    @Test
+    public void chunksConcatenateToTheOriginalStream() throws IOException {
+        byte[] data = randomBytes(1_000_000, 0);
+        List<byte[]> chunks = chunk(data);
+        assertArrayEquals(data, Bytes.concat(chunks.toArray(new byte[0][])));
+        assertTrue("expected many chunks, but got " + chunks.size(), chunks.size() > 1_000_000 / MAX_CHUNK_SIZE);
+    }
+
+    @Test
+    public void chunkSizesAreWithinBounds() throws IOException {
+        List<byte[]> chunks = chunk(randomBytes(1_000_000, 0));
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).length;
+            assertTrue("chunk too large: " + length, length <= MAX_CHUNK_SIZE);
+            if (i < chunks.size() - 1) {
+                assertTrue("chunk too small: " + length, length >= MIN_CHUNK_SIZE);
+            }
+        }
+    }
+
+    @Test
+    public void uniformContentIsCutAtTheMaximumChunkSize() throws IOException {
+        byte[] data = new byte[5 * MAX_CHUNK_SIZE];
+        List<byte[]> chunks = chunk(data);
+        assertEquals(5, chunks.size());
+        for (byte[] chunk : chunks) {
+            assertEquals(MAX_CHUNK_SIZE, chunk.length);
+        }
+    }
+
+    @Test
+    public void chunkBoundariesDependOnlyOnContent() throws IOException {
+        byte[] data = randomBytes(200_000, 0);
+        List<byte[]> first = chunk(data);
+        List<byte[]> second = chunk(
+                new ContentDefinedChunker(MIN_CHUNK_SIZE, AVERAGE_CHUNK_SIZE, MAX_CHUNK_SIZE), data);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertArrayEquals(first.get(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void insertingBytesOnlyChangesTheChunksAroundTheInsertion() throws IOException {
+        byte[] original = randomBytes(1_000_000, 0);
+        byte[] edited = Bytes.concat(
+                Arrays.copyOfRange(original, 0, 500_000),
+                randomBytes(10, 1),
+                Arrays.copyOfRange(original, 500_000, original.length));
+
+        Set<Sha256Hash> originalChunks = Sets.newHashSet();
+        for (byte[] chunk : chunk(original)) {
+            originalChunks.add(Sha256Hash.computeHash(chunk));
+        }
+        long sharedBytes = 0;
+        for (byte[] chunk : chunk(edited)) {
+            if (originalChunks.contains(Sha256Hash.computeHash(chunk))) {
+                sharedBytes += chunk.length;
+            }
+        }
+        // Only the chunk containing the insertion, and perhaps its neighbours, should differ.
+        assertTrue("only " + sharedBytes + " bytes were shared", sharedBytes >= original.length - 4 * MAX_CHUNK_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minimumChunkSizeMustBeBelowTheAverage() {
+        new ContentDefinedChunker(AVERAGE_CHUNK_SIZE, AVERAGE_CHUNK_SIZE, MAX_CHUNK_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void averageChunkSizeMustBeBelowTheMaximum() {
+        new ContentDefinedChunker(MIN_CHUNK_SIZE, MAX_CHUNK_SIZE, MAX_CHUNK_SIZE);
+    }
+
+    private List<byte[]> chunk(byte[] data) throws IOException {
+        return chunk(chunker, data);
+    }
+
+    private static List<byte[]> chunk(ContentDefinedChunker chunker, byte[] data) throws IOException {
+        ContentDefinedChunker.ChunkReader reader = chunker.newReader(new ByteArrayInputStream(data));
+        List<byte[]> chunks = Lists.newArrayList();
+        for (byte[] chunk = reader.next(); chunk != null; chunk = reader.next()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -132,4 +132,20 @@ public class ConflictDetectionManagerTest {
         Assert.assertFalse(manager.isEmptyOrContainsTable(TABLE_4));
         Assert.assertEquals(startCount, callCount.get());
     }
+
+    @Test
+    public void testCommitLockStripes() {
+        Map<TableReference, Integer> stripes = new HashMap<>();
+        ConflictDetectionManager stripedManager = new ConflictDetectionManager(() -> map, () -> stripes);
+        Assert.assertFalse(stripedManager.getCommitLockStripes(TABLE_1).isPresent());
+
+        stripes.put(TABLE_1, 16);
+        // results are cached
+        Assert.assertFalse(stripedManager.getCommitLockStripes(TABLE_1).isPresent());
+
+        stripedManager.recompute();
+        Assert.assertEquals(Integer.valueOf(16), stripedManager.getCommitLockStripes(TABLE_1).get());
+        Assert.assertFalse(stripedManager.getCommitLockStripes(TABLE_2).isPresent());
+        Assert.assertFalse(manager.getCommitLockStripes(TABLE_1).isPresent());
+    }
 }
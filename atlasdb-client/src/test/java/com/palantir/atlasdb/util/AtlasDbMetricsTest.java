@@ -16,16 +16,23 @@
 package com.palantir.atlasdb.util;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.concurrent.ConcurrencyLimitedExecutorService;
+import com.palantir.common.concurrent.SharedExecutors;
 import com.palantir.tritium.metrics.MetricRegistries;
 
 public class AtlasDbMetricsTest {
@@ -81,6 +88,72 @@ public class AtlasDbMetricsTest {
         assertMetricCountIncrementsAfterPing(metrics, service, methodTimerName);
     }
 
+    @Test
+    public void registerExecutorReportsRunningAndQueuedTasks() throws Exception {
+        MetricRegistry metrics = setMetricRegistry();
+        ConcurrencyLimitedExecutorService executor = SharedExecutors.newConcurrencyLimitedExecutor("test", 1);
+        AtlasDbMetrics.registerExecutor(executor, CUSTOM_METRIC_NAME);
+
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> Uninterruptibles.awaitUninterruptibly(release));
+        executor.execute(() -> { });
+
+        assertThat(metrics.getGauges().get(MetricRegistry.name(CUSTOM_METRIC_NAME, "running")).getValue(),
+                is(equalTo(1)));
+        assertThat(metrics.getGauges().get(MetricRegistry.name(CUSTOM_METRIC_NAME, "queued")).getValue(),
+                is(equalTo(1)));
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void registerExecutorReportsSaturationOfTheSharedPool() throws Exception {
+        MetricRegistry metrics = setMetricRegistry();
+        ConcurrencyLimitedExecutorService executor = SharedExecutors.newConcurrencyLimitedExecutor("test", 1);
+        AtlasDbMetrics.registerExecutor(executor, CUSTOM_METRIC_NAME);
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            running.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+        });
+        running.await();
+
+        int maxThreads = SharedExecutors.getSharedPool().getMaximumPoolSize();
+        assertThat(metrics.getGauges().get(MetricRegistry.name(SharedExecutors.class, "maxThreads")).getValue(),
+                is(equalTo(maxThreads)));
+        assertThat((Double) metrics.getGauges().get(MetricRegistry.name(SharedExecutors.class, "utilization"))
+                .getValue(), is(greaterThanOrEqualTo(1.0 / maxThreads)));
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void registerExecutorReportsExecutorsWithTheSameNameTogether() throws Exception {
+        MetricRegistry metrics = setMetricRegistry();
+        ConcurrencyLimitedExecutorService first = SharedExecutors.newConcurrencyLimitedExecutor("test", 1);
+        ConcurrencyLimitedExecutorService second = SharedExecutors.newConcurrencyLimitedExecutor("test", 1);
+        AtlasDbMetrics.registerExecutor(first, "shared");
+        AtlasDbMetrics.registerExecutor(second, "shared");
+
+        CountDownLatch release = new CountDownLatch(1);
+        first.execute(() -> Uninterruptibles.awaitUninterruptibly(release));
+        second.execute(() -> Uninterruptibles.awaitUninterruptibly(release));
+
+        assertThat(metrics.getGauges().get(MetricRegistry.name("shared", "running")).getValue(), is(equalTo(2)));
+
+        release.countDown();
+        first.shutdown();
+        second.shutdown();
+        assertThat(first.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        assertThat(second.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+
     private MetricRegistry setMetricRegistry() {
         MetricRegistry metrics = MetricRegistries.createWithHdrHistogramReservoirs();
         AtlasDbMetrics.setMetricRegistry(metrics);
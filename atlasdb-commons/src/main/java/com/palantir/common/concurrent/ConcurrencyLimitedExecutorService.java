@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+
+/**
+ * An executor service that runs its tasks on a (usually shared) delegate executor, but never has more than
+ * {@code maxConcurrency} of them running at once. Tasks beyond that limit wait in a queue owned by this executor,
+ * so they neither occupy threads of the delegate nor delay tasks of other executors sharing it.
+ * <p>
+ * Shutting this executor down only stops it from accepting new tasks; the delegate is left running.
+ * {@link #shutdownNow()} interrupts the tasks of this executor that are currently running.
+ */
+@ThreadSafe
+public final class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+    private final String name;
+    private final Executor delegate;
+    private final int maxConcurrency;
+
+    private final Object lock = new Object();
+    @GuardedBy("lock") private final Deque<Runnable> queue = new ArrayDeque<Runnable>();
+    @GuardedBy("lock") private final Set<Thread> runningThreads = Sets.newHashSet();
+    @GuardedBy("lock") private int running = 0;
+    @GuardedBy("lock") private boolean shutdown = false;
+    @GuardedBy("lock") private boolean interruptRunningTasks = false;
+
+    public ConcurrencyLimitedExecutorService(String name, Executor delegate, int maxConcurrency) {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive, but was %s", maxConcurrency);
+        this.name = Preconditions.checkNotNull(name);
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return the number of tasks of this executor that are running or have been handed to the delegate.
+     */
+    public int getActiveTaskCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting for one of this executor's concurrency slots to free up.
+     */
+    public int getQueuedTaskCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Preconditions.checkNotNull(command);
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException(name + " has been shut down");
+            }
+            if (running >= maxConcurrency) {
+                queue.add(command);
+                return;
+            }
+            running++;
+        }
+        dispatch(command);
+    }
+
+    private void dispatch(Runnable command) {
+        boolean dispatched = false;
+        try {
+            delegate.execute(new Worker(command));
+            dispatched = true;
+        } finally {
+            if (!dispatched) {
+                synchronized (lock) {
+                    running--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the next queued task for a worker that just finished one, or releases the worker's slot.
+     */
+    private Runnable nextTaskOrRelease() {
+        synchronized (lock) {
+            Runnable next = queue.poll();
+            if (next == null) {
+                running--;
+                lock.notifyAll();
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Runs tasks in one concurrency slot, taking further tasks off the queue until it is empty.
+     */
+    private final class Worker implements Runnable {
+        private final Runnable firstTask;
+
+        Worker(Runnable firstTask) {
+            this.firstTask = firstTask;
+        }
+
+        @Override
+        public void run() {
+            Runnable task = firstTask;
+            while (task != null) {
+                boolean completed = false;
+                try {
+                    runTask(task);
+                    completed = true;
+                } finally {
+                    if (!completed) {
+                        // The task threw; hand the slot to a new worker so that the queued tasks still run.
+                        Runnable next = nextTaskOrRelease();
+                        if (next != null) {
+                            dispatch(next);
+                        }
+                    }
+                }
+                task = nextTaskOrRelease();
+            }
+        }
+
+        private void runTask(Runnable task) {
+            Thread thread = Thread.currentThread();
+            synchronized (lock) {
+                if (interruptRunningTasks) {
+                    thread.interrupt();
+                }
+                runningThreads.add(thread);
+            }
+            try {
+                task.run();
+            } finally {
+                boolean interrupted;
+                synchronized (lock) {
+                    runningThreads.remove(thread);
+                    interrupted = interruptRunningTasks;
+                }
+                if (interrupted) {
+                    // Do not leak our interrupt into whatever the delegate runs next on this thread.
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        synchronized (lock) {
+            shutdown = true;
+            interruptRunningTasks = true;
+            List<Runnable> pending = new ArrayList<Runnable>(queue);
+            queue.clear();
+            for (Thread thread : runningThreads) {
+                thread.interrupt();
+            }
+            lock.notifyAll();
+            return pending;
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return shutdown && running == 0;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!(shutdown && running == 0)) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitedExecutorService [name=" + name + ", maxConcurrency=" + maxConcurrency + "]";
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A process-wide, bounded thread pool for fanning out blocking work (per host, per batch), and
+ * factories for per-caller views of it.
+ * <p>
+ * Each caller gets a {@link ConcurrencyLimitedExecutorService} that caps how many of its tasks run at once, so a
+ * single busy caller cannot take over the pool. The pool itself never grows beyond
+ * {@value #MAX_THREADS_PROPERTY} threads (default {@value #DEFAULT_MAX_THREADS}); when every thread is busy, tasks
+ * wait in the pool's queue. Tasks never run on the submitting thread, so a caller waiting on its tasks with a
+ * timeout is not held up running someone else's work.
+ * <p>
+ * Because of the queue, a task that blocks on further tasks submitted to the shared pool can only make progress
+ * while the pool has threads to spare; callers that fan out further should keep their concurrency limits well
+ * below the pool size.
+ */
+public final class SharedExecutors {
+    public static final String MAX_THREADS_PROPERTY = "atlasdb.sharedExecutor.maxThreads";
+    public static final int DEFAULT_MAX_THREADS = 256;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private SharedExecutors() {
+        // cannot instantiate
+    }
+
+    private static final class Holder {
+        static final ThreadPoolExecutor POOL =
+                createPool(Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS));
+    }
+
+    private static final class SchedulerHolder {
+        static final ScheduledExecutorService SCHEDULER = PTExecutors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("atlas-shared-scheduler", true /* daemon */));
+    }
+
+    @VisibleForTesting
+    static ThreadPoolExecutor createPool(int maxThreads) {
+        // A ThreadPoolExecutor only grows past its core size when its queue is full, so the core size is the
+        // maximum and idle core threads time out instead.
+        ThreadPoolExecutor pool = PTExecutors.newThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new NamedThreadFactory("atlas-shared-executor", true /* daemon */),
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * @return the shared pool, for monitoring. Tasks should be submitted through
+     *         {@link #newConcurrencyLimitedExecutor(String, int)} instead.
+     */
+    public static ThreadPoolExecutor getSharedPool() {
+        return Holder.POOL;
+    }
+
+    /**
+     * Creates an executor that runs at most {@code maxConcurrency} tasks at a time on the shared pool.
+     * Shutting it down does not affect the shared pool.
+     */
+    public static ConcurrencyLimitedExecutorService newConcurrencyLimitedExecutor(String name, int maxConcurrency) {
+        return new ConcurrencyLimitedExecutorService(name, Holder.POOL, maxConcurrency);
+    }
+
+    /**
+     * Submits {@code task} to {@code executor} every {@code period}, starting after one period. Only the timer is
+     * shared: the task runs on {@code executor}, and a run is skipped if the previous one has not finished yet.
+     *
+     * @return a future that can be cancelled to stop further runs.
+     */
+    public static ScheduledFuture<?> scheduleAtFixedRate(
+            final Runnable task, long period, TimeUnit unit, final Executor executor) {
+        return scheduleAtFixedRate(SchedulerHolder.SCHEDULER, task, period, unit, executor);
+    }
+
+    @VisibleForTesting
+    static ScheduledFuture<?> scheduleAtFixedRate(
+            ScheduledExecutorService scheduler,
+            final Runnable task,
+            long period,
+            TimeUnit unit,
+            final Executor executor) {
+        final AtomicBoolean running = new AtomicBoolean(false);
+        final Runnable runAndRelease = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    running.set(false);
+                }
+            }
+        };
+        return scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                if (running.compareAndSet(false, true)) {
+                    try {
+                        executor.execute(runAndRelease);
+                    } catch (RuntimeException e) {
+                        running.set(false);
+                        throw e;
+                    }
+                }
+            }
+        }, period, period, unit);
+    }
+}
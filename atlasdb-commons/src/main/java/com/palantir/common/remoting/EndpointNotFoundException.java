@@ -0,0 +1,29 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.remoting;
+
+/**
+ * Thrown by a remote client when the server responds that it has no such endpoint (HTTP 404), usually because the
+ * server runs an older version that predates the call. Callers of newer endpoints can catch this to fall back to
+ * calls that older servers understand.
+ */
+public class EndpointNotFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public EndpointNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ConcurrencyLimitedExecutorServiceTest {
+    private final ExecutorService delegate = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    public void neverRunsMoreTasksThanTheLimit() throws Exception {
+        final ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", delegate, 3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    int current = running.incrementAndGet();
+                    updateMax(maxRunning, current);
+                    sleepUninterruptibly(2);
+                    running.decrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertTrue(maxRunning.get() <= 3);
+        // A task's future completes before its worker gives up the slot, so wait for the workers to finish.
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getActiveTaskCount());
+    }
+
+    @Test
+    public void queuesTasksBeyondTheLimit() throws Exception {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", delegate, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(awaiting(release));
+        executor.execute(awaiting(release));
+        executor.execute(awaiting(release));
+
+        assertEquals(1, executor.getActiveTaskCount());
+        assertEquals(2, executor.getQueuedTaskCount());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueuedTaskCount());
+    }
+
+    @Test
+    public void keepsRunningQueuedTasksAfterATaskThrows() throws Exception {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", delegate, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch ranAfterFailure = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        });
+        executor.execute(awaiting(release));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ranAfterFailure.countDown();
+            }
+        });
+
+        release.countDown();
+        assertTrue(ranAfterFailure.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownLeavesTheDelegateRunning() throws Exception {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", delegate, 1);
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertFalse(delegate.isShutdown());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsTasksAfterShutdown() {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", delegate, 1);
+        executor.shutdown();
+        executor.execute(awaiting(new CountDownLatch(0)));
+    }
+
+    @Test
+    public void shutdownNowInterruptsRunningTasksAndReturnsQueuedOnes() throws Exception {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", delegate, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        executor.execute(awaiting(new CountDownLatch(0)));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        List<Runnable> pending = executor.shutdownNow();
+
+        assertEquals(1, pending.size());
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static Runnable awaiting(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
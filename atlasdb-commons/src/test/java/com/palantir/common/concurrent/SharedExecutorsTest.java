@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class SharedExecutorsTest {
+    private final ThreadPoolExecutor pool = SharedExecutors.createPool(1);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void queuesTasksRatherThanRunningThemOnTheSubmittingThreadWhenSaturated() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                Uninterruptibles.awaitUninterruptibly(release);
+            }
+        });
+
+        final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("test", pool, 2);
+        Future<?> future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                runner.set(Thread.currentThread());
+            }
+        });
+
+        assertEquals(1, pool.getQueue().size());
+        release.countDown();
+        future.get(10, TimeUnit.SECONDS);
+        assertNotSame(Thread.currentThread(), runner.get());
+    }
+
+    @Test
+    public void neverGrowsBeyondTheMaximumNumberOfThreads() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Uninterruptibles.awaitUninterruptibly(release);
+                }
+            });
+        }
+
+        assertEquals(1, pool.getPoolSize());
+        assertEquals(4, pool.getQueue().size());
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void scheduledTasksRunOnTheGivenExecutorAndSkipRunsWhileStillRunning() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch ranAgain = new CountDownLatch(2);
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+        Future<?> schedule = SharedExecutors.scheduleAtFixedRate(scheduler, new Runnable() {
+            @Override
+            public void run() {
+                runner.set(Thread.currentThread());
+                runs.incrementAndGet();
+                ranAgain.countDown();
+                Uninterruptibles.awaitUninterruptibly(release);
+            }
+        }, 1, TimeUnit.MILLISECONDS, pool);
+
+        Thread.sleep(100);
+        assertEquals(1, runs.get());
+        assertEquals(0, pool.getQueue().size());
+        release.countDown();
+        assertTrue(ranAgain.await(10, TimeUnit.SECONDS));
+        schedule.cancel(false);
+        assertTrue(runner.get().getName().startsWith("atlas-shared-executor"));
+    }
+}
@@ -135,6 +135,17 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_ENABLE_SWEEP;
     }
 
+    /**
+     * If true, concurrent transactions batch the writes of their commit timestamps into a single
+     * putUnlessExists against the transaction table. This only takes effect when the key value service
+     * writes a multi-cell putUnlessExists in one round trip; Cassandra never does, so its commits are
+     * never batched regardless of this setting.
+     */
+    @Value.Default
+    public boolean enableGroupCommit() {
+        return AtlasDbConstants.DEFAULT_ENABLE_GROUP_COMMIT;
+    }
+
     /**
      * The number of milliseconds to wait between each batch of cells
      * processed by the background sweeper.
@@ -36,4 +36,13 @@ public interface ServerListConfig {
 
     Optional<SslConfiguration> sslConfiguration();
 
+    /**
+     * Whether clients should send and ask for Smile, a binary encoding of JSON, rather than JSON. This is cheaper
+     * to encode and decode and more compact, but every server in the list must accept Smile, as TimeLock does.
+     */
+    @Value.Default
+    default boolean preferSmile() {
+        return false;
+    }
+
 }
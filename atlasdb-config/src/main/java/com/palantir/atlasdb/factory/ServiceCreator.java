@@ -40,7 +40,7 @@ public class ServiceCreator<T> implements Function<ServerListConfig, T> {
     @Override
     public T apply(ServerListConfig input) {
         Optional<SSLSocketFactory> sslSocketFactory = createSslSocketFactory(input.sslConfiguration());
-        return createService(sslSocketFactory, input.servers(), serviceClass, userAgent);
+        return createService(sslSocketFactory, input.servers(), serviceClass, userAgent, input.preferSmile());
     }
 
     /**
@@ -55,9 +55,23 @@ public class ServiceCreator<T> implements Function<ServerListConfig, T> {
             Set<String> uris,
             Class<T> serviceClass,
             String userAgent) {
+        return createService(sslSocketFactory, uris, serviceClass, userAgent, false);
+    }
+
+    public static <T> T createService(
+            Optional<SSLSocketFactory> sslSocketFactory,
+            Set<String> uris,
+            Class<T> serviceClass,
+            String userAgent,
+            boolean preferSmile) {
         return AtlasDbMetrics.instrument(
                 serviceClass,
-                AtlasDbHttpClients.createProxyWithFailover(sslSocketFactory, uris, serviceClass, userAgent),
+                AtlasDbHttpClients.createProxyWithFailover(
+                        sslSocketFactory,
+                        uris,
+                        serviceClass,
+                        userAgent,
+                        preferSmile),
                 MetricRegistry.name(serviceClass, userAgent));
     }
 
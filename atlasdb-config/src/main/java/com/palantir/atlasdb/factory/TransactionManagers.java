@@ -63,8 +63,12 @@ import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.FallbackTransactionStartService;
+import com.palantir.atlasdb.transaction.impl.LockRefreshingTransactionStartService;
+import com.palantir.atlasdb.transaction.impl.LockingTransactionStartService;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
@@ -173,7 +177,7 @@ public final class TransactionManagers {
 
         PersistentLockService persistentLockService = createAndRegisterPersistentLockService(kvs, env);
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        TransactionService transactionService = createTransactionService(config, kvs);
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.createDefault(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -211,7 +215,8 @@ public final class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                lockAndTimestampServices.transactionStart());
 
         CellsSweeper cellsSweeper = new CellsSweeper(
                 transactionManager,
@@ -252,6 +257,14 @@ public final class TransactionManagers {
         return pls;
     }
 
+    @VisibleForTesting
+    static TransactionService createTransactionService(AtlasDbConfig config, KeyValueService kvs) {
+        if (config.enableGroupCommit()) {
+            return TransactionServices.createGroupCommitTransactionService(kvs);
+        }
+        return TransactionServices.createTransactionService(kvs);
+    }
+
     private static Supplier<Long> getImmutableTsSupplier(final TransactionManager txManager) {
         return () -> txManager.getImmutableTimestamp();
     }
@@ -299,9 +312,14 @@ public final class TransactionManagers {
 
     private static LockAndTimestampServices withRefreshingLockService(
             LockAndTimestampServices lockAndTimestampServices) {
+        LockRefreshingRemoteLockService lockService =
+                LockRefreshingRemoteLockService.create(lockAndTimestampServices.lock());
         return ImmutableLockAndTimestampServices.builder()
                 .from(lockAndTimestampServices)
-                .lock(LockRefreshingRemoteLockService.create(lockAndTimestampServices.lock()))
+                .lock(lockService)
+                .transactionStart(LockRefreshingTransactionStartService.create(
+                        lockAndTimestampServices.transactionStart(),
+                        lockService))
                 .build();
     }
 
@@ -340,10 +358,16 @@ public final class TransactionManagers {
                 .apply(timelockServerListConfig);
         TimestampService timeService = new ServiceCreator<>(TimestampService.class, userAgent)
                 .apply(timelockServerListConfig);
+        // Older timelock servers cannot start transactions in one request.
+        TransactionStartService transactionStartService = FallbackTransactionStartService.create(
+                new ServiceCreator<>(TransactionStartService.class, userAgent).apply(timelockServerListConfig),
+                timeService,
+                lockService);
 
         return ImmutableLockAndTimestampServices.builder()
                 .lock(lockService)
                 .time(timeService)
+                .transactionStart(transactionStartService)
                 .build();
     }
 
@@ -407,6 +431,15 @@ public final class TransactionManagers {
     public interface LockAndTimestampServices {
         RemoteLockService lock();
         TimestampService time();
+
+        /**
+         * Starts transactions in one call to the timelock server when it is configured, and otherwise through
+         * {@link #lock()} and {@link #time()}.
+         */
+        @Value.Default
+        default TransactionStartService transactionStart() {
+            return new LockingTransactionStartService(time(), lock());
+        }
     }
 
     public interface Environment {
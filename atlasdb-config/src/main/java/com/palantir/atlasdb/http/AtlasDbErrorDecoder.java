@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.http;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.palantir.common.remoting.EndpointNotFoundException;
 
 import feign.Response;
 import feign.RetryableException;
@@ -38,6 +39,9 @@ public class AtlasDbErrorDecoder implements ErrorDecoder {
         if (response503ButExceptionIsNotRetryable(response, exception)) {
             return new RetryableException(exception.getMessage(), exception, null);
         }
+        if (response.status() == 404) {
+            return new EndpointNotFoundException(exception.getMessage(), exception);
+        }
         return exception;
     }
 
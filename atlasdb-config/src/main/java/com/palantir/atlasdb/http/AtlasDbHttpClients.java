@@ -22,6 +22,7 @@ import javax.net.ssl.SSLSocketFactory;
 
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
@@ -44,9 +45,13 @@ public final class AtlasDbHttpClients {
     private static final Request.Options DEFAULT_FEIGN_OPTIONS = new Request.Options();
 
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
     private static final Contract contract = new JAXRSContract();
-    private static final Encoder encoder = new JacksonEncoder(mapper);
-    private static final Decoder decoder = new TextDelegateDecoder(new JacksonDecoder(mapper));
+    private static final Contract smilePreferringContract = new SmilePreferringContract(contract);
+    private static final Encoder encoder = new SmileDelegateEncoder(smileMapper, new JacksonEncoder(mapper));
+    private static final Decoder decoder = new SmileDelegateDecoder(
+            smileMapper,
+            new TextDelegateDecoder(new JacksonDecoder(mapper)));
     private static final ErrorDecoder errorDecoder = new AtlasDbErrorDecoder();
 
     private AtlasDbHttpClients() {
@@ -123,11 +128,25 @@ public final class AtlasDbHttpClients {
             Collection<String> endpointUris,
             Class<T> type,
             String userAgent) {
+        return createProxyWithFailover(sslSocketFactory, endpointUris, type, userAgent, false);
+    }
+
+    /**
+     * @param preferSmile Whether to send and ask for Smile rather than JSON, for methods of {@code type} which
+     *                    support it. The servers must then be able to read Smile; responses in JSON are still read.
+     */
+    public static <T> T createProxyWithFailover(
+            Optional<SSLSocketFactory> sslSocketFactory,
+            Collection<String> endpointUris,
+            Class<T> type,
+            String userAgent,
+            boolean preferSmile) {
         return createProxyWithFailover(
                 sslSocketFactory,
                 endpointUris,
                 DEFAULT_FEIGN_OPTIONS,
                 FailoverFeignTarget.DEFAULT_MAX_BACKOFF_MILLIS,
+                preferSmile ? smilePreferringContract : contract,
                 type,
                 userAgent);
     }
@@ -139,14 +158,15 @@ public final class AtlasDbHttpClients {
      */
     private static <T> T createProxyWithFailover(
             Optional<SSLSocketFactory> sslSocketFactory, Collection<String> endpointUris,
-            Request.Options feignOptions, int maxBackoffMillis, Class<T> type, String userAgent) {
+            Request.Options feignOptions, int maxBackoffMillis, Contract feignContract, Class<T> type,
+            String userAgent) {
         FailoverFeignTarget<T> failoverFeignTarget = new FailoverFeignTarget<>(endpointUris, maxBackoffMillis, type);
         Client client = failoverFeignTarget.wrapClient(
                 FeignOkHttpClients.newOkHttpClient(sslSocketFactory, userAgent, type));
         return AtlasDbMetrics.instrument(
                 type,
                 Feign.builder()
-                        .contract(contract)
+                        .contract(feignContract)
                         .encoder(encoder)
                         .decoder(decoder)
                         .errorDecoder(errorDecoder)
@@ -166,6 +186,7 @@ public final class AtlasDbHttpClients {
                 endpointUris,
                 options,
                 QUICK_MAX_BACKOFF_MILLIS,
+                contract,
                 type,
                 UserAgents.DEFAULT_USER_AGENT);
     }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
+import com.google.common.net.HttpHeaders;
+import com.palantir.common.remoting.HeaderAccessUtils;
+
+import feign.FeignException;
+import feign.Response;
+import feign.codec.Decoder;
+
+/**
+ * If the response has a Content-Type of Smile, then this decoder reads the body as Smile.
+ * Otherwise, for instance when talking to a server which only speaks JSON, it falls back to the delegate.
+ */
+public class SmileDelegateDecoder implements Decoder {
+    private final ObjectMapper smileMapper;
+    private final Decoder delegate;
+
+    public SmileDelegateDecoder(ObjectMapper smileMapper, Decoder delegate) {
+        this.smileMapper = smileMapper;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException, FeignException {
+        if (!HeaderAccessUtils.shortcircuitingCaseInsensitiveContainsEntry(
+                response.headers(),
+                HttpHeaders.CONTENT_TYPE,
+                SmileMediaTypes.APPLICATION_JACKSON_SMILE)) {
+            return delegate.decode(response, type);
+        }
+        if (response.body() == null) {
+            return null;
+        }
+        try (InputStream body = response.body().asInputStream()) {
+            return smileMapper.readValue(body, smileMapper.constructType(type));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.lang.reflect.Type;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
+import com.google.common.net.HttpHeaders;
+import com.palantir.common.remoting.HeaderAccessUtils;
+
+import feign.RequestTemplate;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+
+/**
+ * If the request has a Content-Type of Smile, then this encoder writes the body as Smile.
+ * Otherwise, it falls back to the delegate.
+ */
+public class SmileDelegateEncoder implements Encoder {
+    private final ObjectMapper smileMapper;
+    private final Encoder delegate;
+
+    public SmileDelegateEncoder(ObjectMapper smileMapper, Encoder delegate) {
+        this.smileMapper = smileMapper;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
+        if (!HeaderAccessUtils.shortcircuitingCaseInsensitiveContainsEntry(
+                template.headers(),
+                HttpHeaders.CONTENT_TYPE,
+                SmileMediaTypes.APPLICATION_JACKSON_SMILE)) {
+            delegate.encode(object, bodyType, template);
+            return;
+        }
+        try {
+            template.body(smileMapper.writerFor(smileMapper.constructType(bodyType)).writeValueAsBytes(object), null);
+        } catch (JsonProcessingException e) {
+            throw new EncodeException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
+import com.google.common.collect.Maps;
+import com.google.common.net.HttpHeaders;
+
+import feign.Contract;
+import feign.Feign;
+import feign.MethodMetadata;
+
+/**
+ * Parses methods like its delegate, but makes clients send and ask for Smile instead of JSON for methods
+ * which consume or produce Smile. Feign otherwise uses the first media type listed, which is JSON.
+ */
+public class SmilePreferringContract implements Contract {
+    private final Contract delegate;
+
+    public SmilePreferringContract(Contract delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<MethodMetadata> parseAndValidatateMetadata(Class<?> targetType) {
+        List<MethodMetadata> metadata = delegate.parseAndValidatateMetadata(targetType);
+        Map<String, Method> methodsByConfigKey = Maps.newHashMap();
+        for (Method method : targetType.getMethods()) {
+            methodsByConfigKey.put(Feign.configKey(method), method);
+        }
+        for (MethodMetadata methodMetadata : metadata) {
+            Method method = methodsByConfigKey.get(methodMetadata.configKey());
+            if (method == null) {
+                continue;
+            }
+            Produces produces = method.getAnnotation(Produces.class);
+            if (produces != null && listsSmile(produces.value())) {
+                replaceHeader(methodMetadata, HttpHeaders.ACCEPT);
+            }
+            Consumes consumes = method.getAnnotation(Consumes.class);
+            if (consumes != null && listsSmile(consumes.value())) {
+                replaceHeader(methodMetadata, HttpHeaders.CONTENT_TYPE);
+            }
+        }
+        return metadata;
+    }
+
+    private static boolean listsSmile(String[] mediaTypes) {
+        return Arrays.asList(mediaTypes).contains(SmileMediaTypes.APPLICATION_JACKSON_SMILE);
+    }
+
+    private static void replaceHeader(MethodMetadata methodMetadata, String header) {
+        methodMetadata.template().header(header, (String) null);
+        methodMetadata.template().header(header, SmileMediaTypes.APPLICATION_JACKSON_SMILE);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.factory;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -49,6 +50,10 @@ import com.palantir.atlasdb.config.ImmutableServerListConfig;
 import com.palantir.atlasdb.config.ImmutableTimeLockClientConfig;
 import com.palantir.atlasdb.config.ServerListConfig;
 import com.palantir.atlasdb.config.TimeLockClientConfig;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.service.GroupCommitTransactionService;
+import com.palantir.atlasdb.transaction.service.SimpleTransactionService;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.timestamp.InMemoryTimestampService;
 import com.palantir.timestamp.TimestampStoreInvalidator;
@@ -139,6 +144,30 @@ public class TransactionManagersTest {
         verifyUserAgentOnRawTimestampAndLockRequests();
     }
 
+    @Test
+    public void groupCommitIsOffByDefault() {
+        assertThat(TransactionManagers.createTransactionService(config, new InMemoryKeyValueService(false)))
+                .isInstanceOf(SimpleTransactionService.class);
+    }
+
+    @Test
+    public void groupCommitIsUsedWhenEnabledAndSupportedByTheKeyValueService() {
+        when(config.enableGroupCommit()).thenReturn(true);
+
+        assertThat(TransactionManagers.createTransactionService(config, new InMemoryKeyValueService(false)))
+                .isInstanceOf(GroupCommitTransactionService.class);
+    }
+
+    @Test
+    public void groupCommitIsNotUsedWhenTheKeyValueServiceWritesEachCellSeparately() {
+        when(config.enableGroupCommit()).thenReturn(true);
+        KeyValueService perCellKvs = mock(KeyValueService.class);
+        when(perCellKvs.supportsSingleRoundTripPutUnlessExists()).thenReturn(false);
+
+        assertThat(TransactionManagers.createTransactionService(config, perCellKvs))
+                .isInstanceOf(SimpleTransactionService.class);
+    }
+
     private void verifyUserAgentOnRawTimestampAndLockRequests() {
         verifyUserAgentOnTimestampAndLockRequests(TIMESTAMP_PATH, LOCK_PATH);
     }
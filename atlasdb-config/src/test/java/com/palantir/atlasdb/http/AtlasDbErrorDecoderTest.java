@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.http;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNull;
@@ -30,6 +31,8 @@ import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.palantir.common.remoting.EndpointNotFoundException;
+
 import feign.Response;
 import feign.RetryableException;
 import feign.codec.ErrorDecoder;
@@ -46,6 +49,7 @@ public class AtlasDbErrorDecoderTest {
 
     private static final int STATUS_503 = 503;
     private static final int STATUS_NOT_503 = 511;
+    private static final int STATUS_404 = 404;
 
     ErrorDecoder defaultDecoder;
     AtlasDbErrorDecoder atlasDbDecoder;
@@ -84,6 +88,14 @@ public class AtlasDbErrorDecoderTest {
         assertThat(exception, is(sameInstance(RETRYABLE_EXCEPTION)));
     }
 
+    @Test
+    public void shouldWrapTheDefaultDecoderExceptionWhen404() {
+        Response response = makeDefaultDecoderReplyWhenReceivingResponse(STATUS_404, NON_RETRYABLE_EXCEPTION);
+        Exception exception = atlasDbDecoder.decode(EMPTY_METHOD_KEY, response);
+        assertThat(exception, is(instanceOf(EndpointNotFoundException.class)));
+        assertThat(exception.getCause(), is(sameInstance(NON_RETRYABLE_EXCEPTION)));
+    }
+
     private Response makeDefaultDecoderReplyWhenReceivingResponse(int status, Exception exception) {
         Response response = createResponse(status);
         when(defaultDecoder.decode(EMPTY_METHOD_KEY, response)).thenReturn(exception);
@@ -21,13 +21,19 @@ import static org.junit.Assert.assertThat;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import javax.net.ssl.SSLSocketFactory;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
@@ -36,12 +42,17 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
 import com.github.tomakehurst.wiremock.client.MappingBuilder;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HttpHeaders;
 
 public class AtlasDbHttpClientsTest {
     private static final Optional<SSLSocketFactory> NO_SSL = Optional.absent();
@@ -50,6 +61,8 @@ public class AtlasDbHttpClientsTest {
     private static final int AVAILABLE_PORT = 8080;
     private static final int UNAVAILABLE_PORT = 8081;
     private static final int TEST_NUMBER = 12;
+    private static final String ECHO_ENDPOINT = "/echo";
+    private static final List<String> ECHO_VALUES = ImmutableList.of("foo", "bar");
     private static final Set<String> BOTH_URIS = ImmutableSet.of(
             getUriForPort(UNAVAILABLE_PORT),
             getUriForPort(AVAILABLE_PORT));
@@ -67,6 +80,14 @@ public class AtlasDbHttpClientsTest {
         int getTestNumber();
     }
 
+    public interface EchoResource {
+        @POST
+        @Path(ECHO_ENDPOINT)
+        @Produces({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+        @Consumes({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+        List<String> echo(List<String> values);
+    }
+
     @Before
     public void setup() {
         String testNumberAsString = Integer.toString(TEST_NUMBER);
@@ -95,6 +116,60 @@ public class AtlasDbHttpClientsTest {
                 .withHeader(FeignOkHttpClients.USER_AGENT_HEADER, WireMock.equalTo(defaultUserAgent)));
     }
 
+    @Test
+    public void clientsSendJsonByDefault() throws IOException {
+        availableServer.stubFor(post(urlEqualTo(ECHO_ENDPOINT)).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .withBody(new ObjectMapper().writeValueAsBytes(ECHO_VALUES))));
+
+        EchoResource client = createEchoClient(false);
+
+        assertThat(client.echo(ECHO_VALUES), equalTo(ECHO_VALUES));
+        availableServer.verify(postRequestedFor(urlEqualTo(ECHO_ENDPOINT))
+                .withHeader(HttpHeaders.CONTENT_TYPE, WireMock.equalTo(MediaType.APPLICATION_JSON))
+                .withHeader(HttpHeaders.ACCEPT, WireMock.equalTo(MediaType.APPLICATION_JSON)));
+    }
+
+    @Test
+    public void smilePreferringClientsSendAndReadSmile() throws IOException {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        availableServer.stubFor(post(urlEqualTo(ECHO_ENDPOINT)).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader(HttpHeaders.CONTENT_TYPE, SmileMediaTypes.APPLICATION_JACKSON_SMILE)
+                .withBody(smileMapper.writeValueAsBytes(ECHO_VALUES))));
+
+        EchoResource client = createEchoClient(true);
+
+        assertThat(client.echo(ECHO_VALUES), equalTo(ECHO_VALUES));
+        availableServer.verify(postRequestedFor(urlEqualTo(ECHO_ENDPOINT))
+                .withHeader(HttpHeaders.CONTENT_TYPE, WireMock.equalTo(SmileMediaTypes.APPLICATION_JACKSON_SMILE))
+                .withHeader(HttpHeaders.ACCEPT, WireMock.equalTo(SmileMediaTypes.APPLICATION_JACKSON_SMILE)));
+        byte[] requestBody = availableServer.findAll(postRequestedFor(urlEqualTo(ECHO_ENDPOINT))).get(0).getBody();
+        assertThat(smileMapper.readValue(requestBody, List.class), equalTo(ECHO_VALUES));
+    }
+
+    @Test
+    public void smilePreferringClientsStillReadJsonResponses() throws IOException {
+        availableServer.stubFor(post(urlEqualTo(ECHO_ENDPOINT)).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .withBody(new ObjectMapper().writeValueAsBytes(ECHO_VALUES))));
+
+        EchoResource client = createEchoClient(true);
+
+        assertThat(client.echo(ECHO_VALUES), equalTo(ECHO_VALUES));
+    }
+
+    private static EchoResource createEchoClient(boolean preferSmile) {
+        return AtlasDbHttpClients.createProxyWithFailover(
+                NO_SSL,
+                ImmutableSet.of(getUriForPort(AVAILABLE_PORT)),
+                EchoResource.class,
+                UserAgents.DEFAULT_USER_AGENT,
+                preferSmile);
+    }
+
     private static String getUriForPort(int port) {
         return String.format("http://%s:%s", WireMockConfiguration.DEFAULT_BIND_ADDRESS, port);
     }
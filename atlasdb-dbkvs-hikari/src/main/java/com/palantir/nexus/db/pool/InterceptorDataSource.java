@@ -52,7 +52,7 @@ public abstract class InterceptorDataSource {
                 }
                 if (method.getName().equals("getConnection")) {
                     Connection c = (Connection) ret;
-                    c = InterceptorConnection.wrapInterceptor(c);
+                    c = wrapConnection(InterceptorConnection.wrapInterceptor(c));
                     onAcquire(c);
                     ret = c;
                 }
@@ -69,6 +69,13 @@ public abstract class InterceptorDataSource {
 
     protected abstract void onAcquire(Connection c);
 
+    /**
+     * Wraps each newly opened connection before it is passed to {@link #onAcquire}. Returns it unchanged by default.
+     */
+    protected Connection wrapConnection(Connection c) {
+        return c;
+    }
+
     public static DataSource wrapInterceptor(InterceptorDataSource instance) {
         return (DataSource) Proxy.newProxyInstance(
                 instance.getClass().getClassLoader(),
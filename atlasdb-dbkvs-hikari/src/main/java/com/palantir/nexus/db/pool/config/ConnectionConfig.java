@@ -30,6 +30,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.palantir.common.base.Visitors;
 import com.palantir.common.visitor.Visitor;
 import com.palantir.nexus.db.DBType;
+import com.palantir.nexus.db.pool.CachingPreparedStatementConnection;
 import com.palantir.nexus.db.pool.InterceptorDataSource;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.util.DriverDataSource;
@@ -96,6 +97,15 @@ public abstract class ConnectionConfig {
         return 45;
     }
 
+    /**
+     * The number of prepared statements to cache on each physical connection, keyed by SQL text.
+     * Set to 0 to disable the cache.
+     */
+    @Value.Default
+    public int getPreparedStatementCacheSize() {
+        return 64;
+    }
+
     /**
      * This is JsonIgnore'd because it doesn't serialise. Serialisation is needed for atlasdb-dropwizard-bundle.
      */
@@ -141,20 +151,26 @@ public abstract class ConnectionConfig {
         }
 
         config.setJdbcUrl(getUrl());
-        DataSource dataSource = wrapDataSourceWithVisitor(
+        DataSource dataSource = wrapDataSource(
                 new DriverDataSource(getUrl(), getDriverClass(), props, null, null),
-                getOnAcquireConnectionVisitor());
+                getOnAcquireConnectionVisitor(),
+                getPreparedStatementCacheSize());
         config.setDataSource(dataSource);
 
         return config;
     }
 
-    private static DataSource wrapDataSourceWithVisitor(DataSource ds, final Visitor<Connection> visitor) {
+    private static DataSource wrapDataSource(DataSource ds, Visitor<Connection> visitor, int statementCacheSize) {
         return InterceptorDataSource.wrapInterceptor(new InterceptorDataSource(ds) {
             @Override
             protected void onAcquire(Connection c) {
                 visitor.visit(c);
             }
+
+            @Override
+            protected Connection wrapConnection(Connection c) {
+                return statementCacheSize > 0 ? CachingPreparedStatementConnection.wrap(c, statementCacheSize) : c;
+            }
         });
     }
 
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs;
+
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionManagerAwareDbKvs;
+
+public class DbkvsPostgresIndexOrderedKeyValueServiceTest extends AbstractDbKvsKeyValueServiceTest {
+    @Override
+    protected KeyValueService getKeyValueService() {
+        DbKeyValueServiceConfig config = ImmutableDbKeyValueServiceConfig.builder()
+                .from(DbkvsPostgresTestSuite.getKvsConfig())
+                .ddl(ImmutablePostgresDdlConfig.builder()
+                        .latestVersionQueryStrategy(LatestVersionQueryStrategy.INDEX_ORDERED)
+                        .build())
+                .build();
+        KeyValueService kvs = ConnectionManagerAwareDbKvs.create(config);
+        kvs.getAllTableNames().stream().filter(table -> !table.getQualifiedName().equals("_metadata")).forEach(
+                kvs::dropTable);
+        return kvs;
+    }
+}
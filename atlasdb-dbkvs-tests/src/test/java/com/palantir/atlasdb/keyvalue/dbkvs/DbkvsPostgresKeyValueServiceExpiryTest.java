@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs;
+
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionManagerAwareDbKvs;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.DbKvs;
+import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueServiceExpiryTest;
+import com.palantir.common.time.Clock;
+
+public class DbkvsPostgresKeyValueServiceExpiryTest extends AbstractKeyValueServiceExpiryTest {
+    @Override
+    protected KeyValueService getKeyValueService(Clock clock) {
+        KeyValueService kvs = ConnectionManagerAwareDbKvs.create(DbkvsPostgresTestSuite.getKvsConfig(), clock);
+        kvs.getAllTableNames().stream().filter(table -> !table.getQualifiedName().equals("_metadata")).forEach(
+                kvs::dropTable);
+        return kvs;
+    }
+
+    @Override
+    protected void purgeExpiredCells() {
+        ((DbKvs) ((ConnectionManagerAwareDbKvs) keyValueService).delegate()).purgeExpiredCells();
+    }
+}
@@ -39,6 +39,8 @@ import com.palantir.nexus.db.pool.config.ImmutablePostgresConnectionConfig;
 @RunWith(Suite.class)
 @SuiteClasses({
         DbkvsPostgresKeyValueServiceTest.class,
+        DbkvsPostgresKeyValueServiceExpiryTest.class,
+        DbkvsPostgresIndexOrderedKeyValueServiceTest.class,
         DbkvsPostgresSerializableTransactionTest.class,
         DbkvsPostgresSweeperTest.class,
         PostgresDbTimestampBoundStoreTest.class
@@ -51,6 +51,14 @@ public abstract class DdlConfig {
         return 256;
     }
 
+    /**
+     * Upper bound on the number of rows the JDBC driver buffers per round trip while streaming read results.
+     */
+    @Value.Default
+    public int readFetchSize() {
+        return 1000;
+    }
+
     @Value.Default
     public int mutationBatchCount() {
         return 1000;
@@ -61,10 +69,40 @@ public abstract class DdlConfig {
         return 2 * 1024 * 1024;
     }
 
+    /**
+     * Table recording when cells written with a time-to-live expire, so that they can be purged in the background.
+     * The {@link #tablePrefix()} is prepended to this name.
+     */
+    @Value.Default
+    public String expiryTable() {
+        return "atlas_expiry";
+    }
+
+    /**
+     * How often expired cells are purged; 0 disables the background purge.
+     */
+    @Value.Default
+    public long expiryPurgeIntervalMillis() {
+        return 60_000L;
+    }
+
+    /**
+     * Maximum number of expired cells deleted per round trip while purging.
+     */
+    @Value.Default
+    public int expiryPurgeBatchSize() {
+        return 1000;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(
                 metadataTable().getNamespace().isEmptyNamespace(),
                 "'metadataTable' should have empty namespace'");
+        Preconditions.checkState(readFetchSize() > 0, "'readFetchSize' should be positive");
+        Preconditions.checkState(
+                expiryPurgeIntervalMillis() >= 0,
+                "'expiryPurgeIntervalMillis' should not be negative");
+        Preconditions.checkState(expiryPurgeBatchSize() > 0, "'expiryPurgeBatchSize' should be positive");
     }
 }
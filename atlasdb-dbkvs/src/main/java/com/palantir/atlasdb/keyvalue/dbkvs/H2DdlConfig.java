@@ -33,8 +33,9 @@ public abstract class H2DdlConfig extends DdlConfig {
 
     @Override
     public Supplier<DbTableFactory> tableFactorySupplier() {
+        // H2 does not support Postgres array casts or unnest with several arrays.
         return () -> new PostgresDbTableFactory(
-                ImmutablePostgresDdlConfig.builder().from(this).build());
+                ImmutablePostgresDdlConfig.builder().from(this).bindListsAsArrays(false).build());
     }
 
     @Override
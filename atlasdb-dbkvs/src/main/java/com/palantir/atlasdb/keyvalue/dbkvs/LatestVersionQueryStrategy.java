@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs;
+
+/**
+ * How Postgres DbKvs finds the latest version of each cell below a read timestamp.
+ */
+public enum LatestVersionQueryStrategy {
+    /**
+     * Aggregates {@code max(ts)} per cell and joins the result back to the table to fetch the values. This reads
+     * every version of each cell below the read timestamp, twice when values are requested.
+     */
+    GROUP_BY_MAX_TS,
+
+    /**
+     * Reads whole rows with {@code DISTINCT ON (row_name, col_name)} in primary key order, and individual cells with
+     * a {@code LATERAL} subquery that takes the first version in descending timestamp order. Postgres can answer
+     * both with a backward scan of the primary key and needs no self-join to fetch values; cell reads touch only
+     * one index entry per cell however many versions it has. Prefer this for tables with many versions per cell.
+     */
+    INDEX_ORDERED
+}
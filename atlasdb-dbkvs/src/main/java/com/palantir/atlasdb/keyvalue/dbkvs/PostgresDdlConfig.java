@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.keyvalue.dbkvs;
 
+import java.util.Map;
+
 import org.immutables.value.Value;
 
 import com.fasterxml.jackson.annotation.JsonTypeName;
@@ -44,6 +46,34 @@ public abstract class PostgresDdlConfig extends DdlConfig {
         return AtlasDbConstants.DEFAULT_METADATA_TABLE;
     }
 
+    /**
+     * Whether queries bind lists of rows, cells and timestamps as single array parameters, so that their SQL text
+     * does not depend on the number of values and their prepared statements can be reused.
+     */
+    @Value.Default
+    public boolean bindListsAsArrays() {
+        return true;
+    }
+
+    /**
+     * The strategy used to read the latest version of cells, for tables without an entry in
+     * {@link #latestVersionQueryStrategyOverrides()}.
+     */
+    @Value.Default
+    public LatestVersionQueryStrategy latestVersionQueryStrategy() {
+        return LatestVersionQueryStrategy.GROUP_BY_MAX_TS;
+    }
+
+    /**
+     * Per-table strategies for reading the latest version of cells, keyed by fully qualified table name.
+     */
+    public abstract Map<String, LatestVersionQueryStrategy> latestVersionQueryStrategyOverrides();
+
+    public LatestVersionQueryStrategy latestVersionQueryStrategy(TableReference tableRef) {
+        LatestVersionQueryStrategy strategy = latestVersionQueryStrategyOverrides().get(tableRef.getQualifiedName());
+        return strategy != null ? strategy : latestVersionQueryStrategy();
+    }
+
     @Override
     public final String type() {
         return TYPE;
@@ -23,6 +23,8 @@ import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
 import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.common.time.Clock;
+import com.palantir.common.time.SystemClock;
 import com.palantir.nexus.db.monitoring.timer.SqlTimer;
 import com.palantir.nexus.db.monitoring.timer.SqlTimers;
 import com.palantir.nexus.db.pool.ConnectionManager;
@@ -39,11 +41,18 @@ public class ConnectionManagerAwareDbKvs extends ForwardingKeyValueService {
     private final ConnectionManager connManager;
 
     public static ConnectionManagerAwareDbKvs create(DbKeyValueServiceConfig config) {
+        return create(config, new SystemClock());
+    }
+
+    /**
+     * @param clock the clock used to expire cells written with a time-to-live.
+     */
+    public static ConnectionManagerAwareDbKvs create(DbKeyValueServiceConfig config, Clock clock) {
         HikariCPConnectionManager connManager = new HikariCPConnectionManager(config.connection());
         ReentrantManagedConnectionSupplier connSupplier = new ReentrantManagedConnectionSupplier(connManager);
         SqlConnectionSupplier sqlConnSupplier = getSimpleTimedSqlConnectionSupplier(connSupplier);
 
-        return new ConnectionManagerAwareDbKvs(DbKvs.create(config, sqlConnSupplier), connManager);
+        return new ConnectionManagerAwareDbKvs(DbKvs.create(config, sqlConnSupplier, clock), connManager);
     }
 
     private static SqlConnectionSupplier getSimpleTimedSqlConnectionSupplier(
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.dbkvs.DdlConfig;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.nexus.db.DBType;
+import com.palantir.nexus.db.sql.AgnosticResultRow;
+import com.palantir.nexus.db.sql.AgnosticResultSet;
+
+/**
+ * Records when versions of cells written with a time-to-live expire. DbKvs tables have no notion of expiry, so
+ * {@link DbKvs#purgeExpiredCells()} looks up expired versions here and deletes them from their tables in batches.
+ * Like the tables it refers to, the expiry table's name starts with the {@link DdlConfig#tablePrefix()}, so
+ * instances sharing a database keep separate records.
+ */
+public class DbExpiryTable {
+    private final String tableName;
+    private final DBType dbType;
+    private final ConnectionSupplier conns;
+
+    public DbExpiryTable(DdlConfig config, DBType dbType, ConnectionSupplier conns) {
+        this.tableName = getTableName(config);
+        this.dbType = dbType;
+        this.conns = conns;
+    }
+
+    public static String getTableName(DdlConfig config) {
+        return config.tablePrefix() + config.expiryTable();
+    }
+
+    /**
+     * Records the versions in {@code timestampByCell} whose cells have a time-to-live; other cells are ignored.
+     */
+    public void put(TableReference tableRef, Collection<Entry<Cell, Long>> timestampByCell, long writeTimeMillis) {
+        List<Object[]> args = Lists.newArrayList();
+        for (Entry<Cell, Long> entry : timestampByCell) {
+            Cell cell = entry.getKey();
+            long expirationTimeMillis = KeyValueServices.getExpirationTimeMillis(cell, writeTimeMillis);
+            if (expirationTimeMillis != Long.MAX_VALUE) {
+                args.add(new Object[] {tableRef.getQualifiedName(), cell.getRowName(), cell.getColumnName(),
+                        entry.getValue(), expirationTimeMillis});
+            }
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        conns.get().insertManyUnregisteredQuery("/* INSERT_EXPIRY (" + tableName + ") */"
+                + " INSERT INTO " + tableName + " (table_name, row_name, col_name, ts, expires_at) "
+                + " VALUES (?, ?, ?, ?, ?) ",
+                args);
+    }
+
+    /**
+     * @return the tables that have versions that expired at or before {@code nowMillis}.
+     */
+    public Set<TableReference> getTablesWithExpired(long nowMillis) {
+        AgnosticResultSet results = conns.get().selectResultSetUnregisteredQuery(
+                "/* SELECT_EXPIRED_TABLES (" + tableName + ") */"
+                        + " SELECT DISTINCT table_name FROM " + tableName + " WHERE expires_at <= ?",
+                nowMillis);
+        ImmutableSet.Builder<TableReference> tableRefs = ImmutableSet.builder();
+        for (AgnosticResultRow row : results.rows()) {
+            tableRefs.add(TableReference.createUnsafe(row.getString("table_name")));
+        }
+        return tableRefs.build();
+    }
+
+    /**
+     * @return up to {@code limit} versions of cells in {@code tableRef} that expired at or before {@code nowMillis}.
+     */
+    public List<ExpiredVersion> getExpired(TableReference tableRef, long nowMillis, int limit) {
+        String limitClause = DBType.ORACLE.equals(dbType) ? " AND ROWNUM <= ?" : " LIMIT ?";
+        AgnosticResultSet results = conns.get().selectResultSetUnregisteredQuery(
+                "/* SELECT_EXPIRED (" + tableName + ") */"
+                        + " SELECT row_name, col_name, ts, expires_at FROM " + tableName
+                        + " WHERE table_name = ? AND expires_at <= ?" + limitClause,
+                tableRef.getQualifiedName(), nowMillis, limit);
+        ImmutableList.Builder<ExpiredVersion> expired = ImmutableList.builder();
+        for (AgnosticResultRow row : results.rows()) {
+            expired.add(new ExpiredVersion(
+                    Cell.create(row.getBytes("row_name"), row.getBytes("col_name")),
+                    row.getLong("ts"),
+                    row.getLong("expires_at")));
+        }
+        return expired.build();
+    }
+
+    public void delete(TableReference tableRef, Collection<ExpiredVersion> versions) {
+        List<Object[]> args = Lists.newArrayListWithCapacity(versions.size());
+        for (ExpiredVersion version : versions) {
+            args.add(new Object[] {tableRef.getQualifiedName(), version.getCell().getRowName(),
+                    version.getCell().getColumnName(), version.getTimestamp(), version.getExpirationTimeMillis()});
+        }
+        conns.get().updateManyUnregisteredQuery("/* DELETE_EXPIRY (" + tableName + ") */"
+                + " DELETE FROM " + tableName
+                + " WHERE table_name = ? AND row_name = ? AND col_name = ? AND ts = ? AND expires_at = ?",
+                args);
+    }
+
+    /**
+     * Forgets every version recorded for {@code tableRef}, e.g. because the table was truncated or dropped.
+     */
+    public void deleteTable(TableReference tableRef) {
+        conns.get().updateUnregisteredQuery("/* DELETE_EXPIRY_TABLE (" + tableName + ") */"
+                + " DELETE FROM " + tableName + " WHERE table_name = ?",
+                tableRef.getQualifiedName());
+    }
+
+    public static final class ExpiredVersion {
+        private final Cell cell;
+        private final long timestamp;
+        private final long expirationTimeMillis;
+
+        ExpiredVersion(Cell cell, long timestamp, long expirationTimeMillis) {
+            this.cell = cell;
+            this.timestamp = timestamp;
+            this.expirationTimeMillis = expirationTimeMillis;
+        }
+
+        public Cell getCell() {
+            return cell;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getExpirationTimeMillis() {
+            return expirationTimeMillis;
+        }
+    }
+}
@@ -35,8 +35,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
@@ -55,6 +55,7 @@ import com.google.common.base.Stopwatch;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -93,12 +94,12 @@ import com.palantir.atlasdb.keyvalue.dbkvs.util.DbKvsPartitioners;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
-import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.Throwables;
-import com.palantir.common.concurrent.NamedThreadFactory;
-import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.concurrent.SharedExecutors;
+import com.palantir.common.time.Clock;
+import com.palantir.common.time.SystemClock;
 import com.palantir.exception.PalantirSqlException;
 import com.palantir.nexus.db.DBType;
 import com.palantir.nexus.db.sql.AgnosticLightResultRow;
@@ -110,6 +111,11 @@ import com.palantir.util.paging.AbstractPagingIterable;
 import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
+/**
+ * Cells written with a time-to-live are recorded in the {@link DdlConfig#expiryTable() expiry table} and deleted
+ * by a background purge every {@link DdlConfig#expiryPurgeIntervalMillis()}. Reads do not filter by expiry, so an
+ * expired version remains visible until it has been purged.
+ */
 public class DbKvs extends AbstractKeyValueService {
     private static final Logger log = LoggerFactory.getLogger(DbKvs.class);
 
@@ -125,9 +131,18 @@ public class DbKvs extends AbstractKeyValueService {
     private final DbTableFactory dbTables;
     private final SqlConnectionSupplier connections;
     private final BatchingTaskRunner batchingQueryRunner;
+    private final Clock clock;
+    private volatile Optional<ScheduledFuture<?>> expiryPurge = Optional.empty();
 
     public static DbKvs create(DbKeyValueServiceConfig config, SqlConnectionSupplier sqlConnSupplier) {
-        DbKvs dbKvs = new DbKvs(config.ddl(), config.ddl().tableFactorySupplier().get(), sqlConnSupplier);
+        return create(config, sqlConnSupplier, new SystemClock());
+    }
+
+    /**
+     * @param clock the clock used to expire cells written with a time-to-live.
+     */
+    public static DbKvs create(DbKeyValueServiceConfig config, SqlConnectionSupplier sqlConnSupplier, Clock clock) {
+        DbKvs dbKvs = new DbKvs(config.ddl(), config.ddl().tableFactorySupplier().get(), sqlConnSupplier, clock);
         dbKvs.init();
         return dbKvs;
     }
@@ -140,33 +155,41 @@ public class DbKvs extends AbstractKeyValueService {
     public DbKvs(DdlConfig config,
                  DbTableFactory dbTables,
                  SqlConnectionSupplier connections) {
-        super(AbstractKeyValueService.createFixedThreadPool("Atlas Relational KVS", config.poolSize()));
+        this(config, dbTables, connections, new SystemClock());
+    }
+
+    private DbKvs(DdlConfig config,
+                  DbTableFactory dbTables,
+                  SqlConnectionSupplier connections,
+                  Clock clock) {
+        super(AbstractKeyValueService.createSharedExecutor("DbKvs", config.poolSize()));
         this.config = config;
         this.dbTables = dbTables;
         this.connections = connections;
+        this.clock = clock;
 
         if (DBType.ORACLE.equals(dbTables.getDbType())) {
             batchingQueryRunner = new ImmediateSingleBatchTaskRunner();
         } else {
             batchingQueryRunner = new ParallelTaskRunner(
-                    newFixedThreadPool(config.poolSize()),
+                    AbstractKeyValueService.createSharedExecutor("DbKvsReader", config.poolSize()),
                     config.fetchBatchSize());
         }
     }
 
-    private static ThreadPoolExecutor newFixedThreadPool(int maxPoolSize) {
-        ThreadPoolExecutor pool = PTExecutors.newThreadPoolExecutor(maxPoolSize, maxPoolSize,
-                15L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<Runnable>(),
-                new NamedThreadFactory("Atlas DbKvs reader", true /* daemon */));
-
-        pool.allowCoreThreadTimeOut(false);
-        return pool;
-    }
-
     private void init() {
         databaseSpecificInitialization();
         createMetadataTable();
+        createExpiryTable();
+        if (config.expiryPurgeIntervalMillis() > 0) {
+            expiryPurge = Optional.of(SharedExecutors.scheduleAtFixedRate(() -> {
+                try {
+                    purgeExpiredCells();
+                } catch (Throwable t) {
+                    log.error("Failed to purge expired cells; they will be retried on the next purge.", t);
+                }
+            }, config.expiryPurgeIntervalMillis(), TimeUnit.MILLISECONDS, executor));
+        }
     }
 
     private void databaseSpecificInitialization() {
@@ -189,8 +212,17 @@ public class DbKvs extends AbstractKeyValueService {
             }
         });
     }
+
+    private void createExpiryTable() {
+        runInitialization(initializer -> {
+            initializer.createExpiryTable(DbExpiryTable.getTableName(config));
+            return null;
+        });
+    }
+
     @Override
     public void close() {
+        expiryPurge.ifPresent(purge -> purge.cancel(false));
         super.close();
         dbTables.close();
         connections.close();
@@ -234,35 +266,12 @@ public class DbKvs extends AbstractKeyValueService {
         return runRead(tableRef, table -> extractResults(table, query.apply(table)));
     }
 
-    @SuppressWarnings("deprecation")
     private Map<Cell, Value> extractResults(
             DbReadTable table,
             ClosableIterator<AgnosticLightResultRow> rows) {
-        Map<Cell, Value> results = Maps.newHashMap();
-        Map<Cell, OverflowValue> overflowResults = Maps.newHashMap();
-        try (ClosableIterator<AgnosticLightResultRow> iter = rows) {
-            boolean hasOverflow = table.hasOverflowValues();
-            while (iter.hasNext()) {
-                AgnosticLightResultRow row = iter.next();
-                Cell cell = Cell.create(row.getBytes(ROW), row.getBytes(COL));
-                Long overflowId = hasOverflow ? row.getLongObject("overflow") : null;
-                if (overflowId == null) {
-                    Value value = Value.create(row.getBytes(VAL), row.getLong(TIMESTAMP));
-                    Value oldValue = results.put(cell, value);
-                    if (oldValue != null && oldValue.getTimestamp() > value.getTimestamp()) {
-                        results.put(cell, oldValue);
-                    }
-                } else {
-                    OverflowValue ov = ImmutableOverflowValue.of(row.getLong(TIMESTAMP), overflowId);
-                    OverflowValue oldOv = overflowResults.put(cell, ov);
-                    if (oldOv != null && oldOv.ts() > ov.ts()) {
-                        overflowResults.put(cell, oldOv);
-                    }
-                }
-            }
-        }
-        fillOverflowValues(table, overflowResults, results);
-        return results;
+        LatestValueAccumulator accumulator = new LatestValueAccumulator(table.hasOverflowValues());
+        accumulator.acceptAll(rows);
+        return accumulator.finish(table);
     }
 
     @Override
@@ -306,6 +315,9 @@ public class DbKvs extends AbstractKeyValueService {
                 tableRef,
                 getByteSizingFunction());
 
+        recordExpiringVersions(tableRef, Collections2.transform(
+                values.keySet(),
+                cell -> Maps.immutableEntry(cell, timestamp)));
         runReadWrite(tableRef, (readTable, writeTable) -> {
             for (List<Entry<Cell, byte[]>> batch : batches) {
                 try {
@@ -380,6 +392,9 @@ public class DbKvs extends AbstractKeyValueService {
                 tableRef,
                 getValueSizingFunction());
 
+        recordExpiringVersions(tableRef, Collections2.transform(
+                cellValues.entries(),
+                entry -> Maps.immutableEntry(entry.getKey(), entry.getValue().getTimestamp())));
         runReadWrite(tableRef, (readTable, writeTable) -> {
             for (List<Entry<Cell, Value>> batch : batches) {
                 try {
@@ -392,11 +407,75 @@ public class DbKvs extends AbstractKeyValueService {
         });
     }
 
+    /**
+     * Versions are recorded before they are written, so that a failure part way through a put can at worst leave
+     * records of versions that do not exist, which purging ignores.
+     */
+    private void recordExpiringVersions(TableReference tableRef, Collection<Entry<Cell, Long>> timestampByCell) {
+        if (timestampByCell.stream().noneMatch(entry -> entry.getKey().getTtlDurationMillis() > 0)) {
+            return;
+        }
+        long nowMillis = clock.getTimeMillis();
+        runExpiry(table -> {
+            table.put(tableRef, timestampByCell, nowMillis);
+            return null;
+        });
+    }
+
+    /**
+     * Deletes every version whose time-to-live has elapsed, in batches of {@link DdlConfig#expiryPurgeBatchSize()}.
+     * Only tables that have expired versions and are known to this key value service are purged.
+     *
+     * @return the number of versions deleted.
+     */
+    public int purgeExpiredCells() {
+        long nowMillis = clock.getTimeMillis();
+        Set<TableReference> tablesWithExpired = runExpiry(table -> table.getTablesWithExpired(nowMillis));
+        if (tablesWithExpired.isEmpty()) {
+            return 0;
+        }
+        int purged = 0;
+        for (TableReference tableRef : Sets.intersection(tablesWithExpired, getAllTableNames())) {
+            purged += purgeExpiredCells(tableRef);
+        }
+        return purged;
+    }
+
+    private int purgeExpiredCells(TableReference tableRef) {
+        int purged = 0;
+        while (true) {
+            long nowMillis = clock.getTimeMillis();
+            List<DbExpiryTable.ExpiredVersion> expired =
+                    runExpiry(table -> table.getExpired(tableRef, nowMillis, config.expiryPurgeBatchSize()));
+            if (expired.isEmpty()) {
+                return purged;
+            }
+            Multimap<Cell, Long> versions = ArrayListMultimap.create();
+            for (DbExpiryTable.ExpiredVersion version : expired) {
+                versions.put(version.getCell(), version.getTimestamp());
+            }
+            delete(tableRef, versions);
+            runExpiry(table -> {
+                table.delete(tableRef, expired);
+                return null;
+            });
+            purged += expired.size();
+            if (expired.size() < config.expiryPurgeBatchSize()) {
+                return purged;
+            }
+        }
+    }
+
     @Override
     public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
         put(tableRef, values, AtlasDbConstants.TRANSACTION_TS, false);
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return true;
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) throws CheckAndSetException {
         if (checkAndSetRequest.oldValue().isPresent()) {
@@ -960,89 +1039,34 @@ public class DbKvs extends AbstractKeyValueService {
             DbReadTable table,
             Supplier<ClosableIterator<AgnosticLightResultRow>> rowLoader,
             Collection<byte[]> allRows) {
-        Map<Sha256Hash, byte[]> hashesToBytes = Maps.newHashMapWithExpectedSize(allRows.size());
-        Map<Sha256Hash, List<Cell>> cellsByRow = Maps.newHashMap();
+        // Keyed by the caller's row arrays, which callers look results up by.
+        NavigableMap<byte[], List<Cell>> cellsByRow = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
         for (byte[] row : allRows) {
-            Sha256Hash rowHash = Sha256Hash.computeHash(row);
-            hashesToBytes.put(rowHash, row);
-            cellsByRow.put(rowHash, Lists.newArrayList());
+            cellsByRow.put(row, Lists.newArrayList());
         }
 
-        boolean hasOverflow = table.hasOverflowValues();
-        Map<Cell, Value> values = Maps.newHashMap();
-        Map<Cell, OverflowValue> overflowValues = Maps.newHashMap();
-
+        LatestValueAccumulator accumulator = new LatestValueAccumulator(table.hasOverflowValues());
         try (ClosableIterator<AgnosticLightResultRow> iter = rowLoader.get()) {
             while (iter.hasNext()) {
-                AgnosticLightResultRow row = iter.next();
-                Cell cell = Cell.create(row.getBytes(ROW), row.getBytes(COL));
-                Sha256Hash rowHash = Sha256Hash.computeHash(cell.getRowName());
-                cellsByRow.get(rowHash).add(cell);
-                Long overflowId = hasOverflow ? row.getLongObject("overflow") : null;
-                if (overflowId == null) {
-                    Value value = Value.create(row.getBytes(VAL), row.getLong(TIMESTAMP));
-                    Value oldValue = values.put(cell, value);
-                    if (oldValue != null && oldValue.getTimestamp() > value.getTimestamp()) {
-                        values.put(cell, oldValue);
-                    }
-                } else {
-                    OverflowValue ov = ImmutableOverflowValue.of(row.getLong(TIMESTAMP), overflowId);
-                    OverflowValue oldOv = overflowValues.put(cell, ov);
-                    if (oldOv != null && oldOv.ts() > ov.ts()) {
-                        overflowValues.put(cell, oldOv);
-                    }
+                Cell cell = accumulator.accept(iter.next());
+                if (cell != null) {
+                    cellsByRow.get(cell.getRowName()).add(cell);
                 }
             }
         }
+        Map<Cell, Value> values = accumulator.finish(table);
 
-        fillOverflowValues(table, overflowValues, values);
-
-        Map<byte[], List<Map.Entry<Cell, Value>>> results =
-                Maps.newHashMapWithExpectedSize(allRows.size());
-        for (Entry<Sha256Hash, List<Cell>> e : cellsByRow.entrySet()) {
-            List<Map.Entry<Cell, Value>> fullResults = Lists.newArrayListWithExpectedSize(e.getValue().size());
+        Map<byte[], List<Map.Entry<Cell, Value>>> results = Maps.newHashMapWithExpectedSize(allRows.size());
+        for (Entry<byte[], List<Cell>> e : cellsByRow.entrySet()) {
+            List<Map.Entry<Cell, Value>> fullResults = Lists.newArrayListWithCapacity(e.getValue().size());
             for (Cell c : e.getValue()) {
-                fullResults.add(Iterables.getOnlyElement(ImmutableMap.of(c, values.get(c)).entrySet()));
+                fullResults.add(Maps.immutableEntry(c, values.get(c)));
             }
-            results.put(hashesToBytes.get(e.getKey()), fullResults);
+            results.put(e.getKey(), fullResults);
         }
         return results;
     }
 
-    private void fillOverflowValues(DbReadTable table,
-                                    Map<Cell, OverflowValue> overflowValues,
-                                    @Output Map<Cell, Value> values) {
-        Iterator<Entry<Cell, OverflowValue>> overflowIterator = overflowValues.entrySet().iterator();
-        while (overflowIterator.hasNext()) {
-            Entry<Cell, OverflowValue> entry = overflowIterator.next();
-            Value value = values.get(entry.getKey());
-            if (value != null && value.getTimestamp() > entry.getValue().ts()) {
-                overflowIterator.remove();
-            }
-        }
-
-        if (!overflowValues.isEmpty()) {
-            Map<Long, byte[]> resolvedOverflowValues = Maps.newHashMapWithExpectedSize(overflowValues.size());
-            try (ClosableIterator<AgnosticLightResultRow> overflowIter = table.getOverflow(overflowValues.values())) {
-                while (overflowIter.hasNext()) {
-                    AgnosticLightResultRow row = overflowIter.next();
-                    // QA-94468 LONG RAW typed columns ("val" in this case) must be retrieved first from the result set
-                    // see https://docs.oracle.com/cd/B19306_01/java.102/b14355/jstreams.htm#i1007581
-                    byte[] val = row.getBytes(VAL);
-                    long id = row.getLong("id");
-                    resolvedOverflowValues.put(id, val);
-                }
-            }
-            for (Entry<Cell, OverflowValue> entry : overflowValues.entrySet()) {
-                Cell cell = entry.getKey();
-                OverflowValue ov = entry.getValue();
-                byte[] val = resolvedOverflowValues.get(ov.id());
-                Preconditions.checkNotNull(val, "Failed to load overflow data: cell=%s, overflowId=%s", cell, ov.id());
-                values.put(cell, Value.create(val, ov.ts()));
-            }
-        }
-    }
-
     private Map<Sha256Hash, Integer> getColumnCounts(TableReference tableRef,
                                                      List<byte[]> rowList,
                                                      ColumnRangeSelection columnRangeSelection,
@@ -1088,6 +1112,10 @@ public class DbKvs extends AbstractKeyValueService {
                 return null;
             }
         });
+        runExpiry(table -> {
+            table.deleteTable(tableRef);
+            return null;
+        });
     }
 
     @Override
@@ -1099,6 +1127,10 @@ public class DbKvs extends AbstractKeyValueService {
                 return null;
             }
         });
+        runExpiry(table -> {
+            table.deleteTable(tableRef);
+            return null;
+        });
     }
 
     @Override
@@ -1269,6 +1301,15 @@ public class DbKvs extends AbstractKeyValueService {
         }
     }
 
+    private <T> T runExpiry(Function<DbExpiryTable, T> runner) {
+        ConnectionSupplier conns = new ConnectionSupplier(connections);
+        try {
+            return runner.apply(new DbExpiryTable(config, dbTables.getDbType(), conns));
+        } finally {
+            conns.close();
+        }
+    }
+
     private <T> T runRead(TableReference tableRef, Function<DbReadTable, T> runner) {
         ConnectionSupplier conns = new ConnectionSupplier(connections);
         try {
@@ -39,14 +39,14 @@ import com.palantir.nexus.db.sql.AgnosticLightResultSet;
 import com.palantir.nexus.db.sql.SqlConnection;
 
 public class DbReadTable {
-    private static final int MAX_ROW_COLUMN_RANGES_FETCH_SIZE = 1000;
-
     private final Supplier<SqlConnection> conns;
     private final DbQueryFactory queryFactory;
+    private final int maxFetchSize;
 
-    public DbReadTable(ConnectionSupplier conns, DbQueryFactory queryFactory) {
+    public DbReadTable(ConnectionSupplier conns, DbQueryFactory queryFactory, int maxFetchSize) {
         this.conns = conns;
         this.queryFactory = queryFactory;
+        this.maxFetchSize = maxFetchSize;
     }
 
     public ClosableIterator<AgnosticLightResultRow> getLatestRows(
@@ -107,7 +107,7 @@ public class DbReadTable {
         FullQuery query = queryFactory.getRangeQuery(range, ts, maxRows);
         AgnosticLightResultSet results = conns.get().selectLightResultSetUnregisteredQuery(
                 query.getQuery(), query.getArgs());
-        results.setFetchSize(maxRows);
+        results.setFetchSize(Math.min(maxRows, maxFetchSize));
         return ClosableIterators.wrap(results.iterator(), results);
     }
 
@@ -121,7 +121,7 @@ public class DbReadTable {
             FullQuery query = queryFactory.getRowsColumnRangeCountsQuery(rows, ts, columnRangeSelection);
             AgnosticLightResultSet results = conns.get()
                     .selectLightResultSetUnregisteredQuery(query.getQuery(), query.getArgs());
-            results.setFetchSize(Math.min(rows.size(), MAX_ROW_COLUMN_RANGES_FETCH_SIZE));
+            results.setFetchSize(Math.min(rows.size(), maxFetchSize));
             return ClosableIterators.wrap(results.iterator(), results);
         }
     }
@@ -138,7 +138,7 @@ public class DbReadTable {
             int totalSize =
                     columnRangeSelectionsByRow.values().stream().mapToInt(
                             BatchColumnRangeSelection::getBatchHint).sum();
-            results.setFetchSize(Math.min(totalSize, MAX_ROW_COLUMN_RANGES_FETCH_SIZE));
+            results.setFetchSize(Math.min(totalSize, maxFetchSize));
             return ClosableIterators.wrap(results.iterator(), results);
         }
     }
@@ -149,7 +149,7 @@ public class DbReadTable {
         FullQuery query = queryFactory.getRowsColumnRangeQuery(rowsColumnRangeBatch, ts);
         AgnosticLightResultSet results =
                 conns.get().selectLightResultSetUnregisteredQuery(query.getQuery(), query.getArgs());
-        results.setFetchSize(MAX_ROW_COLUMN_RANGES_FETCH_SIZE);
+        results.setFetchSize(maxFetchSize);
         return ClosableIterators.wrap(results.iterator(), results);
     }
 
@@ -206,6 +206,7 @@ public class DbReadTable {
     private ClosableIterator<AgnosticLightResultRow> run(FullQuery query) {
         AgnosticLightResultSet results = conns.get().selectLightResultSetUnregisteredQuery(
                 query.getQuery(), query.getArgs());
+        results.setFetchSize(maxFetchSize);
         return ClosableIterators.wrap(results.iterator(), results);
     }
 
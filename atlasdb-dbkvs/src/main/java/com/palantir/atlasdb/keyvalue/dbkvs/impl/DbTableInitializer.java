@@ -18,4 +18,5 @@ package com.palantir.atlasdb.keyvalue.dbkvs.impl;
 public interface DbTableInitializer {
     void createUtilityTables();
     void createMetadataTable(String metadataTableName);
+    void createExpiryTable(String expiryTableName);
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.nexus.db.sql.AgnosticLightResultRow;
+
+/**
+ * Decodes (row_name, col_name, ts, val) rows straight off a streaming result set cursor, keeping only the latest
+ * value seen for each cell. No per-row objects are retained other than the resulting cells and values, and
+ * consecutive cells of the same row share one copy of the row name.
+ *
+ * Not thread-safe; use one instance per result set.
+ */
+class LatestValueAccumulator {
+    private final boolean hasOverflow;
+    private final Map<Cell, Value> values = Maps.newHashMap();
+    private final Map<Cell, OverflowValue> overflowValues = Maps.newHashMap();
+    private byte[] lastRowName = null;
+
+    LatestValueAccumulator(boolean hasOverflow) {
+        this.hasOverflow = hasOverflow;
+    }
+
+    /**
+     * Decodes the row the cursor is currently positioned on. The row must not be used after the cursor advances.
+     *
+     * @return the decoded cell if this is the first version of it seen so far, otherwise null.
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    Cell accept(AgnosticLightResultRow row) {
+        Cell cell = Cell.create(canonicalRowName(row.getBytes(DbKvs.ROW)), row.getBytes(DbKvs.COL));
+        Long overflowId = hasOverflow ? row.getLongObject("overflow") : null;
+        if (overflowId == null) {
+            Value value = Value.create(row.getBytes(DbKvs.VAL), row.getLong(DbKvs.TIMESTAMP));
+            Value oldValue = values.put(cell, value);
+            if (oldValue != null && oldValue.getTimestamp() > value.getTimestamp()) {
+                values.put(cell, oldValue);
+            }
+            return oldValue == null && !overflowValues.containsKey(cell) ? cell : null;
+        } else {
+            OverflowValue ov = ImmutableOverflowValue.of(row.getLong(DbKvs.TIMESTAMP), overflowId);
+            OverflowValue oldOv = overflowValues.put(cell, ov);
+            if (oldOv != null && oldOv.ts() > ov.ts()) {
+                overflowValues.put(cell, oldOv);
+            }
+            return oldOv == null && !values.containsKey(cell) ? cell : null;
+        }
+    }
+
+    /**
+     * Drains the given cursor, closing it once done.
+     */
+    void acceptAll(ClosableIterator<AgnosticLightResultRow> rows) {
+        try (ClosableIterator<AgnosticLightResultRow> iter = rows) {
+            while (iter.hasNext()) {
+                accept(iter.next());
+            }
+        }
+    }
+
+    /**
+     * Resolves any overflow values against the given table and returns the latest value for every accepted cell.
+     */
+    Map<Cell, Value> finish(DbReadTable table) {
+        Iterator<Entry<Cell, OverflowValue>> overflowIterator = overflowValues.entrySet().iterator();
+        while (overflowIterator.hasNext()) {
+            Entry<Cell, OverflowValue> entry = overflowIterator.next();
+            Value value = values.get(entry.getKey());
+            if (value != null && value.getTimestamp() > entry.getValue().ts()) {
+                overflowIterator.remove();
+            }
+        }
+
+        if (!overflowValues.isEmpty()) {
+            Map<Long, byte[]> resolvedOverflowValues = Maps.newHashMapWithExpectedSize(overflowValues.size());
+            try (ClosableIterator<AgnosticLightResultRow> overflowIter = table.getOverflow(overflowValues.values())) {
+                while (overflowIter.hasNext()) {
+                    AgnosticLightResultRow row = overflowIter.next();
+                    // QA-94468 LONG RAW typed columns ("val" in this case) must be retrieved first from the result set
+                    // see https://docs.oracle.com/cd/B19306_01/java.102/b14355/jstreams.htm#i1007581
+                    byte[] val = row.getBytes(DbKvs.VAL);
+                    long id = row.getLong("id");
+                    resolvedOverflowValues.put(id, val);
+                }
+            }
+            for (Entry<Cell, OverflowValue> entry : overflowValues.entrySet()) {
+                Cell cell = entry.getKey();
+                OverflowValue ov = entry.getValue();
+                byte[] val = resolvedOverflowValues.get(ov.id());
+                Preconditions.checkNotNull(val, "Failed to load overflow data: cell=%s, overflowId=%s", cell, ov.id());
+                values.put(cell, Value.create(val, ov.ts()));
+            }
+        }
+        return values;
+    }
+
+    private byte[] canonicalRowName(byte[] rowName) {
+        // Results are usually clustered by row, so this lets all cells of a row share a single array.
+        if (!Arrays.equals(rowName, lastRowName)) {
+            lastRowName = rowName;
+        }
+        return lastRowName;
+    }
+}
@@ -73,7 +73,7 @@ public class OracleDbTableFactory implements DbTableFactory {
             default:
                 throw new EnumConstantNotPresentException(TableValueStyle.class, tableValueStyle.name());
         }
-        return new DbReadTable(connectionSupplier, queryFactory);
+        return new DbReadTable(connectionSupplier, queryFactory, config.readFetchSize());
     }
 
     private String getTableName(ConnectionSupplier connectionSupplier, TableReference tableRef) {
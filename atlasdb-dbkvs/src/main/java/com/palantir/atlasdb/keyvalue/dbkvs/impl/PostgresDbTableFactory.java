@@ -53,7 +53,11 @@ public class PostgresDbTableFactory implements DbTableFactory {
     public DbReadTable createRead(TableReference tableRef, ConnectionSupplier conns) {
         return new DbReadTable(
                 conns,
-                new PostgresQueryFactory(DbKvs.internalTableName(tableRef), config));
+                new PostgresQueryFactory(
+                        DbKvs.internalTableName(tableRef),
+                        config,
+                        config.latestVersionQueryStrategy(tableRef)),
+                config.readFetchSize());
     }
 
     @Override
@@ -91,6 +91,30 @@ public class OracleTableInitializer implements DbTableInitializer {
                 OracleErrorConstants.ORACLE_ALREADY_EXISTS_ERROR);
     }
 
+    @Override
+    public void createExpiryTable(String expiryTableName) {
+        executeIgnoringError(
+                String.format(
+                        "CREATE TABLE %s ("
+                                + "table_name varchar(2000) NOT NULL,"
+                                + "row_name   RAW(2000) NOT NULL,"
+                                + "col_name   RAW(2000) NOT NULL,"
+                                + "ts         NUMBER(20) NOT NULL,"
+                                + "expires_at NUMBER(20) NOT NULL"
+                                + ")",
+                        expiryTableName),
+                OracleErrorConstants.ORACLE_ALREADY_EXISTS_ERROR);
+
+        executeIgnoringError(
+                String.format("CREATE INDEX %s_exp_idx ON %s (expires_at)", expiryTableName, expiryTableName),
+                OracleErrorConstants.ORACLE_ALREADY_EXISTS_ERROR);
+
+        executeIgnoringError(
+                String.format("CREATE INDEX %s_tbl_idx ON %s (table_name, expires_at)",
+                        expiryTableName, expiryTableName),
+                OracleErrorConstants.ORACLE_ALREADY_EXISTS_ERROR);
+    }
+
     private void executeIgnoringError(String sql, String errorToIgnore) {
         try {
             connectionSupplier.get().executeUnregisteredQuery(sql);
@@ -27,18 +27,30 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.dbkvs.LatestVersionQueryStrategy;
 import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.AbstractDbQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.OverflowValue;
 
 public class PostgresQueryFactory extends AbstractDbQueryFactory {
+    private static final String ORDER_BY_CELL_AND_LATEST_TS =
+            " ORDER BY m.row_name DESC, m.col_name DESC, m.ts DESC";
+
     private final String tableName;
     private final PostgresDdlConfig config;
+    private final LatestVersionQueryStrategy latestVersionQueryStrategy;
 
     public PostgresQueryFactory(String tableName, PostgresDdlConfig config) {
+        this(tableName, config, LatestVersionQueryStrategy.GROUP_BY_MAX_TS);
+    }
+
+    public PostgresQueryFactory(String tableName,
+                                PostgresDdlConfig config,
+                                LatestVersionQueryStrategy latestVersionQueryStrategy) {
         this.tableName = tableName;
         this.config = config;
+        this.latestVersionQueryStrategy = latestVersionQueryStrategy;
     }
 
     @Override
@@ -46,17 +58,27 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                                        long ts,
                                        ColumnSelection columns,
                                        boolean includeValue) {
+        if (isIndexOrdered()) {
+            String query = " /* GET_LATEST_ROW (" + tableName + ") */ "
+                    + selectDistinctLatestVersions(includeValue)
+                    + "   FROM " + prefixedTableName() + " m "
+                    + "  WHERE m.row_name = ? "
+                    + "    AND m.ts < ? "
+                    + columnsClause(columns)
+                    + ORDER_BY_CELL_AND_LATEST_TS;
+            FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
+            return withColumnArgs(fullQuery, columns);
+        }
         String query = " /* GET_LATEST_ROW_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
-                + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                + columnsClause(columns)
                 + " GROUP BY m.row_name, m.col_name";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return withColumnArgs(fullQuery, columns);
     }
 
     @Override
@@ -64,35 +86,56 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                                         long ts,
                                         ColumnSelection columns,
                                         boolean includeValue) {
+        if (isIndexOrdered()) {
+            String query = " /* GET_LATEST_ROWS (" + tableName + ") */ "
+                    + selectDistinctLatestVersions(includeValue)
+                    + "   FROM " + prefixedTableName() + " m "
+                    + "  WHERE " + inClause("m.row_name", Iterables.size(rows))
+                    + "    AND m.ts < ? "
+                    + columnsClause(columns)
+                    + ORDER_BY_CELL_AND_LATEST_TS;
+            FullQuery fullQuery = withByteArrays(new FullQuery(query), rows).withArg(ts);
+            return withColumnArgs(fullQuery, columns);
+        }
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE " + inClause("m.row_name", Iterables.size(rows))
                 + "    AND m.ts < ? "
-                + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                + columnsClause(columns)
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = withByteArrays(new FullQuery(query), rows).withArg(ts);
+        return withColumnArgs(fullQuery, columns);
     }
 
     @Override
     public FullQuery getLatestRowsQuery(Collection<Entry<byte[], Long>> rows,
                                         ColumnSelection columns,
                                         boolean includeValue) {
+        if (isIndexOrdered()) {
+            String query = " /* GET_LATEST_ROWS (" + tableName + ") */ "
+                    + selectDistinctLatestVersions(includeValue)
+                    + "   FROM " + prefixedTableName() + " m,"
+                    + "     " + rowTsTable(rows.size())
+                    + "  WHERE m.row_name = t.row_name "
+                    + "    AND m.ts < t.ts "
+                    + columnsClause(columns)
+                    + ORDER_BY_CELL_AND_LATEST_TS;
+            FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
+            return withColumnArgs(fullQuery, columns);
+        }
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "     " + rowTsTable(rows.size())
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
-                + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                + columnsClause(columns)
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return withColumnArgs(fullQuery, columns);
     }
 
     @Override
@@ -105,10 +148,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "   FROM " + prefixedTableName() + " m "
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
-                + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                + columnsClause(columns);
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return withColumnArgs(fullQuery, columns);
     }
 
     @Override
@@ -119,12 +161,11 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE " + inClause("m.row_name", Iterables.size(rows))
                 + "    AND m.ts < ? "
-                + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                + columnsClause(columns);
+        FullQuery fullQuery = withByteArrays(new FullQuery(query), rows).withArg(ts);
+        return withColumnArgs(fullQuery, columns);
     }
 
     @Override
@@ -134,17 +175,27 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "     " + rowTsTable(rows.size())
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
-                + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                + columnsClause(columns);
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return withColumnArgs(fullQuery, columns);
     }
 
     @Override
     public FullQuery getLatestCellQuery(Cell cell, long ts, boolean includeValue) {
+        if (isIndexOrdered()) {
+            String query = " /* GET_LATEST_CELL (" + tableName + ") */ "
+                    + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
+                    + "   FROM " + prefixedTableName() + " m "
+                    + "  WHERE m.row_name = ? "
+                    + "    AND m.col_name = ? "
+                    + "    AND m.ts < ? "
+                    + " ORDER BY m.ts DESC "
+                    + " LIMIT 1";
+            return new FullQuery(query).withArgs(cell.getRowName(), cell.getColumnName(), ts);
+        }
         String query = " /* GET_LATEST_CELL_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
@@ -159,10 +210,24 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
 
     @Override
     public FullQuery getLatestCellsQuery(Iterable<Cell> cells, long ts, boolean includeValue) {
+        if (isIndexOrdered()) {
+            String query = " /* GET_LATEST_CELLS (" + tableName + ") */ "
+                    + selectLateralLatestVersions(includeValue)
+                    + "   FROM " + cellTable(Iterables.size(cells))
+                    + "  CROSS JOIN LATERAL ("
+                    + "    SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
+                    + "      FROM " + prefixedTableName() + " m "
+                    + "     WHERE m.row_name = t.row_name "
+                    + "       AND m.col_name = t.col_name "
+                    + "       AND m.ts < ? "
+                    + "     ORDER BY m.ts DESC "
+                    + "     LIMIT 1) i ";
+            return addCellArgs(new FullQuery(query), cells).withArg(ts);
+        }
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "    (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "    " + cellTable(Iterables.size(cells))
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? "
@@ -173,10 +238,24 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
 
     @Override
     public FullQuery getLatestCellsQuery(Collection<Entry<Cell, Long>> cells, boolean includeValue) {
+        if (isIndexOrdered()) {
+            String query = " /* GET_LATEST_CELLS (" + tableName + ") */ "
+                    + selectLateralLatestVersions(includeValue)
+                    + "   FROM " + cellTsTable(Iterables.size(cells))
+                    + "  CROSS JOIN LATERAL ("
+                    + "    SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
+                    + "      FROM " + prefixedTableName() + " m "
+                    + "     WHERE m.row_name = t.row_name "
+                    + "       AND m.col_name = t.col_name "
+                    + "       AND m.ts < t.ts "
+                    + "     ORDER BY m.ts DESC "
+                    + "     LIMIT 1) i ";
+            return addCellTsArgs(new FullQuery(query), cells);
+        }
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "     " + cellTsTable(Iterables.size(cells))
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts "
@@ -201,7 +280,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "     " + cellTable(Iterables.size(cells))
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? ";
@@ -213,7 +292,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "     " + cellTsTable(Iterables.size(cells))
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts ";
@@ -264,6 +343,23 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         return Joiner.on(',').join(Iterables.limit(Iterables.cycle(params), numEntries));
     }
 
+    private boolean isIndexOrdered() {
+        return latestVersionQueryStrategy == LatestVersionQueryStrategy.INDEX_ORDERED;
+    }
+
+    /**
+     * Keeps the first version of each cell in primary key order. Every ordering column is descending so that
+     * Postgres can produce the rows with a backward scan of the primary key instead of sorting them.
+     */
+    private static String selectDistinctLatestVersions(boolean includeValue) {
+        return " SELECT DISTINCT ON (m.row_name, m.col_name) m.row_name, m.col_name, m.ts"
+                + (includeValue ? ", m.val " : " ");
+    }
+
+    private static String selectLateralLatestVersions(boolean includeValue) {
+        return " SELECT i.row_name, i.col_name, i.ts" + (includeValue ? ", i.val " : " ");
+    }
+
     private String wrapQueryWithIncludeValue(String wrappedName, String query, boolean includeValue) {
         if (!includeValue) {
             return query;
@@ -276,7 +372,58 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "   AND wrap.ts = i.ts ";
     }
 
-    private FullQuery addRowTsArgs(FullQuery fullQuery, Iterable<Entry<byte[], Long>> rows) {
+    private String inClause(String column, int numValues) {
+        return config.bindListsAsArrays()
+                ? column + " = ANY(CAST(? AS bytea[])) "
+                : column + " IN " + numParams(numValues) + " ";
+    }
+
+    private String columnsClause(ColumnSelection columns) {
+        return columns.allColumnsSelected()
+                ? ""
+                : "    AND " + inClause("m.col_name", Iterables.size(columns.getSelectedColumns()));
+    }
+
+    private String rowTsTable(int numRows) {
+        return config.bindListsAsArrays()
+                ? "unnest(CAST(? AS bytea[]), CAST(? AS int8[])) t(row_name, ts) "
+                : "(VALUES " + groupOfNumParams(2, numRows) + ") t(row_name, ts) ";
+    }
+
+    private String cellTable(int numCells) {
+        return config.bindListsAsArrays()
+                ? "unnest(CAST(? AS bytea[]), CAST(? AS bytea[])) t(row_name, col_name) "
+                : "(VALUES " + groupOfNumParams(2, numCells) + ") t(row_name, col_name) ";
+    }
+
+    private String cellTsTable(int numCells) {
+        return config.bindListsAsArrays()
+                ? "unnest(CAST(? AS bytea[]), CAST(? AS bytea[]), CAST(? AS int8[])) t(row_name, col_name, ts) "
+                : "(VALUES " + groupOfNumParams(3, numCells) + ") t(row_name, col_name, ts) ";
+    }
+
+    private FullQuery withByteArrays(FullQuery fullQuery, Iterable<byte[]> values) {
+        return config.bindListsAsArrays()
+                ? fullQuery.withArg(Iterables.toArray(values, byte[].class))
+                : fullQuery.withArgs(values);
+    }
+
+    private FullQuery withColumnArgs(FullQuery fullQuery, ColumnSelection columns) {
+        return columns.allColumnsSelected() ? fullQuery : withByteArrays(fullQuery, columns.getSelectedColumns());
+    }
+
+    private FullQuery addRowTsArgs(FullQuery fullQuery, Collection<Entry<byte[], Long>> rows) {
+        if (config.bindListsAsArrays()) {
+            byte[][] rowNames = new byte[rows.size()][];
+            long[] timestamps = new long[rows.size()];
+            int index = 0;
+            for (Entry<byte[], Long> entry : rows) {
+                rowNames[index] = entry.getKey();
+                timestamps[index] = entry.getValue();
+                index++;
+            }
+            return fullQuery.withArgs(rowNames, timestamps);
+        }
         for (Entry<byte[], Long> entry : rows) {
             fullQuery.withArgs(entry.getKey(), entry.getValue());
         }
@@ -284,6 +431,18 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
     }
 
     private FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+        if (config.bindListsAsArrays()) {
+            int numCells = Iterables.size(cells);
+            byte[][] rowNames = new byte[numCells][];
+            byte[][] columnNames = new byte[numCells][];
+            int index = 0;
+            for (Cell cell : cells) {
+                rowNames[index] = cell.getRowName();
+                columnNames[index] = cell.getColumnName();
+                index++;
+            }
+            return fullQuery.withArgs(rowNames, columnNames);
+        }
         for (Cell cell : cells) {
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName());
         }
@@ -291,6 +450,19 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
     }
 
     private FullQuery addCellTsArgs(FullQuery fullQuery, Collection<Entry<Cell, Long>> cells) {
+        if (config.bindListsAsArrays()) {
+            byte[][] rowNames = new byte[cells.size()][];
+            byte[][] columnNames = new byte[cells.size()][];
+            long[] timestamps = new long[cells.size()];
+            int index = 0;
+            for (Entry<Cell, Long> entry : cells) {
+                rowNames[index] = entry.getKey().getRowName();
+                columnNames[index] = entry.getKey().getColumnName();
+                timestamps[index] = entry.getValue();
+                index++;
+            }
+            return fullQuery.withArgs(rowNames, columnNames, timestamps);
+        }
         for (Entry<Cell, Long> entry : cells) {
             Cell cell = entry.getKey();
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName(), entry.getValue());
@@ -310,12 +482,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_COUNT(" + tableName + ") */"
                 + " SELECT m.row_name, COUNT(m.col_name) AS column_count "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE " + inClause("m.row_name", Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name";
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = withByteArrays(new FullQuery(query), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -359,14 +531,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts"
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE " + inClause("m.row_name", Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name, m.col_name"
                 + " ORDER BY m.row_name ASC, m.col_name ASC";
         String wrappedQuery = wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW", query, true);
-        FullQuery fullQuery = new FullQuery(wrappedQuery).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = withByteArrays(new FullQuery(wrappedQuery), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -64,6 +64,30 @@ public class PostgresTableInitializer implements DbTableInitializer {
                 "already exists");
     }
 
+    @Override
+    public void createExpiryTable(String expiryTableName) {
+        executeIgnoringError(
+                String.format(
+                        "CREATE TABLE %s ("
+                        + "  table_name VARCHAR(2000) NOT NULL,"
+                        + "  row_name   BYTEA NOT NULL,"
+                        + "  col_name   BYTEA NOT NULL,"
+                        + "  ts         BIGINT NOT NULL,"
+                        + "  expires_at BIGINT NOT NULL"
+                        + ")",
+                        expiryTableName),
+                "already exists");
+
+        executeIgnoringError(
+                String.format("CREATE INDEX %s_expires_at_index ON %s (expires_at)", expiryTableName, expiryTableName),
+                "already exists");
+
+        executeIgnoringError(
+                String.format("CREATE INDEX %s_table_expires_at_index ON %s (table_name, expires_at)",
+                        expiryTableName, expiryTableName),
+                "already exists");
+    }
+
     private void executeIgnoringError(String sql, String errorToIgnore) {
         try {
             connectionSupplier.get().executeUnregisteredQuery(sql);
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.nexus.db.sql.AgnosticLightResultRow;
+
+public class LatestValueAccumulatorTest {
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final byte[] COL_1 = PtBytes.toBytes("col1");
+    private static final byte[] COL_2 = PtBytes.toBytes("col2");
+
+    private final DbReadTable table = mock(DbReadTable.class);
+
+    @Test
+    public void keepsLatestVersionOfEachCell() {
+        LatestValueAccumulator accumulator = new LatestValueAccumulator(false);
+        accumulator.accept(row(ROW, COL_1, 5L, "new"));
+        accumulator.accept(row(ROW, COL_1, 3L, "old"));
+        accumulator.accept(row(ROW, COL_2, 1L, "other"));
+
+        Map<Cell, Value> values = accumulator.finish(table);
+
+        assertEquals(
+                ImmutableMap.of(
+                        Cell.create(ROW, COL_1), Value.create(PtBytes.toBytes("new"), 5L),
+                        Cell.create(ROW, COL_2), Value.create(PtBytes.toBytes("other"), 1L)),
+                values);
+    }
+
+    @Test
+    public void onlyReportsFirstVersionOfEachCell() {
+        LatestValueAccumulator accumulator = new LatestValueAccumulator(false);
+        Cell first = accumulator.accept(row(ROW, COL_1, 3L, "old"));
+        Cell second = accumulator.accept(row(ROW, COL_1, 5L, "new"));
+
+        assertThat(first, is(Cell.create(ROW, COL_1)));
+        assertThat(second, is(nullValue()));
+    }
+
+    @Test
+    public void cellsOfTheSameRowShareTheRowName() {
+        LatestValueAccumulator accumulator = new LatestValueAccumulator(false);
+        Cell first = accumulator.accept(row(ROW.clone(), COL_1, 1L, "a"));
+        Cell second = accumulator.accept(row(ROW.clone(), COL_2, 1L, "b"));
+
+        assertThat(second.getRowName(), is(sameInstance(first.getRowName())));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void resolvesOverflowValuesNewerThanInlineValues() {
+        AgnosticLightResultRow overflowRow = mock(AgnosticLightResultRow.class);
+        when(overflowRow.getBytes(DbKvs.VAL)).thenReturn(PtBytes.toBytes("overflow"));
+        when(overflowRow.getLong("id")).thenReturn(42L);
+        when(table.getOverflow(anyCollectionOf(OverflowValue.class)))
+                .thenReturn(ClosableIterators.wrap(ImmutableList.of(overflowRow).iterator()));
+
+        LatestValueAccumulator accumulator = new LatestValueAccumulator(true);
+        accumulator.accept(row(ROW, COL_1, 5L, "inline"));
+        AgnosticLightResultRow row = row(ROW, COL_1, 7L, null);
+        when(row.getLongObject("overflow")).thenReturn(42L);
+        accumulator.accept(row);
+
+        Map<Cell, Value> values = accumulator.finish(table);
+
+        assertEquals(
+                ImmutableMap.of(Cell.create(ROW, COL_1), Value.create(PtBytes.toBytes("overflow"), 7L)),
+                values);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static AgnosticLightResultRow row(byte[] rowName, byte[] colName, long ts, String val) {
+        AgnosticLightResultRow row = mock(AgnosticLightResultRow.class);
+        when(row.getBytes(DbKvs.ROW)).thenReturn(rowName);
+        when(row.getBytes(DbKvs.COL)).thenReturn(colName);
+        when(row.getLong(DbKvs.TIMESTAMP)).thenReturn(ts);
+        when(row.getBytes(DbKvs.VAL)).thenReturn(val == null ? null : PtBytes.toBytes(val));
+        return row;
+    }
+}
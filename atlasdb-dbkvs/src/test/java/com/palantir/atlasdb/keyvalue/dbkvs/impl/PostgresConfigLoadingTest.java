@@ -29,7 +29,10 @@ import org.junit.Test;
 
 import com.palantir.atlasdb.config.AtlasDbConfig;
 import com.palantir.atlasdb.config.AtlasDbConfigs;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.LatestVersionQueryStrategy;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
 import com.palantir.atlasdb.spi.KeyValueServiceConfig;
 import com.palantir.nexus.db.pool.config.ConnectionConfig;
 
@@ -86,11 +89,25 @@ public class PostgresConfigLoadingTest {
         assertThat(connectionConfig.toString(), containsString("REDACTED"));
     }
 
+    @Test
+    public void testLatestVersionQueryStrategyOverrides() throws IOException {
+        PostgresDdlConfig ddlConfig = (PostgresDdlConfig) getDbKvsConfig().ddl();
+
+        assertThat(ddlConfig.latestVersionQueryStrategy(), is(LatestVersionQueryStrategy.GROUP_BY_MAX_TS));
+        assertThat(ddlConfig.latestVersionQueryStrategy(TableReference.createFromFullyQualifiedName("ns.versioned")),
+                is(LatestVersionQueryStrategy.INDEX_ORDERED));
+        assertThat(ddlConfig.latestVersionQueryStrategy(TableReference.createFromFullyQualifiedName("ns.other")),
+                is(LatestVersionQueryStrategy.GROUP_BY_MAX_TS));
+    }
+
     private ConnectionConfig getConnectionConfig() throws IOException {
+        return getDbKvsConfig().connection();
+    }
+
+    private DbKeyValueServiceConfig getDbKvsConfig() throws IOException {
         AtlasDbConfig config = getPostgresTestConfig();
         KeyValueServiceConfig keyValueServiceConfig = config.keyValueService();
-        DbKeyValueServiceConfig dbkvsConfig = (DbKeyValueServiceConfig) keyValueServiceConfig;
-        return dbkvsConfig.connection();
+        return (DbKeyValueServiceConfig) keyValueServiceConfig;
     }
 
     private AtlasDbConfig getPostgresTestConfig() throws IOException {
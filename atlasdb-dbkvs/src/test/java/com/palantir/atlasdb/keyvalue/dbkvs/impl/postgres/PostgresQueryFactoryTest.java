@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.LatestVersionQueryStrategy;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+
+public class PostgresQueryFactoryTest {
+    private static final String TABLE_NAME = "ns__table";
+    private static final PostgresDdlConfig CONFIG = ImmutablePostgresDdlConfig.builder().build();
+    private static final PostgresDdlConfig CONFIG_WITHOUT_ARRAYS =
+            ImmutablePostgresDdlConfig.builder().bindListsAsArrays(false).build();
+    private static final long TS = 100L;
+
+    private static final byte[] ROW_1 = PtBytes.toBytes("row1");
+    private static final byte[] ROW_2 = PtBytes.toBytes("row2");
+    private static final byte[] ROW_3 = PtBytes.toBytes("row3");
+    private static final byte[] COL = PtBytes.toBytes("col");
+    private static final Cell CELL_1 = Cell.create(ROW_1, COL);
+    private static final Cell CELL_2 = Cell.create(ROW_2, COL);
+    private static final ColumnSelection ONE_COLUMN = ColumnSelection.create(ImmutableList.of(COL));
+
+    private final PostgresQueryFactory groupByFactory =
+            new PostgresQueryFactory(TABLE_NAME, CONFIG, LatestVersionQueryStrategy.GROUP_BY_MAX_TS);
+    private final PostgresQueryFactory indexOrderedFactory =
+            new PostgresQueryFactory(TABLE_NAME, CONFIG, LatestVersionQueryStrategy.INDEX_ORDERED);
+
+    @Test
+    public void defaultsToGroupByMaxTs() {
+        FullQuery query = new PostgresQueryFactory(TABLE_NAME, CONFIG).getLatestRowQuery(
+                ROW_1, TS, ColumnSelection.all(), true);
+
+        assertThat(query.getQuery(), containsString("max(m.ts)"));
+        assertThat(query.getQuery(), containsString("wrap"));
+    }
+
+    @Test
+    public void indexOrderedRowQueriesUseDistinctOnWithoutSelfJoin() {
+        FullQuery query = indexOrderedFactory.getLatestRowQuery(ROW_1, TS, ONE_COLUMN, true);
+
+        assertUsesDistinctOn(query);
+        assertSameArgumentsAsGroupBy(query, groupByFactory.getLatestRowQuery(ROW_1, TS, ONE_COLUMN, true));
+    }
+
+    @Test
+    public void indexOrderedMultiRowQueriesUseDistinctOnWithoutSelfJoin() {
+        FullQuery query = indexOrderedFactory.getLatestRowsQuery(
+                ImmutableList.of(ROW_1, ROW_2), TS, ONE_COLUMN, true);
+
+        assertUsesDistinctOn(query);
+        assertSameArgumentsAsGroupBy(query, groupByFactory.getLatestRowsQuery(
+                ImmutableList.of(ROW_1, ROW_2), TS, ONE_COLUMN, true));
+    }
+
+    @Test
+    public void indexOrderedRowQueriesWithPerRowTimestampsUseDistinctOnWithoutSelfJoin() {
+        Map<byte[], Long> rows = ImmutableMap.of(ROW_1, TS, ROW_2, TS + 1);
+
+        FullQuery query = indexOrderedFactory.getLatestRowsQuery(rows.entrySet(), ColumnSelection.all(), true);
+
+        assertUsesDistinctOn(query);
+        assertSameArgumentsAsGroupBy(query,
+                groupByFactory.getLatestRowsQuery(rows.entrySet(), ColumnSelection.all(), true));
+    }
+
+    @Test
+    public void indexOrderedCellQueryTakesTheNewestVersionBelowTheTimestamp() {
+        FullQuery query = indexOrderedFactory.getLatestCellQuery(CELL_1, TS, true);
+
+        assertThat(query.getQuery(), containsString("ORDER BY m.ts DESC"));
+        assertThat(query.getQuery(), containsString("LIMIT 1"));
+        assertThat(query.getQuery(), not(containsString("max(")));
+        assertThat(query.getQuery(), not(containsString("wrap")));
+        assertSameArgumentsAsGroupBy(query, groupByFactory.getLatestCellQuery(CELL_1, TS, true));
+    }
+
+    @Test
+    public void indexOrderedMultiCellQueriesUseLateralWithoutSelfJoin() {
+        FullQuery query = indexOrderedFactory.getLatestCellsQuery(ImmutableList.of(CELL_1, CELL_2), TS, true);
+
+        assertUsesLateral(query);
+        assertSameArgumentsAsGroupBy(query,
+                groupByFactory.getLatestCellsQuery(ImmutableList.of(CELL_1, CELL_2), TS, true));
+    }
+
+    @Test
+    public void indexOrderedCellQueriesWithPerCellTimestampsUseLateralWithoutSelfJoin() {
+        Map<Cell, Long> cells = ImmutableMap.of(CELL_1, TS, CELL_2, TS + 1);
+
+        FullQuery query = indexOrderedFactory.getLatestCellsQuery(cells.entrySet(), true);
+
+        assertUsesLateral(query);
+        assertSameArgumentsAsGroupBy(query, groupByFactory.getLatestCellsQuery(cells.entrySet(), true));
+    }
+
+    @Test
+    public void indexOrderedQueriesOnlySelectValuesWhenAsked() {
+        assertThat(indexOrderedFactory.getLatestRowQuery(ROW_1, TS, ONE_COLUMN, false).getQuery(),
+                not(containsString("val")));
+        assertThat(indexOrderedFactory.getLatestCellsQuery(ImmutableList.of(CELL_1), TS, false).getQuery(),
+                not(containsString("val")));
+    }
+
+    @Test
+    public void queryTextDoesNotDependOnTheNumberOfRowsOrCells() {
+        assertThat(groupByFactory.getLatestRowsQuery(ImmutableList.of(ROW_1), TS, ONE_COLUMN, true).getQuery(),
+                is(groupByFactory.getLatestRowsQuery(
+                        ImmutableList.of(ROW_1, ROW_2, ROW_3), TS, ONE_COLUMN, true).getQuery()));
+        assertThat(groupByFactory.getLatestCellsQuery(ImmutableList.of(CELL_1), TS, true).getQuery(),
+                is(groupByFactory.getLatestCellsQuery(ImmutableList.of(CELL_1, CELL_2), TS, true).getQuery()));
+        assertThat(indexOrderedFactory.getLatestCellsQuery(ImmutableList.of(CELL_1), TS, true).getQuery(),
+                is(indexOrderedFactory.getLatestCellsQuery(ImmutableList.of(CELL_1, CELL_2), TS, true).getQuery()));
+        assertThat(groupByFactory.getAllRowsQuery(ImmutableList.of(ROW_1), TS, ColumnSelection.all(), true).getQuery(),
+                is(groupByFactory.getAllRowsQuery(
+                        ImmutableList.of(ROW_1, ROW_2), TS, ColumnSelection.all(), true).getQuery()));
+    }
+
+    @Test
+    public void bindsRowsAndColumnsAsArrays() {
+        FullQuery query = groupByFactory.getLatestRowsQuery(ImmutableList.of(ROW_1, ROW_2), TS, ONE_COLUMN, false);
+
+        assertThat(query.getQuery(), containsString("m.row_name = ANY(CAST(? AS bytea[]))"));
+        assertThat(query.getQuery(), containsString("m.col_name = ANY(CAST(? AS bytea[]))"));
+        assertThat(query.getArgs(), is(new Object[] {new byte[][] {ROW_1, ROW_2}, TS, new byte[][] {COL}}));
+    }
+
+    @Test
+    public void bindsCellsAndTimestampsAsParallelArrays() {
+        Map<Cell, Long> cells = ImmutableMap.of(CELL_1, TS, CELL_2, TS + 1);
+
+        FullQuery query = groupByFactory.getAllCellsQuery(cells.entrySet(), false);
+
+        assertThat(query.getQuery(), containsString(
+                "unnest(CAST(? AS bytea[]), CAST(? AS bytea[]), CAST(? AS int8[])) t(row_name, col_name, ts)"));
+        assertThat(query.getArgs(), is(new Object[] {
+                new byte[][] {ROW_1, ROW_2}, new byte[][] {COL, COL}, new long[] {TS, TS + 1}}));
+    }
+
+    @Test
+    public void bindsEachValueSeparatelyWhenArraysAreDisabled() {
+        PostgresQueryFactory factory = new PostgresQueryFactory(TABLE_NAME, CONFIG_WITHOUT_ARRAYS);
+
+        FullQuery rowsQuery = factory.getLatestRowsQuery(ImmutableList.of(ROW_1, ROW_2), TS, ONE_COLUMN, false);
+        assertThat(rowsQuery.getQuery(), containsString("m.row_name IN (?,?)"));
+        assertThat(rowsQuery.getArgs(), is(new Object[] {ROW_1, ROW_2, TS, COL}));
+
+        FullQuery cellsQuery = factory.getAllCellsQuery(ImmutableList.of(CELL_1, CELL_2), TS, false);
+        assertThat(cellsQuery.getQuery(), containsString("(VALUES (?,?),(?,?)) t(row_name, col_name)"));
+        assertThat(cellsQuery.getArgs(), is(new Object[] {ROW_1, COL, ROW_2, COL, TS}));
+    }
+
+    private static void assertUsesDistinctOn(FullQuery query) {
+        assertThat(query.getQuery(), containsString("DISTINCT ON (m.row_name, m.col_name)"));
+        assertThat(query.getQuery(), containsString("ORDER BY m.row_name DESC, m.col_name DESC, m.ts DESC"));
+        assertThat(query.getQuery(), not(containsString("GROUP BY")));
+        assertThat(query.getQuery(), not(containsString("wrap")));
+    }
+
+    private static void assertUsesLateral(FullQuery query) {
+        assertThat(query.getQuery(), containsString("CROSS JOIN LATERAL"));
+        assertThat(query.getQuery(), containsString("ORDER BY m.ts DESC"));
+        assertThat(query.getQuery(), not(containsString("GROUP BY")));
+        assertThat(query.getQuery(), not(containsString("wrap")));
+    }
+
+    private static void assertSameArgumentsAsGroupBy(FullQuery indexOrdered, FullQuery groupBy) {
+        assertThat(indexOrdered.getArgs(), is(groupBy.getArgs()));
+        assertThat(countPlaceholders(indexOrdered.getQuery()), is(indexOrdered.getArgs().length));
+    }
+
+    private static int countPlaceholders(String query) {
+        return query.length() - query.replace("?", "").length();
+    }
+}
@@ -17,51 +17,212 @@ package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.Validate;
 
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.palantir.atlasdb.keyvalue.TableMappingService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.table.description.Schemas;
 
+/**
+ * Caches the mapping from full table names to short table names.
+ * <p>
+ * Known mappings are held in an immutable snapshot, so a cache hit costs a single map lookup however many tables
+ * there are. A miss reads just the missing table's mapping; concurrent misses for the same table share one read, and
+ * a table that turns out not to be mapped is remembered as missing for a short time (a second by default), so that
+ * bursts of lookups for it do not reach the key value service. Reverse lookups of unknown short names still need the whole
+ * mapping, which is re-read by at most one thread at a time.
+ * <p>
+ * Each snapshot carries a version that {@link #invalidateTableMap()} bumps, so a read that started before an
+ * invalidation cannot put a stale mapping back into the cache.
+ */
 public abstract class AbstractTableMappingService implements TableMappingService {
+    public static final long DEFAULT_MISSING_TABLE_TTL_MILLIS = 1000;
+
+    private static final class Snapshot {
+        private final long version;
+        private final BiMap<TableReference, TableReference> mappings;
 
-    protected final AtomicReference<BiMap<TableReference, TableReference>> tableMap = new AtomicReference<>();
+        Snapshot(long version, BiMap<TableReference, TableReference> mappings) {
+            this.version = version;
+            this.mappings = mappings;
+        }
+    }
 
+    private final AtomicReference<Snapshot> snapshot =
+            new AtomicReference<>(new Snapshot(0L, ImmutableBiMap.<TableReference, TableReference>of()));
+    private final ConcurrentMap<TableReference, CompletableFuture<Optional<TableReference>>> inFlightReads =
+            new ConcurrentHashMap<>();
+    private final Cache<TableReference, Long> missingTables;
+
+    private final Object refreshLock = new Object();
+    private final AtomicLong refreshesStarted = new AtomicLong();
+    private volatile long lastCompletedRefresh = 0L;
+
+    protected AbstractTableMappingService() {
+        this(DEFAULT_MISSING_TABLE_TTL_MILLIS, TimeUnit.MILLISECONDS, Ticker.systemTicker());
+    }
+
+    protected AbstractTableMappingService(long missingTableTtl, TimeUnit unit, Ticker ticker) {
+        this.missingTables = CacheBuilder.newBuilder()
+                .expireAfterWrite(missingTableTtl, unit)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * @return every mapping currently stored.
+     */
     protected abstract BiMap<TableReference, TableReference> readTableMap();
 
+    /**
+     * @return the stored mappings of those of the given tables that are mapped. Implementations should override this
+     * to read only the given tables; the default reads every mapping.
+     */
+    protected Map<TableReference, TableReference> readMappings(Set<TableReference> tableRefs) {
+        return Maps.filterKeys(readTableMap(), tableRefs::contains);
+    }
+
+    /**
+     * Replaces the cached mappings with everything currently stored. If another thread is already doing so, waits
+     * for it and then only reads again if that refresh started before this call.
+     */
     protected void updateTableMap() {
-        while (true) {
-            BiMap<TableReference, TableReference> oldMap = tableMap.get();
-            BiMap<TableReference, TableReference> newMap = readTableMap();
-            if (tableMap.compareAndSet(oldMap, newMap)) {
+        long latestStartedBeforeCall = refreshesStarted.get();
+        synchronized (refreshLock) {
+            if (lastCompletedRefresh > latestStartedBeforeCall) {
                 return;
             }
+            long refresh = refreshesStarted.incrementAndGet();
+            while (true) {
+                long version = snapshot.get().version;
+                BiMap<TableReference, TableReference> newMap = ImmutableBiMap.copyOf(readTableMap());
+                // If the cache was invalidated while we were reading, what we read may already be stale.
+                if (replaceSnapshot(version, newMap)) {
+                    break;
+                }
+            }
+            lastCompletedRefresh = refresh;
+        }
+    }
+
+    private boolean replaceSnapshot(long version, BiMap<TableReference, TableReference> newMap) {
+        while (true) {
+            Snapshot current = snapshot.get();
+            if (current.version != version) {
+                return false;
+            }
+            if (snapshot.compareAndSet(current, new Snapshot(version, newMap))) {
+                return true;
+            }
         }
     }
 
+    /**
+     * @return the mappings cached so far; this may not contain every stored mapping.
+     */
+    protected BiMap<TableReference, TableReference> getCachedTableMap() {
+        return snapshot.get().mappings;
+    }
+
+    /**
+     * Records a mapping this service has just stored, so that it can be used without reading it back.
+     */
+    protected void cacheMapping(TableReference tableRef, TableReference shortName) {
+        missingTables.invalidate(tableRef);
+        addToSnapshot(snapshot.get().version, tableRef, shortName);
+    }
+
+    /**
+     * Forgets every cached mapping and every table remembered as missing.
+     */
+    protected void invalidateTableMap() {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Snapshot empty = new Snapshot(current.version + 1, ImmutableBiMap.<TableReference, TableReference>of());
+            if (snapshot.compareAndSet(current, empty)) {
+                break;
+            }
+        }
+        missingTables.invalidateAll();
+    }
+
     @Override
     public TableReference getMappedTableName(TableReference tableRef) throws TableMappingNotFoundException {
         if (tableRef.getNamespace().isEmptyNamespace()) {
             return tableRef;
         }
-        if (tableMap.get().containsKey(tableRef)) {
-            TableReference shortName = tableMap.get().get(tableRef);
-            validateShortName(tableRef, shortName);
-            return tableMap.get().get(tableRef);
-        } else {
-            updateTableMap();
-            TableReference shortTableName = tableMap.get().get(tableRef);
-            if (shortTableName != null) {
-                return shortTableName;
+        TableReference shortName = snapshot.get().mappings.get(tableRef);
+        if (shortName == null) {
+            shortName = readMapping(tableRef).orElseThrow(() -> new TableMappingNotFoundException(
+                    "Unable to resolve full name for table reference " + tableRef));
+        }
+        validateShortName(tableRef, shortName);
+        return shortName;
+    }
+
+    private Optional<TableReference> readMapping(TableReference tableRef) {
+        if (missingTables.getIfPresent(tableRef) != null) {
+            return Optional.empty();
+        }
+        CompletableFuture<Optional<TableReference>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<TableReference>> inFlight = inFlightReads.putIfAbsent(tableRef, future);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+        try {
+            long version = snapshot.get().version;
+            Optional<TableReference> shortName = Optional.ofNullable(
+                    readMappings(ImmutableSet.of(tableRef)).get(tableRef));
+            if (shortName.isPresent()) {
+                addToSnapshot(version, tableRef, shortName.get());
+            } else if (snapshot.get().version == version) {
+                missingTables.put(tableRef, version);
+            }
+            future.complete(shortName);
+            return shortName;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightReads.remove(tableRef, future);
+        }
+    }
+
+    private void addToSnapshot(long version, TableReference tableRef, TableReference shortName) {
+        while (true) {
+            Snapshot current = snapshot.get();
+            if (current.version != version || shortName.equals(current.mappings.get(tableRef))) {
+                return;
+            }
+            BiMap<TableReference, TableReference> newMap = HashBiMap.create(current.mappings);
+            newMap.forcePut(tableRef, shortName);
+            if (snapshot.compareAndSet(current, new Snapshot(version, ImmutableBiMap.copyOf(newMap)))) {
+                return;
             }
-            throw new TableMappingNotFoundException("Unable to resolve full name for table reference " + tableRef);
         }
     }
 
@@ -70,21 +231,10 @@ public abstract class AbstractTableMappingService implements TableMappingService
                 "Table mapper has an invalid table name for table reference " + tableRef + ": " + shortName);
     }
 
-    private TableReference getFullTableName(TableReference shortTableName) {
-        if (tableMap.get().containsValue(shortTableName)) {
-            return tableMap.get().inverse().get(shortTableName);
-        } else {
-            updateTableMap();
-            Validate.isTrue(tableMap.get().containsValue(shortTableName),
-                    "Unable to resolve full name for table " + shortTableName);
-            return tableMap.get().inverse().get(shortTableName);
-        }
-    }
-
     @Override
     public <T> Map<TableReference, T> mapToShortTableNames(Map<TableReference, T> toMap)
             throws TableMappingNotFoundException {
-        Map<TableReference, T> newMap = Maps.newHashMap();
+        Map<TableReference, T> newMap = Maps.newHashMapWithExpectedSize(toMap.size());
         for (Entry<TableReference, T> e : toMap.entrySet()) {
             newMap.put(getMappedTableName(e.getKey()), e.getValue());
         }
@@ -98,11 +248,12 @@ public abstract class AbstractTableMappingService implements TableMappingService
         Map<TableReference, TableReference> shortNameToFullTableName = Maps.newHashMapWithExpectedSize(
                 tableRefs.size());
         Set<TableReference> tablesToReload = Sets.newHashSet();
+        BiMap<TableReference, TableReference> shortToFullNames = snapshot.get().mappings.inverse();
         for (TableReference inputName : tableRefs) {
             if (inputName.isFullyQualifiedName()) {
                 shortNameToFullTableName.put(inputName, inputName);
-            } else if (tableMap.get().containsValue(inputName)) {
-                shortNameToFullTableName.put(inputName, getFullTableName(inputName));
+            } else if (shortToFullNames.containsKey(inputName)) {
+                shortNameToFullTableName.put(inputName, shortToFullNames.get(inputName));
             } else if (unmappedTables.containsKey(inputName)) {
                 shortNameToFullTableName.put(inputName, inputName);
             } else {
@@ -111,12 +262,15 @@ public abstract class AbstractTableMappingService implements TableMappingService
         }
         if (!tablesToReload.isEmpty()) {
             updateTableMap();
-            for (TableReference tableRef : Sets.difference(tablesToReload, tableMap.get().values())) {
-                unmappedTables.put(tableRef, true);
-                shortNameToFullTableName.put(tableRef, tableRef);
-            }
-            for (TableReference tableRef : Sets.intersection(tablesToReload, tableMap.get().values())) {
-                shortNameToFullTableName.put(tableRef, getFullTableName(tableRef));
+            shortToFullNames = snapshot.get().mappings.inverse();
+            for (TableReference tableRef : tablesToReload) {
+                TableReference fullName = shortToFullNames.get(tableRef);
+                if (fullName == null) {
+                    unmappedTables.put(tableRef, true);
+                    shortNameToFullTableName.put(tableRef, tableRef);
+                } else {
+                    shortNameToFullTableName.put(tableRef, fullName);
+                }
             }
         }
         return shortNameToFullTableName;
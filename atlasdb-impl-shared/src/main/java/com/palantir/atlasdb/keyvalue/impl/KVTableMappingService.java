@@ -15,13 +15,21 @@
  */
 package com.palantir.atlasdb.keyvalue.impl;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.primitives.Bytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
@@ -64,6 +72,17 @@ public class KVTableMappingService extends AbstractTableMappingService {
         this.uniqueLongSupplier = Preconditions.checkNotNull(uniqueLongSupplier, "uniqueLongSupplier must not be null");
     }
 
+    @VisibleForTesting
+    KVTableMappingService(KeyValueService kv,
+                          Supplier<Long> uniqueLongSupplier,
+                          long missingTableTtl,
+                          TimeUnit unit,
+                          Ticker ticker) {
+        super(missingTableTtl, unit, ticker);
+        this.kv = Preconditions.checkNotNull(kv, "kv must not be null");
+        this.uniqueLongSupplier = Preconditions.checkNotNull(uniqueLongSupplier, "uniqueLongSupplier must not be null");
+    }
+
     public static KVTableMappingService create(KeyValueService kvs, Supplier<Long> uniqueLongSupplier) {
         createTables(kvs);
         KVTableMappingService ret = new KVTableMappingService(kvs, uniqueLongSupplier);
@@ -93,8 +112,9 @@ public class KVTableMappingService extends AbstractTableMappingService {
         if (tableRef.getNamespace().isEmptyNamespace()) {
             return tableRef;
         }
-        if (tableMap.get().containsKey(tableRef)) {
-            return tableMap.get().get(tableRef);
+        TableReference cachedShortName = getCachedTableMap().get(tableRef);
+        if (cachedShortName != null) {
+            return cachedShortName;
         }
         Cell key = Cell.create(getBytesForTableRef(tableRef), AtlasDbConstants.NAMESPACE_SHORT_COLUMN_BYTES);
         String shortName = AtlasDbConstants.NAMESPACE_PREFIX
@@ -105,15 +125,21 @@ public class KVTableMappingService extends AbstractTableMappingService {
         } catch (KeyAlreadyExistsException e) {
             return getAlreadyExistingMappedTableName(tableRef);
         }
-        return TableReference.createWithEmptyNamespace(shortName);
+        TableReference shortTableRef = TableReference.createWithEmptyNamespace(shortName);
+        cacheMapping(tableRef, shortTableRef);
+        return shortTableRef;
     }
 
     private TableReference getAlreadyExistingMappedTableName(TableReference tableRef) {
-        try {
-            return getMappedTableName(tableRef);
-        } catch (TableMappingNotFoundException ex) {
-            throw new IllegalArgumentException(ex);
+        // Read the mapping directly: the table may have been remembered as missing before another client created it.
+        TableReference shortName = readMappings(ImmutableSet.of(tableRef)).get(tableRef);
+        if (shortName == null) {
+            throw new IllegalArgumentException(new TableMappingNotFoundException(
+                    "Unable to resolve full name for table reference " + tableRef));
         }
+        validateShortName(tableRef, shortName);
+        cacheMapping(tableRef, shortName);
+        return shortName;
     }
 
     @Override
@@ -125,7 +151,22 @@ public class KVTableMappingService extends AbstractTableMappingService {
         // Need to invalidate the table ref in case we end up re-creating the same table
         // again. Frequently when we drop one table we end up dropping a bunch of tables,
         // so just invalidate everything.
-        tableMap.set(HashBiMap.<TableReference, TableReference>create());
+        invalidateTableMap();
+    }
+
+    @Override
+    protected Map<TableReference, TableReference> readMappings(Set<TableReference> tableRefs) {
+        Map<Cell, Long> cells = Maps.newHashMapWithExpectedSize(tableRefs.size());
+        for (TableReference tableRef : tableRefs) {
+            cells.put(Cell.create(getBytesForTableRef(tableRef), AtlasDbConstants.NAMESPACE_SHORT_COLUMN_BYTES),
+                    Long.MAX_VALUE);
+        }
+        Map<TableReference, TableReference> ret = Maps.newHashMapWithExpectedSize(tableRefs.size());
+        for (Map.Entry<Cell, Value> entry : kv.get(AtlasDbConstants.NAMESPACE_TABLE, cells).entrySet()) {
+            ret.put(getTableRefFromBytes(entry.getKey().getRowName()),
+                    TableReference.createWithEmptyNamespace(PtBytes.toString(entry.getValue().getContents())));
+        }
+        return ret;
     }
 
     @Override
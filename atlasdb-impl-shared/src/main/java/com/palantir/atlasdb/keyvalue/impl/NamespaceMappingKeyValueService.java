@@ -178,6 +178,11 @@ public class NamespaceMappingKeyValueService extends ForwardingObject implements
         return delegate().supportsCheckAndSet();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return delegate().supportsSingleRoundTripPutUnlessExists();
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
         delegate().checkAndSet(checkAndSetRequest);
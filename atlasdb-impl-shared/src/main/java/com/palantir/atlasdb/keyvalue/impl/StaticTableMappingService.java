@@ -39,6 +39,8 @@ public final class StaticTableMappingService extends AbstractTableMappingService
 
     @Override
     public TableReference addTable(TableReference tableRef) {
+        // The table may have been remembered as missing, for instance by a drop before it was re-created.
+        cacheMapping(tableRef, tableRef);
         return tableRef;
     }
 
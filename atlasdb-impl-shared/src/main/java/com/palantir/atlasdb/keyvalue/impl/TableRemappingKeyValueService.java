@@ -361,6 +361,11 @@ public final class TableRemappingKeyValueService extends ForwardingObject implem
         return delegate().supportsCheckAndSet();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return delegate().supportsSingleRoundTripPutUnlessExists();
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
         try {
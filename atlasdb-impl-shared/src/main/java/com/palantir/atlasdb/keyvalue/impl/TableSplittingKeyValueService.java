@@ -317,6 +317,11 @@ public final class TableSplittingKeyValueService implements KeyValueService {
         return getDelegates().stream().allMatch(KeyValueService::supportsCheckAndSet);
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return getDelegates().stream().allMatch(KeyValueService::supportsSingleRoundTripPutUnlessExists);
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
         getDelegate(checkAndSetRequest.table()).checkAndSet(checkAndSetRequest);
@@ -117,6 +117,11 @@ public class ThrowingKeyValueService implements KeyValueService {
         throw throwEx();
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        throw throwEx();
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
         throw throwEx();
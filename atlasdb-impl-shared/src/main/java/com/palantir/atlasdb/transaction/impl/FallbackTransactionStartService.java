@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.palantir.atlasdb.transaction.api.StartedTransaction;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.common.remoting.EndpointNotFoundException;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Starts transactions through a remote {@link TransactionStartService}, unless the server turns out to predate it.
+ * From then on, transactions are started by a {@link LockingTransactionStartService} talking to the server's lock
+ * and timestamp services directly.
+ */
+public final class FallbackTransactionStartService implements TransactionStartService {
+    private static final Logger log = LoggerFactory.getLogger(FallbackTransactionStartService.class);
+
+    private final TransactionStartService delegate;
+    private final TransactionStartService fallback;
+    private volatile boolean delegateUnavailable = false;
+
+    private FallbackTransactionStartService(TransactionStartService delegate, TransactionStartService fallback) {
+        this.delegate = delegate;
+        this.fallback = fallback;
+    }
+
+    public static TransactionStartService create(
+            TransactionStartService delegate,
+            TimestampService timestampService,
+            RemoteLockService lockService) {
+        return new FallbackTransactionStartService(
+                delegate,
+                new LockingTransactionStartService(timestampService, lockService));
+    }
+
+    @Override
+    public StartedTransaction startTransaction(String client) {
+        if (!delegateUnavailable) {
+            try {
+                return delegate.startTransaction(client);
+            } catch (EndpointNotFoundException e) {
+                markDelegateUnavailable(e);
+            }
+        }
+        return fallback.startTransaction(client);
+    }
+
+    @Override
+    public List<StartedTransaction> startTransactions(String client, int count) {
+        if (!delegateUnavailable) {
+            try {
+                return delegate.startTransactions(client, count);
+            } catch (EndpointNotFoundException e) {
+                markDelegateUnavailable(e);
+            }
+        }
+        return fallback.startTransactions(client, count);
+    }
+
+    private void markDelegateUnavailable(EndpointNotFoundException e) {
+        if (!delegateUnavailable) {
+            delegateUnavailable = true;
+            log.info("The server does not support starting transactions in one request, so transactions will be"
+                    + " started with separate lock and timestamp requests. Upgrade the server to avoid this.", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.List;
+
+import com.palantir.atlasdb.transaction.api.StartedTransaction;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.lock.client.LockRefreshingRemoteLockService;
+
+/**
+ * Keeps the immutable timestamp locks of started transactions alive, as if they had been acquired through
+ * {@link LockRefreshingRemoteLockService#lock}. Releasing them through that lock service stops the refreshing.
+ */
+public final class LockRefreshingTransactionStartService implements TransactionStartService {
+    private final TransactionStartService delegate;
+    private final LockRefreshingRemoteLockService lockService;
+
+    private LockRefreshingTransactionStartService(
+            TransactionStartService delegate,
+            LockRefreshingRemoteLockService lockService) {
+        this.delegate = delegate;
+        this.lockService = lockService;
+    }
+
+    public static TransactionStartService create(
+            TransactionStartService delegate,
+            LockRefreshingRemoteLockService lockService) {
+        return new LockRefreshingTransactionStartService(delegate, lockService);
+    }
+
+    @Override
+    public StartedTransaction startTransaction(String client) {
+        StartedTransaction started = delegate.startTransaction(client);
+        lockService.registerLockForRefresh(started.getImmutableTimestampLock());
+        return started;
+    }
+
+    @Override
+    public List<StartedTransaction> startTransactions(String client, int count) {
+        List<StartedTransaction> started = delegate.startTransactions(client, count);
+        for (StartedTransaction transaction : started) {
+            lockService.registerLockForRefresh(transaction.getImmutableTimestampLock());
+        }
+        return started;
+    }
+}
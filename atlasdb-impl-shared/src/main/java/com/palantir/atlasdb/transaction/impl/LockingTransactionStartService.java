@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.transaction.api.LockAcquisitionException;
+import com.palantir.atlasdb.transaction.api.StartedTransaction;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.AtlasTimestampLockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Starts transactions against a lock service and timestamp service. The timelock server runs this next to its own
+ * services so that clients can start a transaction in one round trip; embedded clients use it directly.
+ */
+public class LockingTransactionStartService implements TransactionStartService {
+    private final TimestampService timestampService;
+    private final RemoteLockService lockService;
+
+    public LockingTransactionStartService(TimestampService timestampService, RemoteLockService lockService) {
+        this.timestampService = timestampService;
+        this.lockService = lockService;
+    }
+
+    @Override
+    public StartedTransaction startTransaction(String client) {
+        return Iterables.getOnlyElement(startTransactions(client, 1));
+    }
+
+    @Override
+    public List<StartedTransaction> startTransactions(String client, int count) {
+        Preconditions.checkArgument(count > 0, "count must be positive, but was %s", count);
+        List<Long> immutableLockTimestamps = getFreshTimestamps(count);
+        List<LockRefreshToken> locks = Lists.newArrayListWithCapacity(count);
+        try {
+            for (long immutableLockTs : immutableLockTimestamps) {
+                locks.add(lockImmutableTimestamp(client, immutableLockTs));
+            }
+            // Every timestamp we just locked is at least the client's minimum locked timestamp, so one lookup
+            // gives a valid immutable timestamp for the whole batch.
+            Long minLocked = lockService.getMinLockedInVersionId(client);
+            List<Long> startTimestamps = getFreshTimestamps(count);
+
+            ImmutableList.Builder<StartedTransaction> started = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                long immutableLockTs = immutableLockTimestamps.get(i);
+                long immutableTs = minLocked == null ? immutableLockTs : Math.min(minLocked, immutableLockTs);
+                started.add(new StartedTransaction(immutableTs, startTimestamps.get(i), locks.get(i)));
+            }
+            return started.build();
+        } catch (Throwable e) {
+            for (LockRefreshToken lock : locks) {
+                lockService.unlock(lock);
+            }
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
+    private LockRefreshToken lockImmutableTimestamp(String client, long immutableLockTs) {
+        LockRequest lockRequest = LockRequest.builder(
+                ImmutableSortedMap.of(AtlasTimestampLockDescriptor.of(immutableLockTs), LockMode.READ))
+                .withLockedInVersionId(immutableLockTs)
+                .build();
+        LockRefreshToken lock;
+        try {
+            lock = lockService.lock(client, lockRequest);
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        if (lock == null) {
+            throw new LockAcquisitionException("Failed to lock immutable timestamp " + immutableLockTs);
+        }
+        return lock;
+    }
+
+    private List<Long> getFreshTimestamps(int count) {
+        List<Long> timestamps = Lists.newArrayListWithCapacity(count);
+        while (timestamps.size() < count) {
+            // The timestamp service may hand out fewer timestamps than we ask for.
+            TimestampRange range = timestampService.getFreshTimestamps(count - timestamps.size());
+            for (long ts = range.getLowerBound(); ts <= range.getUpperBound() && timestamps.size() < count; ts++) {
+                timestamps.add(ts);
+            }
+        }
+        return timestamps;
+    }
+}
@@ -326,7 +326,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         if (!isSerializableTable(table)) {
             return;
         }
-        getReadsForTable(table).putAll(transformGetsForTesting(result));
+        recordReads(table, getReadsForTable(table), transformGetsForTesting(result));
         Set<Cell> cellsForTable = cellsRead.get(table);
         if (cellsForTable == null) {
             cellsRead.putIfAbsent(table, Sets.newConcurrentHashSet());
@@ -343,7 +343,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         for (RowResult<byte[]> row : result) {
             Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
             map = transformGetsForTesting(map);
-            reads.putAll(map);
+            recordReads(table, reads, map);
         }
         setRangeEnd(table, range, Iterables.getLast(result).getRowName());
     }
@@ -359,10 +359,27 @@ public class SerializableTransaction extends SnapshotTransaction {
         ConcurrentNavigableMap<Cell, byte[]> reads = getReadsForTable(table);
         Map<Cell, byte[]> map = Maps2.fromEntries(result);
         map = transformGetsForTesting(map);
-        reads.putAll(map);
+        recordReads(table, reads, map);
         setColumnRangeEnd(table, row, range, Iterables.getLast(result).getKey().getColumnName());
     }
 
+    /**
+     * Reads of cells in our local write set are never verified (we read our own values back and normal SI
+     * checking covers the cell), so we do not keep a second copy of them next to the write set.
+     */
+    private void recordReads(TableReference table, ConcurrentNavigableMap<Cell, byte[]> reads, Map<Cell, byte[]> map) {
+        Map<Cell, byte[]> writes = writesByTable.get(table);
+        if (writes == null) {
+            reads.putAll(map);
+            return;
+        }
+        for (Entry<Cell, byte[]> e : map.entrySet()) {
+            if (!writes.containsKey(e.getKey())) {
+                reads.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
     static class RowRead {
         final ImmutableList<byte[]> rows;
         final ColumnSelection cols;
@@ -385,7 +402,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         for (RowResult<byte[]> row : result) {
             Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
             map = transformGetsForTesting(map);
-            reads.putAll(map);
+            recordReads(table, reads, map);
         }
         Set<RowRead> rowReads = rowsRead.get(table);
         if (rowReads == null) {
@@ -418,6 +435,18 @@ public class SerializableTransaction extends SnapshotTransaction {
         super.put(tableRef, values);
     }
 
+    @Override
+    protected void onLocalWrites(TableReference tableRef, Set<Cell> cells) {
+        // Anything we read from these cells is now shadowed by the write set, see recordReads.
+        // A concurrent read may still slip an entry back in, which is why verification keeps filtering writes.
+        ConcurrentNavigableMap<Cell, byte[]> reads = readsByTable.get(tableRef);
+        if (reads != null) {
+            for (Cell cell : cells) {
+                reads.remove(cell);
+            }
+        }
+    }
+
     @Override
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         Transaction ro = getReadOnlyTransaction(commitTimestamp);
@@ -23,11 +23,21 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,6 +72,7 @@ import com.google.common.collect.ImmutableSortedMap.Builder;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
@@ -69,8 +80,11 @@ import com.google.common.collect.Ordering;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbPerformanceConstants;
+import com.palantir.atlasdb.cache.ResolvedTransactionWatermark;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
@@ -118,14 +132,19 @@ import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.IterableUtils;
 import com.palantir.common.collect.IteratorUtils;
 import com.palantir.common.collect.MapEntries;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.remoting.EndpointNotFoundException;
 import com.palantir.lock.AtlasCellLockDescriptor;
 import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.AtlasStripedLockDescriptor;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockLease;
 import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.remoting1.tracing.Tracers;
 import com.palantir.timestamp.TimestampService;
 import com.palantir.util.AssertUtils;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
@@ -151,6 +170,32 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private static final Logger constraintLogger = LoggerFactory.getLogger("dualschema.constraints");
 
     private static final int BATCH_SIZE_GET_FIRST_PAGE = 1000;
+    private static final int MAX_CONCURRENT_CONFLICT_CHECKS = 64;
+    /** The fraction of a lock lease, as 1/n, that reads do not rely on, in case our clock runs slow. */
+    private static final int LOCK_LEASE_SAFETY_MARGIN_DIVISOR = 10;
+
+    // Not the shared executor: conflict checks block on key value service reads, which may themselves fan out to
+    // the shared executor. Checks that find every thread busy run on the committing thread instead.
+    private static final ExecutorService conflictCheckExecutor = Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+            0,
+            MAX_CONCURRENT_CONFLICT_CHECKS,
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("atlas-commit-conflict-checks-%d").build()));
+
+    /**
+     * Lock services found to predate {@link RemoteLockService#refreshLockLeases(Set)}. Reads against these refresh
+     * the external locks every time instead, and we only ask each of them once.
+     */
+    private static final Set<RemoteLockService> lockServicesWithoutLeases =
+            Collections.newSetFromMap(new MapMaker().weakKeys().<RemoteLockService, Boolean>makeMap());
+    /**
+     * Lock services found to predate {@link RemoteLockService#awaitWriteLockRelease(Set)}. We wait for commits
+     * against these with a read lock that is released as soon as it is granted.
+     */
+    private static final Set<RemoteLockService> lockServicesWithoutAwaitWriteLockRelease =
+            Collections.newSetFromMap(new MapMaker().weakKeys().<RemoteLockService, Boolean>makeMap());
 
     private enum State {
         UNCOMMITTED,
@@ -172,6 +217,11 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
     protected final long immutableTimestamp;
     protected final ImmutableSet<LockRefreshToken> externalLocksTokens;
+    /**
+     * Until this time, reads may assume the external locks are valid without asking the lock service.
+     * See {@link RemoteLockService#refreshLockLeases(Set)}.
+     */
+    private volatile long externalLocksLeaseEndNanos = System.nanoTime();
 
     protected final long timeCreated = System.currentTimeMillis();
 
@@ -246,13 +296,36 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                         AtlasDbConstraintCheckingMode constraintCheckingMode,
                         TransactionReadSentinelBehavior readSentinelBehavior,
                         TimestampCache timestampValidationReadCache) {
+        this(keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                cleaner,
+                startTimeStamp,
+                ConflictDetectionManagers.fromMap(tablesToWriteWrite),
+                constraintCheckingMode,
+                readSentinelBehavior,
+                timestampValidationReadCache);
+    }
+
+    // TEST ONLY
+    SnapshotTransaction(KeyValueService keyValueService,
+                        RemoteLockService lockService,
+                        TimestampService timestampService,
+                        TransactionService transactionService,
+                        Cleaner cleaner,
+                        long startTimeStamp,
+                        ConflictDetectionManager conflictDetectionManager,
+                        AtlasDbConstraintCheckingMode constraintCheckingMode,
+                        TransactionReadSentinelBehavior readSentinelBehavior,
+                        TimestampCache timestampValidationReadCache) {
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
         this.defaultTransactionService = transactionService;
         this.cleaner = cleaner;
         this.lockService = lockService;
         this.startTimestamp = Suppliers.ofInstance(startTimeStamp);
-        this.conflictDetectionManager = ConflictDetectionManagers.fromMap(tablesToWriteWrite);
+        this.conflictDetectionManager = conflictDetectionManager;
         this.sweepStrategyManager = SweepStrategyManagers.createDefault(keyValueService);
         this.immutableTimestamp = 0;
         this.externalLocksTokens = ImmutableSet.of();
@@ -693,10 +766,31 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     private void validateExternalAndCommitLocksIfNecessary(TableReference tableRef) {
-        if (!isValidationNecessary(tableRef)) {
+        if (!isValidationNecessary(tableRef) || externalLocksTokens.isEmpty()) {
+            return;
+        }
+        long requestNanos = System.nanoTime();
+        if (externalLocksLeaseEndNanos - requestNanos > 0) {
             return;
         }
-        throwIfExternalAndCommitLocksNotValid(null);
+        if (lockServicesWithoutLeases.contains(lockService)) {
+            throwIfExternalAndCommitLocksNotValid(null);
+            return;
+        }
+        LockLease lease;
+        try {
+            lease = lockService.refreshLockLeases(externalLocksTokens);
+        } catch (EndpointNotFoundException e) {
+            log.info("The lock service does not support lock leases, so reads will refresh external locks"
+                    + " every time. Upgrade the lock server to avoid this.", e);
+            lockServicesWithoutLeases.add(lockService);
+            throwIfExternalAndCommitLocksNotValid(null);
+            return;
+        }
+        throwIfLocksExpired(null, Sets.difference(externalLocksTokens, lease.getRefreshedTokens()));
+        // Leave a margin for our clock running slower than the lock server's.
+        long leaseNanos = TimeUnit.MILLISECONDS.toNanos(lease.getLeaseMillis());
+        externalLocksLeaseEndNanos = requestNanos + leaseNanos - leaseNanos / LOCK_LEASE_SAFETY_MARGIN_DIVISOR;
     }
 
     private boolean isValidationNecessary(TableReference tableRef) {
@@ -975,7 +1069,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                                               @Output Map<Cell, T> results,
                                                               Function<Value, T> transformer) {
         Set<Long> startTimestampsForValues = getStartTimestampsForValues(rawResults.values());
-        Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, startTimestampsForValues, true);
+        Set<Long> committedBeforeImmutableTs = Sets.newHashSet();
+        Map<Long, Long> commitTimestamps = getCommitTimestampsForValues(
+                tableRef, startTimestampsForValues, committedBeforeImmutableTs);
         Map<Cell, Long> keysToReload = Maps.newHashMapWithExpectedSize(0);
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
         for (Map.Entry<Cell, Value> e :  rawResults.entrySet()) {
@@ -997,6 +1093,12 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                     default:
                         throw new IllegalStateException("Invalid read sentinel behavior " + getReadSentinelBehavior());
                 }
+            } else if (committedBeforeImmutableTs.contains(value.getTimestamp())) {
+                // The value's transaction committed before any transaction that may still be running had started,
+                // so also before we started.
+                if (value.getContents().length != 0) {
+                    results.put(key, transformer.apply(value));
+                }
             } else {
                 Long theirCommitTimestamp = commitTimestamps.get(value.getTimestamp());
                 if (theirCommitTimestamp == null || theirCommitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
@@ -1081,11 +1183,20 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             ConcurrentNavigableMap<Cell, byte[]> writes = getLocalWrites(tableRef);
 
             putWritesAndLogIfTooLarge(valuesToWrite, writes);
+            onLocalWrites(tableRef, valuesToWrite.keySet());
         } finally {
             numWriters.decrementAndGet();
         }
     }
 
+    /**
+     * Called once the given cells have been added to this transaction's local write buffer, including deletes.
+     * Subclasses which keep their own per-cell state can use this to drop anything the write set now supersedes.
+     */
+    protected void onLocalWrites(TableReference tableRef, Set<Cell> cells) {
+        // noop by default
+    }
+
     private void ensureNoEmptyValues(Map<Cell, byte[]> values) {
         for (Entry<Cell, byte[]> cellEntry : values.entrySet()) {
             if ((cellEntry.getValue() == null) || (cellEntry.getValue().length == 0)) {
@@ -1113,11 +1224,19 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return conflictDetectionManager.isEmptyOrContainsTable(tableRef);
     }
 
-    private void putWritesAndLogIfTooLarge(Map<Cell, byte[]> values, SortedMap<Cell, byte[]> writes) {
+    private void putWritesAndLogIfTooLarge(Map<Cell, byte[]> values, ConcurrentNavigableMap<Cell, byte[]> writes) {
         for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
             byte[] val = MoreObjects.firstNonNull(e.getValue(), PtBytes.EMPTY_BYTE_ARRAY);
             Cell cell = e.getKey();
-            if (writes.put(cell, val) == null) {
+            byte[] oldVal = writes.put(cell, val);
+            if (oldVal != null && hasDifferentTtl(writes.ceilingKey(cell), cell)) {
+                // Cells compare equal regardless of their time-to-live, so the map kept the key of the first write.
+                // Re-key the entry so that the latest write decides the TTL; otherwise deleting an expiring cell
+                // would write an expiring tombstone, and the previous version would reappear once it expired.
+                writes.remove(cell);
+                writes.put(cell, val);
+            }
+            if (oldVal == null) {
                 long toAdd = val.length + Cells.getApproxSizeOfCell(cell);
                 long newVal = byteCount.addAndGet(toAdd);
                 if (newVal >= TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES
@@ -1133,6 +1252,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
     }
 
+    private static boolean hasDifferentTtl(@Nullable Cell storedCell, Cell cell) {
+        return cell.equals(storedCell) && storedCell.getTtlDurationMillis() != cell.getTtlDurationMillis();
+    }
+
     @Override
     public void abort() {
         if (state.get() == State.ABORTED) {
@@ -1237,19 +1360,22 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Timer.Context acquireLocksTimer = getTimer("commitAcquireLocks").time();
         LockRefreshToken commitLocksToken = acquireLocksForCommit();
         long millisForLocks = TimeUnit.NANOSECONDS.toMillis(acquireLocksTimer.stop());
+        boolean commitLocksReleased = false;
         try {
-            Timer.Context conflictsTimer = getTimer("commitCheckingForConflicts").time();
-            throwIfConflictOnCommit(commitLocksToken, transactionService);
-            long millisCheckingForConflicts = TimeUnit.NANOSECONDS.toMillis(conflictsTimer.stop());
-            Timer.Context writesTimer = getTimer("commitWrite").time();
-            keyValueService.multiPut(writesByTable, getStartTimestamp());
-            long millisForWrites = TimeUnit.NANOSECONDS.toMillis(writesTimer.stop());
-
-            // Now that all writes are done, get the commit timestamp
-            // We must do this before we check that our locks are still valid to ensure that
-            // other transactions that will hold these locks are sure to have start
-            // timestamps after our commit timestamp.
-            long commitTimestamp = timestampService.getFreshTimestamp();
+            // Our values are written at our start timestamp and nobody can read them as committed until we write
+            // our commit timestamp, so we check for conflicts while writing them. If we turn out to conflict,
+            // they are left behind like the values of any other failed transaction.
+            Future<Long> conflictsFuture = checkForConflictsAsync(commitLocksToken, transactionService);
+            CommittedWrites writes;
+            try {
+                writes = writeValuesAndGetCommitTimestamp();
+            } catch (RuntimeException | Error e) {
+                // Don't release the commit locks while the conflict check may still be rolling others back.
+                awaitQuietly(conflictsFuture);
+                throw e;
+            }
+            long millisCheckingForConflicts = getUnchecked(conflictsFuture);
+            long commitTimestamp = writes.commitTimestamp;
             commitTsForScrubbing = commitTimestamp;
 
             // punch on commit so that if hard delete is the only thing happening on a system,
@@ -1264,19 +1390,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             // Verify that our locks are still valid before we actually commit;
             // this check is required by the transaction protocol for correctness
             throwIfExternalAndCommitLocksNotValid(commitLocksToken);
+            long locksLastCheckedNanos = System.nanoTime();
 
             Timer.Context commitTsTimer = getTimer("commitPutCommitTs").time();
             putCommitTimestamp(commitTimestamp, commitLocksToken, transactionService);
             long millisForCommitTs = TimeUnit.NANOSECONDS.toMillis(commitTsTimer.stop());
 
-            Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
-            if (!expiredLocks.isEmpty()) {
-                String errorMessage =
-                        "This isn't a bug but it should happen very infrequently. Required locks are no longer"
-                        + " valid but we have already committed successfully. "
-                        + getExpiredLocksErrorString(commitLocksToken, expiredLocks);
-                log.error(errorMessage, new TransactionFailedRetriableException(errorMessage));
-            }
+            commitLocksReleased = true;
+            logIfLocksExpiredAfterCommit(commitLocksToken, lockService.unlock(commitLocksToken), locksLastCheckedNanos);
+
             long millisSinceCreation = System.currentTimeMillis() - timeCreated;
             getTimer("commitTotalTimeSinceTxCreation").update(millisSinceCreation, TimeUnit.MILLISECONDS);
             Histogram byteSizeTx = getHistogram("byteSizeTx");
@@ -1287,11 +1409,97 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                         + "writing took {} ms, punch took {} ms, putCommitTs took {} ms, "
                         + "total time since tx creation {} ms, tables: {}.",
                         byteCount.get(), getStartTimestamp(),
-                        commitTimestamp, millisForLocks, millisCheckingForConflicts, millisForWrites,
+                        commitTimestamp, millisForLocks, millisCheckingForConflicts, writes.millisForWrites,
                         millisForPunch, millisForCommitTs, millisSinceCreation, writesByTable.keySet());
             }
         } finally {
-            lockService.unlock(commitLocksToken);
+            if (!commitLocksReleased) {
+                lockService.unlock(commitLocksToken);
+            }
+        }
+    }
+
+    private Future<Long> checkForConflictsAsync(LockRefreshToken commitLocksToken,
+            TransactionService transactionService) {
+        Callable<Long> checkForConflicts = () -> {
+            Timer.Context conflictsTimer = getTimer("commitCheckingForConflicts").time();
+            throwIfConflictOnCommit(commitLocksToken, transactionService);
+            return TimeUnit.NANOSECONDS.toMillis(conflictsTimer.stop());
+        };
+        try {
+            return conflictCheckExecutor.submit(checkForConflicts);
+        } catch (RejectedExecutionException e) {
+            FutureTask<Long> inline = new FutureTask<>(checkForConflicts);
+            inline.run();
+            return inline;
+        }
+    }
+
+    private static final class CommittedWrites {
+        private final long commitTimestamp;
+        private final long millisForWrites;
+
+        CommittedWrites(long commitTimestamp, long millisForWrites) {
+            this.commitTimestamp = commitTimestamp;
+            this.millisForWrites = millisForWrites;
+        }
+    }
+
+    private CommittedWrites writeValuesAndGetCommitTimestamp() {
+        Timer.Context writesTimer = getTimer("commitWrite").time();
+        keyValueService.multiPut(writesByTable, getStartTimestamp());
+        long millisForWrites = TimeUnit.NANOSECONDS.toMillis(writesTimer.stop());
+
+        // Now that all writes are done, get the commit timestamp. Any transaction that starts after it must see
+        // our writes, so we can't fetch it any earlier, but we don't need to wait for conflict checking either.
+        // We must also do this before we check that our locks are still valid to ensure that
+        // other transactions that will hold these locks are sure to have start
+        // timestamps after our commit timestamp.
+        return new CommittedWrites(timestampService.getFreshTimestamp(), millisForWrites);
+    }
+
+    private static <T> T getUnchecked(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            awaitQuietly(future);
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            log.debug("Checking for conflicts on a failed commit also failed", e.getCause());
+        }
+    }
+
+    /**
+     * The locks were all refreshed just before we wrote our commit timestamp, so they can only have expired since
+     * if the lock server lost them or writing the commit timestamp was very slow. Releasing the commit locks tells
+     * us whether the lock server still had them, so we only refresh the external locks in those rare cases.
+     */
+    private void logIfLocksExpiredAfterCommit(
+            LockRefreshToken commitLocksToken,
+            boolean commitLocksWereHeld,
+            long locksLastCheckedNanos) {
+        long millisSinceLocksChecked = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - locksLastCheckedNanos);
+        if (commitLocksWereHeld && millisSinceLocksChecked < LockRequest.DEFAULT_LOCK_TIMEOUT.toMillis() / 2) {
+            return;
+        }
+        Set<LockRefreshToken> expiredLocks = Sets.newHashSet(refreshExternalAndCommitLocks(null));
+        if (!commitLocksWereHeld) {
+            expiredLocks.add(commitLocksToken);
+        }
+        if (!expiredLocks.isEmpty()) {
+            String errorMessage =
+                    "This isn't a bug but it should happen very infrequently. Required locks are no longer"
+                    + " valid but we have already committed successfully. "
+                    + getExpiredLocksErrorString(commitLocksToken, expiredLocks);
+            log.error(errorMessage, new TransactionFailedRetriableException(errorMessage));
         }
     }
 
@@ -1326,7 +1534,11 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     private void throwIfExternalAndCommitLocksNotValid(@Nullable LockRefreshToken commitLocksToken) {
-        Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
+        throwIfLocksExpired(commitLocksToken, refreshExternalAndCommitLocks(commitLocksToken));
+    }
+
+    private void throwIfLocksExpired(@Nullable LockRefreshToken commitLocksToken,
+                                     Set<LockRefreshToken> expiredLocks) {
         if (!expiredLocks.isEmpty()) {
             String errorMessage = "Required locks are no longer valid. "
                     + getExpiredLocksErrorString(commitLocksToken, expiredLocks);
@@ -1483,14 +1695,21 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                                                   @Output Set<CellConflict> dominatingWrites,
                                                                   TransactionService transactionService) {
         Map<Cell, Long> rawResults = keyValueService.getLatestTimestamps(tableRef, keysToLoad);
+        Map<Cell, Long> keysToReload = Maps.newHashMapWithExpectedSize(0);
+        for (Map.Entry<Cell, Long> e : rawResults.entrySet()) {
+            if (e.getValue() == getStartTimestamp()) {
+                // This is our own write, which we make while checking for conflicts. Nobody else can have written
+                // above it while we hold the commit locks, so look for conflicting writes below it instead.
+                keysToReload.put(e.getKey(), getStartTimestamp());
+            }
+        }
+        rawResults = Maps.filterKeys(rawResults, Predicates.not(Predicates.in(keysToReload.keySet())));
         Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, rawResults.values(), false);
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
 
         for (Map.Entry<Cell, Long> e : rawResults.entrySet()) {
             Cell key = e.getKey();
             long theirStartTimestamp = e.getValue();
-            AssertUtils.assertAndLog(theirStartTimestamp != getStartTimestamp(),
-                    "Timestamp reuse is bad:%d", getStartTimestamp());
 
             Long theirCommitTimestamp = commitTimestamps.get(theirStartTimestamp);
             if (theirCommitTimestamp == null
@@ -1528,7 +1747,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
 
         // Once we successfully rollback and delete these cells we need to reload them.
-        return keysToDelete;
+        keysToReload.putAll(keysToDelete);
+        return keysToReload;
     }
 
     /**
@@ -1618,7 +1838,14 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 continue;
             }
             ConflictHandler conflictHandler = getConflictHandlerForTable(tableRef);
-            if (conflictHandler == ConflictHandler.RETRY_ON_WRITE_WRITE_CELL) {
+            Optional<Integer> numStripes = conflictDetectionManager.getCommitLockStripes(tableRef);
+            if (conflictHandler != ConflictHandler.IGNORE_ALL && numStripes.isPresent()) {
+                for (int stripe : getCommitLockStripes(tableRef, conflictHandler, numStripes.get())) {
+                    builder.put(
+                            AtlasStripedLockDescriptor.of(tableRef.getQualifiedName(), stripe),
+                            LockMode.WRITE);
+                }
+            } else if (conflictHandler == ConflictHandler.RETRY_ON_WRITE_WRITE_CELL) {
                 for (Cell cell : getLocalWrites(tableRef).keySet()) {
                     builder.put(
                             AtlasCellLockDescriptor.of(
@@ -1642,42 +1869,71 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return builder.build();
     }
 
+    private SortedSet<Integer> getCommitLockStripes(
+            TableReference tableRef,
+            ConflictHandler conflictHandler,
+            int numStripes) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (Cell cell : getLocalWrites(tableRef).keySet()) {
+            if (stripes.size() == numStripes) {
+                break;
+            }
+            stripes.add(conflictHandler == ConflictHandler.RETRY_ON_WRITE_WRITE_CELL
+                    ? AtlasStripedLockDescriptor.getStripe(cell.getRowName(), cell.getColumnName(), numStripes)
+                    : AtlasStripedLockDescriptor.getStripe(cell.getRowName(), numStripes));
+        }
+        return stripes;
+    }
+
     /**
      * We will block here until the passed transactions have released their lock.  This means that
      * the committing transaction is either complete or it has failed and we are allowed to roll
      * it back.
      */
     private void waitForCommitToComplete(Iterable<Long> startTimestamps) {
-        boolean isEmpty = true;
-        Builder<LockDescriptor, LockMode> builder = ImmutableSortedMap.naturalOrder();
+        Set<LockDescriptor> transactionRowLocks = Sets.newHashSet();
         for (long start : startTimestamps) {
             if (start < immutableTimestamp) {
                 // We don't need to block in this case because this transaction is already complete
                 continue;
             }
-            isEmpty = false;
-            builder.put(
+            transactionRowLocks.add(
                     AtlasRowLockDescriptor.of(
                             TransactionConstants.TRANSACTION_TABLE.getQualifiedName(),
-                            TransactionConstants.getValueForTimestamp(start)),
-                    LockMode.READ);
+                            TransactionConstants.getValueForTimestamp(start)));
         }
 
-        if (isEmpty) {
+        if (transactionRowLocks.isEmpty()) {
             return;
         }
 
-        // TODO: This can have better performance if we have a blockAndReturn method in lock server
-        // However lock server blocking is an issue if we fill up all our requests
         try {
-            lockService.lock(
-                    LockClient.ANONYMOUS.getClientId(),
-                    LockRequest.builder(builder.build()).lockAndRelease().build());
+            if (!lockServicesWithoutAwaitWriteLockRelease.contains(lockService)) {
+                try {
+                    lockService.awaitWriteLockRelease(transactionRowLocks);
+                    return;
+                } catch (EndpointNotFoundException e) {
+                    log.info("The lock service does not support awaitWriteLockRelease, so reads will wait for"
+                            + " commits by taking read locks. Upgrade the lock server to avoid this.", e);
+                    lockServicesWithoutAwaitWriteLockRelease.add(lockService);
+                }
+            }
+            lockAndReleaseReadLocks(transactionRowLocks);
         } catch (InterruptedException e) {
             throw Throwables.throwUncheckedException(e);
         }
     }
 
+    private void lockAndReleaseReadLocks(Set<LockDescriptor> locks) throws InterruptedException {
+        Builder<LockDescriptor, LockMode> builder = ImmutableSortedMap.naturalOrder();
+        for (LockDescriptor lock : locks) {
+            builder.put(lock, LockMode.READ);
+        }
+        lockService.lock(
+                LockClient.ANONYMOUS.getClientId(),
+                LockRequest.builder(builder.build()).lockAndRelease().build());
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     /// Commit timestamp management
     ///////////////////////////////////////////////////////////////////////////
@@ -1690,6 +1946,66 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return results;
     }
 
+    /**
+     * Like {@link #getCommitTimestamps}, but first looks up start timestamps below our immutable timestamp in the
+     * {@link ResolvedTransactionWatermark} shared through the timestamp cache, which needs neither a wait nor a
+     * cache lookup nor a read of the transactions table. Those which committed are added to
+     * {@code committedBeforeImmutableTs} instead of the returned map, and those which were rolled back are returned
+     * as failed.
+     */
+    private Map<Long, Long> getCommitTimestampsForValues(TableReference tableRef,
+                                                         Set<Long> startTimestamps,
+                                                         @Output Set<Long> committedBeforeImmutableTs) {
+        // Read only transactions at a fixed timestamp use that timestamp as their immutable timestamp, although
+        // transactions which started below it may have committed after it.
+        if (immutableTimestamp <= 0 || immutableTimestamp >= getStartTimestamp()) {
+            return getCommitTimestamps(tableRef, startTimestamps, true);
+        }
+        ResolvedTransactionWatermark resolvedTransactions = timestampValidationReadCache.getResolvedTransactions();
+        resolvedTransactions.advance(immutableTimestamp, this::scanTransactionsTable);
+
+        Map<Long, Long> result = Maps.newHashMap();
+        Set<Long> unresolved = Sets.newHashSet();
+        for (long startTs : startTimestamps) {
+            ResolvedTransactionWatermark.Outcome outcome = startTs < immutableTimestamp
+                    ? resolvedTransactions.getOutcome(startTs)
+                    : ResolvedTransactionWatermark.Outcome.UNKNOWN;
+            switch (outcome) {
+                case COMMITTED:
+                    committedBeforeImmutableTs.add(startTs);
+                    break;
+                case ABORTED:
+                    result.put(startTs, TransactionConstants.FAILED_COMMIT_TS);
+                    break;
+                default:
+                    unresolved.add(startTs);
+            }
+        }
+        result.putAll(getCommitTimestamps(tableRef, unresolved, true));
+        return result;
+    }
+
+    private Map<Long, Long> scanTransactionsTable(long fromInclusive, long toExclusive) {
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(TransactionConstants.getValueForTimestamp(fromInclusive))
+                .endRowExclusive(TransactionConstants.getValueForTimestamp(toExclusive))
+                .build();
+        Map<Long, Long> result = Maps.newHashMap();
+        // Entries of the transactions table are written at timestamp 0.
+        try (ClosableIterator<RowResult<Value>> rows =
+                keyValueService.getRange(TransactionConstants.TRANSACTION_TABLE, range, 1L)) {
+            while (rows.hasNext()) {
+                RowResult<Value> row = rows.next();
+                Value commitTs = row.getColumns().get(TransactionConstants.COMMIT_TS_COLUMN);
+                if (commitTs != null) {
+                    result.put(TransactionConstants.getTimestampForValue(row.getRowName()),
+                            TransactionConstants.getTimestampForValue(commitTs.getContents()));
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns a map from start timestamp to commit timestamp.  If a start timestamp wasn't
      * committed, then it will be missing from the map.  This method will block until the
@@ -25,7 +25,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
@@ -33,19 +32,17 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTask;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTasks;
+import com.palantir.atlasdb.transaction.api.StartedTransaction;
 import com.palantir.atlasdb.transaction.api.Transaction.TransactionType;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
-import com.palantir.lock.AtlasTimestampLockDescriptor;
 import com.palantir.lock.HeldLocksToken;
 import com.palantir.lock.LockClient;
-import com.palantir.lock.LockDescriptor;
-import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
-import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 
@@ -63,6 +60,7 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final TransactionStartService transactionStartService;
 
     protected SnapshotTransactionManager(
             KeyValueService keyValueService,
@@ -89,6 +87,23 @@ import com.palantir.timestamp.TimestampService;
             SweepStrategyManager sweepStrategyManager,
             Cleaner cleaner,
             boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, new LockingTransactionStartService(timestampService, lockService));
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            TransactionStartService transactionStartService) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -100,6 +115,7 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.transactionStartService = transactionStartService;
     }
 
     @Override
@@ -126,28 +142,23 @@ import com.palantir.timestamp.TimestampService;
     }
 
     public RawTransaction setupRunTaskWithLocksThrowOnConflict(Iterable<LockRefreshToken> lockTokens) {
-        long immutableLockTs = timestampService.getFreshTimestamp();
-        Supplier<Long> startTimestampSupplier = getStartTimestampSupplier();
-        LockDescriptor lockDesc = AtlasTimestampLockDescriptor.of(immutableLockTs);
-        LockRequest lockRequest = LockRequest.builder(ImmutableSortedMap.of(lockDesc, LockMode.READ))
-                .withLockedInVersionId(immutableLockTs).build();
-        LockRefreshToken lock;
-        try {
-            lock = lockService.lock(lockClient.getClientId(), lockRequest);
-        } catch (InterruptedException e) {
-            throw Throwables.throwUncheckedException(e);
-        }
+        StartedTransaction started = transactionStartService.startTransaction(lockClient.getClientId());
+        LockRefreshToken lock = started.getImmutableTimestampLock();
         try {
+            long startTimestamp = started.getStartTimestamp();
+            cleaner.punch(startTimestamp);
+            long immutableTs = updateRecentImmutableTimestamp(started.getImmutableTimestamp());
             ImmutableList<LockRefreshToken> allTokens = ImmutableList.<LockRefreshToken>builder()
                     .add(lock)
                     .addAll(lockTokens)
                     .build();
-            SnapshotTransaction transaction = createTransaction(immutableLockTs, startTimestampSupplier, allTokens);
+            SnapshotTransaction transaction = createTransaction(
+                    immutableTs,
+                    Suppliers.ofInstance(startTimestamp),
+                    allTokens);
             return new RawTransaction(transaction, lock);
         } catch (Throwable e) {
-            if (lock != null) {
-                lockService.unlock(lock);
-            }
+            lockService.unlock(lock);
             throw Throwables.rewrapAndThrowUncheckedException(e);
         }
     }
@@ -172,7 +183,7 @@ import com.palantir.timestamp.TimestampService;
     }
 
     protected SnapshotTransaction createTransaction(
-            long immutableLockTs,
+            long immutableTs,
             Supplier<Long> startTimestampSupplier,
             ImmutableList<LockRefreshToken> allTokens) {
         return new SnapshotTransaction(
@@ -184,7 +195,7 @@ import com.palantir.timestamp.TimestampService;
                 startTimestampSupplier,
                 conflictDetectionManager,
                 sweepStrategyManager,
-                getImmutableTimestampInternal(immutableLockTs),
+                immutableTs,
                 allTokens,
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
@@ -261,16 +272,19 @@ import com.palantir.timestamp.TimestampService;
 
     protected long getImmutableTimestampInternal(long ts) {
         Long minLocked = lockService.getMinLockedInVersionId(lockClient.getClientId());
-        long ret = minLocked == null ? ts : minLocked;
+        return updateRecentImmutableTimestamp(minLocked == null ? ts : minLocked);
+    }
+
+    private long updateRecentImmutableTimestamp(long immutableTs) {
         long recentTs = recentImmutableTs.get();
-        while (recentTs < ret) {
-            if (recentImmutableTs.compareAndSet(recentTs, ret)) {
+        while (recentTs < immutableTs) {
+            if (recentImmutableTs.compareAndSet(recentTs, immutableTs)) {
                 break;
             } else {
                 recentTs = recentImmutableTs.get();
             }
         }
-        return ret;
+        return immutableTs;
     }
 
     @Override
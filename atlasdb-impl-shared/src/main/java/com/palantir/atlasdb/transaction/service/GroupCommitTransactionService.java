@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A {@link TransactionService} that writes the commit timestamps of concurrently committing transactions to the
+ * transactions table with a single multi-cell {@link KeyValueService#putUnlessExists}. This only saves anything on
+ * key value services that {@link KeyValueService#supportsSingleRoundTripPutUnlessExists write such a put in one
+ * round trip}; use {@link TransactionServices#createGroupCommitTransactionService} to pick it only for those.
+ * <p>
+ * There is no batching window. A committer that finds no write in flight writes its own commit timestamp straight
+ * away, and commit timestamps that arrive while a write is in flight are written together by the next committer to
+ * get through, so uncontended commits cost the same as with {@link SimpleTransactionService}. Each commit completes
+ * through its own future: a committer stops writing as soon as its own commit is resolved, and a committer whose
+ * commit was written by someone else returns without waiting for the writes that follow.
+ * <p>
+ * A multi-cell putUnlessExists is not atomic across cells, so when a batch hits an existing cell we read the batch
+ * back to find out which of its commit timestamps were written, and retry the ones that were not on their own.
+ */
+@ThreadSafe
+public final class GroupCommitTransactionService implements TransactionService {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    // All entries in transaction table are stored with timestamp 0
+    private static final long MAX_TIMESTAMP = 1L;
+
+    private final KeyValueService keyValueService;
+    private final TransactionService reader;
+    private final int maxBatchSize;
+    private final Queue<PendingCommit> pendingCommits = new ConcurrentLinkedQueue<>();
+    private final Lock flushLock = new ReentrantLock();
+    private final Object flushFinished = new Object();
+
+    // Bumped under flushFinished each time a committer releases the flush lock.
+    @GuardedBy("flushFinished")
+    private long flushCount = 0;
+
+    private GroupCommitTransactionService(KeyValueService keyValueService, int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive, but was %s", maxBatchSize);
+        this.keyValueService = keyValueService;
+        this.reader = new SimpleTransactionService(keyValueService);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public static GroupCommitTransactionService create(KeyValueService keyValueService) {
+        return create(keyValueService, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static GroupCommitTransactionService create(KeyValueService keyValueService, int maxBatchSize) {
+        return new GroupCommitTransactionService(keyValueService, maxBatchSize);
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return reader.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return reader.get(startTimestamps);
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        PendingCommit commit = new PendingCommit(startTimestamp, commitTimestamp);
+        pendingCommits.add(commit);
+        while (!commit.isDone()) {
+            long flushesSeen = getFlushCount();
+            if (flushLock.tryLock()) {
+                try {
+                    // Only write until our own commit is resolved; whatever is still queued is written by its owner.
+                    while (!commit.isDone()) {
+                        flush(drainPendingCommits());
+                    }
+                } finally {
+                    flushLock.unlock();
+                    signalFlushFinished();
+                }
+            } else {
+                // Whoever holds the lock may write our commit timestamp. Either way, they wake us when they release
+                // it, and if our commit is still queued we try to take the lock ourselves.
+                awaitFlushFinished(flushesSeen);
+            }
+        }
+        commit.throwIfFailed();
+    }
+
+    private long getFlushCount() {
+        synchronized (flushFinished) {
+            return flushCount;
+        }
+    }
+
+    private void signalFlushFinished() {
+        synchronized (flushFinished) {
+            flushCount++;
+            flushFinished.notifyAll();
+        }
+    }
+
+    private void awaitFlushFinished(long flushesSeen) {
+        boolean interrupted = false;
+        synchronized (flushFinished) {
+            // Comparing counts rather than just waiting means we cannot miss a release that happened after our
+            // failed tryLock but before we got here.
+            while (flushCount == flushesSeen) {
+                try {
+                    flushFinished.wait();
+                } catch (InterruptedException e) {
+                    // The commit is already queued and someone has to see it through, so finish before giving up.
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @VisibleForTesting
+    int getQueuedCommitCount() {
+        return pendingCommits.size();
+    }
+
+    @GuardedBy("flushLock")
+    private List<PendingCommit> drainPendingCommits() {
+        List<PendingCommit> batch = Lists.newArrayList();
+        PendingCommit commit;
+        while (batch.size() < maxBatchSize && (commit = pendingCommits.poll()) != null) {
+            batch.add(commit);
+        }
+        return batch;
+    }
+
+    @GuardedBy("flushLock")
+    private void flush(List<PendingCommit> batch) {
+        Map<Cell, PendingCommit> commitsByCell = new LinkedHashMap<>();
+        List<PendingCommit> duplicates = Lists.newArrayList();
+        for (PendingCommit commit : batch) {
+            if (commitsByCell.containsKey(commit.cell)) {
+                // Two callers raced to set the same start timestamp, e.g. a commit and a rollback. Write the second
+                // one after the first has been resolved, so that it only fails if the first was actually written.
+                duplicates.add(commit);
+            } else {
+                commitsByCell.put(commit.cell, commit);
+            }
+        }
+        if (commitsByCell.isEmpty()) {
+            return;
+        }
+        writeBatch(commitsByCell);
+        if (!duplicates.isEmpty()) {
+            flush(duplicates);
+        }
+    }
+
+    @GuardedBy("flushLock")
+    private void writeBatch(Map<Cell, PendingCommit> commitsByCell) {
+
+        try {
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, getValues(commitsByCell));
+            for (PendingCommit commit : commitsByCell.values()) {
+                commit.succeed();
+            }
+        } catch (KeyAlreadyExistsException e) {
+            if (commitsByCell.size() == 1) {
+                commitsByCell.values().iterator().next().fail(e);
+            } else {
+                resolveConflictingBatch(commitsByCell);
+            }
+        } catch (RuntimeException e) {
+            for (PendingCommit commit : commitsByCell.values()) {
+                commit.fail(e);
+            }
+        }
+    }
+
+    private void resolveConflictingBatch(Map<Cell, PendingCommit> commitsByCell) {
+        Map<Cell, Value> storedValues;
+        try {
+            storedValues = keyValueService.get(
+                    TransactionConstants.TRANSACTION_TABLE,
+                    Maps.asMap(commitsByCell.keySet(), cell -> MAX_TIMESTAMP));
+        } catch (RuntimeException e) {
+            for (PendingCommit commit : commitsByCell.values()) {
+                commit.fail(e);
+            }
+            return;
+        }
+
+        for (PendingCommit commit : commitsByCell.values()) {
+            Value stored = storedValues.get(commit.cell);
+            if (stored == null) {
+                // Some other cell in the batch stopped this one from being written; try again on its own.
+                putSingleCommit(commit);
+            } else if (Arrays.equals(stored.getContents(), commit.value)) {
+                commit.succeed();
+            } else {
+                commit.fail(alreadyExists(ImmutableList.of(commit.cell)));
+            }
+        }
+    }
+
+    private void putSingleCommit(PendingCommit commit) {
+        try {
+            keyValueService.putUnlessExists(
+                    TransactionConstants.TRANSACTION_TABLE,
+                    ImmutableMap.of(commit.cell, commit.value));
+            commit.succeed();
+        } catch (RuntimeException e) {
+            commit.fail(e);
+        }
+    }
+
+    private static Map<Cell, byte[]> getValues(Map<Cell, PendingCommit> commitsByCell) {
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(commitsByCell.size());
+        for (PendingCommit commit : commitsByCell.values()) {
+            values.put(commit.cell, commit.value);
+        }
+        return values;
+    }
+
+    private static KeyAlreadyExistsException alreadyExists(Iterable<Cell> cells) {
+        return new KeyAlreadyExistsException("The transaction was already committed or rolled back.", cells);
+    }
+
+    private static final class PendingCommit {
+        private final Cell cell;
+        private final byte[] value;
+        // Completed by whichever thread writes this commit.
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingCommit(long startTimestamp, long commitTimestamp) {
+            this.cell = SimpleTransactionService.getTransactionCell(startTimestamp);
+            this.value = TransactionConstants.getValueForTimestamp(commitTimestamp);
+        }
+
+        boolean isDone() {
+            return result.isDone();
+        }
+
+        void succeed() {
+            result.complete(null);
+        }
+
+        void fail(RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+
+        void throwIfFailed() {
+            try {
+                result.join();
+            } catch (CompletionException e) {
+                // The failure may be shared with other commits in the batch, so give each caller its own copy.
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            }
+        }
+    }
+}
@@ -26,4 +26,17 @@ public final class TransactionServices {
             KeyValueService keyValueService) {
         return new SimpleTransactionService(keyValueService);
     }
+
+    /**
+     * Creates a transaction service that writes the commit timestamps of concurrently committing transactions
+     * together (see {@link GroupCommitTransactionService}) if the key value service writes a multi-cell
+     * putUnlessExists in one round trip, and one at a time otherwise.
+     */
+    public static TransactionService createGroupCommitTransactionService(
+            KeyValueService keyValueService) {
+        if (keyValueService.supportsSingleRoundTripPutUnlessExists()) {
+            return GroupCommitTransactionService.create(keyValueService);
+        }
+        return createTransactionService(keyValueService);
+    }
 }
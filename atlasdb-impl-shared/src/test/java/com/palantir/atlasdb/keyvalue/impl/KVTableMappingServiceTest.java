@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class KVTableMappingServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final long TTL_SECONDS = 5;
+
+    private final AtomicLong uniqueLongs = new AtomicLong();
+    private final FakeTicker ticker = new FakeTicker();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private KeyValueService kvs;
+    private KVTableMappingService otherClient;
+    private KVTableMappingService service;
+
+    @Before
+    public void setUp() {
+        kvs = spy(new InMemoryKeyValueService(false));
+        KVTableMappingService.createTables(kvs);
+        otherClient = newService();
+        service = newService();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void resolvesAnUnknownTableWithAPointRead() throws Exception {
+        TableReference shortName = otherClient.addTable(TABLE);
+
+        assertThat(service.getMappedTableName(TABLE)).isEqualTo(shortName);
+        verify(kvs, never()).getRange(eq(AtlasDbConstants.NAMESPACE_TABLE), any(RangeRequest.class), anyLong());
+    }
+
+    @Test
+    public void cachesResolvedMappings() throws Exception {
+        otherClient.addTable(TABLE);
+
+        service.getMappedTableName(TABLE);
+        service.getMappedTableName(TABLE);
+
+        verifyNamespaceReads(1);
+    }
+
+    @Test
+    public void remembersMissingTablesUntilTheTtlExpires() throws Exception {
+        assertNotMapped(TABLE);
+        TableReference shortName = otherClient.addTable(TABLE);
+        assertNotMapped(TABLE);
+        verifyNamespaceReads(1);
+
+        ticker.advance(TTL_SECONDS + 1, TimeUnit.SECONDS);
+
+        assertThat(service.getMappedTableName(TABLE)).isEqualTo(shortName);
+        verifyNamespaceReads(2);
+    }
+
+    @Test
+    public void addingATableMakesAMissingTableVisibleImmediately() throws Exception {
+        assertNotMapped(TABLE);
+
+        TableReference shortName = service.addTable(TABLE);
+
+        assertThat(service.getMappedTableName(TABLE)).isEqualTo(shortName);
+        verifyNamespaceReads(1);
+    }
+
+    @Test
+    public void addingATableCreatedByAnotherClientReturnsItsMapping() throws Exception {
+        assertNotMapped(TABLE);
+        TableReference shortName = otherClient.addTable(TABLE);
+
+        assertThat(service.addTable(TABLE)).isEqualTo(shortName);
+        assertThat(service.getMappedTableName(TABLE)).isEqualTo(shortName);
+    }
+
+    @Test
+    public void removingATableInvalidatesTheCache() throws Exception {
+        service.addTable(TABLE);
+
+        service.removeTable(TABLE);
+
+        assertNotMapped(TABLE);
+    }
+
+    @Test
+    public void concurrentLookupsOfAnUnknownTableShareOneRead() throws Exception {
+        TableReference shortName = otherClient.addTable(TABLE);
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch allowRead = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            readStarted.countDown();
+            allowRead.await();
+            return invocation.callRealMethod();
+        }).when(kvs).get(eq(AtlasDbConstants.NAMESPACE_TABLE), anyMapOf(Cell.class, Long.class));
+
+        List<Future<TableReference>> lookups = Lists.newArrayList();
+        for (int i = 0; i < 8; i++) {
+            lookups.add(executor.submit(() -> service.getMappedTableName(TABLE)));
+        }
+        readStarted.await();
+        allowRead.countDown();
+
+        for (Future<TableReference> lookup : lookups) {
+            assertThat(lookup.get()).isEqualTo(shortName);
+        }
+        verifyNamespaceReads(1);
+    }
+
+    @Test
+    public void tablesWithoutANamespaceAreNotMapped() throws Exception {
+        TableReference table = TableReference.createWithEmptyNamespace("table");
+
+        assertThat(service.getMappedTableName(table)).isEqualTo(table);
+        verifyNamespaceReads(0);
+    }
+
+    private KVTableMappingService newService() {
+        return new KVTableMappingService(kvs, uniqueLongs::incrementAndGet, TTL_SECONDS, TimeUnit.SECONDS, ticker);
+    }
+
+    private void assertNotMapped(TableReference tableRef) {
+        assertThatThrownBy(() -> service.getMappedTableName(tableRef))
+                .isInstanceOf(TableMappingNotFoundException.class);
+    }
+
+    private void verifyNamespaceReads(int times) {
+        verify(kvs, times(times)).get(eq(AtlasDbConstants.NAMESPACE_TABLE), anyMapOf(Cell.class, Long.class));
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long time, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(time));
+        }
+    }
+}
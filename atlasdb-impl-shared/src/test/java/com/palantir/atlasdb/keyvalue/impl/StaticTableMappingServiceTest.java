@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class StaticTableMappingServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+
+    private final KeyValueService kvs =
+            NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(new InMemoryKeyValueService(false));
+
+    @Test
+    public void aTableCanBeUsedAsSoonAsItIsCreatedAfterADropOfAMissingTable() {
+        kvs.dropTable(TABLE);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+
+        assertCanWriteAndRead(TABLE);
+    }
+
+    @Test
+    public void aTableCanBeUsedAsSoonAsItIsRecreated() {
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvs.dropTable(TABLE);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+
+        assertCanWriteAndRead(TABLE);
+    }
+
+    private void assertCanWriteAndRead(TableReference tableRef) {
+        kvs.put(tableRef, ImmutableMap.of(CELL, VALUE), 1L);
+        assertThat(kvs.get(tableRef, ImmutableMap.of(CELL, 2L)).get(CELL).getContents()).isEqualTo(VALUE);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.palantir.atlasdb.transaction.api.StartedTransaction;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.common.remoting.EndpointNotFoundException;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampService;
+
+public class FallbackTransactionStartServiceTest {
+    private static final String CLIENT = "client";
+
+    private final TimestampService timestampService = new InMemoryTimestampService();
+    private final RemoteLockService lockService = LockServiceImpl.create();
+    private final AtomicInteger remoteRequests = new AtomicInteger();
+
+    @Test
+    public void startsTransactionsThroughTheDelegateWhileItIsAvailable() {
+        TransactionStartService startService = FallbackTransactionStartService.create(
+                countingRemoteStartService(new LockingTransactionStartService(timestampService, lockService)),
+                timestampService,
+                lockService);
+
+        startService.startTransaction(CLIENT);
+        startService.startTransactions(CLIENT, 2);
+
+        assertThat(remoteRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void fallsBackToLockingAndTimestampServicesWhenTheEndpointIsMissing() {
+        TransactionStartService startService = FallbackTransactionStartService.create(
+                countingRemoteStartService(null),
+                timestampService,
+                lockService);
+
+        StartedTransaction started = startService.startTransaction(CLIENT);
+        List<StartedTransaction> batch = startService.startTransactions(CLIENT, 2);
+
+        assertThat(remoteRequests.get()).isEqualTo(1);
+        assertThat(started.getImmutableTimestamp()).isLessThan(started.getStartTimestamp());
+        assertThat(lockService.getMinLockedInVersionId(CLIENT)).isEqualTo(started.getImmutableTimestamp());
+        assertThat(batch).hasSize(2);
+    }
+
+    @Test
+    public void doesNotFallBackOnOtherFailures() {
+        TransactionStartService failingStartService = new TransactionStartService() {
+            @Override
+            public StartedTransaction startTransaction(String client) {
+                throw new IllegalStateException("server unavailable");
+            }
+
+            @Override
+            public List<StartedTransaction> startTransactions(String client, int count) {
+                throw new IllegalStateException("server unavailable");
+            }
+        };
+        TransactionStartService startService = FallbackTransactionStartService.create(
+                failingStartService,
+                timestampService,
+                lockService);
+
+        assertThatThrownBy(() -> startService.startTransaction(CLIENT)).isInstanceOf(IllegalStateException.class);
+        assertThat(lockService.getMinLockedInVersionId(CLIENT)).isNull();
+    }
+
+    /** A remote start service that counts requests, and answers with 404s when there is no delegate. */
+    private TransactionStartService countingRemoteStartService(TransactionStartService delegate) {
+        return new TransactionStartService() {
+            @Override
+            public StartedTransaction startTransaction(String client) {
+                remoteRequests.incrementAndGet();
+                throwIfMissing();
+                return delegate.startTransaction(client);
+            }
+
+            @Override
+            public List<StartedTransaction> startTransactions(String client, int count) {
+                remoteRequests.incrementAndGet();
+                throwIfMissing();
+                return delegate.startTransactions(client, count);
+            }
+
+            private void throwIfMissing() {
+                if (delegate == null) {
+                    throw new EndpointNotFoundException("404 Not Found", null);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.palantir.atlasdb.transaction.api.StartedTransaction;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampService;
+
+public class LockingTransactionStartServiceTest {
+    private static final String CLIENT = "client";
+
+    private final TimestampService timestampService = new InMemoryTimestampService();
+    private final RemoteLockService lockService = LockServiceImpl.create();
+    private final LockingTransactionStartService startService =
+            new LockingTransactionStartService(timestampService, lockService);
+
+    @Test
+    public void startTimestampIsAfterTheLockedImmutableTimestamp() {
+        StartedTransaction started = startService.startTransaction(CLIENT);
+
+        assertThat(started.getImmutableTimestamp()).isLessThan(started.getStartTimestamp());
+        assertThat(lockService.getMinLockedInVersionId(CLIENT)).isEqualTo(started.getImmutableTimestamp());
+    }
+
+    @Test
+    public void immutableTimestampIsHeldBackByOlderTransactions() {
+        StartedTransaction first = startService.startTransaction(CLIENT);
+        StartedTransaction second = startService.startTransaction(CLIENT);
+
+        assertThat(second.getImmutableTimestamp()).isEqualTo(first.getImmutableTimestamp());
+
+        lockService.unlock(first.getImmutableTimestampLock());
+        StartedTransaction third = startService.startTransaction(CLIENT);
+
+        assertThat(third.getImmutableTimestamp()).isGreaterThan(first.getImmutableTimestamp());
+        assertThat(third.getImmutableTimestamp()).isLessThan(second.getStartTimestamp());
+    }
+
+    @Test
+    public void startsBatchesOfTransactionsWithDistinctLocks() {
+        List<StartedTransaction> started = startService.startTransactions(CLIENT, 3);
+
+        assertThat(started).hasSize(3);
+        assertThat(started.stream().map(StartedTransaction::getStartTimestamp).distinct().count()).isEqualTo(3);
+        for (StartedTransaction transaction : started) {
+            assertThat(transaction.getImmutableTimestamp()).isLessThan(transaction.getStartTimestamp());
+            assertThat(lockService.unlock(transaction.getImmutableTimestampLock())).isTrue();
+        }
+        assertThat(lockService.getMinLockedInVersionId(CLIENT)).isNull();
+    }
+
+    @Test
+    public void releasesHeldLocksIfTheBatchCannotBeStarted() {
+        RemoteLockService failingLockService = new ForwardingRemoteLockService() {
+            private int locksTaken = 0;
+
+            @Override
+            protected RemoteLockService delegate() {
+                return lockService;
+            }
+
+            @Override
+            public LockRefreshToken lock(String client, LockRequest request) throws InterruptedException {
+                if (++locksTaken > 1) {
+                    throw new IllegalStateException("lock server unavailable");
+                }
+                return super.lock(client, request);
+            }
+        };
+        LockingTransactionStartService failingStartService =
+                new LockingTransactionStartService(timestampService, failingLockService);
+
+        assertThatThrownBy(() -> failingStartService.startTransactions(CLIENT, 2))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(lockService.getMinLockedInVersionId(CLIENT)).isNull();
+    }
+
+    @Test
+    public void rejectsEmptyBatches() {
+        assertThatThrownBy(() -> startService.startTransactions(CLIENT, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
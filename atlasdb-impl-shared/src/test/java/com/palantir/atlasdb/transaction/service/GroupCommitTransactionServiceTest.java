@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+public class GroupCommitTransactionServiceTest {
+    private final KeyValueService delegate = new InMemoryKeyValueService(false);
+    private final BlockingKeyValueService kvs = new BlockingKeyValueService(delegate);
+    private final GroupCommitTransactionService transactionService = GroupCommitTransactionService.create(kvs);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(delegate);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void writesCommitTimestamps() {
+        transactionService.putUnlessExists(1L, 2L);
+
+        assertThat(transactionService.get(1L)).isEqualTo(2L);
+        assertThat(transactionService.get(3L)).isNull();
+    }
+
+    @Test
+    public void throwsIfTheStartTimestampWasAlreadyCommitted() {
+        transactionService.putUnlessExists(1L, 2L);
+
+        assertThatThrownBy(() -> transactionService.putUnlessExists(1L, 3L))
+                .isInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(transactionService.get(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void writesConcurrentCommitsTogether() throws Exception {
+        kvs.blockNextPut();
+        Future<?> first = executor.submit(() -> transactionService.putUnlessExists(1L, 10L));
+        kvs.awaitBlockedPut();
+
+        List<Future<?>> queued = Lists.newArrayList();
+        for (long startTs = 2L; startTs <= 5L; startTs++) {
+            long commitTs = startTs * 10;
+            long start = startTs;
+            queued.add(executor.submit(() -> transactionService.putUnlessExists(start, commitTs)));
+        }
+        awaitQueuedCommits(queued.size());
+        kvs.unblock();
+
+        first.get(10, TimeUnit.SECONDS);
+        for (Future<?> future : queued) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(kvs.putSizes).containsExactly(1, 4);
+        assertThat(transactionService.get(Lists.newArrayList(1L, 2L, 3L, 4L, 5L)))
+                .isEqualTo(ImmutableMap.of(1L, 10L, 2L, 20L, 3L, 30L, 4L, 40L, 5L, 50L));
+    }
+
+    @Test
+    public void resolvesEachCommitOfABatchThatHitAnExistingCommit() throws Exception {
+        transactionService.putUnlessExists(3L, 1000L);
+        kvs.putSizes.clear();
+
+        kvs.blockNextPut();
+        Future<?> first = executor.submit(() -> transactionService.putUnlessExists(1L, 10L));
+        kvs.awaitBlockedPut();
+
+        Future<?> conflicting = executor.submit(() -> transactionService.putUnlessExists(3L, 30L));
+        Future<?> second = executor.submit(() -> transactionService.putUnlessExists(2L, 20L));
+        Future<?> fourth = executor.submit(() -> transactionService.putUnlessExists(4L, 40L));
+        awaitQueuedCommits(3);
+        kvs.unblock();
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        fourth.get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> conflicting.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(transactionService.get(Lists.newArrayList(1L, 2L, 3L, 4L)))
+                .isEqualTo(ImmutableMap.of(1L, 10L, 2L, 20L, 3L, 1000L, 4L, 40L));
+    }
+
+    @Test
+    public void onlyOneOfTwoConcurrentWritesToTheSameStartTimestampSucceeds() throws Exception {
+        kvs.blockNextPut();
+        Future<?> first = executor.submit(() -> transactionService.putUnlessExists(1L, 10L));
+        kvs.awaitBlockedPut();
+
+        Future<?> commit = executor.submit(() -> transactionService.putUnlessExists(2L, 20L));
+        Future<?> rollback = executor.submit(() -> transactionService.putUnlessExists(2L, -1L));
+        awaitQueuedCommits(2);
+        kvs.unblock();
+
+        first.get(10, TimeUnit.SECONDS);
+        int successes = 0;
+        for (Future<?> future : Lists.newArrayList(commit, rollback)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                successes++;
+            } catch (Exception e) {
+                assertThat(e).hasCauseInstanceOf(KeyAlreadyExistsException.class);
+            }
+        }
+        assertThat(successes).isEqualTo(1);
+    }
+
+    @Test
+    public void writesADuplicateStartTimestampAfterTheFirstWriteOfItFailed() throws Exception {
+        kvs.blockNextPut();
+        Future<?> first = executor.submit(() -> transactionService.putUnlessExists(1L, 10L));
+        kvs.awaitBlockedPut();
+
+        Future<?> commit = executor.submit(() -> transactionService.putUnlessExists(2L, 20L));
+        Future<?> rollback = executor.submit(() -> transactionService.putUnlessExists(2L, -1L));
+        awaitQueuedCommits(2);
+        kvs.failNextPut();
+        kvs.unblock();
+
+        first.get(10, TimeUnit.SECONDS);
+        int successes = 0;
+        for (Future<?> future : Lists.newArrayList(commit, rollback)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                successes++;
+            } catch (Exception e) {
+                assertThat(e).hasCauseInstanceOf(IllegalStateException.class);
+            }
+        }
+        assertThat(successes).isEqualTo(1);
+        assertThat(transactionService.get(2L)).isNotNull();
+    }
+
+    @Test
+    public void onlyGroupsCommitsOnKeyValueServicesThatWriteThemInOneRoundTrip() {
+        KeyValueService perCellKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return delegate;
+            }
+
+            @Override
+            public boolean supportsSingleRoundTripPutUnlessExists() {
+                return false;
+            }
+        };
+
+        assertThat(TransactionServices.createGroupCommitTransactionService(delegate))
+                .isInstanceOf(GroupCommitTransactionService.class);
+        assertThat(TransactionServices.createGroupCommitTransactionService(perCellKvs))
+                .isInstanceOf(SimpleTransactionService.class);
+    }
+
+    private void awaitQueuedCommits(int count) throws InterruptedException {
+        // Committers queue up behind the one holding the flush lock, which is stuck in the blocked put.
+        while (transactionService.getQueuedCommitCount() < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static final class BlockingKeyValueService extends ForwardingKeyValueService {
+        private final KeyValueService delegate;
+        private final List<Integer> putSizes = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private volatile boolean failNextPut = false;
+
+        BlockingKeyValueService(KeyValueService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected KeyValueService delegate() {
+            return delegate;
+        }
+
+        void blockNextPut() {
+            blocked = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+        }
+
+        void awaitBlockedPut() throws InterruptedException {
+            blocked.await();
+        }
+
+        void unblock() {
+            release.countDown();
+        }
+
+        void failNextPut() {
+            failNextPut = true;
+        }
+
+        @Override
+        public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) {
+            putSizes.add(values.size());
+            if (failNextPut) {
+                failNextPut = false;
+                throw new IllegalStateException("Failed to write " + values.size() + " commit timestamps");
+            }
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.putUnlessExists(tableRef, values);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jooq.exception.DataAccessException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.jdbc.JdbcKeyValueService;
+
+public class JdbcKeyValueServicePartitionTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.partitions");
+    private static final byte[] COL = PtBytes.toBytes("col");
+    // Spans several partitions of the key value service, with a partial last one.
+    private static final int NUM_ROWS = 2500;
+    private static final int NUM_THREADS = 8;
+
+    private JdbcKeyValueService kvs;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        kvs = JdbcTests.createEmptyKvs();
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        kvs.close();
+    }
+
+    @Test
+    public void putAndGetRowsSpanningManyPartitions() {
+        Map<Cell, byte[]> values = Maps.newHashMap();
+        List<byte[]> rows = Lists.newArrayList();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            values.put(Cell.create(row(i), COL), PtBytes.toBytes(i));
+            rows.add(row(i));
+        }
+        kvs.put(TABLE, values, 10L);
+
+        Map<Cell, Value> result = kvs.getRows(TABLE, rows, ColumnSelection.all(), 11L);
+        assertEquals(NUM_ROWS, result.size());
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Value value = result.get(Cell.create(row(i), COL));
+            assertArrayEquals(PtBytes.toBytes(i), value.getContents());
+            assertEquals(10L, value.getTimestamp());
+        }
+    }
+
+    @Test
+    public void getHonoursPerCellTimestampsAcrossPartitions() {
+        Map<Cell, byte[]> oldValues = Maps.newHashMap();
+        Map<Cell, byte[]> newValues = Maps.newHashMap();
+        Map<Cell, Long> timestampByCell = Maps.newHashMap();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Cell cell = Cell.create(row(i), COL);
+            oldValues.put(cell, PtBytes.toBytes(i));
+            newValues.put(cell, PtBytes.toBytes(-i));
+            timestampByCell.put(cell, i % 2 == 0 ? 15L : 25L);
+        }
+        kvs.put(TABLE, oldValues, 10L);
+        kvs.put(TABLE, newValues, 20L);
+
+        Map<Cell, Value> result = kvs.get(TABLE, timestampByCell);
+        assertEquals(NUM_ROWS, result.size());
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Value value = result.get(Cell.create(row(i), COL));
+            assertEquals(i % 2 == 0 ? 10L : 20L, value.getTimestamp());
+            assertArrayEquals(PtBytes.toBytes(i % 2 == 0 ? i : -i), value.getContents());
+        }
+    }
+
+    @Test
+    public void onlyOneConcurrentCheckAndSetOfANewCellSucceeds() throws Exception {
+        final Cell cell = Cell.create(row(0), COL);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final byte[] value = PtBytes.toBytes(i);
+            futures.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    start.await();
+                    try {
+                        kvs.checkAndSet(CheckAndSetRequest.newCell(TABLE, cell, value));
+                        return true;
+                    } catch (CheckAndSetException e) {
+                        return false;
+                    }
+                }
+            }));
+        }
+        start.countDown();
+
+        int successes = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get()) {
+                successes++;
+            }
+        }
+        assertEquals(1, successes);
+    }
+
+    @Test
+    public void concurrentCheckAndSetIncrementsAreNotLost() throws Exception {
+        final Cell cell = Cell.create(row(0), COL);
+        final int incrementsPerThread = 20;
+        kvs.checkAndSet(CheckAndSetRequest.newCell(TABLE, cell, Ints.toByteArray(0)));
+
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int done = 0; done < incrementsPerThread;) {
+                        byte[] current = read(cell);
+                        byte[] next = Ints.toByteArray(Ints.fromByteArray(current) + 1);
+                        try {
+                            kvs.checkAndSet(CheckAndSetRequest.singleCell(TABLE, cell, current, next));
+                            done++;
+                        } catch (CheckAndSetException e) {
+                            // Another thread got there first; re-read and retry.
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        assertEquals(NUM_THREADS * incrementsPerThread, Ints.fromByteArray(read(cell)));
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void checkAndSetPropagatesErrorsOtherThanConstraintViolations() {
+        TableReference missingTable = TableReference.createFromFullyQualifiedName("ns.missing");
+        kvs.checkAndSet(CheckAndSetRequest.newCell(missingTable, Cell.create(row(0), COL), PtBytes.toBytes(0)));
+    }
+
+    private byte[] read(Cell cell) {
+        Map<Cell, Value> result = kvs.get(TABLE, ImmutableMap.of(cell, AtlasDbConstants.TRANSACTION_TS + 1));
+        return Iterables.getOnlyElement(result.values()).getContents();
+    }
+
+    private static byte[] row(int index) {
+        return PtBytes.toBytes("row" + index);
+    }
+}
@@ -31,6 +31,6 @@ public class JdbcKeyValueSharedTest extends AbstractKeyValueServiceTest {
 
     @Override
     protected boolean checkAndSetSupported() {
-        return false;
+        return true;
     }
 }
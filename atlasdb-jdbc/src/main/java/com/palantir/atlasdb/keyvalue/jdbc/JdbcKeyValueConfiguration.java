@@ -45,6 +45,15 @@ public abstract class JdbcKeyValueConfiguration implements KeyValueServiceConfig
 
     public abstract JdbcDataSourceConfiguration getDataSourceConfig();
 
+    /**
+     * The maximum number of partitions of a single large read or write that are run concurrently, each on its
+     * own connection. This should not exceed the size of the data source's connection pool.
+     */
+    @Value.Default
+    public int getMaxConcurrentPartitions() {
+        return 8;
+    }
+
     @Value.Check
     void check() {
         if (getTablePrefix().length() > MAX_TABLE_PREFIX_LENGTH) {
@@ -53,5 +62,8 @@ public abstract class JdbcKeyValueConfiguration implements KeyValueServiceConfig
         if (!getTablePrefix().matches("[A-Za-z0-9_]*")) {
             throw new IllegalArgumentException("The table prefix can only contain letters, numbers, and underscores.");
         }
+        if (getMaxConcurrentPartitions() <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent partitions must be positive.");
+        }
     }
 }
@@ -54,14 +54,19 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.sql.DataSource;
 
@@ -111,6 +116,7 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.jdbc.config.JdbcDataSourceConfiguration;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
 import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -123,12 +129,14 @@ import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.keyvalue.jdbc.impl.MultiTimestampPutBatch;
 import com.palantir.atlasdb.keyvalue.jdbc.impl.PutBatch;
 import com.palantir.atlasdb.keyvalue.jdbc.impl.SingleTimestampPutBatch;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.collect.Maps2;
 import com.palantir.util.paging.AbstractPagingIterable;
 import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
@@ -139,17 +147,20 @@ public class JdbcKeyValueService implements KeyValueService {
     private final SQLDialect sqlDialect;
     private final DataSource dataSource;
     private final Settings settings;
+    private final ExecutorService executor;
 
     public final Table<Record> METADATA_TABLE;
 
     private JdbcKeyValueService(String tablePrefix,
                                 SQLDialect sqlDialect,
                                 DataSource dataSource,
-                                Settings settings) {
+                                Settings settings,
+                                ExecutorService executor) {
         this.tablePrefix = tablePrefix;
         this.sqlDialect = sqlDialect;
         this.dataSource = dataSource;
         this.settings = settings;
+        this.executor = executor;
 
         METADATA_TABLE = table(tablePrefix + "_metadata");
     }
@@ -160,7 +171,10 @@ public class JdbcKeyValueService implements KeyValueService {
         DataSource dataSource = dataSourceConfig.createDataSource();
         Settings settings = new Settings();
         settings.setRenderNameStyle(RenderNameStyle.AS_IS);
-        final JdbcKeyValueService kvs = new JdbcKeyValueService(config.getTablePrefix(), sqlDialect, dataSource, settings);
+        ExecutorService executor = AbstractKeyValueService.createSharedExecutor(
+                "JdbcKeyValueService", config.getMaxConcurrentPartitions());
+        final JdbcKeyValueService kvs = new JdbcKeyValueService(
+                config.getTablePrefix(), sqlDialect, dataSource, settings, executor);
 
         kvs.run(new Function<DSLContext, Void>() {
             @Override
@@ -192,15 +206,20 @@ public class JdbcKeyValueService implements KeyValueService {
     }
 
     @Override
-    public Map<Cell, Value> getRows(TableReference tableRef,
+    public Map<Cell, Value> getRows(final TableReference tableRef,
                                     Iterable<byte[]> rows,
-                                    ColumnSelection columnSelection,
-                                    long timestamp) {
-        HashMap<Cell, Value> ret = Maps.newHashMap();
-        for (List<byte[]> part : Iterables.partition(rows, PARTITION_SIZE)) {
-            ret.putAll(getRowsPartition(tableRef, part, columnSelection, timestamp));
+                                    final ColumnSelection columnSelection,
+                                    final long timestamp) {
+        List<Callable<Map<Cell, Value>>> partitions = Lists.newArrayList();
+        for (final List<byte[]> part : Iterables.partition(rows, PARTITION_SIZE)) {
+            partitions.add(new Callable<Map<Cell, Value>>() {
+                @Override
+                public Map<Cell, Value> call() {
+                    return getRowsPartition(tableRef, part, columnSelection, timestamp);
+                }
+            });
         }
-        return ret;
+        return mergeResults(runPartitions(partitions));
     }
 
     private Map<Cell, Value> getRowsPartition(TableReference tableRef,
@@ -270,10 +289,21 @@ public class JdbcKeyValueService implements KeyValueService {
 
     @Override
     public Map<Cell, Value> get(final TableReference tableRef,
-                                final Map<Cell, Long> timestampByCell) {
-        if (timestampByCell.isEmpty()) {
-            return ImmutableMap.of();
+                                Map<Cell, Long> timestampByCell) {
+        List<Callable<Map<Cell, Value>>> partitions = Lists.newArrayList();
+        for (final List<Entry<Cell, Long>> part : Iterables.partition(timestampByCell.entrySet(), PARTITION_SIZE)) {
+            partitions.add(new Callable<Map<Cell, Value>>() {
+                @Override
+                public Map<Cell, Value> call() {
+                    return getPartition(tableRef, part);
+                }
+            });
         }
+        return mergeResults(runPartitions(partitions));
+    }
+
+    private Map<Cell, Value> getPartition(final TableReference tableRef,
+                                          final List<Entry<Cell, Long>> timestampByCell) {
         return run(new Function<DSLContext, Map<Cell, Value>>() {
             @Override
             public Map<Cell, Value> apply(DSLContext ctx) {
@@ -305,7 +335,7 @@ public class JdbcKeyValueService implements KeyValueService {
                 Select<? extends Record> query = getLatestTimestampQueryManyTimestamps(
                         ctx,
                         tableRef,
-                        toRows(timestampByCell));
+                        toRows(timestampByCell.entrySet()));
                 Result<? extends Record> records = query.fetch();
                 Map<Cell, Long> results = Maps.newHashMapWithExpectedSize(records.size());
                 for (Record record : records) {
@@ -356,10 +386,10 @@ public class JdbcKeyValueService implements KeyValueService {
         return rows;
     }
 
-    private static RowN[] toRows(Map<Cell, Long> timestampByCell) {
+    private static RowN[] toRows(Collection<Entry<Cell, Long>> timestampByCell) {
         RowN[] rows = new RowN[timestampByCell.size()];
         int i = 0;
-        for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
+        for (Entry<Cell, Long> entry : timestampByCell) {
             rows[i++] = row(new Object[] {entry.getKey().getRowName(), entry.getKey().getColumnName(), entry.getValue()});
         }
         return rows;
@@ -463,34 +493,39 @@ public class JdbcKeyValueService implements KeyValueService {
     public void put(final TableReference tableRef,
                     final Map<Cell, byte[]> values,
                     final long timestamp) throws KeyAlreadyExistsException {
-        if (values.isEmpty()) {
-            return;
-        }
-        run(new Function<DSLContext, Void>() {
-            @Override
-            public Void apply(DSLContext ctx) {
-                putBatch(ctx, tableRef, new SingleTimestampPutBatch(values, timestamp), true);
-                return null;
-            }
-        });
+        runPartitions(getPutPartitions(tableRef, values, timestamp));
     }
 
     @Override
-    public void multiPut(final Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
-                         final long timestamp) throws KeyAlreadyExistsException {
-        run(new Function<DSLContext, Void>() {
-            @Override
-            public Void apply(DSLContext ctx) {
-                for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
-                    TableReference tableRef = entry.getKey();
-                    Map<Cell, byte[]> values = entry.getValue();
-                    if (!values.isEmpty()) {
-                        putBatch(ctx, tableRef, new SingleTimestampPutBatch(values, timestamp), true);
-                    }
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
+                         long timestamp) throws KeyAlreadyExistsException {
+        List<Callable<Void>> partitions = Lists.newArrayList();
+        for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
+            partitions.addAll(getPutPartitions(entry.getKey(), entry.getValue(), timestamp));
+        }
+        runPartitions(partitions);
+    }
+
+    private List<Callable<Void>> getPutPartitions(final TableReference tableRef,
+                                                  Map<Cell, byte[]> values,
+                                                  final long timestamp) {
+        List<Callable<Void>> partitions = Lists.newArrayList();
+        for (List<Entry<Cell, byte[]>> part : Iterables.partition(values.entrySet(), PARTITION_SIZE)) {
+            final Map<Cell, byte[]> partValues = Maps2.fromEntries(part);
+            partitions.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    return run(new Function<DSLContext, Void>() {
+                        @Override
+                        public Void apply(DSLContext ctx) {
+                            putBatch(ctx, tableRef, new SingleTimestampPutBatch(partValues, timestamp), true);
+                            return null;
+                        }
+                    });
                 }
-                return null;
-            }
-        });
+            });
+        }
+        return partitions;
     }
 
     @Override
@@ -525,12 +560,82 @@ public class JdbcKeyValueService implements KeyValueService {
 
     @Override
     public boolean supportsCheckAndSet() {
-        return false;
+        return true;
     }
 
     @Override
-    public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
-        throw new UnsupportedOperationException("Check and set is not supported for JDBC KVS");
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        return true;
+    }
+
+    @Override
+    public void checkAndSet(final CheckAndSetRequest request) throws CheckAndSetException {
+        final TableReference tableRef = request.table();
+        final Cell cell = request.cell();
+        byte[] expected = request.oldValue().orElse(null);
+        boolean applied;
+        try {
+            applied = runInTransaction(new Function<DSLContext, Boolean>() {
+                @Override
+                public Boolean apply(DSLContext ctx) {
+                    if (request.oldValue().isPresent()) {
+                        return ctx.update(atlasTable(tableRef))
+                                .set(field(VALUE, byte[].class), request.newValue())
+                                .where(field(ROW_NAME, byte[].class).eq(cell.getRowName())
+                                        .and(field(COL_NAME, byte[].class).eq(cell.getColumnName()))
+                                        .and(field(TIMESTAMP, Long.class).eq(AtlasDbConstants.TRANSACTION_TS))
+                                        .and(field(VALUE, byte[].class).eq(request.oldValue().get())))
+                                .execute() == 1;
+                    }
+                    return ctx.insertInto(table(tableName(tableRef)),
+                            field(ROW_NAME, byte[].class),
+                            field(COL_NAME, byte[].class),
+                            field(TIMESTAMP, Long.class),
+                            field(VALUE, byte[].class))
+                            .values(cell.getRowName(), cell.getColumnName(), AtlasDbConstants.TRANSACTION_TS,
+                                    request.newValue())
+                            .execute() == 1;
+                }
+            });
+        } catch (DataAccessException e) {
+            if (!isIntegrityConstraintViolation(e)) {
+                throw e;
+            }
+            // A duplicate key on insert: a concurrent check and set wrote the cell first.
+            throw new CheckAndSetException("Check and set failed on table " + tableRef, e,
+                    cell, expected, getCheckAndSetValues(tableRef, cell));
+        }
+        if (!applied) {
+            throw new CheckAndSetException(cell, tableRef, expected, getCheckAndSetValues(tableRef, cell));
+        }
+    }
+
+    /**
+     * Integrity constraint violations all share the SQLState class "23"; any other failure, such as a lost
+     * connection or a timeout, tells us nothing about the value in the cell.
+     */
+    private static boolean isIntegrityConstraintViolation(DataAccessException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                return sqlState != null && sqlState.startsWith("23");
+            }
+        }
+        return false;
+    }
+
+    private List<byte[]> getCheckAndSetValues(final TableReference tableRef, final Cell cell) {
+        return run(new Function<DSLContext, List<byte[]>>() {
+            @Override
+            public List<byte[]> apply(DSLContext ctx) {
+                return ctx.select(A_VALUE)
+                        .from(atlasTable(tableRef).as(ATLAS_TABLE))
+                        .where(A_ROW_NAME.eq(cell.getRowName())
+                                .and(A_COL_NAME.eq(cell.getColumnName()))
+                                .and(A_TIMESTAMP.eq(AtlasDbConstants.TRANSACTION_TS)))
+                        .fetch(A_VALUE);
+            }
+        });
     }
 
     @Override
@@ -1026,6 +1131,7 @@ public class JdbcKeyValueService implements KeyValueService {
 
     @Override
     public void close() {
+        executor.shutdown();
         if (dataSource instanceof Closeable) {
             try {
                 ((Closeable) dataSource).close();
@@ -1035,6 +1141,59 @@ public class JdbcKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Runs the partitions of a request, each on its own pooled connection and at most
+     * {@link JdbcKeyValueConfiguration#getMaxConcurrentPartitions()} at a time. A lone partition
+     * runs on the calling thread. Results are returned in partition order.
+     */
+    private <T> List<T> runPartitions(List<Callable<T>> partitions) {
+        if (partitions.isEmpty()) {
+            return ImmutableList.of();
+        }
+        if (partitions.size() == 1) {
+            try {
+                return Collections.singletonList(partitions.get(0).call());
+            } catch (Exception e) {
+                throw Throwables.propagate(e);
+            }
+        }
+        List<Future<T>> futures = Lists.newArrayListWithCapacity(partitions.size());
+        for (Callable<T> partition : partitions) {
+            futures.add(executor.submit(partition));
+        }
+        List<T> results = new ArrayList<>(partitions.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static Map<Cell, Value> mergeResults(List<Map<Cell, Value>> partitionResults) {
+        if (partitionResults.size() == 1) {
+            return partitionResults.get(0);
+        }
+        int size = 0;
+        for (Map<Cell, Value> partitionResult : partitionResults) {
+            size += partitionResult.size();
+        }
+        Map<Cell, Value> ret = Maps.newHashMapWithExpectedSize(size);
+        for (Map<Cell, Value> partitionResult : partitionResults) {
+            ret.putAll(partitionResult);
+        }
+        return ret;
+    }
+
     <T> T run(final Function<DSLContext, T> fun) {
         try (Connection connection = dataSource.getConnection()) {
             DSLContext ctx = DSL.using(connection, sqlDialect, settings);
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.palantir.lock.LockRefreshToken;
+
+/**
+ * Everything a client needs to begin a write transaction: the immutable timestamp, a start timestamp handed out
+ * after the immutable timestamp was locked, and the token holding that lock. The lock must be released once the
+ * transaction has finished.
+ */
+@Immutable
+public final class StartedTransaction {
+    private final long immutableTimestamp;
+    private final long startTimestamp;
+    private final LockRefreshToken immutableTimestampLock;
+
+    @JsonCreator
+    public StartedTransaction(@JsonProperty("immutableTimestamp") long immutableTimestamp,
+                              @JsonProperty("startTimestamp") long startTimestamp,
+                              @JsonProperty("immutableTimestampLock") LockRefreshToken immutableTimestampLock) {
+        Preconditions.checkArgument(immutableTimestamp < startTimestamp,
+                "immutable timestamp %s must be less than start timestamp %s", immutableTimestamp, startTimestamp);
+        this.immutableTimestamp = immutableTimestamp;
+        this.startTimestamp = startTimestamp;
+        this.immutableTimestampLock = Preconditions.checkNotNull(immutableTimestampLock);
+    }
+
+    public long getImmutableTimestamp() {
+        return immutableTimestamp;
+    }
+
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    public LockRefreshToken getImmutableTimestampLock() {
+        return immutableTimestampLock;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("immutableTimestamp", immutableTimestamp)
+                .add("startTimestamp", startTimestamp)
+                .add("immutableTimestampLock", immutableTimestampLock)
+                .toString();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import java.util.List;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import com.palantir.common.remoting.AtlasDbMediaTypes;
+
+
+/**
+ * Starts write transactions in a single round trip. Starting a transaction otherwise needs a fresh timestamp,
+ * a lock on it, a call to find the minimum locked timestamp and a second fresh timestamp, each of which is a
+ * remote call when the lock and timestamp services are remote.
+ * <p>
+ * Like {@link com.palantir.lock.RemoteLockService}, requests and responses may be encoded as Smile instead of JSON.
+ */
+@Path("/transactions")
+public interface TransactionStartService {
+    /**
+     * Locks a fresh immutable timestamp on behalf of {@code client} and hands out a start timestamp.
+     * The immutable timestamp returned is the minimum timestamp locked by {@code client}, so it is no greater
+     * than the one locked by this call.
+     */
+    @POST
+    @Path("start/{client: .*}")
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    StartedTransaction startTransaction(@PathParam("client") String client);
+
+    /**
+     * This is the same as {@link #startTransaction(String)}, but starts {@code count} transactions at once.
+     * Each transaction has its own immutable timestamp lock, which must be released separately.
+     */
+    @POST
+    @Path("start-batch/{client: .*}")
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    List<StartedTransaction> startTransactions(@PathParam("client") String client, @QueryParam("count") int count);
+}
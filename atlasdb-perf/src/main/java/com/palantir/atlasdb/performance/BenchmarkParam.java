@@ -22,7 +22,8 @@ package com.palantir.atlasdb.performance;
  * The keys must match the name of their associated instance variable.
  */
 public enum BenchmarkParam {
-    URI("uri");
+    URI("uri"),
+    INJECTED_LATENCY_MICROS("injectedLatencyMicros");
 
     private final String key;
 
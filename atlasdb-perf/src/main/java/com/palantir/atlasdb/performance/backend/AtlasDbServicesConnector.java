@@ -37,6 +37,13 @@ public class AtlasDbServicesConnector implements Closeable {
     @Param("")
     private String uri;
 
+    /**
+     * Edit this instance variable name ("injectedLatencyMicros") with care as it must match
+     * {@code BenchmarkParam.INJECTED_LATENCY_MICROS}.getKey().
+     */
+    @Param("0")
+    private long injectedLatencyMicros;
+
     private AtlasDbServices services;
 
     public AtlasDbServices connect() {
@@ -44,9 +51,15 @@ public class AtlasDbServicesConnector implements Closeable {
             throw new IllegalStateException("connect() has already been called");
         }
 
-        DockerizedDatabaseUri dburi = DockerizedDatabaseUri.fromUriString(uri);
+        DockerizedDatabaseUri dburi = getDatabaseUri();
         KeyValueServiceConfig config = dburi.getKeyValueServiceInstrumentation()
                 .getKeyValueServiceConfig(dburi.getAddress());
+        if (injectedLatencyMicros > 0) {
+            config = ImmutableLatencyInjectingKeyValueServiceConfig.builder()
+                    .delegate(config)
+                    .latencyMicros(injectedLatencyMicros)
+                    .build();
+        }
         services = DaggerAtlasDbServices.builder()
                 .servicesConfigModule(
                         ServicesConfigModule.create(
@@ -57,6 +70,10 @@ public class AtlasDbServicesConnector implements Closeable {
         return services;
     }
 
+    public DockerizedDatabaseUri getDatabaseUri() {
+        return DockerizedDatabaseUri.fromUriString(uri);
+    }
+
     public void close() {
         if (services != null) {
             services.close();
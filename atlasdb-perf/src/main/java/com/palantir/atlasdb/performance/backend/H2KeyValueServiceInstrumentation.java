@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableDbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableH2DdlConfig;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+import com.palantir.nexus.db.pool.config.ImmutableH2ConnectionConfig;
+import com.palantir.nexus.db.pool.config.ImmutableMaskedValue;
+
+/**
+ * DbKvs backed by an embedded, in-memory H2 database. Every configuration points at a fresh database.
+ */
+public class H2KeyValueServiceInstrumentation extends InProcessKeyValueServiceInstrumentation {
+    private static final AtomicInteger databaseCounter = new AtomicInteger();
+
+    @Override
+    public KeyValueServiceConfig getKeyValueServiceConfig() {
+        return ImmutableDbKeyValueServiceConfig.builder()
+                .ddl(ImmutableH2DdlConfig.builder()
+                        .metadataTable(AtlasDbConstants.DEFAULT_METADATA_TABLE)
+                        .build())
+                .connection(ImmutableH2ConnectionConfig.builder()
+                        .url("jdbc:h2:mem:atlasdb-perf-backend-" + databaseCounter.incrementAndGet()
+                                + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+                        .dbLogin("sa")
+                        .dbPassword(ImmutableMaskedValue.of(""))
+                        .build())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "H2";
+    }
+}
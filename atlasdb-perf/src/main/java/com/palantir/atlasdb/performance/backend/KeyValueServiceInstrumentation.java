@@ -40,6 +40,9 @@ public abstract class KeyValueServiceInstrumentation {
     static {
         addNewBackendType(new CassandraKeyValueServiceInstrumentation());
         addNewBackendType(new PostgresKeyValueServiceInstrumentation());
+        addNewBackendType(new InMemoryKeyValueServiceInstrumentation());
+        addNewBackendType(new RocksDbKeyValueServiceInstrumentation());
+        addNewBackendType(new H2KeyValueServiceInstrumentation());
     }
 
     KeyValueServiceInstrumentation(int kvsPort, String dockerComposeFileName) {
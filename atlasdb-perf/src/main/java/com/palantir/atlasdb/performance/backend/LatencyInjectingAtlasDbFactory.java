@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import com.google.auto.service.AutoService;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.config.LeaderConfig;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.spi.AtlasDbFactory;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Creates the key value service described by the delegate of a {@link LatencyInjectingKeyValueServiceConfig}
+ * using that delegate's own factory, and wraps it in a {@link LatencyInjectingKeyValueService}.
+ * The timestamp service is built against the unwrapped key value service and so is not delayed.
+ */
+@AutoService(AtlasDbFactory.class)
+public class LatencyInjectingAtlasDbFactory implements AtlasDbFactory {
+
+    @Override
+    public String getType() {
+        return LatencyInjectingKeyValueServiceConfig.TYPE;
+    }
+
+    @Override
+    public KeyValueService createRawKeyValueService(KeyValueServiceConfig config, Optional<LeaderConfig> leaderConfig) {
+        Preconditions.checkArgument(config instanceof LatencyInjectingKeyValueServiceConfig,
+                "LatencyInjectingAtlasDbFactory expects a configuration of type"
+                        + " LatencyInjectingKeyValueServiceConfig, found %s",
+                config.getClass());
+        LatencyInjectingKeyValueServiceConfig latencyConfig = (LatencyInjectingKeyValueServiceConfig) config;
+        KeyValueServiceConfig delegateConfig = latencyConfig.delegate();
+        KeyValueService delegate = getFactory(delegateConfig.type())
+                .createRawKeyValueService(delegateConfig, leaderConfig);
+        return new LatencyInjectingKeyValueService(
+                delegate,
+                delegateConfig.type(),
+                latencyConfig.latencyMicros(),
+                TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public TimestampService createTimestampService(KeyValueService rawKvs) {
+        Preconditions.checkArgument(rawKvs instanceof LatencyInjectingKeyValueService,
+                "LatencyInjectingAtlasDbFactory expects a raw kvs of type LatencyInjectingKeyValueService, found %s",
+                rawKvs.getClass());
+        LatencyInjectingKeyValueService kvs = (LatencyInjectingKeyValueService) rawKvs;
+        return getFactory(kvs.getDelegateType()).createTimestampService(kvs.delegate());
+    }
+
+    private static AtlasDbFactory getFactory(String type) {
+        Preconditions.checkArgument(!LatencyInjectingKeyValueServiceConfig.TYPE.equals(type),
+                "Latency injecting key value services cannot be nested.");
+        return StreamSupport.stream(ServiceLoader.load(AtlasDbFactory.class).spliterator(), false)
+                .filter(factory -> factory.getType().equals(type))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "No atlas provider for KeyValueService type " + type + " could be found."));
+    }
+}
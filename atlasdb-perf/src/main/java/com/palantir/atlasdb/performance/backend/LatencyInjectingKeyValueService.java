@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Adds a fixed delay to every data read and write made against the delegate, approximating the network round trip
+ * an in-process key value service would otherwise not pay. Schema and metadata operations are not delayed.
+ * <p>
+ * Ranges are only delayed once, when the range is requested, rather than for every page.
+ */
+public class LatencyInjectingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final String delegateType;
+    private final long latencyNanos;
+
+    public LatencyInjectingKeyValueService(
+            KeyValueService delegate,
+            String delegateType,
+            long latency,
+            TimeUnit unit) {
+        Preconditions.checkArgument(latency >= 0, "latency must be non-negative, but was %s", latency);
+        this.delegate = delegate;
+        this.delegateType = delegateType;
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override
+    public KeyValueService delegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the {@link com.palantir.atlasdb.spi.KeyValueServiceConfig#type()} of the delegate.
+     */
+    public String getDelegateType() {
+        return delegateType;
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        injectLatency();
+        super.delete(tableRef, keys);
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> keys, long timestamp) {
+        injectLatency();
+        return super.getAllTimestamps(tableRef, keys, timestamp);
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        injectLatency();
+        return super.get(tableRef, timestampByCell);
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        injectLatency();
+        return super.getRows(tableRef, rows, columnSelection, timestamp);
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        injectLatency();
+        return super.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnRangeSelection columnRangeSelection,
+                                                     int cellBatchHint,
+                                                     long timestamp) {
+        injectLatency();
+        return super.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        injectLatency();
+        return super.getLatestTimestamps(tableRef, timestampByCell);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                       RangeRequest rangeRequest,
+                                                       long timestamp) {
+        injectLatency();
+        return super.getRange(tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+                                                                       RangeRequest rangeRequest,
+                                                                       long timestamp) {
+        injectLatency();
+        return super.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        injectLatency();
+        return super.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        injectLatency();
+        super.put(tableRef, values, timestamp);
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        injectLatency();
+        super.multiPut(valuesByTable, timestamp);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        injectLatency();
+        super.putWithTimestamps(tableRef, values);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        injectLatency();
+        super.putUnlessExists(tableRef, values);
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) {
+        injectLatency();
+        super.checkAndSet(request);
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
+        injectLatency();
+        super.addGarbageCollectionSentinelValues(tableRef, cells);
+    }
+
+    private void injectLatency() {
+        // Thread.sleep is far too coarse for sub-millisecond latencies.
+        long deadline = System.nanoTime() + latencyNanos;
+        for (long remaining = latencyNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
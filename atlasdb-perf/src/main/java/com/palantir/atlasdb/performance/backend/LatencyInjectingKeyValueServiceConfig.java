@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import org.immutables.value.Value;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.auto.service.AutoService;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+
+/**
+ * Wraps the configuration of another key value service, so that every read and write made against it is delayed
+ * by {@link #latencyMicros()}. See {@link LatencyInjectingKeyValueService}.
+ */
+@AutoService(KeyValueServiceConfig.class)
+@JsonDeserialize(as = ImmutableLatencyInjectingKeyValueServiceConfig.class)
+@JsonSerialize(as = ImmutableLatencyInjectingKeyValueServiceConfig.class)
+@JsonTypeName(LatencyInjectingKeyValueServiceConfig.TYPE)
+@Value.Immutable
+public abstract class LatencyInjectingKeyValueServiceConfig implements KeyValueServiceConfig {
+    public static final String TYPE = "latency-injecting";
+
+    public abstract KeyValueServiceConfig delegate();
+
+    public abstract long latencyMicros();
+
+    @Value.Check
+    protected final void check() {
+        Preconditions.checkArgument(latencyMicros() >= 0,
+                "latencyMicros must be non-negative, but was %s", latencyMicros());
+    }
+
+    @Override
+    public final String type() {
+        return TYPE;
+    }
+}
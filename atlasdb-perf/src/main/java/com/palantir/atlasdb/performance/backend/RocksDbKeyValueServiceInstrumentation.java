@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+
+import com.palantir.atlasdb.rocksdb.ImmutableRocksDbKeyValueServiceConfig;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+
+public class RocksDbKeyValueServiceInstrumentation extends InProcessKeyValueServiceInstrumentation {
+
+    @Override
+    public KeyValueServiceConfig getKeyValueServiceConfig() {
+        return ImmutableRocksDbKeyValueServiceConfig.builder()
+                .dataDir(createDataDir())
+                .build();
+    }
+
+    private static File createDataDir() {
+        try {
+            File dataDir = Files.createTempDirectory("atlasdb-perf-rocksdb").toFile();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtils.deleteQuietly(dataDir)));
+            return dataDir;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create a data directory for RocksDB.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ROCKSDB";
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.api.RangeToken;
+import com.palantir.atlasdb.api.TableRange;
+import com.palantir.atlasdb.api.TableRowResult;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.impl.TableMetadataCache;
+import com.palantir.atlasdb.jackson.AtlasJacksonModule;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.ColumnValueDescription;
+import com.palantir.atlasdb.table.description.DynamicColumnDescription;
+import com.palantir.atlasdb.table.description.NameComponentDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+
+/**
+ * Measures how quickly the AtlasDB service can write and read a page of range results in each of its wire formats.
+ * Each invocation counts as one operation per row.
+ */
+@State(Scope.Benchmark)
+public class AtlasDbServiceSerializationBenchmarks {
+    private static final String TABLE_NAME = "benchmark.range";
+    private static final int NUM_ROWS = 1000;
+    private static final int NUM_COLS_PER_ROW = 10;
+    private static final int VALUE_SIZE = 100;
+
+    @Param({"json", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private RangeToken token;
+    private byte[] serializedToken;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        InMemoryKeyValueService kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TableReference.createUnsafe(TABLE_NAME), tableMetadata().persistToBytes());
+        TableMetadataCache cache = new TableMetadataCache(kvs);
+
+        mapper = format.equals("smile") ? new ObjectMapper(new SmileFactory()) : new ObjectMapper();
+        mapper.registerModule(new AtlasJacksonModule(cache).createModule());
+
+        token = new RangeToken(new TableRowResult(TABLE_NAME, generateRows()), nextRange());
+        serializedToken = mapper.writeValueAsBytes(token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(NUM_ROWS)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public byte[] serializeRange() throws IOException {
+        return mapper.writeValueAsBytes(token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(NUM_ROWS)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public RangeToken deserializeRange() throws IOException {
+        RangeToken result = mapper.readValue(serializedToken, RangeToken.class);
+        int numRows = Iterables.size(result.getResults().getResults());
+        Preconditions.checkState(numRows == NUM_ROWS, "Should be %s rows, but were: %s", NUM_ROWS, numRows);
+        return result;
+    }
+
+    private static TableMetadata tableMetadata() {
+        return new TableMetadata(
+                NameMetadataDescription.create(ImmutableList.of(
+                        new NameComponentDescription("row", ValueType.STRING))),
+                new ColumnMetadataDescription(new DynamicColumnDescription(
+                        NameMetadataDescription.create(ImmutableList.of(
+                                new NameComponentDescription("col", ValueType.STRING))),
+                        ColumnValueDescription.forType(ValueType.BLOB))),
+                ConflictHandler.SERIALIZABLE);
+    }
+
+    private static List<RowResult<byte[]>> generateRows() {
+        Random random = new Random(0);
+        List<RowResult<byte[]>> rows = Lists.newArrayListWithCapacity(NUM_ROWS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            ImmutableSortedMap.Builder<byte[], byte[]> columns =
+                    ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
+            for (int j = 0; j < NUM_COLS_PER_ROW; j++) {
+                byte[] value = new byte[VALUE_SIZE];
+                random.nextBytes(value);
+                columns.put(PtBytes.toBytes("col_" + j), value);
+            }
+            SortedMap<byte[], byte[]> columnMap = columns.build();
+            rows.add(RowResult.create(PtBytes.toBytes("row_" + i), columnMap));
+        }
+        return rows;
+    }
+
+    private static TableRange nextRange() {
+        return new TableRange(
+                TABLE_NAME,
+                PtBytes.toBytes("row_" + NUM_ROWS),
+                PtBytes.EMPTY_BYTE_ARRAY,
+                ImmutableList.<byte[]>of(),
+                NUM_ROWS);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.EmbeddedDbKvsWideRowsTable;
+
+/**
+ * Measures the client-side cost of decoding DbKvs read results against an embedded database.
+ *
+ * Each invocation counts as one operation per returned cell, so running with the JMH GC profiler
+ * ({@code -prof gc}) reports {@code gc.alloc.rate.norm} as bytes allocated per returned cell.
+ */
+@State(Scope.Benchmark)
+public class DbKvsReadDecodingBenchmarks {
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(EmbeddedDbKvsWideRowsTable.NUM_CELLS)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 60, timeUnit = TimeUnit.SECONDS)
+    public Object getRowsAllColumns(EmbeddedDbKvsWideRowsTable table) {
+        Map<Cell, Value> result = table.getKvs().getRows(
+                table.getTableRef(),
+                table.getRows(),
+                ColumnSelection.all(),
+                Long.MAX_VALUE);
+        Preconditions.checkState(result.size() == EmbeddedDbKvsWideRowsTable.NUM_CELLS,
+                "Should be %s cells, but were: %s", EmbeddedDbKvsWideRowsTable.NUM_CELLS, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(EmbeddedDbKvsWideRowsTable.NUM_CELLS)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 60, timeUnit = TimeUnit.SECONDS)
+    public int getRowsColumnRangeAllColumns(EmbeddedDbKvsWideRowsTable table, Blackhole blackhole) {
+        Map<byte[], RowColumnRangeIterator> result = table.getKvs().getRowsColumnRange(
+                table.getTableRef(),
+                table.getRows(),
+                BatchColumnRangeSelection.create(null, null, EmbeddedDbKvsWideRowsTable.NUM_COLS_PER_ROW),
+                Long.MAX_VALUE);
+        int count = 0;
+        for (RowColumnRangeIterator iter : result.values()) {
+            while (iter.hasNext()) {
+                blackhole.consume(iter.next());
+                ++count;
+            }
+        }
+        Preconditions.checkState(count == EmbeddedDbKvsWideRowsTable.NUM_CELLS,
+                "Should be %s cells, but were: %s", EmbeddedDbKvsWideRowsTable.NUM_CELLS, count);
+        return count;
+    }
+}
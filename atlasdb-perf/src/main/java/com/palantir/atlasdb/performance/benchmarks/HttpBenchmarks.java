@@ -15,24 +15,41 @@
  */
 package com.palantir.atlasdb.performance.benchmarks;
 
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.MediaType;
 
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.net.HttpHeaders;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.common.remoting.HeaderAccessUtils;
+import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockCollections;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
 
 @State(Scope.Thread)
 public class HttpBenchmarks {
@@ -51,6 +68,71 @@ public class HttpBenchmarks {
                     .put(HttpHeaders.EXPECT.toLowerCase(), ImmutableList.of("12391572384129734"))
                     .build();
 
+    /**
+     * The body of a lock request for a transaction committing to many rows, and of the token granted for it,
+     * in each wire format the lock service supports.
+     */
+    @State(Scope.Thread)
+    public static class LockRpcBodies {
+        private static final int NUM_LOCKS = 100;
+
+        @Param({"json", "smile"})
+        private String format;
+
+        private ObjectMapper mapper;
+        private LockRequest lockRequest;
+        private byte[] serializedLockRequest;
+        private byte[] serializedHeldLocksToken;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            mapper = format.equals("smile") ? new ObjectMapper(new SmileFactory()) : new ObjectMapper();
+
+            ImmutableSortedMap.Builder<LockDescriptor, LockMode> builder = ImmutableSortedMap.naturalOrder();
+            for (int i = 0; i < NUM_LOCKS; i++) {
+                builder.put(AtlasRowLockDescriptor.of("benchmark.table", PtBytes.toBytes("row_" + i)), LockMode.WRITE);
+            }
+            SortedMap<LockDescriptor, LockMode> locks = builder.build();
+            lockRequest = LockRequest.builder(locks).doNotBlock().build();
+            serializedLockRequest = mapper.writeValueAsBytes(lockRequest);
+
+            long now = System.currentTimeMillis();
+            HeldLocksToken token = new HeldLocksToken(
+                    BigInteger.valueOf(now),
+                    LockClient.of("benchmark"),
+                    now,
+                    now + LockRequest.DEFAULT_LOCK_TIMEOUT.toMillis(),
+                    LockCollections.of(locks),
+                    LockRequest.DEFAULT_LOCK_TIMEOUT,
+                    null);
+            serializedHeldLocksToken = mapper.writeValueAsBytes(token);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public byte[] serializeLockRequest(LockRpcBodies bodies) throws IOException {
+        return bodies.mapper.writeValueAsBytes(bodies.lockRequest);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public LockRequest deserializeLockRequest(LockRpcBodies bodies) throws IOException {
+        return bodies.mapper.readValue(bodies.serializedLockRequest, LockRequest.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public HeldLocksToken deserializeHeldLocksToken(LockRpcBodies bodies) throws IOException {
+        return bodies.mapper.readValue(bodies.serializedHeldLocksToken, HeldLocksToken.class);
+    }
+
     @Benchmark
     @Threads(1)
     @Warmup(time = 3, timeUnit = TimeUnit.SECONDS)
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.EmbeddedJdbcKvsTable;
+
+/**
+ * Compares sequential and concurrent execution of the partitions of large JDBC key value service reads and writes,
+ * and measures check and set throughput when several threads contend for the same cell.
+ */
+@State(Scope.Benchmark)
+public class JdbcKvsPartitionBenchmarks {
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getRowsManyPartitions(EmbeddedJdbcKvsTable table) {
+        Map<Cell, Value> result = table.getKvs().getRows(
+                table.getTableRef(), table.getRows(), ColumnSelection.all(), Long.MAX_VALUE);
+        Preconditions.checkState(result.size() == EmbeddedJdbcKvsTable.NUM_ROWS,
+                "expected %s cells, found %s cells", EmbeddedJdbcKvsTable.NUM_ROWS, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Object putManyPartitions(EmbeddedJdbcKvsTable table) {
+        Map<Cell, byte[]> values = table.getValues();
+        table.getKvs().put(table.getTableRef(), values, table.nextWriteTimestamp());
+        return values;
+    }
+
+    /**
+     * Each invocation increments a shared counter with check and set, retrying until it wins. The returned number of
+     * attempts shows how much work contention wastes.
+     */
+    @Benchmark
+    @Threads(4)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public int checkAndSetUnderContention(EmbeddedJdbcKvsTable table) {
+        Cell cell = table.getCounterCell();
+        for (int attempts = 1; ; attempts++) {
+            byte[] current = Iterables.getOnlyElement(table.getKvs().get(table.getTableRef(),
+                    ImmutableMap.of(cell, AtlasDbConstants.TRANSACTION_TS + 1)).values()).getContents();
+            byte[] next = Ints.toByteArray(Ints.fromByteArray(current) + 1);
+            try {
+                table.getKvs().checkAndSet(CheckAndSetRequest.singleCell(table.getTableRef(), cell, current, next));
+                return attempts;
+            } catch (CheckAndSetException e) {
+                // Another thread incremented the counter first; re-read and retry.
+            }
+        }
+    }
+}
@@ -36,8 +36,11 @@ import org.openjdk.jmh.infra.Blackhole;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.CqlWideRowsTable;
 import com.palantir.atlasdb.performance.benchmarks.table.Tables;
 import com.palantir.atlasdb.performance.benchmarks.table.VeryWideRowTable;
 import com.palantir.atlasdb.performance.benchmarks.table.WideRowsTable;
@@ -50,25 +53,7 @@ public class KvsGetRowsColumnRangeBenchmarks {
     @Warmup(time = 16, timeUnit = TimeUnit.SECONDS)
     @Measurement(time = 160, timeUnit = TimeUnit.SECONDS)
     public Object getAllColumnsAligned(WideRowsTable table) {
-        List<byte[]> rows =
-                IntStream.rangeClosed(0, WideRowsTable.NUM_ROWS - 1)
-                        .mapToObj(WideRowsTable::getRow)
-                        .collect(Collectors.toList());
-        RowColumnRangeIterator rowsColumnRange =
-                table.getKvs().getRowsColumnRange(
-                        table.getTableRef(),
-                        rows,
-                        new ColumnRangeSelection(null, null),
-                        10000,
-                        Long.MAX_VALUE);
-        int expectedNumCells = WideRowsTable.NUM_ROWS * WideRowsTable.NUM_COLS_PER_ROW;
-        List<Map.Entry<Cell, Value>> loadedCells = new ArrayList<>(expectedNumCells);
-        while (rowsColumnRange.hasNext()) {
-            loadedCells.add(rowsColumnRange.next());
-        }
-        Preconditions.checkState(loadedCells.size() == expectedNumCells,
-                "Should be %s cells, but were: %s", expectedNumCells, loadedCells.size());
-        return loadedCells;
+        return getAllColumns(table.getKvs(), table.getTableRef(), 10000);
     }
 
     @Benchmark
@@ -76,25 +61,23 @@ public class KvsGetRowsColumnRangeBenchmarks {
     @Warmup(time = 16, timeUnit = TimeUnit.SECONDS)
     @Measurement(time = 160, timeUnit = TimeUnit.SECONDS)
     public Object getAllColumnsUnaligned(WideRowsTable table) {
-        List<byte[]> rows =
-                IntStream.rangeClosed(0, WideRowsTable.NUM_ROWS - 1)
-                        .mapToObj(WideRowsTable::getRow)
-                        .collect(Collectors.toList());
-        RowColumnRangeIterator rowsColumnRange =
-                table.getKvs().getRowsColumnRange(
-                        table.getTableRef(),
-                        rows,
-                        new ColumnRangeSelection(null, null),
-                        10017,
-                        Long.MAX_VALUE);
-        int expectedNumCells = WideRowsTable.NUM_ROWS * WideRowsTable.NUM_COLS_PER_ROW;
-        List<Map.Entry<Cell, Value>> loadedCells = new ArrayList<>(expectedNumCells);
-        while (rowsColumnRange.hasNext()) {
-            loadedCells.add(rowsColumnRange.next());
-        }
-        Preconditions.checkState(loadedCells.size() == expectedNumCells,
-                "Should be %s cells, but were: %s", expectedNumCells, loadedCells.size());
-        return loadedCells;
+        return getAllColumns(table.getKvs(), table.getTableRef(), 10017);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 16, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 160, timeUnit = TimeUnit.SECONDS)
+    public Object getAllColumnsAlignedCql(CqlWideRowsTable table) {
+        return getAllColumns(table.getKvs(), table.getTableRef(), 10000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 16, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 160, timeUnit = TimeUnit.SECONDS)
+    public Object getAllColumnsUnalignedCql(CqlWideRowsTable table) {
+        return getAllColumns(table.getKvs(), table.getTableRef(), 10017);
     }
 
     @Benchmark
@@ -119,4 +102,25 @@ public class KvsGetRowsColumnRangeBenchmarks {
         return count;
     }
 
+    private static Object getAllColumns(KeyValueService kvs, TableReference tableRef, int cellBatchHint) {
+        List<byte[]> rows =
+                IntStream.rangeClosed(0, WideRowsTable.NUM_ROWS - 1)
+                        .mapToObj(WideRowsTable::getRow)
+                        .collect(Collectors.toList());
+        RowColumnRangeIterator rowsColumnRange =
+                kvs.getRowsColumnRange(
+                        tableRef,
+                        rows,
+                        new ColumnRangeSelection(null, null),
+                        cellBatchHint,
+                        Long.MAX_VALUE);
+        int expectedNumCells = WideRowsTable.NUM_ROWS * WideRowsTable.NUM_COLS_PER_ROW;
+        List<Map.Entry<Cell, Value>> loadedCells = new ArrayList<>(expectedNumCells);
+        while (rowsColumnRange.hasNext()) {
+            loadedCells.add(rowsColumnRange.next());
+        }
+        Preconditions.checkState(loadedCells.size() == expectedNumCells,
+                "Should be %s cells, but were: %s", expectedNumCells, loadedCells.size());
+        return loadedCells;
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.ConsecutiveNarrowTable;
+
+/**
+ * Reads batches of a different, random size on every invocation. Against a relational backend whose queries
+ * depend on the batch size, each new size needs its statement parsed and planned again.
+ */
+@State(Scope.Benchmark)
+public class KvsMixedBatchSizeGetBenchmarks {
+    private static final int MAX_BATCH_SIZE = 256;
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getCellsOfMixedBatchSizes(ConsecutiveNarrowTable.CleanNarrowTable table) {
+        Set<Cell> request = table.getCellsRequest(nextBatchSize(table));
+        Map<Cell, Value> result = table.getKvs().get(table.getTableRef(), toReadAtLatest(request));
+        Preconditions.checkState(result.size() == request.size(),
+                "expected %s cells, found %s cells", request.size(), result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getRowsOfMixedBatchSizes(ConsecutiveNarrowTable.CleanNarrowTable table) {
+        List<byte[]> rows = table.getCellsRequest(nextBatchSize(table)).stream()
+                .map(Cell::getRowName)
+                .collect(Collectors.toList());
+        Map<Cell, Value> result = table.getKvs().getRows(
+                table.getTableRef(), rows, ColumnSelection.all(), Long.MAX_VALUE);
+        Preconditions.checkState(result.size() == rows.size(),
+                "expected %s cells, found %s cells", rows.size(), result.size());
+        return result;
+    }
+
+    private static int nextBatchSize(ConsecutiveNarrowTable table) {
+        return 1 + table.getRandom().nextInt(MAX_BATCH_SIZE);
+    }
+
+    private static Map<Cell, Long> toReadAtLatest(Set<Cell> cells) {
+        return cells.stream().collect(Collectors.toMap(cell -> cell, cell -> Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.HeavilyVersionedPostgresTable;
+
+/**
+ * Compares the latest version query strategies of Postgres DbKvs on a table where every cell has
+ * {@value HeavilyVersionedPostgresTable#NUM_VERSIONS} versions.
+ */
+@State(Scope.Benchmark)
+public class LatestVersionQueryBenchmarks {
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getCells(HeavilyVersionedPostgresTable table) {
+        Map<Cell, Value> result = table.getKvs().get(table.getTableRef(), table.getCellsToRead());
+        checkResult(result);
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getRows(HeavilyVersionedPostgresTable table) {
+        Map<Cell, Value> result = table.getKvs().getRows(
+                table.getTableRef(),
+                table.getRows(),
+                ColumnSelection.all(),
+                Long.MAX_VALUE);
+        checkResult(result);
+        return result;
+    }
+
+    private static void checkResult(Map<Cell, Value> result) {
+        Preconditions.checkState(result.size() == HeavilyVersionedPostgresTable.NUM_CELLS,
+                "Should be %s cells, but were: %s", HeavilyVersionedPostgresTable.NUM_CELLS, result.size());
+        Value value = result.values().iterator().next();
+        Preconditions.checkState(value.getTimestamp() == HeavilyVersionedPostgresTable.NUM_VERSIONS,
+                "Should have read the latest version, but read the one at timestamp %s", value.getTimestamp());
+    }
+}
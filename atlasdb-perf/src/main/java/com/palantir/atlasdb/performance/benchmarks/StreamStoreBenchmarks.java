@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.palantir.atlasdb.performance.benchmarks.table.StreamStoreTables;
+
+/**
+ * Performance benchmarks for storing and loading a multi-block stream, with blocks pipelined to the configured depth.
+ */
+@State(Scope.Benchmark)
+public class StreamStoreBenchmarks {
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public long storeStream(StreamStoreTables tables) {
+        return tables.storeNewStream();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public long loadStream(StreamStoreTables tables) throws IOException {
+        // Read the stream after its transaction has committed, since blocks are only prefetched from then on.
+        InputStream loadedStream = tables.getTransactionManager().runTaskReadOnly(
+                txn -> tables.getStreamStore().loadStream(txn, tables.getStoredStreamId()));
+        long bytesRead;
+        try (InputStream stream = loadedStream) {
+            bytesRead = ByteStreams.copy(stream, ByteStreams.nullOutputStream());
+        }
+        Preconditions.checkState(bytesRead == tables.getStreamLength(),
+                "Read %s bytes from the stream, but expected to read the whole stream", bytesRead);
+        return bytesRead;
+    }
+}
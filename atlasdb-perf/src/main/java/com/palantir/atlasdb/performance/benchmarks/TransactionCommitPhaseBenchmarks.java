@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.performance.benchmarks.table.CommitPhaseTables;
+
+/**
+ * Performance benchmarks for the commit path of {@code SnapshotTransaction} and {@code SerializableTransaction}.
+ * Every benchmark runs real transactions, and {@link CommitPhaseTables} logs how much of each commit went to lock
+ * acquisition, conflict checking, value writes, serializable verification and the commit timestamp put. Run them
+ * against an in-process backend (optionally with injected latency) to see which phase a change to the commit path
+ * affects.
+ */
+@State(Scope.Benchmark)
+public class TransactionCommitPhaseBenchmarks {
+
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * Writes {@link #BATCH_SIZE} cells without reading anything, so the commit has to lock their rows, check them for
+     * write-write conflicts, write them and put the commit timestamp.
+     */
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object writeOnlyCommit(CommitPhaseTables tables) {
+        Map<Cell, byte[]> batch = tables.generateBatchToInsert(BATCH_SIZE);
+        return tables.runTaskAndTimeCommit(txn -> {
+            txn.put(tables.getSnapshotTableRef(), batch);
+            return batch;
+        });
+    }
+
+    /**
+     * Reads {@link #BATCH_SIZE} cells and writes one in a serializable table, so the commit has to verify the reads.
+     * Compare with {@link #snapshotReadWriteCommit} to isolate the cost of the verification.
+     */
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object serializableReadWriteCommit(CommitPhaseTables tables) {
+        return readWriteCommit(tables, tables.getSerializableTableRef());
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object snapshotReadWriteCommit(CommitPhaseTables tables) {
+        return readWriteCommit(tables, tables.getSnapshotTableRef());
+    }
+
+    private static Object readWriteCommit(CommitPhaseTables tables, TableReference tableRef) {
+        Set<Cell> cellsToRead = tables.getRandomExistingCells(BATCH_SIZE);
+        Map<Cell, byte[]> cellToWrite = tables.generateBatchToInsert(1);
+        return tables.runTaskAndTimeCommit(txn -> {
+            Map<Cell, byte[]> read = txn.get(tableRef, cellsToRead);
+            txn.put(tableRef, cellToWrite);
+            return read;
+        });
+    }
+}
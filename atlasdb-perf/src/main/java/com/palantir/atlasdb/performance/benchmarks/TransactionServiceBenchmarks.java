@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.performance.benchmarks.endpoint.TransactionServiceEndpoint;
+
+/**
+ * Compares writing commit timestamps one at a time with group commit. Each pair of benchmarks runs with the same
+ * number of threads, so the difference in time per commit is the difference in commits per second.
+ */
+public class TransactionServiceBenchmarks {
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(1)
+    public void singleThreadCommitUnbatched(TransactionServiceEndpoint transactionService) {
+        transactionService.commitUnbatched();
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(1)
+    public void singleThreadCommitWithGroupCommit(TransactionServiceEndpoint transactionService) {
+        transactionService.commitWithGroupCommit();
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(32)
+    public void manyThreadsCommitUnbatched(TransactionServiceEndpoint transactionService) {
+        transactionService.commitUnbatched();
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(32)
+    public void manyThreadsCommitWithGroupCommit(TransactionServiceEndpoint transactionService) {
+        transactionService.commitWithGroupCommit();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
+import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Commits transactions straight through a {@link TransactionService}, either one at a time or with commits from
+ * concurrent callers written together.
+ */
+@State(Scope.Benchmark)
+public class TransactionServiceEndpoint {
+
+    private AtlasDbServicesConnector connector;
+    private TimestampService timestampService;
+    private TransactionService unbatchedTransactionService;
+    private TransactionService groupCommitTransactionService;
+
+    public void commitUnbatched() {
+        commit(unbatchedTransactionService);
+    }
+
+    public void commitWithGroupCommit() {
+        commit(groupCommitTransactionService);
+    }
+
+    private void commit(TransactionService transactionService) {
+        long startTimestamp = timestampService.getFreshTimestamp();
+        transactionService.putUnlessExists(startTimestamp, startTimestamp + 1);
+    }
+
+    @Setup(Level.Trial)
+    public void setup(AtlasDbServicesConnector conn) {
+        this.connector = conn;
+        AtlasDbServices services = conn.connect();
+        this.timestampService = services.getTimestampService();
+        this.unbatchedTransactionService =
+                TransactionServices.createTransactionService(services.getKeyValueService());
+        this.groupCommitTransactionService =
+                TransactionServices.createGroupCommitTransactionService(services.getKeyValueService());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws Exception {
+        this.connector.close();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Bytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.util.crypto.Sha256Hash;
+
+/**
+ * A minimal stream store over two plain tables, which stores and loads blocks the same way generated stream stores
+ * do but leaves out hash lookups and reference tracking. Upload parallelism and read prefetch depth are supplied
+ * by the benchmark.
+ */
+class BenchmarkStreamStore extends AbstractPersistentStreamStore {
+    private static final byte[] COLUMN = PtBytes.toBytes(Tables.COLUMN_NAME);
+
+    private final TableReference metadataTableRef;
+    private final TableReference valueTableRef;
+    private final int uploadParallelism;
+    private final int prefetchDepth;
+
+    BenchmarkStreamStore(
+            TransactionManager txManager,
+            TableReference metadataTableRef,
+            TableReference valueTableRef,
+            int uploadParallelism,
+            int prefetchDepth) {
+        super(txManager);
+        this.metadataTableRef = metadataTableRef;
+        this.valueTableRef = valueTableRef;
+        this.uploadParallelism = uploadParallelism;
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    @Override
+    protected int getUploadParallelism() {
+        return uploadParallelism;
+    }
+
+    @Override
+    protected boolean storesBlocksWithoutChangingMetadata() {
+        return true;
+    }
+
+    @Override
+    protected int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    @Override
+    protected long getInMemoryThreshold() {
+        // One block per batch, so that prefetching is what decides how many blocks are loaded at once.
+        return BLOCK_SIZE_IN_BYTES;
+    }
+
+    @Override
+    protected void storeBlock(Transaction t, long id, long blockNumber, byte[] block) {
+        // As in generated stream stores, touch the metadata so that storing conflicts with a concurrent cleanup.
+        StreamMetadata metadata = getMetadata(t, ImmutableSet.of(id)).get(id);
+        Preconditions.checkState(metadata != null && metadata.getStatus() == Status.STORING,
+                "This stream is being cleaned up while storing blocks: %s", id);
+        t.put(metadataTableRef, ImmutableMap.of(metadataCell(id), metadata.toByteArray()));
+        t.put(valueTableRef, ImmutableMap.of(blockCell(id, blockNumber), block));
+    }
+
+    @Override
+    protected void loadSingleBlockToOutputStream(Transaction t, Long id, long blockId, OutputStream os) {
+        Cell cell = blockCell(id, blockId);
+        byte[] block = t.get(valueTableRef, ImmutableSet.of(cell)).get(cell);
+        Preconditions.checkState(block != null, "Missing block %s of stream %s", blockId, id);
+        try {
+            os.write(block);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Error writing block to output stream", e);
+        }
+    }
+
+    @Override
+    protected Map<Long, StreamMetadata> getMetadata(Transaction t, Set<Long> ids) {
+        Map<Cell, Long> cellsToIds = Maps.newHashMapWithExpectedSize(ids.size());
+        for (Long id : ids) {
+            cellsToIds.put(metadataCell(id), id);
+        }
+        Map<Long, StreamMetadata> metadata = Maps.newHashMapWithExpectedSize(ids.size());
+        for (Map.Entry<Cell, byte[]> entry : t.get(metadataTableRef, cellsToIds.keySet()).entrySet()) {
+            try {
+                metadata.put(cellsToIds.get(entry.getKey()), StreamMetadata.parseFrom(entry.getValue()));
+            } catch (InvalidProtocolBufferException e) {
+                throw Throwables.throwUncheckedException(e);
+            }
+        }
+        return metadata;
+    }
+
+    @Override
+    protected void putMetadataAndHashIndexTask(Transaction t, Map<Long, StreamMetadata> streamIdsToMetadata) {
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(streamIdsToMetadata.size());
+        for (Map.Entry<Long, StreamMetadata> entry : streamIdsToMetadata.entrySet()) {
+            values.put(metadataCell(entry.getKey()), entry.getValue().toByteArray());
+        }
+        t.put(metadataTableRef, values);
+    }
+
+    @Override
+    protected File createTempFile(Long id) throws IOException {
+        File file = File.createTempFile("atlasdb-perf-stream-" + id, ".tmp");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Override
+    public Map<Sha256Hash, Long> lookupStreamIdsByHash(Transaction t, Set<Sha256Hash> hashes) {
+        return ImmutableMap.of();
+    }
+
+    @Override
+    protected void touchMetadataWhileMarkingUsedForConflicts(Transaction t, Iterable<Long> ids) {
+        // references are not tracked
+    }
+
+    @Override
+    protected void markStreamsAsUsedInternal(Transaction t, Map<Long, byte[]> streamIdsToReference) {
+        // references are not tracked
+    }
+
+    @Override
+    public void unmarkStreamsAsUsed(Transaction t, Map<Long, byte[]> streamIdsToReference) {
+        // references are not tracked
+    }
+
+    private static Cell metadataCell(long id) {
+        return Cell.create(PtBytes.toBytes(id), COLUMN);
+    }
+
+    private static Cell blockCell(long id, long blockNumber) {
+        return Cell.create(Bytes.concat(PtBytes.toBytes(id), PtBytes.toBytes(blockNumber)), COLUMN);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
+import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
+import com.palantir.atlasdb.performance.benchmarks.table.CommitPhaseTimer.Phase;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
+import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+
+/**
+ * State class for benchmarking the individual phases of a transaction commit. Holds two tables with the same
+ * {@link #NUM_ROWS} rows, one with snapshot isolation and one with serializable conflict handling, and a
+ * transaction manager whose key value service and lock service calls are attributed to commit phases by a
+ * {@link CommitPhaseTimer}. The mean time per commit of each phase is logged after every iteration.
+ */
+@State(Scope.Benchmark)
+public class CommitPhaseTables {
+    public static final int NUM_ROWS = 1000;
+
+    private static final TableReference SNAPSHOT_TABLE_REF =
+            TableReference.createFromFullyQualifiedName("performance.commit_phase_snapshot");
+    private static final TableReference SERIALIZABLE_TABLE_REF =
+            TableReference.createFromFullyQualifiedName("performance.commit_phase_serializable");
+
+    private static final Logger log = LoggerFactory.getLogger(CommitPhaseTables.class);
+
+    private Random random = new Random(Tables.RANDOM_SEED);
+
+    private AtlasDbServicesConnector connector;
+    private AtlasDbServices services;
+    private final CommitPhaseTimer phaseTimer = new CommitPhaseTimer();
+    private TransactionManager timedTransactionManager;
+
+    public TableReference getSnapshotTableRef() {
+        return SNAPSHOT_TABLE_REF;
+    }
+
+    public TableReference getSerializableTableRef() {
+        return SERIALIZABLE_TABLE_REF;
+    }
+
+    @Setup(Level.Trial)
+    public void setup(AtlasDbServicesConnector conn) {
+        this.connector = conn;
+        this.services = conn.connect();
+        createAndPopulate(SNAPSHOT_TABLE_REF, ConflictHandler.RETRY_ON_WRITE_WRITE);
+        createAndPopulate(SERIALIZABLE_TABLE_REF, ConflictHandler.SERIALIZABLE);
+        this.timedTransactionManager = createTimedTransactionManager();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPhaseTimes() {
+        phaseTimer.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void logPhaseTimes() {
+        log.info("Mean microseconds per commit by phase over {} commits: {}",
+                phaseTimer.getCommits(), phaseTimer.getMeanMicrosPerCommit());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws Exception {
+        services.getKeyValueService().dropTables(Sets.newHashSet(SNAPSHOT_TABLE_REF, SERIALIZABLE_TABLE_REF));
+        connector.close();
+    }
+
+    /**
+     * Runs the task in a transaction of the timed transaction manager, and counts the calls made while the
+     * transaction commits towards the phases of the commit.
+     */
+    public <T> T runTaskAndTimeCommit(TransactionTask<T, RuntimeException> task) {
+        try {
+            return timedTransactionManager.runTaskThrowOnConflict(txn -> {
+                T result = task.execute(txn);
+                phaseTimer.startCommit();
+                return result;
+            });
+        } finally {
+            phaseTimer.endCommit();
+        }
+    }
+
+    private TransactionManager createTimedTransactionManager() {
+        KeyValueService kvs = new CommitPhaseTimingKeyValueService(services.getKeyValueService(), phaseTimer);
+        RemoteLockService lockService = services.getLockService();
+        RemoteLockService timedLockService = new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return lockService;
+            }
+
+            @Override
+            public LockRefreshToken lock(String client, LockRequest request) throws InterruptedException {
+                long start = System.nanoTime();
+                try {
+                    return super.lock(client, request);
+                } finally {
+                    phaseTimer.record(Phase.LOCK_ACQUISITION, start);
+                }
+            }
+        };
+        return new SerializableTransactionManager(
+                kvs,
+                services.getTimestampService(),
+                LockClient.of("commit phase benchmarks"),
+                timedLockService,
+                TransactionServices.createTransactionService(kvs),
+                Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                ConflictDetectionManagers.createDefault(kvs),
+                SweepStrategyManagers.createDefault(kvs),
+                NoOpCleaner.INSTANCE);
+    }
+
+    private void createAndPopulate(TableReference tableRef, ConflictHandler conflictHandler) {
+        Benchmarks.createTable(
+                services.getKeyValueService(),
+                tableRef,
+                Tables.ROW_COMPONENT,
+                Tables.COLUMN_NAME,
+                TableMetadataPersistence.SweepStrategy.NOTHING,
+                conflictHandler);
+        services.getTransactionManager().runTaskThrowOnConflict(txn -> {
+            txn.put(tableRef, Tables.generateContinuousBatch(random, 0, NUM_ROWS));
+            return null;
+        });
+    }
+
+    public Map<Cell, byte[]> generateBatchToInsert(int size) {
+        return Tables.generateRandomBatch(random, size);
+    }
+
+    /**
+     * @return up to {@code size} distinct cells, each of which has a committed value in both tables.
+     */
+    public Set<Cell> getRandomExistingCells(int size) {
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            cells.add(Cell.create(Ints.toByteArray(random.nextInt(NUM_ROWS)), Tables.COLUMN_NAME_IN_BYTES.array()));
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+
+/**
+ * Attributes the time that commits spend in key value service and lock service calls to the phases of
+ * {@code SnapshotTransaction.commit()}. Only calls made between {@link #startCommit()} and {@link #endCommit()} are
+ * counted, so the reads and writes a transaction makes before committing are left out.
+ * <p>
+ * Value writes run alongside conflict checking, so the phases can add up to more than the time the commits took.
+ */
+public class CommitPhaseTimer {
+    public enum Phase {
+        LOCK_ACQUISITION,
+        CONFLICT_CHECKING,
+        VALUE_WRITES,
+        SERIALIZABLE_VERIFICATION,
+        COMMIT_TIMESTAMP_PUT
+    }
+
+    private final Map<Phase, AtomicLong> nanosByPhase = new EnumMap<>(Phase.class);
+    private final AtomicLong commits = new AtomicLong();
+    private volatile boolean committing = false;
+    private volatile boolean verifying = false;
+
+    public CommitPhaseTimer() {
+        for (Phase phase : Phase.values()) {
+            nanosByPhase.put(phase, new AtomicLong());
+        }
+    }
+
+    public void startCommit() {
+        verifying = false;
+        committing = true;
+    }
+
+    public void endCommit() {
+        committing = false;
+        commits.incrementAndGet();
+    }
+
+    public void reset() {
+        for (AtomicLong nanos : nanosByPhase.values()) {
+            nanos.set(0);
+        }
+        commits.set(0);
+    }
+
+    /**
+     * Commit timestamps are looked up both to check for write-write conflicts and to verify serializable reads.
+     * Only the verification reads anything other than the transactions table during a commit, and it runs after the
+     * conflict check, so lookups count towards the conflict check until the first such read.
+     */
+    Phase getReadPhase(TableReference tableRef) {
+        if (!TransactionConstants.TRANSACTION_TABLE.equals(tableRef)) {
+            verifying = true;
+        }
+        return verifying ? Phase.SERIALIZABLE_VERIFICATION : Phase.CONFLICT_CHECKING;
+    }
+
+    void record(Phase phase, long startNanos) {
+        if (committing) {
+            nanosByPhase.get(phase).addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @return the mean time per commit spent in each phase, in microseconds.
+     */
+    public Map<Phase, Long> getMeanMicrosPerCommit() {
+        Map<Phase, Long> means = new EnumMap<>(Phase.class);
+        long commitCount = Math.max(commits.get(), 1);
+        for (Map.Entry<Phase, AtomicLong> e : nanosByPhase.entrySet()) {
+            means.put(e.getKey(), TimeUnit.NANOSECONDS.toMicros(e.getValue().get() / commitCount));
+        }
+        return means;
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+}
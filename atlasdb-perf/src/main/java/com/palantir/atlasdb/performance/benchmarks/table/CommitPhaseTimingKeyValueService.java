@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.Map;
+
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.performance.benchmarks.table.CommitPhaseTimer.Phase;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Times the calls a commit makes against the delegate and attributes them to a {@link CommitPhaseTimer.Phase}.
+ * Ranges are only timed until the range is returned, rather than for every page.
+ */
+public class CommitPhaseTimingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final CommitPhaseTimer timer;
+
+    public CommitPhaseTimingKeyValueService(KeyValueService delegate, CommitPhaseTimer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    @Override
+    public KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        long start = System.nanoTime();
+        try {
+            return super.get(tableRef, timestampByCell);
+        } finally {
+            timer.record(timer.getReadPhase(tableRef), start);
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        long start = System.nanoTime();
+        try {
+            return super.getRows(tableRef, rows, columnSelection, timestamp);
+        } finally {
+            timer.record(timer.getReadPhase(tableRef), start);
+        }
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        long start = System.nanoTime();
+        try {
+            return super.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        } finally {
+            timer.record(timer.getReadPhase(tableRef), start);
+        }
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnRangeSelection columnRangeSelection,
+                                                     int cellBatchHint,
+                                                     long timestamp) {
+        long start = System.nanoTime();
+        try {
+            return super.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        } finally {
+            timer.record(timer.getReadPhase(tableRef), start);
+        }
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                       RangeRequest rangeRequest,
+                                                       long timestamp) {
+        long start = System.nanoTime();
+        try {
+            return super.getRange(tableRef, rangeRequest, timestamp);
+        } finally {
+            timer.record(timer.getReadPhase(tableRef), start);
+        }
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        long start = System.nanoTime();
+        try {
+            return super.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+        } finally {
+            timer.record(timer.getReadPhase(tableRef), start);
+        }
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        long start = System.nanoTime();
+        try {
+            return super.getLatestTimestamps(tableRef, timestampByCell);
+        } finally {
+            timer.record(Phase.CONFLICT_CHECKING, start);
+        }
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        long start = System.nanoTime();
+        try {
+            super.put(tableRef, values, timestamp);
+        } finally {
+            timer.record(Phase.VALUE_WRITES, start);
+        }
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        long start = System.nanoTime();
+        try {
+            super.multiPut(valuesByTable, timestamp);
+        } finally {
+            timer.record(Phase.VALUE_WRITES, start);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        long start = System.nanoTime();
+        try {
+            super.putUnlessExists(tableRef, values);
+        } finally {
+            timer.record(TransactionConstants.TRANSACTION_TABLE.equals(tableRef)
+                    ? Phase.COMMIT_TIMESTAMP_PUT
+                    : Phase.VALUE_WRITES, start);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.net.InetSocketAddress;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.cassandra.CQLKeyValueService;
+import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
+import com.palantir.atlasdb.performance.backend.CassandraKeyValueServiceInstrumentation;
+import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
+
+/**
+ * State class for reading the rows of a {@link WideRowsTable} through the CQL key value service.
+ * The data is written through the regular (Thrift) key value service; both read the same column families.
+ * Only works against the CASSANDRA backend.
+ */
+@State(Scope.Benchmark)
+public class CqlWideRowsTable {
+    private static final int CQL_PORT = 9042;
+
+    private KeyValueService kvs;
+
+    public KeyValueService getKvs() {
+        return kvs;
+    }
+
+    public TableReference getTableRef() {
+        return Tables.TABLE_REF;
+    }
+
+    @Setup
+    public void setup(AtlasDbServicesConnector conn, WideRowsTable table) {
+        DockerizedDatabaseUri uri = conn.getDatabaseUri();
+        Preconditions.checkState(
+                uri.getKeyValueServiceInstrumentation() instanceof CassandraKeyValueServiceInstrumentation,
+                "CQL benchmarks can only be run against Cassandra, but the backend was %s",
+                uri.getKeyValueServiceInstrumentation());
+        InetSocketAddress cqlAddress = new InetSocketAddress(uri.getAddress().getHostString(), CQL_PORT);
+        CassandraKeyValueServiceConfig config = (CassandraKeyValueServiceConfig)
+                uri.getKeyValueServiceInstrumentation().getKeyValueServiceConfig(cqlAddress);
+        kvs = CQLKeyValueService.create(CassandraKeyValueServiceConfigManager.createSimpleManager(config));
+    }
+
+    @TearDown
+    public void cleanup() {
+        kvs.close();
+    }
+}
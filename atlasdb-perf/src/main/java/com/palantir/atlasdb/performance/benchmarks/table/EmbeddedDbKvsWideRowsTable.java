@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableDbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableH2DdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionManagerAwareDbKvs;
+import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
+import com.palantir.nexus.db.pool.config.ImmutableH2ConnectionConfig;
+import com.palantir.nexus.db.pool.config.ImmutableMaskedValue;
+
+/**
+ * State class for a DbKvs backed by an embedded, in-memory H2 database, holding a table with several wide rows.
+ * Unlike the other tables this does not need a dockerized database, so it can be used to measure the client-side
+ * costs of DbKvs (such as result decoding) on a developer machine.
+ */
+@State(Scope.Benchmark)
+public class EmbeddedDbKvsWideRowsTable {
+    public static final int NUM_ROWS = 10;
+    public static final int NUM_COLS_PER_ROW = 10000;
+    public static final int NUM_CELLS = NUM_ROWS * NUM_COLS_PER_ROW;
+
+    private static final TableReference TABLE_REF = TableReference.createFromFullyQualifiedName(
+            "performance.embedded_wide_rows");
+    private static final long DATA_TIMESTAMP = 1L;
+
+    @Param({"50", "1000"})
+    private int readFetchSize;
+
+    private KeyValueService kvs;
+
+    public KeyValueService getKvs() {
+        return kvs;
+    }
+
+    public TableReference getTableRef() {
+        return TABLE_REF;
+    }
+
+    public List<byte[]> getRows() {
+        return IntStream.range(0, NUM_ROWS)
+                .mapToObj(AbstractWideRowsTable::getRow)
+                .collect(Collectors.toList());
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DbKeyValueServiceConfig config = ImmutableDbKeyValueServiceConfig.builder()
+                .ddl(ImmutableH2DdlConfig.builder()
+                        .metadataTable(AtlasDbConstants.DEFAULT_METADATA_TABLE)
+                        .readFetchSize(readFetchSize)
+                        .build())
+                .connection(ImmutableH2ConnectionConfig.builder()
+                        .url("jdbc:h2:mem:atlasdb-perf-" + readFetchSize + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+                        .dbLogin("sa")
+                        .dbPassword(ImmutableMaskedValue.of(""))
+                        .build())
+                .build();
+        kvs = ConnectionManagerAwareDbKvs.create(config);
+        Benchmarks.createTable(kvs, TABLE_REF, Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+        storeData();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        kvs.dropTable(TABLE_REF);
+        kvs.close();
+    }
+
+    private void storeData() {
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Map<Cell, byte[]> values = new HashMap<>(NUM_COLS_PER_ROW);
+            for (int j = 0; j < NUM_COLS_PER_ROW; j++) {
+                values.put(AbstractWideRowsTable.cell(i, j), Ints.toByteArray(i * NUM_COLS_PER_ROW + j));
+            }
+            kvs.put(TABLE_REF, values, DATA_TIMESTAMP);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.jdbc.config.ImmutableHikariDataSourceConfiguration;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.jdbc.ImmutableJdbcKeyValueConfiguration;
+import com.palantir.atlasdb.keyvalue.jdbc.JdbcKeyValueService;
+import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
+
+/**
+ * State class for a {@link JdbcKeyValueService} backed by an embedded, in-memory H2 database, holding enough narrow
+ * rows that a read or write of all of them is split into several partitions. The number of partitions run at once
+ * is a parameter, so a value of 1 measures the old sequential behaviour.
+ */
+@State(Scope.Benchmark)
+public class EmbeddedJdbcKvsTable {
+    public static final int NUM_ROWS = 10000;
+
+    private static final TableReference TABLE_REF = TableReference.createFromFullyQualifiedName(
+            "performance.embedded_jdbc");
+    private static final long DATA_TIMESTAMP = 1L;
+    private static final byte[] COLUMN = PtBytes.toBytes(Tables.COLUMN_NAME);
+    private static final Cell COUNTER_CELL = Cell.create(PtBytes.toBytes("counter"), COLUMN);
+
+    @Param({"1", "8"})
+    private int maxConcurrentPartitions;
+
+    private KeyValueService kvs;
+    private final AtomicLong nextWriteTimestamp = new AtomicLong(DATA_TIMESTAMP + 1);
+
+    public KeyValueService getKvs() {
+        return kvs;
+    }
+
+    public TableReference getTableRef() {
+        return TABLE_REF;
+    }
+
+    public Cell getCounterCell() {
+        return COUNTER_CELL;
+    }
+
+    public long nextWriteTimestamp() {
+        return nextWriteTimestamp.getAndIncrement();
+    }
+
+    public List<byte[]> getRows() {
+        return IntStream.range(0, NUM_ROWS)
+                .mapToObj(EmbeddedJdbcKvsTable::getRow)
+                .collect(Collectors.toList());
+    }
+
+    public Map<Cell, byte[]> getValues() {
+        Map<Cell, byte[]> values = new HashMap<>(NUM_ROWS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            values.put(Cell.create(getRow(i), COLUMN), Ints.toByteArray(i));
+        }
+        return values;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties properties = new Properties();
+        properties.put("jdbcUrl", "jdbc:h2:mem:atlasdb-perf-jdbc-" + maxConcurrentPartitions + ";DB_CLOSE_DELAY=-1");
+        properties.put("username", "sa");
+        properties.put("maximumPoolSize", Integer.toString(maxConcurrentPartitions + 2));
+        kvs = JdbcKeyValueService.create(ImmutableJdbcKeyValueConfiguration.builder()
+                .dataSourceConfig(ImmutableHikariDataSourceConfiguration.builder()
+                        .sqlDialect("H2")
+                        .properties(properties)
+                        .build())
+                .maxConcurrentPartitions(maxConcurrentPartitions)
+                .build());
+        Benchmarks.createTable(kvs, TABLE_REF, Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+        kvs.put(TABLE_REF, getValues(), DATA_TIMESTAMP);
+        kvs.checkAndSet(CheckAndSetRequest.newCell(TABLE_REF, COUNTER_CELL, Ints.toByteArray(0)));
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        kvs.dropTable(TABLE_REF);
+        kvs.close();
+    }
+
+    private static byte[] getRow(int index) {
+        return PtBytes.toBytes("row_" + index);
+    }
+}
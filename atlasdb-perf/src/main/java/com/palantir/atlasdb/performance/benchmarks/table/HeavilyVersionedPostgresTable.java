@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableDbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.LatestVersionQueryStrategy;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionManagerAwareDbKvs;
+import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
+import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
+import com.palantir.atlasdb.performance.backend.PostgresKeyValueServiceInstrumentation;
+import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
+
+/**
+ * State class for a Postgres DbKvs table in which every cell has many versions, read with each
+ * {@link LatestVersionQueryStrategy}. The number of table rows each strategy reads per query can be compared by
+ * running the queries under {@code EXPLAIN ANALYZE} against the same table.
+ * Only works against the POSTGRES backend.
+ */
+@State(Scope.Benchmark)
+public class HeavilyVersionedPostgresTable {
+    public static final int NUM_ROWS = 100;
+    public static final int NUM_COLS_PER_ROW = 10;
+    public static final int NUM_VERSIONS = 100;
+    public static final int NUM_CELLS = NUM_ROWS * NUM_COLS_PER_ROW;
+
+    private static final TableReference TABLE_REF = TableReference.createFromFullyQualifiedName(
+            "performance.heavily_versioned");
+
+    @Param({"GROUP_BY_MAX_TS", "INDEX_ORDERED"})
+    private LatestVersionQueryStrategy latestVersionQueryStrategy;
+
+    private KeyValueService kvs;
+
+    public KeyValueService getKvs() {
+        return kvs;
+    }
+
+    public TableReference getTableRef() {
+        return TABLE_REF;
+    }
+
+    public List<byte[]> getRows() {
+        return IntStream.range(0, NUM_ROWS)
+                .mapToObj(AbstractWideRowsTable::getRow)
+                .collect(Collectors.toList());
+    }
+
+    public Map<Cell, Long> getCellsToRead() {
+        Map<Cell, Long> cells = new HashMap<>(NUM_CELLS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int j = 0; j < NUM_COLS_PER_ROW; j++) {
+                cells.put(AbstractWideRowsTable.cell(i, j), Long.MAX_VALUE);
+            }
+        }
+        return cells;
+    }
+
+    @Setup(Level.Trial)
+    public void setup(AtlasDbServicesConnector conn) {
+        DockerizedDatabaseUri uri = conn.getDatabaseUri();
+        Preconditions.checkState(
+                uri.getKeyValueServiceInstrumentation() instanceof PostgresKeyValueServiceInstrumentation,
+                "Latest version query benchmarks can only be run against Postgres, but the backend was %s",
+                uri.getKeyValueServiceInstrumentation());
+        DbKeyValueServiceConfig defaultConfig = (DbKeyValueServiceConfig)
+                uri.getKeyValueServiceInstrumentation().getKeyValueServiceConfig(uri.getAddress());
+        DbKeyValueServiceConfig config = ImmutableDbKeyValueServiceConfig.builder()
+                .from(defaultConfig)
+                .ddl(ImmutablePostgresDdlConfig.builder()
+                        .latestVersionQueryStrategy(latestVersionQueryStrategy)
+                        .build())
+                .build();
+        kvs = ConnectionManagerAwareDbKvs.create(config);
+        if (!kvs.getAllTableNames().contains(TABLE_REF)) {
+            Benchmarks.createTable(kvs, TABLE_REF, Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+            storeData();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        kvs.dropTables(ImmutableSet.of(TABLE_REF));
+        kvs.close();
+    }
+
+    private void storeData() {
+        for (int version = 1; version <= NUM_VERSIONS; version++) {
+            Map<Cell, byte[]> values = new HashMap<>(NUM_CELLS);
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int j = 0; j < NUM_COLS_PER_ROW; j++) {
+                    values.put(AbstractWideRowsTable.cell(i, j), Ints.toByteArray(version));
+                }
+            }
+            kvs.put(TABLE_REF, values, version);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
+import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
+import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.stream.GenericStreamStore;
+import com.palantir.atlasdb.stream.PersistentStreamStore;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+
+/**
+ * State class for storing and loading a stream of {@link #NUM_BLOCKS} blocks. The pipeline depth is used both as
+ * the number of blocks stored concurrently and as the number of blocks prefetched while reading, so a depth of 1
+ * measures the old one-block-at-a-time behaviour. Run it with {@code --injected-latency-micros} to see how throughput
+ * scales with depth: loads scale, but every stored block rewrites the stream's metadata cell, so the commits of
+ * concurrently stored blocks queue up behind each other's lock on that cell.
+ */
+@State(Scope.Benchmark)
+public class StreamStoreTables {
+    public static final int NUM_BLOCKS = 16;
+
+    private static final TableReference METADATA_TABLE_REF =
+            TableReference.createFromFullyQualifiedName("performance.stream_metadata");
+    private static final TableReference VALUE_TABLE_REF =
+            TableReference.createFromFullyQualifiedName("performance.stream_value");
+
+    @Param({"1", "2", "4", "8"})
+    private int pipelineDepth;
+
+    private AtlasDbServicesConnector connector;
+    private AtlasDbServices services;
+    private PersistentStreamStore streamStore;
+    private byte[] data;
+    private long storedStreamId;
+    private final List<Long> newStreamIds = Lists.newArrayList();
+
+    public TransactionManager getTransactionManager() {
+        return services.getTransactionManager();
+    }
+
+    public PersistentStreamStore getStreamStore() {
+        return streamStore;
+    }
+
+    public long getStreamLength() {
+        return data.length;
+    }
+
+    /**
+     * Stores a new copy of the stream. It is deleted again after the benchmark invocation.
+     */
+    public long storeNewStream() {
+        long id = streamStore.storeStream(newDataStream()).getLhSide();
+        newStreamIds.add(id);
+        return id;
+    }
+
+    public long getStoredStreamId() {
+        return storedStreamId;
+    }
+
+    @Setup(Level.Trial)
+    public void setup(AtlasDbServicesConnector conn) {
+        this.connector = conn;
+        this.services = conn.connect();
+        Benchmarks.createTable(services.getKeyValueService(), METADATA_TABLE_REF, Tables.ROW_COMPONENT,
+                Tables.COLUMN_NAME, TableMetadataPersistence.SweepStrategy.NOTHING,
+                ConflictHandler.RETRY_ON_VALUE_CHANGED);
+        Benchmarks.createTable(services.getKeyValueService(), VALUE_TABLE_REF, Tables.ROW_COMPONENT,
+                Tables.COLUMN_NAME);
+
+        // The sequential baseline has no prefetching at all.
+        int prefetchDepth = pipelineDepth == 1 ? 0 : pipelineDepth;
+        streamStore = new BenchmarkStreamStore(
+                getTransactionManager(), METADATA_TABLE_REF, VALUE_TABLE_REF, pipelineDepth, prefetchDepth);
+
+        data = new byte[NUM_BLOCKS * GenericStreamStore.BLOCK_SIZE_IN_BYTES];
+        new Random(Tables.RANDOM_SEED).nextBytes(data);
+        storedStreamId = streamStore.storeStream(newDataStream()).getLhSide();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteNewStreams() {
+        for (long id : newStreamIds) {
+            RangeRequest streamRows = RangeRequest.builder().prefixRange(PtBytes.toBytes(id)).build();
+            services.getKeyValueService().deleteRange(METADATA_TABLE_REF, streamRows);
+            services.getKeyValueService().deleteRange(VALUE_TABLE_REF, streamRows);
+        }
+        newStreamIds.clear();
+    }
+
+    private InputStream newDataStream() {
+        return new ByteArrayInputStream(data);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws Exception {
+        services.getKeyValueService().dropTables(ImmutableSet.of(METADATA_TABLE_REF, VALUE_TABLE_REF));
+        connector.close();
+    }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -40,6 +41,7 @@ import com.palantir.atlasdb.performance.PerformanceResults;
 import com.palantir.atlasdb.performance.backend.DatabasesContainer;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabase;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
+import com.palantir.atlasdb.performance.backend.InProcessKeyValueServiceInstrumentation;
 import com.palantir.atlasdb.performance.backend.KeyValueServiceInstrumentation;
 
 import io.airlift.airline.Arguments;
@@ -51,7 +53,8 @@ import io.airlift.airline.SingleCommand;
 /**
  * The Atlas Perf(ormance) CLI is a tool for making and running AtlasDB performance tests.
  *
- * This requires you to have a docker-machine running and configured correctly.
+ * This requires you to have a docker-machine running and configured correctly, unless only in-process backends
+ * (see {@link InProcessKeyValueServiceInstrumentation}) are used.
  *
  * @author mwakerman, bullman
  */
@@ -65,6 +68,7 @@ public class AtlasDbPerfCli {
     private Set<String> tests;
 
     @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES or CASSANDRA)"
+            + " IN_MEMORY, ROCKSDB and H2 run inside the benchmark process and do not need docker."
             + " Defaults to all backends if not specified.")
     private Set<String> backends;
 
@@ -72,6 +76,11 @@ public class AtlasDbPerfCli {
             + "This is an alterative to specifying the --backend options that starts the docker containers locally.")
     private List<String> dbUris;
 
+    @Option(name = {"--injected-latency-micros"},
+            description = "Delay every key value service read and write by this many microseconds. Mostly useful"
+                    + " with the in-process backends, to approximate the network round trip to a real database.")
+    private Long injectedLatencyMicros;
+
     @Option(name = {"-l", "--list-tests"}, description = "Lists all available benchmarks.")
     private boolean listTests;
 
@@ -106,11 +115,14 @@ public class AtlasDbPerfCli {
             Set<String> backends = cli.backends != null
                     ? cli.backends
                     : KeyValueServiceInstrumentation.getBackends();
-            try (DatabasesContainer container = startupDatabase(backends)) {
+            List<KeyValueServiceInstrumentation> instrumentations = backends.stream()
+                    .map(KeyValueServiceInstrumentation::forDatabase)
+                    .collect(Collectors.toList());
+            try (DatabasesContainer container = startupDatabase(instrumentations)) {
                 runJmh(cli,
-                        container.getDockerizedDatabases()
-                                .stream()
-                                .map(DockerizedDatabase::getUri)
+                        Stream.concat(
+                                getInProcessUris(instrumentations),
+                                container.getDockerizedDatabases().stream().map(DockerizedDatabase::getUri))
                                 .collect(Collectors.toList()));
             }
         }
@@ -129,6 +141,9 @@ public class AtlasDbPerfCli {
                                 .map(DockerizedDatabaseUri::toString)
                                 .collect(Collectors.toList())
                                 .toArray(new String[uris.size()]));
+        if (cli.injectedLatencyMicros != null) {
+            optBuilder.param(BenchmarkParam.INJECTED_LATENCY_MICROS.getKey(), cli.injectedLatencyMicros.toString());
+        }
         if (cli.tests == null) {
             getAllBenchmarks().forEach(b -> optBuilder.include(".*" + b));
         } else {
@@ -141,13 +156,21 @@ public class AtlasDbPerfCli {
         }
     }
 
-    private static DatabasesContainer startupDatabase(Set<String> backends) {
+    private static DatabasesContainer startupDatabase(List<KeyValueServiceInstrumentation> instrumentations) {
         return DatabasesContainer.startup(
-                backends.stream()
-                        .map(KeyValueServiceInstrumentation::forDatabase)
+                instrumentations.stream()
+                        .filter(instrumentation ->
+                                !(instrumentation instanceof InProcessKeyValueServiceInstrumentation))
                         .collect(Collectors.toList()));
     }
 
+    private static Stream<DockerizedDatabaseUri> getInProcessUris(
+            List<KeyValueServiceInstrumentation> instrumentations) {
+        return instrumentations.stream()
+                .filter(instrumentation -> instrumentation instanceof InProcessKeyValueServiceInstrumentation)
+                .map(instrumentation -> ((InProcessKeyValueServiceInstrumentation) instrumentation).getUri());
+    }
+
     private static List<DockerizedDatabaseUri> getDockerUris(AtlasDbPerfCli cli) {
         return cli.dbUris.stream()
                 .map(DockerizedDatabaseUri::fromUriString)
@@ -166,6 +189,10 @@ public class AtlasDbPerfCli {
                 }
             });
         }
+        if (cli.injectedLatencyMicros != null && cli.injectedLatencyMicros < 0) {
+            throw new RuntimeException("Injected latency must be non-negative. You provided: "
+                    + cli.injectedLatencyMicros);
+        }
         if (cli.dbUris != null) {
             try {
                 getDockerUris(cli);
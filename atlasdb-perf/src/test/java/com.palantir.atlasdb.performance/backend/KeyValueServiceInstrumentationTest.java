@@ -35,6 +35,15 @@ public class KeyValueServiceInstrumentationTest {
                 .isExactlyInstanceOf(MockKeyValueServiceInstrumentation.class);
     }
 
+    @Test
+    public void inProcessBackendsAreAvailableByName() {
+        assertThat(KeyValueServiceInstrumentation.getBackends()).contains("IN_MEMORY", "ROCKSDB", "H2");
+        assertThat(KeyValueServiceInstrumentation.forDatabase("IN_MEMORY"))
+                .isExactlyInstanceOf(InMemoryKeyValueServiceInstrumentation.class);
+        assertThat(KeyValueServiceInstrumentation.forDatabase("H2"))
+                .isInstanceOf(InProcessKeyValueServiceInstrumentation.class);
+    }
+
     @Test
     public void forDatabaseThrowsForInvalidClassName() {
         assertThatThrownBy(() -> KeyValueServiceInstrumentation.forDatabase("FAKE_BACKEND"))
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.memory.InMemoryAtlasDbConfig;
+import com.palantir.timestamp.TimestampService;
+
+public class LatencyInjectingKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final long LATENCY_MILLIS = 20;
+
+    @Test
+    public void delaysReadsAndWrites() {
+        KeyValueService kvs = new LatencyInjectingKeyValueService(
+                new InMemoryKeyValueService(false),
+                InMemoryAtlasDbConfig.TYPE,
+                LATENCY_MILLIS,
+                TimeUnit.MILLISECONDS);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+
+        long start = System.nanoTime();
+        kvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")), 1L);
+        assertThat(kvs.get(TABLE, ImmutableMap.of(CELL, 2L))).containsOnlyKeys(CELL);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(2 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void factoryWrapsTheDelegateKeyValueService() {
+        LatencyInjectingAtlasDbFactory factory = new LatencyInjectingAtlasDbFactory();
+        KeyValueService kvs = factory.createRawKeyValueService(
+                ImmutableLatencyInjectingKeyValueServiceConfig.builder()
+                        .delegate(new InMemoryAtlasDbConfig())
+                        .latencyMicros(1)
+                        .build(),
+                Optional.absent());
+
+        assertThat(kvs).isInstanceOf(LatencyInjectingKeyValueService.class);
+        assertThat(((LatencyInjectingKeyValueService) kvs).delegate()).isInstanceOf(InMemoryKeyValueService.class);
+
+        TimestampService timestampService = factory.createTimestampService(kvs);
+        assertThat(timestampService.getFreshTimestamp()).isLessThan(timestampService.getFreshTimestamp());
+    }
+
+    @Test
+    public void cannotInjectNegativeLatency() {
+        assertThatThrownBy(() -> ImmutableLatencyInjectingKeyValueServiceConfig.builder()
+                .delegate(new InMemoryAtlasDbConfig())
+                .latencyMicros(-1)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
+import com.palantir.common.time.Clock;
+
+/**
+ * Tracks when versions of cells written with a time-to-live expire, and deletes them once they have.
+ * <p>
+ * RocksJava cannot run compaction filters written in Java, so instead every expiring version gets an entry in a
+ * hidden column family, keyed by its table and then its expiration time, and written in the same batch as the
+ * version itself. Reads call {@link #purgeExpiredCells()} first; that is a single comparison until the earliest
+ * entry falls due, after which it deletes every version that has expired, seeking once per table. Keying by table
+ * first lets a truncated or dropped table's entries be removed without scanning those of other tables.
+ * <p>
+ * A version that is deleted and then written again at the same timestamp keeps the expiration time of its first
+ * write.
+ */
+final class RocksDbExpiryIndex {
+    static final String TABLE_NAME = "_expiry";
+
+    private static final int PURGE_BATCH_SIZE = 10_000;
+
+    private final RocksDB db;
+    private final ColumnFamilyMap columnFamilies;
+    private final ColumnFamilyHandle index;
+    private final WriteOpts writeOptions;
+    private final Clock clock;
+    private final AtomicLong nextExpirationTimeMillis = new AtomicLong(Long.MAX_VALUE);
+
+    RocksDbExpiryIndex(RocksDB db, ColumnFamilyMap columnFamilies, WriteOpts writeOptions, Clock clock) {
+        this.db = db;
+        this.columnFamilies = columnFamilies;
+        this.writeOptions = writeOptions;
+        this.clock = clock;
+        this.index = getIndexHandle(columnFamilies);
+        try (Disposer d = new Disposer()) {
+            RocksIterator iter = d.register(db.newIterator(index));
+            for (iter.seekToFirst(); iter.isValid(); iter.seek(getEndOfTable(iter.key()))) {
+                nextExpirationTimeMillis.accumulateAndGet(getExpirationTimeMillis(iter.key()), Math::min);
+            }
+        }
+    }
+
+    private static ColumnFamilyHandle getIndexHandle(ColumnFamilyMap columnFamilies) {
+        // The index is never truncated or dropped, so its handle stays valid after we release our reference.
+        try (ColumnFamily indexTable = columnFamilies.get(TABLE_NAME)) {
+            return indexTable.getHandle();
+        }
+    }
+
+    /**
+     * Adds an index entry for the version of {@code cell} stored under {@code key} to {@code batch}, if the cell
+     * has a time-to-live. Once the batch is written, the caller must pass the earliest returned expiration time to
+     * {@link #written(long)}.
+     *
+     * @return when the version expires, or {@link Long#MAX_VALUE} if it does not.
+     */
+    long put(WriteBatch batch, String tableName, Cell cell, byte[] key) {
+        long expirationTimeMillis = KeyValueServices.getExpirationTimeMillis(cell, clock.getTimeMillis());
+        if (expirationTimeMillis != Long.MAX_VALUE) {
+            batch.put(index, getIndexKey(tableName, expirationTimeMillis, key), PtBytes.EMPTY_BYTE_ARRAY);
+        }
+        return expirationTimeMillis;
+    }
+
+    void written(long earliestExpirationTimeMillis) {
+        if (earliestExpirationTimeMillis != Long.MAX_VALUE) {
+            nextExpirationTimeMillis.accumulateAndGet(earliestExpirationTimeMillis, Math::min);
+        }
+    }
+
+    /**
+     * Deletes every version that has expired, if any have.
+     */
+    void purgeExpiredCells() {
+        if (nextExpirationTimeMillis.get() <= clock.getTimeMillis()) {
+            purge();
+        }
+    }
+
+    /**
+     * Forgets the entries of a table that has been truncated or dropped, so that they cannot delete versions
+     * written to it later.
+     */
+    synchronized void removeTable(String tableName) {
+        byte[] tablePrefix = getTablePrefix(tableName);
+        try (Disposer d = new Disposer()) {
+            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
+            WriteBatch batch = d.register(new WriteBatch());
+            RocksIterator iter = d.register(db.newIterator(index));
+            int batchSize = 0;
+            for (iter.seek(tablePrefix); iter.isValid() && startsWith(iter.key(), tablePrefix); iter.next()) {
+                batch.remove(index, iter.key());
+                batchSize = writeIfFull(options, batch, batchSize + 1);
+            }
+            db.write(options, batch);
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private synchronized void purge() {
+        long nowMillis = clock.getTimeMillis();
+        if (nextExpirationTimeMillis.get() > nowMillis) {
+            // Another reader purged while we waited for the lock.
+            return;
+        }
+        // Writers lower this again once their batches are written, so entries our iterator misses are not lost.
+        nextExpirationTimeMillis.set(Long.MAX_VALUE);
+        boolean success = false;
+        try {
+            deleteExpiredVersions(nowMillis);
+            success = true;
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            if (!success) {
+                nextExpirationTimeMillis.accumulateAndGet(nowMillis, Math::min);
+            }
+        }
+    }
+
+    private void deleteExpiredVersions(long nowMillis) throws RocksDBException {
+        Map<String, Optional<ColumnFamily>> tables = Maps.newHashMap();
+        try (Disposer d = new Disposer()) {
+            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
+            WriteBatch batch = d.register(new WriteBatch());
+            RocksIterator iter = d.register(db.newIterator(index));
+            int batchSize = 0;
+            iter.seekToFirst();
+            while (iter.isValid()) {
+                byte[] indexKey = iter.key();
+                long expirationTimeMillis = getExpirationTimeMillis(indexKey);
+                if (expirationTimeMillis > nowMillis) {
+                    // The rest of this table's entries expire later still, so skip to the next table.
+                    nextExpirationTimeMillis.accumulateAndGet(expirationTimeMillis, Math::min);
+                    iter.seek(getEndOfTable(indexKey));
+                    continue;
+                }
+                String tableName = new String(getTableName(indexKey), Charsets.UTF_8);
+                Optional<ColumnFamily> table = tables.computeIfAbsent(tableName, this::getTableIfExists);
+                if (table.isPresent()) {
+                    batch.remove(table.get().getHandle(), getDataKey(indexKey));
+                }
+                batch.remove(index, indexKey);
+                batchSize = writeIfFull(options, batch, batchSize + 1);
+                iter.next();
+            }
+            db.write(options, batch);
+        } finally {
+            tables.values().forEach(table -> table.ifPresent(ColumnFamily::close));
+        }
+    }
+
+    private int writeIfFull(WriteOptions options, WriteBatch batch, int batchSize) throws RocksDBException {
+        if (batchSize < PURGE_BATCH_SIZE) {
+            return batchSize;
+        }
+        db.write(options, batch);
+        batch.clear();
+        return 0;
+    }
+
+    private Optional<ColumnFamily> getTableIfExists(String tableName) {
+        try {
+            return Optional.of(columnFamilies.get(tableName));
+        } catch (IllegalArgumentException e) {
+            // The table has been dropped, and its versions with it.
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Index keys are the length-prefixed table name, then the expiration time with its sign bit flipped so that the
+     * bytewise comparator orders it numerically, and then the key of the version in that table.
+     */
+    static byte[] getIndexKey(String tableName, long expirationTimeMillis, byte[] key) {
+        byte[] tablePrefix = getTablePrefix(tableName);
+        return ByteBuffer.allocate(tablePrefix.length + 8 + key.length)
+                .put(tablePrefix)
+                .putLong(expirationTimeMillis ^ Long.MIN_VALUE)
+                .put(key)
+                .array();
+    }
+
+    private static byte[] getTablePrefix(String tableName) {
+        byte[] tableNameBytes = tableName.getBytes(Charsets.UTF_8);
+        return ByteBuffer.allocate(4 + tableNameBytes.length)
+                .putInt(tableNameBytes.length)
+                .put(tableNameBytes)
+                .array();
+    }
+
+    /**
+     * @return a key after every entry of the table of {@code indexKey}, and before those of the next table. No
+     *         entry has the largest possible expiration time, since {@link Long#MAX_VALUE} means never.
+     */
+    private static byte[] getEndOfTable(byte[] indexKey) {
+        int tablePrefixLength = 4 + getTableNameLength(indexKey);
+        byte[] end = Arrays.copyOf(indexKey, tablePrefixLength + 8);
+        Arrays.fill(end, tablePrefixLength, end.length, (byte) 0xff);
+        return end;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(prefix, Arrays.copyOf(bytes, prefix.length));
+    }
+
+    private static int getTableNameLength(byte[] indexKey) {
+        return ByteBuffer.wrap(indexKey, 0, 4).getInt();
+    }
+
+    static byte[] getTableName(byte[] indexKey) {
+        return Arrays.copyOfRange(indexKey, 4, 4 + getTableNameLength(indexKey));
+    }
+
+    static long getExpirationTimeMillis(byte[] indexKey) {
+        return ByteBuffer.wrap(indexKey, 4 + getTableNameLength(indexKey), 8).getLong() ^ Long.MIN_VALUE;
+    }
+
+    static byte[] getDataKey(byte[] indexKey) {
+        return Arrays.copyOfRange(indexKey, 4 + getTableNameLength(indexKey) + 8, indexKey.length);
+    }
+}
@@ -79,6 +79,8 @@ import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.time.Clock;
+import com.palantir.common.time.SystemClock;
 import com.palantir.util.MutuallyExclusiveSetLock;
 import com.palantir.util.MutuallyExclusiveSetLock.LockState;
 import com.palantir.util.file.TempFileUtils;
@@ -94,15 +96,24 @@ public class RocksDbKeyValueService implements KeyValueService {
     private final FileLock lock;
     private final RandomAccessFile lockFile;
     private final WriteOpts writeOptions;
+    private final RocksDbExpiryIndex expiryIndex;
     private final MutuallyExclusiveSetLock<Cell> lockSet = MutuallyExclusiveSetLock.<Cell>create(false);
     private volatile boolean closed = false;
 
     public static RocksDbKeyValueService create(String dataDir) {
+        return create(dataDir, new SystemClock());
+    }
+
+    /**
+     * @param clock the clock used to expire cells written with a time-to-live.
+     */
+    public static RocksDbKeyValueService create(String dataDir, Clock clock) {
         return create(dataDir,
                 ImmutableMap.<String, String>of(),
                 ImmutableMap.<String, String>of(),
                 ImmutableWriteOpts.builder().build(),
-                RocksComparatorName.V2.getComparatorName());
+                RocksComparatorName.V2.getComparatorName(),
+                clock);
     }
 
     public static RocksDbKeyValueService create(String dataDir,
@@ -110,6 +121,15 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 Map<String, String> cfOptions,
                                                 WriteOpts writeOpts,
                                                 String comparator) {
+        return create(dataDir, dbOptions, cfOptions, writeOpts, comparator, new SystemClock());
+    }
+
+    private static RocksDbKeyValueService create(String dataDir,
+                                                 Map<String, String> dbOptions,
+                                                 Map<String, String> cfOptions,
+                                                 WriteOpts writeOpts,
+                                                 String comparator,
+                                                 Clock clock) {
         DBOptions dbOpts = new DBOptions().setCreateIfMissing(true);
         setReflectionOpts(dbOpts, dbOptions);
         ColumnFamilyOptions cfMetadataOpts = new ColumnFamilyOptions();
@@ -126,7 +146,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
         setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
+        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts, clock);
     }
 
     private static void setReflectionOpts(Object opts,
@@ -164,8 +184,18 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir, dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions, new SystemClock());
+    }
+
+    private static RocksDbKeyValueService create(String dataDir,
+                                                 DBOptions dbOptions,
+                                                 ColumnFamilyOptions cfMetadataOptions,
+                                                 ColumnFamilyOptions cfCommonOptions,
+                                                 WriteOpts writeOptions,
+                                                 Clock clock) {
         try {
-            RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
+            RocksDbKeyValueService kvs = lockAndCreateDb(
+                    new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions, clock);
             registerMBean(kvs);
             return kvs;
         } catch (Exception e) {
@@ -189,7 +219,8 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
                                                           final ColumnFamilyOptions cfCommonOptions,
-                                                          final WriteOpts writeOpts) throws IOException, RocksDBException {
+                                                          final WriteOpts writeOpts,
+                                                          Clock clock) throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
         final RandomAccessFile randomAccessFile =
@@ -232,7 +263,10 @@ public class RocksDbKeyValueService implements KeyValueService {
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            columnFamilies.create(RocksDbExpiryIndex.TABLE_NAME);
+            RocksDbExpiryIndex expiryIndex = new RocksDbExpiryIndex(db, columnFamilies, writeOpts, clock);
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(
+                    db, columnFamilies, expiryIndex, lock, randomAccessFile, writeOpts);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -248,7 +282,8 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static ColumnFamilyDescriptor getCfDescriptor(String tableName,
                                                           ColumnFamilyOptions cfMetadataOptions,
                                                           ColumnFamilyOptions cfCommonOptions) {
-        if (tableName.equals(METADATA_TABLE_NAME.getQualifiedName())) {
+        if (tableName.equals(METADATA_TABLE_NAME.getQualifiedName())
+                || tableName.equals(RocksDbExpiryIndex.TABLE_NAME)) {
             return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfMetadataOptions);
         } else {
             return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfCommonOptions);
@@ -257,11 +292,13 @@ public class RocksDbKeyValueService implements KeyValueService {
 
     private RocksDbKeyValueService(RocksDB db,
                                    ColumnFamilyMap columnFamilies,
+                                   RocksDbExpiryIndex expiryIndex,
                                    FileLock lock,
                                    RandomAccessFile file,
                                    WriteOpts writeOptions) {
         this.db = db;
         this.columnFamilies = columnFamilies;
+        this.expiryIndex = expiryIndex;
         this.lock = lock;
         this.lockFile = file;
         this.writeOptions = writeOptions;
@@ -292,6 +329,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                     Iterable<byte[]> rows,
                                     ColumnSelection columnSelection,
                                     long timestamp) {
+        expiryIndex.purgeExpiredCells();
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
@@ -306,6 +344,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public Map<Cell, Value> get(TableReference tableRef,
                                 Map<Cell, Long> timestampByCell) {
+        expiryIndex.purgeExpiredCells();
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
@@ -323,6 +362,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public Map<Cell, Long> getLatestTimestamps(TableReference tableRef,
                                                Map<Cell, Long> timestampByCell) {
+        expiryIndex.purgeExpiredCells();
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Long> results = Maps.newHashMap();
@@ -343,11 +383,15 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
+            long earliestExpirationTimeMillis = Long.MAX_VALUE;
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
                 byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
                 batch.put(table.getHandle(), key, entry.getValue());
+                earliestExpirationTimeMillis = Math.min(earliestExpirationTimeMillis,
+                        expiryIndex.put(batch, tableRef.getQualifiedName(), entry.getKey(), key));
             }
             getDb().write(options, batch);
+            expiryIndex.written(earliestExpirationTimeMillis);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -363,14 +407,19 @@ public class RocksDbKeyValueService implements KeyValueService {
             try (Disposer d = new Disposer()) {
                 WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
                 WriteBatch batch = d.register(new WriteBatch());
+                long earliestExpirationTimeMillis = Long.MAX_VALUE;
                 for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
-                    ColumnFamilyHandle table = cfs.get(entry.getKey().getQualifiedName()).getHandle();
+                    String tableName = entry.getKey().getQualifiedName();
+                    ColumnFamilyHandle table = cfs.get(tableName).getHandle();
                     for (Entry<Cell, byte[]> subEntry : entry.getValue().entrySet()) {
                         byte[] key = RocksDbKeyValueServices.getKey(subEntry.getKey(), timestamp);
                         batch.put(table, key, subEntry.getValue());
+                        earliestExpirationTimeMillis = Math.min(earliestExpirationTimeMillis,
+                                expiryIndex.put(batch, tableName, subEntry.getKey(), key));
                     }
                 }
                 getDb().write(options, batch);
+                expiryIndex.written(earliestExpirationTimeMillis);
             } catch (RocksDBException e) {
                 throw Throwables.propagate(e);
             }
@@ -387,12 +436,16 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
+            long earliestExpirationTimeMillis = Long.MAX_VALUE;
             for (Entry<Cell, Value> entry : cellValues.entries()) {
                 Value value = entry.getValue();
                 byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), value.getTimestamp());
                 batch.put(table.getHandle(), key, value.getContents());
+                earliestExpirationTimeMillis = Math.min(earliestExpirationTimeMillis,
+                        expiryIndex.put(batch, tableRef.getQualifiedName(), entry.getKey(), key));
             }
             getDb().write(options, batch);
+            expiryIndex.written(earliestExpirationTimeMillis);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -408,15 +461,19 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncCommit()));
             WriteBatch batch = d.register(new WriteBatch());
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            long earliestExpirationTimeMillis = Long.MAX_VALUE;
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
                 byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
                 if (RocksDbKeyValueServices.keyExists(iter, key)) {
                     alreadyExists.add(entry.getKey());
                 } else {
                     batch.put(table.getHandle(), key, entry.getValue());
+                    earliestExpirationTimeMillis = Math.min(earliestExpirationTimeMillis,
+                            expiryIndex.put(batch, tableRef.getQualifiedName(), entry.getKey(), key));
                 }
             }
             getDb().write(options, batch);
+            expiryIndex.written(earliestExpirationTimeMillis);
             if (!alreadyExists.isEmpty()) {
                 throw new KeyAlreadyExistsException("key already exists", alreadyExists);
             }
@@ -432,6 +489,12 @@ public class RocksDbKeyValueService implements KeyValueService {
         return false;
     }
 
+    @Override
+    public boolean supportsSingleRoundTripPutUnlessExists() {
+        // All cells go into one write batch.
+        return true;
+    }
+
     @Override
     public void checkAndSet(CheckAndSetRequest checkAndSetRequest) {
         throw new UnsupportedOperationException("Check and set is not supported for RocksDB KVS");
@@ -478,6 +541,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     public void truncateTable(TableReference tableRef) {
         try {
             columnFamilies.truncate(tableRef.getQualifiedName());
+            expiryIndex.removeTable(tableRef.getQualifiedName());
         } catch (RocksDBException | InterruptedException e) {
             throw Throwables.propagate(e);
         }
@@ -494,6 +558,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
                                                        RangeRequest rangeRequest,
                                                        long timestamp) {
+        expiryIndex.purgeExpiredCells();
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
         return new ValueRangeIterator(table, iter, rangeRequest, timestamp);
@@ -503,6 +568,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
                                                                        RangeRequest rangeRequest,
                                                                        long timestamp) {
+        expiryIndex.purgeExpiredCells();
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
         return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
@@ -519,6 +585,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     public void dropTable(TableReference tableRef) {
         try {
             columnFamilies.drop(tableRef.getQualifiedName());
+            expiryIndex.removeTable(tableRef.getQualifiedName());
             putMetadataForTable(tableRef, AtlasDbConstants.EMPTY_TABLE_METADATA);
         } catch (IllegalArgumentException e) {
             // ignore, table didn't exist
@@ -556,6 +623,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     public Set<TableReference> getAllTableNames() {
         Set<TableReference> hiddenTables = ImmutableSet.of(
                 METADATA_TABLE_NAME,
+                TableReference.createWithEmptyNamespace(RocksDbExpiryIndex.TABLE_NAME),
                 TableReference.createWithEmptyNamespace(new String(RocksDB.DEFAULT_COLUMN_FAMILY, Charsets.UTF_8)),
                 AtlasDbConstants.TIMESTAMP_TABLE);
         Set<TableReference> tables = Sets.newHashSet(
@@ -648,6 +716,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef,
                                                  Set<Cell> cells,
                                                  long timestamp) {
+        expiryIndex.purgeExpiredCells();
         try (ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Multimap<Cell, Long> results = ArrayListMultimap.create();
             RocksIterator iter = getDb().newIterator(table.getHandle());
@@ -41,8 +41,11 @@ public class AtlasDbServiceServer extends Application<AtlasDbServiceServerConfig
 
         TableMetadataCache cache = new TableMetadataCache(tm.getKeyValueService());
 
+        AtlasJacksonModule atlasJacksonModule = new AtlasJacksonModule(cache);
+
         environment.jersey().register(new AtlasDbServiceImpl(tm.getKeyValueService(), tm, cache));
-        environment.getObjectMapper().registerModule(new AtlasJacksonModule(cache).createModule());
+        environment.jersey().register(atlasJacksonModule.createSmileProvider());
+        environment.getObjectMapper().registerModule(atlasJacksonModule.createModule());
     }
 
 }
@@ -193,6 +193,22 @@ public class TransactionRemotingTest {
         Assert.assertNull(range.getNextRange());
     }
 
+    @Test
+    public void testGetRangeInTransaction() {
+        setupFooStatus1("sweep.priority");
+        TransactionToken txId = service.startTransaction();
+        RangeToken range = service.getRange(txId, new TableRange(
+                "sweep.priority",
+                new byte[0],
+                new byte[0],
+                ImmutableList.<byte[]>of(),
+                10));
+        SweepPriorityRowResult result = SweepPriorityRowResult.of(Iterables.getOnlyElement(range.getResults().getResults()));
+        Assert.assertEquals(1L, result.getCellsExamined().longValue());
+        Assert.assertNull(range.getNextRange());
+        service.commit(txId);
+    }
+
     @Test
     public void testDelete() {
         setupFooStatus1("sweep.priority");
@@ -25,9 +25,17 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.annotation.Idempotent;
 
+/**
+ * Endpoints that transfer table data accept and return Smile, a binary encoding of the JSON documents, in addition
+ * to JSON. Smile documents are smaller and cheaper to generate and parse, and binary values are written without
+ * base64 encoding them.
+ * <p>
+ * Ranges read within an explicitly started transaction are streamed to the client while they are being read.
+ */
 @Path("/atlasdb")
 public interface AtlasDbService {
 
@@ -57,38 +65,38 @@ public interface AtlasDbService {
     @Idempotent
     @POST
     @Path("rows/{token}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     TableRowResult getRows(@PathParam("token") TransactionToken token,
                            TableRowSelection rows);
 
     @Idempotent
     @POST
     @Path("cells/{token}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     TableCellVal getCells(@PathParam("token") TransactionToken token,
                           TableCell cells);
 
     @Idempotent
     @POST
     @Path("range/{token}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     RangeToken getRange(@PathParam("token") TransactionToken token,
                         TableRange rangeRequest);
 
     @Idempotent
     @POST
     @Path("put/{token}")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     void put(@PathParam("token") TransactionToken token,
              TableCellVal data);
 
     @Idempotent
     @POST
     @Path("delete/{token}")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     void delete(@PathParam("token") TransactionToken token,
                 TableCell cells);
 
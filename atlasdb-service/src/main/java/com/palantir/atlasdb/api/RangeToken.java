@@ -42,7 +42,7 @@ public class RangeToken {
     }
 
     public boolean hasMoreResults() {
-        return nextRange != null;
+        return getNextRange() != null;
     }
 
     public @Nullable TableRange getNextRange() {
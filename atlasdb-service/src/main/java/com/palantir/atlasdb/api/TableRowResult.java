@@ -15,8 +15,6 @@
  */
 package com.palantir.atlasdb.api;
 
-import java.util.Collection;
-
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 
@@ -55,12 +53,13 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
  *   ]
  * }
  * </pre>
+ * The results may be read lazily while they are being written out, in which case they can only be iterated once.
  */
 public class TableRowResult {
     private final String tableName;
     private final Iterable<RowResult<byte[]>> results;
 
-    public TableRowResult(String tableName, Collection<RowResult<byte[]>> results) {
+    public TableRowResult(String tableName, Iterable<RowResult<byte[]>> results) {
         this.tableName = Preconditions.checkNotNull(tableName);
         this.results = Preconditions.checkNotNull(results);
     }
@@ -25,11 +25,15 @@ import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import com.palantir.atlasdb.api.AtlasDbService;
 import com.palantir.atlasdb.api.RangeToken;
 import com.palantir.atlasdb.api.TableCell;
@@ -61,6 +65,9 @@ import com.palantir.common.base.BatchingVisitables;
 import com.palantir.lock.LockRefreshToken;
 
 public class AtlasDbServiceImpl implements AtlasDbService {
+    private static final Logger log = LoggerFactory.getLogger(AtlasDbServiceImpl.class);
+    private static final long STREAMED_RANGE_WRITE_TIMEOUT_SECONDS = 60;
+
     private static final TableMetadata RAW_METADATA = new TableMetadata(
             NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription("row", ValueType.STRING))),
             new ColumnMetadataDescription(new DynamicColumnDescription(NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription("col", ValueType.STRING))), ColumnValueDescription.forType(ValueType.STRING))),
@@ -70,6 +77,9 @@ public class AtlasDbServiceImpl implements AtlasDbService {
     private final SerializableTransactionManager txManager;
     private final Cache<TransactionToken, RawTransaction> transactions =
             CacheBuilder.newBuilder().expireAfterAccess(12, TimeUnit.HOURS).build();
+    /** Ranges that are still being read from their transaction while the response is written. */
+    private final Cache<TransactionToken, Set<StreamingRangeToken>> unwrittenRanges =
+            CacheBuilder.newBuilder().expireAfterAccess(12, TimeUnit.HOURS).build();
     private final TableMetadataCache metadataCache;
 
     @Inject
@@ -124,6 +134,14 @@ public class AtlasDbServiceImpl implements AtlasDbService {
     @Override
     public RangeToken getRange(TransactionToken token,
                                final TableRange range) {
+        if (!token.shouldAutoCommit()) {
+            // The transaction stays open after this call returns, so rows can be read while the response is written.
+            RawTransaction tx = transactions.getIfPresent(token);
+            Preconditions.checkNotNull(tx, "The given transaction does not exist.");
+            Set<StreamingRangeToken> ranges =
+                    unwrittenRanges.asMap().computeIfAbsent(token, unused -> Sets.newConcurrentHashSet());
+            return StreamingRangeToken.create(tx, getTableRef(range.getTableName()), range, ranges);
+        }
         return runReadOnly(token, new RuntimeTransactionTask<RangeToken>() {
             @Override
             public RangeToken execute(Transaction t) {
@@ -211,6 +229,7 @@ public class AtlasDbServiceImpl implements AtlasDbService {
     public void commit(TransactionToken token) {
         RawTransaction tx = transactions.getIfPresent(token);
         if (tx != null) {
+            awaitStreamedRanges(token);
             txManager.finishRunTaskWithLockThrowOnConflict(tx, new TxTask() {
                 @Override
                 public Void execute(Transaction t) {
@@ -225,6 +244,7 @@ public class AtlasDbServiceImpl implements AtlasDbService {
     public void abort(TransactionToken token) {
         RawTransaction tx = transactions.getIfPresent(token);
         if (tx != null) {
+            awaitStreamedRanges(token);
             txManager.finishRunTaskWithLockThrowOnConflict(tx, new TxTask() {
                 @Override
                 public Void execute(Transaction t) {
@@ -236,6 +256,24 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         }
     }
 
+    /**
+     * Waits for ranges of the transaction that are still being written to a client, so that it does not finish
+     * while they read from it. A client that disconnects mid-response never finishes reading its range, so the wait
+     * is bounded.
+     */
+    private void awaitStreamedRanges(TransactionToken token) {
+        Set<StreamingRangeToken> ranges = unwrittenRanges.asMap().remove(token);
+        if (ranges == null) {
+            return;
+        }
+        for (StreamingRangeToken range : ranges) {
+            if (!range.awaitWritten(STREAMED_RANGE_WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Finishing transaction {} although a range read in it has not been written after {} seconds.",
+                        token.getId(), STREAMED_RANGE_WRITE_TIMEOUT_SECONDS);
+            }
+        }
+    }
+
     private TableReference getTableRef(String tableName) {
         return TableReference.createUnsafe(tableName);
     }
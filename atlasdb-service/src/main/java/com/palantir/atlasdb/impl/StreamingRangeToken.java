@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.impl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.api.RangeToken;
+import com.palantir.atlasdb.api.TableRange;
+import com.palantir.atlasdb.api.TableRowResult;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.BatchingVisitables;
+
+/**
+ * A {@link RangeToken} whose rows are read from an open transaction page by page while the token is being
+ * serialized, so that at most one page of rows is held in memory at a time.
+ * <p>
+ * The batch is scanned when the token is created, so that read failures surface before a response is written and
+ * the next range is known up front. Only the first page and the row each later page starts at are kept; later pages
+ * are read again, between those bounds, when the rows are iterated. The transaction must therefore stay open until
+ * the rows have been written, see {@link #awaitWritten}.
+ */
+class StreamingRangeToken extends RangeToken {
+    static final int PAGE_SIZE = 100;
+
+    private final BatchRows rows;
+
+    private StreamingRangeToken(TableRange range, BatchRows rows, Set<StreamingRangeToken> unwrittenTokens) {
+        super(new TableRowResult(range.getTableName(), rows), rows.nextRange);
+        this.rows = rows;
+        if (!isWritten()) {
+            unwrittenTokens.add(this);
+            rows.onWritten = () -> unwrittenTokens.remove(this);
+        }
+    }
+
+    static StreamingRangeToken create(Transaction transaction, TableReference tableRef, TableRange range) {
+        return create(transaction, tableRef, range, Sets.newConcurrentHashSet());
+    }
+
+    /**
+     * @param unwrittenTokens the token is kept in this set until its rows no longer need the transaction.
+     */
+    static StreamingRangeToken create(Transaction transaction,
+                                      TableReference tableRef,
+                                      TableRange range,
+                                      Set<StreamingRangeToken> unwrittenTokens) {
+        return new StreamingRangeToken(range, new BatchRows(transaction, tableRef, range), unwrittenTokens);
+    }
+
+    /**
+     * @return whether the rows no longer need the transaction.
+     */
+    boolean isWritten() {
+        return rows.written.getCount() == 0;
+    }
+
+    /**
+     * Waits until the rows no longer need the transaction, or the timeout elapses.
+     *
+     * @return whether the rows no longer need the transaction.
+     */
+    boolean awaitWritten(long timeout, TimeUnit unit) {
+        return Uninterruptibles.awaitUninterruptibly(rows.written, timeout, unit);
+    }
+
+    private static class BatchRows implements Iterable<RowResult<byte[]>> {
+        private final Transaction transaction;
+        private final TableReference tableRef;
+        private final TableRange range;
+        private volatile Runnable onWritten = () -> { };
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        private final List<RowResult<byte[]>> firstPage;
+        private final List<byte[]> laterPageStartRows;
+        private final TableRange nextRange;
+
+        BatchRows(Transaction transaction, TableReference tableRef, TableRange range) {
+            this.transaction = transaction;
+            this.tableRef = tableRef;
+            this.range = range;
+
+            // Read the batch, plus one row past it to find where the next batch starts.
+            List<RowResult<byte[]>> keptPage = ImmutableList.of();
+            ImmutableList.Builder<byte[]> pageStartRows = ImmutableList.builder();
+            TableRange next = null;
+            int remaining = range.getBatchSize();
+            byte[] pageStartRow = range.getStartRow();
+            boolean isFirstPage = true;
+            while (true) {
+                int pageSize = Math.min(PAGE_SIZE, remaining + 1);
+                List<RowResult<byte[]>> results = BatchingVisitables.take(
+                        transaction.getRange(tableRef, request(pageStartRow, range.getEndRow(), pageSize)), pageSize);
+                int rowsInBatch = Math.min(results.size(), remaining);
+                if (isFirstPage) {
+                    keptPage = ImmutableList.copyOf(results.subList(0, rowsInBatch));
+                    isFirstPage = false;
+                } else if (rowsInBatch > 0) {
+                    pageStartRows.add(pageStartRow);
+                }
+                if (results.size() > remaining) {
+                    next = range.withStartRow(results.get(remaining).getRowName());
+                    break;
+                }
+                remaining -= results.size();
+                if (results.size() < pageSize) {
+                    break;
+                }
+                byte[] lastRow = Iterables.getLast(results).getRowName();
+                if (RangeRequests.isTerminalRow(false, lastRow)) {
+                    break;
+                }
+                pageStartRow = RangeRequests.getNextStartRow(false, lastRow);
+            }
+            this.firstPage = keptPage;
+            this.laterPageStartRows = pageStartRows.build();
+            this.nextRange = next;
+            if (laterPageStartRows.isEmpty()) {
+                written.countDown();
+            }
+        }
+
+        @Override
+        public Iterator<RowResult<byte[]>> iterator() {
+            Iterator<RowResult<byte[]>> rows = Iterators.concat(
+                    firstPage.iterator(),
+                    Iterators.concat(new AbstractIterator<Iterator<RowResult<byte[]>>>() {
+                        private int nextPage = 0;
+
+                        @Override
+                        protected Iterator<RowResult<byte[]>> computeNext() {
+                            if (nextPage == laterPageStartRows.size()) {
+                                return endOfData();
+                            }
+                            return readLaterPage(nextPage++).iterator();
+                        }
+                    }));
+            return new AbstractIterator<RowResult<byte[]>>() {
+                @Override
+                protected RowResult<byte[]> computeNext() {
+                    try {
+                        if (rows.hasNext()) {
+                            return rows.next();
+                        }
+                    } catch (RuntimeException e) {
+                        markWritten();
+                        throw e;
+                    }
+                    markWritten();
+                    return endOfData();
+                }
+            };
+        }
+
+        private List<RowResult<byte[]>> readLaterPage(int index) {
+            // Read between the bounds found by the scan, so that no row is skipped or repeated by the next batch.
+            byte[] endRow = index + 1 < laterPageStartRows.size()
+                    ? laterPageStartRows.get(index + 1)
+                    : (nextRange == null ? range.getEndRow() : nextRange.getStartRow());
+            return BatchingVisitables.copyToList(
+                    transaction.getRange(tableRef, request(laterPageStartRows.get(index), endRow, PAGE_SIZE)));
+        }
+
+        private RangeRequest request(byte[] startRow, byte[] endRow, int batchHint) {
+            return RangeRequest.builder()
+                    .startRowInclusive(startRow)
+                    .endRowExclusive(endRow)
+                    .batchHint(batchHint)
+                    .retainColumns(range.getColumns())
+                    .build();
+        }
+
+        private synchronized void markWritten() {
+            if (written.getCount() > 0) {
+                written.countDown();
+                onWritten.run();
+            }
+        }
+    }
+}
@@ -18,7 +18,10 @@ package com.palantir.atlasdb.jackson;
 import javax.inject.Inject;
 
 import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
 import com.palantir.atlasdb.api.RangeToken;
 import com.palantir.atlasdb.api.TableCell;
 import com.palantir.atlasdb.api.TableCellVal;
@@ -54,4 +57,13 @@ public class AtlasJacksonModule {
         module.addDeserializer(TableRowSelection.class, new TableRowSelectionDeserializer(cache));
         return module;
     }
+
+    /**
+     * Creates a JAX-RS provider that reads and writes the Atlas types in the Smile binary format.
+     */
+    public JacksonSmileProvider createSmileProvider() {
+        ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+        mapper.registerModule(createModule());
+        return new JacksonSmileProvider(mapper);
+    }
 }
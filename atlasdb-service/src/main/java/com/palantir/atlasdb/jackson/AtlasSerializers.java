@@ -18,8 +18,10 @@ package com.palantir.atlasdb.jackson;
 import java.io.IOException;
 import java.util.Set;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.google.common.io.BaseEncoding;
 import com.google.common.primitives.UnsignedBytes;
 import com.google.protobuf.Message;
@@ -36,6 +38,7 @@ import com.palantir.atlasdb.table.description.NamedColumnDescription;
 import com.palantir.util.Pair;
 
 public class AtlasSerializers {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     private AtlasSerializers() {
         // cannot instantiate
@@ -71,7 +74,7 @@ public class AtlasSerializers {
                 } else {
                     parse = part.getType().convertToJson(row, offset);
                 }
-                jgen.writeRawValue(parse.getLhSide());
+                writeJsonValue(jgen, parse.getLhSide());
                 offset += parse.getRhSide();
             }
         } jgen.writeEndArray();
@@ -90,7 +93,7 @@ public class AtlasSerializers {
         if (colDescription.hasDynamicColumns()) {
             DynamicColumnDescription dynMetadata = colDescription.getDynamicColumn();
             NameMetadataDescription description = dynMetadata.getColumnNameDesc();
-            jgen.writeRawValue(description.renderToJson(col));
+            writeJsonValue(jgen, description.renderToJson(col));
             return dynMetadata.getValue();
         } else {
             jgen.writeString(PtBytes.toString(col));
@@ -116,14 +119,29 @@ public class AtlasSerializers {
         case PROTO:
             Message proto = description.hydrateProto(AtlasSerializers.class.getClassLoader(), val);
             String rawJson = ForkedJsonFormat.printToString(proto);
-            jgen.writeRawValue(rawJson);
+            writeJsonValue(jgen, rawJson);
             break;
         case VALUE_TYPE:
             String parsedValue = description.getValueType().convertToJson(val);
-            jgen.writeRawValue(parsedValue);
+            writeJsonValue(jgen, parsedValue);
             break;
         default:
             throw new EnumConstantNotPresentException(Format.class, description.getFormat().name());
         }
     }
+
+    /**
+     * Writes an already rendered JSON value. Binary formats such as Smile cannot embed raw JSON text, so for those
+     * the value is re-encoded token by token.
+     */
+    private static void writeJsonValue(JsonGenerator jgen, String json) throws IOException {
+        if (!jgen.canWriteBinaryNatively()) {
+            jgen.writeRawValue(json);
+            return;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            jgen.copyCurrentStructure(parser);
+        }
+    }
 }
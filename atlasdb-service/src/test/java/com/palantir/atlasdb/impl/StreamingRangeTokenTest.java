@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.api.RangeToken;
+import com.palantir.atlasdb.api.TableRange;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.memory.InMemoryAtlasDbFactory;
+import com.palantir.atlasdb.schema.SweepSchema;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+
+public class StreamingRangeTokenTest {
+    private static final String TABLE_NAME = "ns.table";
+    private static final TableReference TABLE = TableReference.createUnsafe(TABLE_NAME);
+    private static final byte[] COLUMN = PtBytes.toBytes("col");
+
+    private SerializableTransactionManager txManager;
+
+    @Before
+    public void setUp() {
+        txManager = InMemoryAtlasDbFactory.createInMemoryTransactionManager(SweepSchema.INSTANCE);
+        txManager.getKeyValueService().createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @After
+    public void tearDown() {
+        txManager.close();
+    }
+
+    @Test
+    public void returnsAllRowsWhenTheyFitInOneBatch() {
+        writeRows(5);
+
+        List<RowResult<byte[]>> results = Lists.newArrayList();
+        TableRange nextRange = readRange(range(10), results);
+
+        assertEquals(5, results.size());
+        assertNull(nextRange);
+    }
+
+    @Test
+    public void readsAcrossPagesAndReturnsTheStartOfTheNextBatch() {
+        int batchSize = StreamingRangeToken.PAGE_SIZE + 50;
+        writeRows(2 * StreamingRangeToken.PAGE_SIZE + 5);
+
+        List<RowResult<byte[]>> results = Lists.newArrayList();
+        TableRange nextRange = readRange(range(batchSize), results);
+
+        assertEquals(batchSize, results.size());
+        for (int i = 0; i < batchSize; i++) {
+            assertArrayEquals(row(i), results.get(i).getRowName());
+        }
+        assertArrayEquals(row(batchSize), nextRange.getStartRow());
+    }
+
+    @Test
+    public void readsExactlyOneBatch() {
+        writeRows(StreamingRangeToken.PAGE_SIZE);
+
+        List<RowResult<byte[]>> results = Lists.newArrayList();
+        TableRange nextRange = readRange(range(StreamingRangeToken.PAGE_SIZE), results);
+
+        assertEquals(StreamingRangeToken.PAGE_SIZE, results.size());
+        assertNull(nextRange);
+    }
+
+    @Test
+    public void nextRangeIsKnownBeforeRowsAreRead() {
+        int batchSize = StreamingRangeToken.PAGE_SIZE + 50;
+        writeRows(2 * StreamingRangeToken.PAGE_SIZE);
+
+        TableRange nextRange = txManager.runTaskReadOnly(
+                t -> StreamingRangeToken.create(t, TABLE, range(batchSize)).getNextRange());
+
+        assertArrayEquals(row(batchSize), nextRange.getStartRow());
+    }
+
+    @Test
+    public void staysUnwrittenUntilLaterPagesHaveBeenRead() {
+        writeRows(2 * StreamingRangeToken.PAGE_SIZE);
+
+        txManager.runTaskReadOnly(t -> {
+            Set<StreamingRangeToken> unwrittenTokens = Sets.newConcurrentHashSet();
+            StreamingRangeToken token = StreamingRangeToken.create(
+                    t, TABLE, range(StreamingRangeToken.PAGE_SIZE + 50), unwrittenTokens);
+            assertFalse(token.isWritten());
+            assertEquals(ImmutableSet.of(token), unwrittenTokens);
+
+            token.getResults().getResults().forEach(row -> { });
+            assertTrue(token.isWritten());
+            assertTrue(unwrittenTokens.isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    public void isWrittenUpFrontWhenTheBatchFitsInOnePage() {
+        writeRows(5);
+
+        txManager.runTaskReadOnly(t -> {
+            Set<StreamingRangeToken> unwrittenTokens = Sets.newConcurrentHashSet();
+            StreamingRangeToken token = StreamingRangeToken.create(t, TABLE, range(10), unwrittenTokens);
+            assertTrue(token.isWritten());
+            assertTrue(unwrittenTokens.isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    public void readsLaterPagesUpToTheStartOfTheNextBatch() {
+        int batchSize = StreamingRangeToken.PAGE_SIZE + 50;
+        writeRows(2 * StreamingRangeToken.PAGE_SIZE);
+        byte[] insertedRow = PtBytes.toBytes(String.format("row%05dx", batchSize - 1));
+
+        txManager.runTaskWithRetry(t -> {
+            StreamingRangeToken token = StreamingRangeToken.create(t, TABLE, range(batchSize));
+            t.put(TABLE, ImmutableMap.of(Cell.create(insertedRow, COLUMN), PtBytes.toBytes(0)));
+
+            List<RowResult<byte[]>> results = Lists.newArrayList(token.getResults().getResults());
+            assertEquals(batchSize + 1, results.size());
+            assertArrayEquals(insertedRow, Iterables.getLast(results).getRowName());
+            assertArrayEquals(row(batchSize), token.getNextRange().getStartRow());
+            return null;
+        });
+    }
+
+    @Test
+    public void hasNoMoreResultsAfterReadingAnEmptyRange() {
+        txManager.runTaskReadOnly(t -> {
+            RangeToken token = StreamingRangeToken.create(t, TABLE, range(10));
+            assertFalse(token.getResults().getResults().iterator().hasNext());
+            assertFalse(token.hasMoreResults());
+            return null;
+        });
+    }
+
+    private TableRange readRange(TableRange range, List<RowResult<byte[]>> results) {
+        return txManager.runTaskReadOnly(t -> {
+            RangeToken token = StreamingRangeToken.create(t, TABLE, range);
+            token.getResults().getResults().forEach(results::add);
+            assertTrue(results.size() <= range.getBatchSize());
+            return token.getNextRange();
+        });
+    }
+
+    private void writeRows(int numRows) {
+        txManager.runTaskWithRetry(t -> {
+            ImmutableMap.Builder<Cell, byte[]> values = ImmutableMap.builder();
+            for (int i = 0; i < numRows; i++) {
+                values.put(Cell.create(row(i), COLUMN), PtBytes.toBytes(i));
+            }
+            t.put(TABLE, values.build());
+            return null;
+        });
+    }
+
+    private static TableRange range(int batchSize) {
+        return new TableRange(TABLE_NAME, new byte[0], new byte[0], ImmutableList.<byte[]>of(), batchSize);
+    }
+
+    private static byte[] row(int index) {
+        return PtBytes.toBytes(String.format("row%05d", index));
+    }
+}
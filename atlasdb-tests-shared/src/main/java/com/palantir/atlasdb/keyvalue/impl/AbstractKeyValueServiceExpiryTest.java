@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.time.Clock;
+
+public abstract class AbstractKeyValueServiceExpiryTest {
+    protected static final TableReference TEST_TABLE =
+            TableReference.createFromFullyQualifiedName("ns.pt_kvs_expiry_test");
+
+    private static final long TTL_MINUTES = 10;
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(TTL_MINUTES);
+
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final byte[] COLUMN = PtBytes.toBytes("column");
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final byte[] OLD_VALUE = PtBytes.toBytes("old value");
+    private static final Cell EXPIRING_CELL = Cell.create(ROW, COLUMN, TTL_MINUTES, TimeUnit.MINUTES);
+    private static final Cell PERMANENT_CELL = Cell.create(ROW, PtBytes.toBytes("permanent"));
+
+    protected static final AtomicLong currentTimeMillis = new AtomicLong(1_000_000L);
+    protected static KeyValueService keyValueService = null;
+
+    protected abstract KeyValueService getKeyValueService(Clock clock);
+
+    /**
+     * Key value services that expire cells in the background should purge them here.
+     */
+    protected void purgeExpiredCells() {
+        // expired cells are removed on read
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        if (keyValueService == null) {
+            keyValueService = getKeyValueService(currentTimeMillis::get);
+        }
+        keyValueService.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        keyValueService.truncateTables(ImmutableSet.of(TEST_TABLE));
+    }
+
+    @AfterClass
+    public static void tearDownKvs() {
+        if (keyValueService != null) {
+            keyValueService.close();
+            keyValueService = null;
+        }
+    }
+
+    @Test
+    public void cellIsReadableUntilItsTimeToLiveElapses() {
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE), 1L);
+
+        advanceClockAndPurge(TTL_MILLIS - 1);
+        assertArrayEquals(VALUE, getLatest(EXPIRING_CELL).getContents());
+
+        advanceClockAndPurge(1);
+        assertFalse(getLatestIfPresent(EXPIRING_CELL).isPresent());
+    }
+
+    @Test
+    public void expiredCellIsRemovedFromEveryRead() {
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE), 1L);
+
+        advanceClockAndPurge(TTL_MILLIS);
+
+        assertTrue(keyValueService.getRows(TEST_TABLE, ImmutableList.of(ROW), ColumnSelection.all(), 2L).isEmpty());
+        assertTrue(keyValueService.getLatestTimestamps(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, 2L)).isEmpty());
+        assertTrue(keyValueService.getAllTimestamps(TEST_TABLE, ImmutableSet.of(EXPIRING_CELL), 2L).isEmpty());
+        try (ClosableIterator<RowResult<Value>> range =
+                keyValueService.getRange(TEST_TABLE, RangeRequest.all(), 2L)) {
+            assertFalse(range.hasNext());
+        }
+    }
+
+    @Test
+    public void cellsWithoutTimeToLiveDoNotExpire() {
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE, PERMANENT_CELL, VALUE), 1L);
+
+        advanceClockAndPurge(TTL_MILLIS * 100);
+
+        assertFalse(getLatestIfPresent(EXPIRING_CELL).isPresent());
+        assertArrayEquals(VALUE, getLatest(PERMANENT_CELL).getContents());
+    }
+
+    @Test
+    public void olderVersionIsVisibleOnceNewerVersionExpires() {
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(Cell.create(ROW, COLUMN), OLD_VALUE), 1L);
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE), 2L);
+        assertArrayEquals(VALUE, getLatest(EXPIRING_CELL).getContents());
+
+        advanceClockAndPurge(TTL_MILLIS);
+
+        Value value = getLatest(EXPIRING_CELL);
+        assertArrayEquals(OLD_VALUE, value.getContents());
+        assertEquals(1L, value.getTimestamp());
+    }
+
+    @Test
+    public void timeToLiveIsMeasuredFromWhenTheVersionWasWritten() {
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, OLD_VALUE), 1L);
+        advanceClockAndPurge(TTL_MILLIS / 2);
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE), 2L);
+
+        advanceClockAndPurge(TTL_MILLIS / 2);
+        assertEquals(ImmutableSet.of(2L), ImmutableSet.copyOf(
+                keyValueService.getAllTimestamps(TEST_TABLE, ImmutableSet.of(EXPIRING_CELL), 3L).get(EXPIRING_CELL)));
+
+        advanceClockAndPurge(TTL_MILLIS / 2);
+        assertFalse(getLatestIfPresent(EXPIRING_CELL).isPresent());
+    }
+
+    @Test
+    public void putWithTimestampsHonoursTimeToLive() {
+        keyValueService.putWithTimestamps(TEST_TABLE, ImmutableMultimap.of(
+                EXPIRING_CELL, Value.create(OLD_VALUE, 1L),
+                EXPIRING_CELL, Value.create(VALUE, 2L)));
+
+        advanceClockAndPurge(TTL_MILLIS);
+
+        assertTrue(keyValueService.getAllTimestamps(TEST_TABLE, ImmutableSet.of(EXPIRING_CELL), 3L).isEmpty());
+    }
+
+    @Test
+    public void multiPutHonoursTimeToLive() {
+        TableReference otherTable = TableReference.createFromFullyQualifiedName("ns.pt_kvs_expiry_test_other");
+        keyValueService.createTable(otherTable, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        try {
+            keyValueService.multiPut(ImmutableMap.of(
+                    TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE),
+                    otherTable, ImmutableMap.of(EXPIRING_CELL, VALUE, PERMANENT_CELL, VALUE)), 1L);
+
+            advanceClockAndPurge(TTL_MILLIS);
+
+            assertFalse(getLatestIfPresent(EXPIRING_CELL).isPresent());
+            Map<Cell, Value> otherTableValues = keyValueService.get(
+                    otherTable, ImmutableMap.of(EXPIRING_CELL, 2L, PERMANENT_CELL, 2L));
+            assertEquals(ImmutableSet.of(PERMANENT_CELL), otherTableValues.keySet());
+        } finally {
+            keyValueService.dropTable(otherTable);
+        }
+    }
+
+    @Test
+    public void truncatingATableForgetsOnlyItsOwnExpiringCells() {
+        TableReference otherTable = TableReference.createFromFullyQualifiedName("ns.pt_kvs_expiry_test_other");
+        keyValueService.createTable(otherTable, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        try {
+            keyValueService.put(TEST_TABLE, ImmutableMap.of(EXPIRING_CELL, VALUE), 1L);
+            keyValueService.put(otherTable, ImmutableMap.of(EXPIRING_CELL, VALUE), 1L);
+            keyValueService.truncateTable(TEST_TABLE);
+            keyValueService.put(TEST_TABLE, ImmutableMap.of(Cell.create(ROW, COLUMN), OLD_VALUE), 1L);
+
+            advanceClockAndPurge(TTL_MILLIS);
+
+            assertArrayEquals(OLD_VALUE, getLatest(EXPIRING_CELL).getContents());
+            assertTrue(keyValueService.get(otherTable, ImmutableMap.of(EXPIRING_CELL, 2L)).isEmpty());
+        } finally {
+            keyValueService.dropTable(otherTable);
+        }
+    }
+
+    @Test
+    public void purgesManyExpiredCells() {
+        int numCells = 2500;
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(numCells);
+        Map<Cell, Long> timestampByCell = Maps.newHashMapWithExpectedSize(numCells);
+        for (int i = 0; i < numCells; i++) {
+            Cell cell = Cell.create(PtBytes.toBytes("row" + i), COLUMN, TTL_MINUTES, TimeUnit.MINUTES);
+            values.put(cell, VALUE);
+            timestampByCell.put(cell, 2L);
+        }
+        keyValueService.put(TEST_TABLE, values, 1L);
+        assertEquals(numCells, keyValueService.get(TEST_TABLE, timestampByCell).size());
+
+        advanceClockAndPurge(TTL_MILLIS);
+
+        assertTrue(keyValueService.get(TEST_TABLE, timestampByCell).isEmpty());
+    }
+
+    private void advanceClockAndPurge(long millis) {
+        currentTimeMillis.addAndGet(millis);
+        purgeExpiredCells();
+    }
+
+    private static Value getLatest(Cell cell) {
+        return getLatestIfPresent(cell).get();
+    }
+
+    private static Optional<Value> getLatestIfPresent(Cell cell) {
+        return Optional.ofNullable(
+                keyValueService.get(TEST_TABLE, ImmutableMap.of(cell, Long.MAX_VALUE)).get(cell));
+    }
+}
@@ -34,6 +34,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -129,6 +130,37 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         t1.commit();
     }
 
+    @Test
+    public void testReadsOfLocallyWrittenCellsAreNotTracked() {
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", "100");
+        put(t0, "row2", "col1", "100");
+        put(t0, "row3", "col1", "100");
+        put(t0, "row4", "col1", "100");
+        t0.commit();
+
+        SerializableTransaction t1 = (SerializableTransaction) startTransaction();
+        getCell(t1, "row1", "col1");
+        get(t1, "row2", "col1");
+        getCell(t1, "row4", "col1");
+        put(t1, "row1", "col1", "101");
+        delete(t1, "row2", "col1");
+        put(t1, "row3", "col1", "101");
+        assertEquals("101", getCell(t1, "row3", "col1"));
+        assertEquals("101", get(t1, "row1", "col1"));
+        assertNull(getCell(t1, "row2", "col1"));
+
+        assertEquals(
+                ImmutableSet.of(Cell.create(PtBytes.toBytes("row4"), PtBytes.toBytes("col1"))),
+                t1.readsByTable.get(TEST_TABLE).keySet());
+        t1.commit();
+
+        Transaction t2 = startTransaction();
+        assertEquals("101", get(t2, "row1", "col1"));
+        assertNull(get(t2, "row2", "col1"));
+        assertEquals("100", get(t2, "row4", "col1"));
+    }
+
     @Test
     public void testClassicWriteSkew() {
         Transaction t0 = startTransaction();
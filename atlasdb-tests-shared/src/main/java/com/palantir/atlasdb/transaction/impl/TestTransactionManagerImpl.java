@@ -89,7 +89,7 @@ public class TestTransactionManagerImpl extends SerializableTransactionManager i
                 transactionService,
                 cleaner,
                 timestampService.getFreshTimestamp(),
-                conflictDetectionManager.get(),
+                conflictDetectionManager,
                 constraintModeSupplier.get(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 timestampValidationReadCache);
@@ -47,6 +47,8 @@ import com.palantir.atlasdb.transaction.service.TransactionServices;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.atlasdb.util.MetricsRule;
 import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.time.Clock;
+import com.palantir.common.time.SystemClock;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
@@ -127,12 +129,19 @@ public class AtlasDbTestCase {
     protected KeyValueService getBaseKeyValueService() {
         ExecutorService executor = Tracers.wrap(PTExecutors.newSingleThreadExecutor(
                 PTExecutors.newNamedThreadFactory(true)));
-        InMemoryKeyValueService inMemoryKvs = new InMemoryKeyValueService(false, executor);
+        InMemoryKeyValueService inMemoryKvs = new InMemoryKeyValueService(false, executor, getClock());
         KeyValueService namespacedKvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(inMemoryKvs);
         KeyValueService tracingKvs = TracingKeyValueService.create(namespacedKvs);
         return AtlasDbMetrics.instrument(KeyValueService.class, tracingKvs);
     }
 
+    /**
+     * The clock the in-memory key value service uses to expire cells written with a time-to-live.
+     */
+    protected Clock getClock() {
+        return new SystemClock();
+    }
+
     @After
     public void tearDown() throws Exception {
         // JUnit keeps instantiated test cases in memory, so we need to null out
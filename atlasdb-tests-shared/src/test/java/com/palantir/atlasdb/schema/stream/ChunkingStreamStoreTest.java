@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.Futures;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestIndexCleanupTask;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestStreamIdxTable.StreamTestStreamIdxRow;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestStreamStore;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestTableFactory;
+import com.palantir.atlasdb.stream.ChunkingStreamStore;
+import com.palantir.atlasdb.stream.ContentDefinedChunker;
+import com.palantir.atlasdb.stream.PersistentStreamStore;
+import com.palantir.atlasdb.table.description.Schemas;
+import com.palantir.atlasdb.transaction.api.TransactionConflictException;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class ChunkingStreamStoreTest extends AtlasDbTestCase {
+    private static final int MAX_CHUNK_SIZE = 16 * 1024;
+    private static final byte[] REFERENCE_1 = PtBytes.toBytes("ref1");
+    private static final byte[] REFERENCE_2 = PtBytes.toBytes("ref2");
+
+    private PersistentStreamStore streamStore;
+    private ChunkingStreamStore chunkingStore;
+
+    @Before
+    public void createSchema() {
+        Schemas.deleteTablesAndIndexes(StreamTestSchema.getSchema(), keyValueService);
+        Schemas.createTablesAndIndexes(StreamTestSchema.getSchema(), keyValueService);
+
+        streamStore = StreamTestStreamStore.of(txManager, StreamTestTableFactory.of());
+        chunkingStore = new ChunkingStreamStore(
+                txManager,
+                streamStore,
+                new ContentDefinedChunker(1024, 4 * 1024, MAX_CHUNK_SIZE));
+    }
+
+    @Test
+    public void storedStreamCanBeLoaded() {
+        byte[] data = randomBytes(200_000, 0);
+        long id = store(data, REFERENCE_1);
+
+        assertArrayEquals(data, load(id));
+        assertTrue(getChunkIds(id).size() > 1);
+    }
+
+    @Test
+    public void emptyStreamCanBeStoredAndLoaded() {
+        long id = store(new byte[0], REFERENCE_1);
+
+        assertArrayEquals(new byte[0], load(id));
+        assertTrue(getChunkIds(id).isEmpty());
+    }
+
+    @Test
+    public void editedStreamSharesTheUnchangedChunks() {
+        byte[] original = randomBytes(500_000, 0);
+        byte[] edited = insert(original, 250_000, randomBytes(100, 1));
+
+        long originalId = store(original, REFERENCE_1);
+        long editedId = store(edited, REFERENCE_2);
+
+        assertArrayEquals(original, load(originalId));
+        assertArrayEquals(edited, load(editedId));
+
+        List<Long> originalChunks = getChunkIds(originalId);
+        Set<Long> newChunks = Sets.difference(
+                ImmutableSet.copyOf(getChunkIds(editedId)),
+                ImmutableSet.copyOf(originalChunks));
+        assertTrue("expected at most a few new chunks, but there were " + newChunks.size(), newChunks.size() <= 4);
+    }
+
+    @Test
+    public void identicalStreamsShareTheirManifest() {
+        byte[] data = randomBytes(100_000, 0);
+
+        assertEquals(store(data, REFERENCE_1), store(data, REFERENCE_2));
+    }
+
+    @Test
+    public void concurrentWritersOfTheSameContentCanAllLoadIt() throws Exception {
+        byte[] data = randomBytes(200_000, 0);
+        int numWriters = 8;
+        ExecutorService executor = PTExecutors.newFixedThreadPool(numWriters);
+        try {
+            List<Future<Long>> futures = Lists.newArrayList();
+            for (int i = 0; i < numWriters; i++) {
+                byte[] reference = PtBytes.toBytes("ref" + i);
+                futures.add(executor.submit((Callable<Long>) () -> store(data, reference)));
+            }
+            for (Future<Long> future : futures) {
+                assertArrayEquals(data, load(Futures.getUnchecked(future)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cleanupDeletesOnlyChunksThatAreNoLongerUsed() {
+        byte[] original = randomBytes(500_000, 0);
+        byte[] edited = insert(original, 250_000, randomBytes(100, 1));
+        long originalId = store(original, REFERENCE_1);
+        long editedId = store(edited, REFERENCE_2);
+        Set<Long> allIds = Sets.union(
+                ImmutableSet.<Long>builder().add(originalId).addAll(getChunkIds(originalId)).build(),
+                ImmutableSet.<Long>builder().add(editedId).addAll(getChunkIds(editedId)).build()).immutableCopy();
+        Set<Long> editedChunks = ImmutableSet.copyOf(getChunkIds(editedId));
+
+        txManager.runTaskWithRetry(t -> {
+            chunkingStore.unmarkStreamAsUsed(t, originalId, REFERENCE_1);
+            return null;
+        });
+        cleanUp(allIds);
+
+        assertArrayEquals(edited, load(editedId));
+        for (long id : allIds) {
+            boolean shouldExist = id == editedId || editedChunks.contains(id);
+            assertEquals("stream " + id, shouldExist, exists(id));
+        }
+    }
+
+    @Test
+    public void streamReleasedByOneReferenceIsKeptForAnother() {
+        byte[] data = randomBytes(100_000, 0);
+        long id = store(data, REFERENCE_1);
+        store(data, REFERENCE_2);
+
+        txManager.runTaskWithRetry(t -> {
+            chunkingStore.unmarkStreamAsUsed(t, id, REFERENCE_1);
+            return null;
+        });
+        cleanUp(ImmutableSet.<Long>builder().add(id).addAll(getChunkIds(id)).build());
+
+        assertArrayEquals(data, load(id));
+    }
+
+    @Test
+    public void reusingChunksThatAreConcurrentlyCleanedUpConflicts() {
+        byte[] data = randomBytes(100_000, 0);
+        long id = store(data, REFERENCE_1);
+        Set<Long> ids = ImmutableSet.<Long>builder().add(id).addAll(getChunkIds(id)).build();
+        txManager.runTaskWithRetry(t -> {
+            chunkingStore.unmarkStreamAsUsed(t, id, REFERENCE_1);
+            return null;
+        });
+
+        try {
+            txManager.runTaskThrowOnConflict(t -> {
+                long reusedId = chunkingStore.storeStreamAndMarkAsUsed(t, new ByteArrayInputStream(data), REFERENCE_2);
+                assertEquals(id, reusedId);
+                cleanUp(ids);
+                return null;
+            });
+            fail("Reusing chunks that were cleaned up concurrently should have conflicted.");
+        } catch (TransactionConflictException e) {
+            // expected
+        }
+        for (long cleanedUpId : ids) {
+            assertFalse(exists(cleanedUpId));
+        }
+
+        long storedAgainId = store(data, REFERENCE_2);
+        assertArrayEquals(data, load(storedAgainId));
+    }
+
+    private long store(byte[] data, byte[] reference) {
+        return txManager.runTaskWithRetry(
+                t -> chunkingStore.storeStreamAndMarkAsUsed(t, new ByteArrayInputStream(data), reference));
+    }
+
+    private byte[] load(long id) {
+        return txManager.runTaskReadOnly(t -> {
+            try (InputStream stream = chunkingStore.loadStream(t, id)) {
+                return IOUtils.toByteArray(stream);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private List<Long> getChunkIds(long id) {
+        return txManager.runTaskReadOnly(t -> chunkingStore.getChunkIds(t, id));
+    }
+
+    private boolean exists(long id) {
+        return txManager.runTaskReadOnly(t -> streamStore.loadSingleStream(t, id).isPresent());
+    }
+
+    private void cleanUp(Set<Long> ids) {
+        Set<Cell> cells = Sets.newHashSet();
+        for (long id : ids) {
+            cells.add(Cell.create(StreamTestStreamIdxRow.of(id).persistToBytes(), PtBytes.toBytes("s")));
+        }
+        txManager.runTaskWithRetry(
+                t -> new StreamTestIndexCleanupTask(Namespace.DEFAULT_NAMESPACE).cellsCleanedUp(t, cells));
+    }
+
+    private static byte[] insert(byte[] data, int position, byte[] inserted) {
+        return Bytes.concat(
+                Arrays.copyOfRange(data, 0, position),
+                inserted,
+                Arrays.copyOfRange(data, position, data.length));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
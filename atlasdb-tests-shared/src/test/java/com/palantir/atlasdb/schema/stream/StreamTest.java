@@ -74,6 +74,7 @@ import com.palantir.atlasdb.schema.stream.generated.StreamTestWithHashStreamMeta
 import com.palantir.atlasdb.schema.stream.generated.StreamTestWithHashStreamMetadataTable.StreamTestWithHashStreamMetadataRow;
 import com.palantir.atlasdb.schema.stream.generated.StreamTestWithHashStreamStore;
 import com.palantir.atlasdb.schema.stream.generated.StreamTestWithHashStreamValueTable.StreamTestWithHashStreamValueRow;
+import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
 import com.palantir.atlasdb.stream.PersistentStreamStore;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.Transaction;
@@ -247,6 +248,29 @@ public class StreamTest extends AtlasDbTestCase {
         storeAndCheckByteStreams(maxMemStore, getIncompressibleBytes(20_000_000));
     }
 
+    @Test
+    public void testStoreStreamWithMoreBlocksThanUploadParallelism() throws IOException {
+        int numBlocks = 3 * AbstractPersistentStreamStore.DEFAULT_UPLOAD_PARALLELISM + 1;
+        byte[] bytesToStore = getIncompressibleBytes(numBlocks * StreamTestStreamStore.BLOCK_SIZE_IN_BYTES - 7);
+
+        long id = defaultStore.storeStream(new ByteArrayInputStream(bytesToStore)).getLhSide();
+
+        StreamMetadata metadata = txManager.runTaskReadOnly(t -> getMetadata(StreamTestTableFactory.of(), t, id));
+        assertEquals(StreamPersistence.Status.STORED, metadata.getStatus());
+        assertEquals(bytesToStore.length, metadata.getLength());
+        assertEquals(numBlocks, getNumberOfBlocks(metadata));
+        verifyLoadStream(defaultStore, id, bytesToStore);
+    }
+
+    @Test
+    public void testStoreStreamInParallelBatches() throws IOException {
+        byte[] bytesToStore = getIncompressibleBytes(13 * StreamTestWithHashStreamStore.BLOCK_SIZE_IN_BYTES - 7);
+
+        long id = compressedStore.storeStream(new ByteArrayInputStream(bytesToStore)).getLhSide();
+
+        verifyLoadStream(compressedStore, id, bytesToStore);
+    }
+
     private long storeAndCheckByteStreams(PersistentStreamStore store, byte[] bytesToStore) throws IOException {
         byte[] reference = PtBytes.toBytes("ref");
 
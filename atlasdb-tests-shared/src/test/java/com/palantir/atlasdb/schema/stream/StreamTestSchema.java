@@ -53,6 +53,7 @@ public class StreamTestSchema implements AtlasSchema {
         schema.addStreamStoreDefinition(
                 new StreamStoreDefinitionBuilder("stream_test_with_hash", "stream_test_with_hash", ValueType.VAR_LONG)
                     .inMemoryThreshold(4000)
+                    .uploadParallelism(4)
                     .compressBlocksInDb()
                     .compressStreamInClient()
                     .hashFirstRowComponent()
@@ -122,9 +122,14 @@ public final class StreamTestStreamStore extends AbstractPersistentStreamStore {
         StreamTestStreamMetadataTable.StreamTestStreamMetadataRow row = StreamTestStreamMetadataTable.StreamTestStreamMetadataRow.of(id);
         StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
         Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
-        Builder builder = StreamMetadata.newBuilder(metadata);
-        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
-        metaTable.putMetadata(row, builder.build());
+        // Rewriting the metadata unchanged conflicts with a concurrent cleanup, but not with other blocks
+        // of this stream that are being stored in parallel.
+        metaTable.putMetadata(row, metadata);
+    }
+
+    @Override
+    protected boolean storesBlocksWithoutChangingMetadata() {
+        return true;
     }
 
     @Override
@@ -103,6 +103,11 @@ public final class StreamTestWithHashStreamStore extends AbstractPersistentStrea
         return IN_MEMORY_THRESHOLD;
     }
 
+    @Override
+    protected int getUploadParallelism() {
+        return 4;
+    }
+
     @Override
     protected void storeBlock(Transaction t, long id, long blockNumber, final byte[] block) {
         Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES, "Block to store in DB must be less than BLOCK_SIZE_IN_BYTES");
@@ -122,9 +127,14 @@ public final class StreamTestWithHashStreamStore extends AbstractPersistentStrea
         StreamTestWithHashStreamMetadataTable.StreamTestWithHashStreamMetadataRow row = StreamTestWithHashStreamMetadataTable.StreamTestWithHashStreamMetadataRow.of(id);
         StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
         Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
-        Builder builder = StreamMetadata.newBuilder(metadata);
-        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
-        metaTable.putMetadata(row, builder.build());
+        // Rewriting the metadata unchanged conflicts with a concurrent cleanup, but not with other blocks
+        // of this stream that are being stored in parallel.
+        metaTable.putMetadata(row, metadata);
+    }
+
+    @Override
+    protected boolean storesBlocksWithoutChangingMetadata() {
+        return true;
     }
 
     @Override
@@ -22,6 +22,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -41,6 +42,9 @@ import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.mutable.MutableInt;
@@ -54,6 +58,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -65,7 +71,9 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.cache.ResolvedTransactionWatermark;
 import com.palantir.atlasdb.cache.TimestampCache;
+import com.palantir.atlasdb.cleaner.ImmutableTimestampSupplier;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
@@ -83,6 +91,9 @@ import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Expiration
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.sweep.CellsSweeper;
+import com.palantir.atlasdb.sweep.SweepTaskRunner;
+import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
 import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
 import com.palantir.atlasdb.table.description.NameMetadataDescription;
 import com.palantir.atlasdb.table.description.TableMetadata;
@@ -95,26 +106,38 @@ import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionLockTimeoutException;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.AbortingVisitors;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.proxy.MultiDelegateProxy;
+import com.palantir.common.remoting.EndpointNotFoundException;
+import com.palantir.common.time.Clock;
 import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.AtlasTimestampLockDescriptor;
+import com.palantir.lock.BlockingMode;
+import com.palantir.lock.ForwardingRemoteLockService;
 import com.palantir.lock.HeldLocksToken;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockCollections;
 import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockLease;
 import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
+import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
 import com.palantir.lock.TimeDuration;
+import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.remoting1.tracing.Tracers;
 
 public class SnapshotTransactionTest extends AtlasDbTestCase {
     protected final TimestampCache timestampCache = TimestampCache.create();
+    private final AtomicLong currentTimeMillis = new AtomicLong(System.currentTimeMillis());
 
     private class UnstableKeyValueService extends ForwardingKeyValueService {
         private final KeyValueService delegate;
@@ -160,9 +183,15 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
     static final TableReference TABLE = TableReference.createFromFullyQualifiedName("default.table");
     static final TableReference TABLE1 = TableReference.createFromFullyQualifiedName("default.table1");
     static final TableReference TABLE2 = TableReference.createFromFullyQualifiedName("default.table2");
+    static final TableReference TABLE_STRIPED = TableReference.createFromFullyQualifiedName("default.striped");
 
     static final TableReference TABLE_SWEPT_THOROUGH = TableReference.createFromFullyQualifiedName("default.table2");
 
+    @Override
+    protected Clock getClock() {
+        return currentTimeMillis::get;
+    }
+
     @Override
     @Before
     public void setUp() throws Exception {
@@ -559,6 +588,29 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         t2.commit();
     }
 
+    @Test
+    public void writeWriteConflictsAreNotHiddenByOurOwnWrites() throws Exception {
+        Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
+        byte[] value = BigInteger.valueOf(1).toByteArray();
+
+        Transaction earlier = txManager.createNewTransaction();
+        Transaction later = txManager.createNewTransaction();
+        earlier.put(TABLE1, ImmutableMap.of(cell, value));
+        earlier.commit();
+
+        // Our values are written while we check for conflicts, so the check may find our own write on top of the
+        // write we conflict with.
+        later.put(TABLE1, ImmutableMap.of(cell, value));
+        keyValueService.put(TABLE1, ImmutableMap.of(cell, value), later.getTimestamp());
+        try {
+            later.commit();
+            fail();
+        } catch (TransactionConflictException e) {
+            // We expect to catch this exception
+        }
+        assertNull(transactionService.get(later.getTimestamp()));
+    }
+
     @Test
     public void readsFromThoroughlySweptTableShouldFailWhenLocksAreInvalid() throws Exception {
         keyValueService.createTable(
@@ -575,6 +627,277 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         }
     }
 
+    @Test
+    public void thoroughTableReadsRelyOnLockLeases() throws Exception {
+        keyValueService.createTable(
+                TABLE_SWEPT_THOROUGH,
+                getTableMetadataForSweepStrategy(SweepStrategy.THOROUGH).persistToBytes());
+        long leaseMillis = 500;
+        LockServiceImpl leasingLockService = LockServiceImpl.create(new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            public TimeDuration getLockLeaseDuration() {
+                return SimpleTimeDuration.of(leaseMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        AtomicInteger leaseRefreshes = new AtomicInteger();
+        RemoteLockService countingLockService = new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return leasingLockService;
+            }
+
+            @Override
+            public LockLease refreshLockLeases(Set<LockRefreshToken> tokens) {
+                leaseRefreshes.incrementAndGet();
+                return super.refreshLockLeases(tokens);
+            }
+        };
+        try {
+            LockRefreshToken token = leasingLockService.lock(lockClient.getClientId(),
+                    LockRequest.builder(ImmutableSortedMap.of(
+                            StringLockDescriptor.of("external lock"), LockMode.WRITE)).build());
+            SnapshotTransaction t = createTransaction(countingLockService, transactionService,
+                    timestampService.getFreshTimestamp(), ImmutableSet.of(token));
+            Set<Cell> cells = ImmutableSet.of(Cell.create("row1".getBytes(), "column1".getBytes()));
+
+            for (int i = 0; i < 5; i++) {
+                t.get(TABLE_SWEPT_THOROUGH, cells);
+            }
+            assertEquals(1, leaseRefreshes.get());
+
+            leasingLockService.unlock(token);
+            Thread.sleep(leaseMillis);
+            try {
+                t.get(TABLE_SWEPT_THOROUGH, cells);
+                fail();
+            } catch (TransactionLockTimeoutException e) {
+                assertThat(e.getMessage(), containsString(token.toString()));
+            }
+            assertEquals(2, leaseRefreshes.get());
+        } finally {
+            leasingLockService.close();
+        }
+    }
+
+    @Test
+    public void thoroughTableReadsRefreshExternalLocksAgainstLockServersWithoutLeases() throws Exception {
+        keyValueService.createTable(
+                TABLE_SWEPT_THOROUGH,
+                getTableMetadataForSweepStrategy(SweepStrategy.THOROUGH).persistToBytes());
+        AtomicInteger leaseRefreshes = new AtomicInteger();
+        AtomicInteger lockRefreshes = new AtomicInteger();
+        RemoteLockService oldLockService = new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return lockService;
+            }
+
+            @Override
+            public LockLease refreshLockLeases(Set<LockRefreshToken> tokens) {
+                leaseRefreshes.incrementAndGet();
+                throw new EndpointNotFoundException("404 Not Found", null);
+            }
+
+            @Override
+            public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
+                lockRefreshes.incrementAndGet();
+                return super.refreshLockRefreshTokens(tokens);
+            }
+        };
+        LockRefreshToken token = lockService.lock(lockClient.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(
+                        StringLockDescriptor.of("external lock"), LockMode.WRITE)).build());
+        try {
+            Set<Cell> cells = ImmutableSet.of(Cell.create("row1".getBytes(), "column1".getBytes()));
+            for (int i = 0; i < 2; i++) {
+                SnapshotTransaction t = createTransaction(oldLockService, transactionService,
+                        timestampService.getFreshTimestamp(), ImmutableSet.of(token));
+                t.get(TABLE_SWEPT_THOROUGH, cells);
+                t.get(TABLE_SWEPT_THOROUGH, cells);
+            }
+            assertEquals(1, leaseRefreshes.get());
+            assertEquals(4, lockRefreshes.get());
+
+            lockService.unlock(token);
+            SnapshotTransaction t = createTransaction(oldLockService, transactionService,
+                    timestampService.getFreshTimestamp(), ImmutableSet.of(token));
+            try {
+                t.get(TABLE_SWEPT_THOROUGH, cells);
+                fail();
+            } catch (TransactionLockTimeoutException e) {
+                assertThat(e.getMessage(), containsString(token.toString()));
+            }
+        } finally {
+            lockService.unlock(token);
+        }
+    }
+
+    @Test
+    public void sweepAfterFailoverDoesNotOvertakeReadsTrustingTheirLeases() throws Exception {
+        keyValueService.createTable(
+                TABLE_SWEPT_THOROUGH,
+                getTableMetadataForSweepStrategy(SweepStrategy.THOROUGH).persistToBytes());
+        long leaseMillis = 500;
+        LockServerOptions leasingOptions = new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            public TimeDuration getLockLeaseDuration() {
+                return SimpleTimeDuration.of(leaseMillis, TimeUnit.MILLISECONDS);
+            }
+        };
+        LockServiceImpl oldLeader = LockServiceImpl.create(leasingOptions);
+        AtomicReference<LockServiceImpl> leader = new AtomicReference<>(oldLeader);
+        RemoteLockService leaderLockService = new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return leader.get();
+            }
+        };
+        LockServiceImpl newLeader = null;
+        try {
+            Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
+            writeCells(TABLE_SWEPT_THOROUGH, ImmutableMap.of(cell, PtBytes.toBytes("v1")));
+            long immutableTs = timestampService.getFreshTimestamp();
+            LockRefreshToken token = oldLeader.lock(lockClient.getClientId(),
+                    LockRequest.builder(ImmutableSortedMap.of(
+                            AtlasTimestampLockDescriptor.of(immutableTs), LockMode.READ))
+                            .withLockedInVersionId(immutableTs)
+                            .build());
+            SnapshotTransaction reader = createTransaction(leaderLockService, transactionService,
+                    immutableTs, ImmutableSet.of(token));
+            assertEquals("v1",
+                    PtBytes.toString(reader.get(TABLE_SWEPT_THOROUGH, ImmutableSet.of(cell)).get(cell)));
+            writeCells(TABLE_SWEPT_THOROUGH, ImmutableMap.of(cell, PtBytes.toBytes("v2")));
+
+            // the new leader knows nothing of the version locked through the old one
+            newLeader = LockServiceImpl.create(leasingOptions);
+            leader.set(newLeader);
+            Supplier<Long> sweepTs = ImmutableTimestampSupplier.createMemoizedWithExpiration(
+                    newLeader, timestampService, lockClient);
+            // sweep through the underlying key value service, since the one used by transactions cannot delete
+            SweepTaskRunner sweepRunner = new SweepTaskRunnerImpl(keyValueServiceWithStats, sweepTs, sweepTs,
+                    transactionService, sweepStrategyManager,
+                    new CellsSweeper(txManager, keyValueServiceWithStats, ImmutableList.of()));
+            sweepRunner.run(TABLE_SWEPT_THOROUGH, 1000, 1000, null);
+
+            try {
+                reader.get(TABLE_SWEPT_THOROUGH, ImmutableSet.of(cell));
+                fail();
+            } catch (TransactionLockTimeoutException e) {
+                assertThat(e.getMessage(), containsString(token.toString()));
+            }
+        } finally {
+            oldLeader.close();
+            if (newLeader != null) {
+                newLeader.close();
+            }
+        }
+    }
+
+    @Test
+    public void readsBelowTheImmutableTimestampSkipCommitTimestampLookups() {
+        Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
+        writeCells(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("v1")));
+        // the first read starts the summary of the transactions table at its immutable timestamp
+        long firstImmutableTs = timestampService.getFreshTimestamp();
+        createTransaction(lockService, transactionService, firstImmutableTs, ImmutableSet.of())
+                .get(TABLE, ImmutableSet.of(cell));
+
+        Transaction writer = txManager.createNewTransaction();
+        writer.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("v2")));
+        writer.commit();
+        timestampService.getFreshTimestamps(5000);
+
+        AtomicInteger commitTimestampLookups = new AtomicInteger();
+        TransactionService countingTransactionService = new TransactionService() {
+            @Override
+            public Long get(long startTimestamp) {
+                commitTimestampLookups.incrementAndGet();
+                return transactionService.get(startTimestamp);
+            }
+
+            @Override
+            public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+                commitTimestampLookups.incrementAndGet();
+                return transactionService.get(startTimestamps);
+            }
+
+            @Override
+            public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+                transactionService.putUnlessExists(startTimestamp, commitTimestamp);
+            }
+        };
+        SnapshotTransaction reader = createTransaction(lockService, countingTransactionService,
+                timestampService.getFreshTimestamp(), ImmutableSet.of());
+
+        assertEquals("v2", PtBytes.toString(reader.get(TABLE, ImmutableSet.of(cell)).get(cell)));
+        assertEquals(0, commitTimestampLookups.get());
+        assertEquals(ResolvedTransactionWatermark.Outcome.COMMITTED,
+                timestampCache.getResolvedTransactions().getOutcome(writer.getTimestamp()));
+    }
+
+    @Test
+    public void readsWaitForCommitsWithReadLocksAgainstLockServersWithoutAwaitWriteLockRelease() {
+        AtomicInteger awaitRequests = new AtomicInteger();
+        AtomicInteger lockAndReleaseRequests = new AtomicInteger();
+        RemoteLockService oldLockService = new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return lockService;
+            }
+
+            @Override
+            public void awaitWriteLockRelease(Set<LockDescriptor> locks) {
+                awaitRequests.incrementAndGet();
+                throw new EndpointNotFoundException("404 Not Found", null);
+            }
+
+            @Override
+            public LockRefreshToken lock(String client, LockRequest request) throws InterruptedException {
+                if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
+                    lockAndReleaseRequests.incrementAndGet();
+                }
+                return super.lock(client, request);
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            Cell cell = Cell.create(("row" + i).getBytes(), "column1".getBytes());
+            long uncommittedStartTs = timestampService.getFreshTimestamp();
+            keyValueService.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("uncommitted")), uncommittedStartTs);
+
+            SnapshotTransaction reader = createTransaction(oldLockService, transactionService,
+                    uncommittedStartTs, ImmutableSet.of());
+
+            assertTrue(reader.get(TABLE, ImmutableSet.of(cell)).isEmpty());
+        }
+        assertEquals(1, awaitRequests.get());
+        assertEquals(2, lockAndReleaseRequests.get());
+    }
+
+    private SnapshotTransaction createTransaction(RemoteLockService lock,
+                                                  TransactionService txService,
+                                                  long immutableTs,
+                                                  Set<LockRefreshToken> externalLocks) {
+        long startTs = timestampService.getFreshTimestamp();
+        return new SnapshotTransaction(
+                keyValueService,
+                lock,
+                timestampService,
+                txService,
+                NoOpCleaner.INSTANCE,
+                Suppliers.ofInstance(startTs),
+                conflictDetectionManager,
+                sweepStrategyManager,
+                immutableTs,
+                externalLocks,
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                null,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                false,
+                timestampCache);
+    }
+
     /**
      * Given Pair.of("label", task), return task label iff task succeeds.
      */
@@ -732,6 +1055,45 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         }
     }
 
+    @Test
+    public void stripedTablesTakeAtMostOneCommitLockPerStripe() {
+        createStripedTable(4);
+        Transaction t = txManager.createNewTransaction();
+        for (int i = 0; i < 100; i++) {
+            t.put(TABLE_STRIPED, ImmutableMap.of(Cell.create(PtBytes.toBytes(i), "column1".getBytes()), PtBytes.toBytes(i)));
+        }
+
+        // four stripes plus the lock on our row of the transactions table
+        assertEquals(5, ((SnapshotTransaction) ((CachingTransaction) t).delegate()).getLocksForWrites().size());
+        t.commit();
+    }
+
+    @Test
+    public void commitLockStripesAreReadFromTheTableMetadataByEveryClient() {
+        createStripedTable(4);
+
+        assertEquals(
+                Optional.of(4),
+                ConflictDetectionManagers.createDefault(keyValueService).getCommitLockStripes(TABLE_STRIPED));
+    }
+
+    @Test
+    public void stripedCommitLocksStillDetectWriteWriteConflicts() {
+        createStripedTable(4);
+        final Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
+        Transaction t1 = txManager.createNewTransaction();
+        Transaction t2 = txManager.createNewTransaction();
+        t1.put(TABLE_STRIPED, ImmutableMap.of(cell, "v1".getBytes()));
+        t2.put(TABLE_STRIPED, ImmutableMap.of(cell, "v2".getBytes()));
+        t1.commit();
+        try {
+            t2.commit();
+            fail();
+        } catch (TransactionConflictException e) {
+            // good
+        }
+    }
+
     @Test (expected = IllegalArgumentException.class)
     public void disallowPutOnEmptyObject() {
         final Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
@@ -739,6 +1101,22 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         t1.put(TABLE, ImmutableMap.of(cell, PtBytes.EMPTY_BYTE_ARRAY));
     }
 
+    @Test
+    public void deletingAnExpiringCellWritesATombstoneThatDoesNotExpire() {
+        final Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
+        final Cell expiringCell = Cell.create(cell.getRowName(), cell.getColumnName(), 1, TimeUnit.HOURS);
+        writeCells(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("old")));
+
+        Transaction t1 = txManager.createNewTransaction();
+        t1.put(TABLE, ImmutableMap.of(expiringCell, PtBytes.toBytes("new")));
+        t1.delete(TABLE, ImmutableSet.of(cell));
+        t1.commit();
+        currentTimeMillis.addAndGet(TimeUnit.HOURS.toMillis(2));
+
+        Transaction t2 = txManager.createNewTransaction();
+        assertTrue(t2.get(TABLE, ImmutableSet.of(cell)).isEmpty());
+    }
+
     @Test
     public void partiallyFilledRowsShouldBeVisible() {
         byte[] defaultRow = "row1".getBytes();
@@ -781,6 +1159,23 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         return allRows.get(defaultRow);
     }
 
+    private void createStripedTable(int numStripes) {
+        keyValueService.createTable(TABLE_STRIPED, new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.WARM,
+                PartitionStrategy.ORDERED,
+                false,
+                0,
+                false,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                false,
+                numStripes).persistToBytes());
+        conflictDetectionManager.recompute();
+    }
+
     private TableMetadata getTableMetadataForSweepStrategy(SweepStrategy sweepStrategy) {
         return new TableMetadata(
                 new NameMetadataDescription(),
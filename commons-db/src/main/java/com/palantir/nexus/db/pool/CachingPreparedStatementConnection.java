@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.pool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.reflect.AbstractInvocationHandler;
+
+/**
+ * Wraps a physical {@link Connection} with a bounded, least recently used cache of its prepared statements,
+ * keyed by SQL text.
+ * <p>
+ * Closing a statement returned by {@link Connection#prepareStatement(String)} resets it and returns it to the
+ * cache instead of closing it, so preparing the same SQL on this connection again skips the parse in the driver
+ * and the database. A cached statement is handed out to one caller at a time; preparing SQL whose statement is
+ * still in use prepares another one. Cached statements are closed when they are evicted, and with the connection.
+ * <p>
+ * This must wrap the connection underneath the connection pool, since pools close the statements of a
+ * connection when it is returned to them.
+ */
+public final class CachingPreparedStatementConnection extends AbstractInvocationHandler {
+    private static final Logger log = LoggerFactory.getLogger(CachingPreparedStatementConnection.class);
+
+    private final Connection delegate;
+    private final int capacity;
+
+    @GuardedBy("this")
+    private final LinkedHashMap<String, CachedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private boolean closed = false;
+
+    private CachingPreparedStatementConnection(Connection delegate, int capacity) {
+        this.delegate = delegate;
+        this.capacity = capacity;
+    }
+
+    public static Connection wrap(Connection delegate, int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive, but was %s", capacity);
+        return (Connection) Proxy.newProxyInstance(
+                CachingPreparedStatementConnection.class.getClassLoader(),
+                new Class[] {Connection.class},
+                new CachingPreparedStatementConnection(delegate, capacity));
+    }
+
+    @Override
+    protected Object handleInvocation(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("prepareStatement") && args.length == 1) {
+            return prepareStatement((String) args[0]);
+        }
+        if (method.getName().equals("close")) {
+            closeIdleStatements();
+        }
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private PreparedStatement prepareStatement(String sql) throws SQLException {
+        CachedStatement statement;
+        synchronized (this) {
+            statement = idleStatements.remove(sql);
+        }
+        if (statement == null) {
+            statement = new CachedStatement(sql, delegate.prepareStatement(sql));
+        }
+        return statement.checkOut();
+    }
+
+    private void release(CachedStatement statement, boolean reusable) {
+        if (reusable && statement.reset()) {
+            List<CachedStatement> evicted = new ArrayList<>();
+            boolean cached;
+            synchronized (this) {
+                cached = !closed && !idleStatements.containsKey(statement.sql);
+                if (cached) {
+                    idleStatements.put(statement.sql, statement);
+                    Iterator<CachedStatement> eldest = idleStatements.values().iterator();
+                    while (idleStatements.size() > capacity) {
+                        evicted.add(eldest.next());
+                        eldest.remove();
+                    }
+                }
+            }
+            for (CachedStatement evictedStatement : evicted) {
+                evictedStatement.closeQuietly();
+            }
+            if (cached) {
+                return;
+            }
+        }
+        statement.closeQuietly();
+    }
+
+    private void closeIdleStatements() {
+        List<CachedStatement> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idleStatements.values());
+            idleStatements.clear();
+        }
+        for (CachedStatement statement : toClose) {
+            statement.closeQuietly();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass()).add("delegate", delegate).toString();
+    }
+
+    private final class CachedStatement {
+        private final String sql;
+        private final PreparedStatement statement;
+        private final int defaultFetchSize;
+        private final int defaultMaxRows;
+        private final int defaultQueryTimeout;
+
+        CachedStatement(String sql, PreparedStatement statement) throws SQLException {
+            this.sql = sql;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+            this.defaultMaxRows = statement.getMaxRows();
+            this.defaultQueryTimeout = statement.getQueryTimeout();
+        }
+
+        PreparedStatement checkOut() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class[] {PreparedStatement.class},
+                    new CheckedOutStatement(this));
+        }
+
+        /**
+         * Puts the statement back into the state it was prepared in.
+         *
+         * @return whether the statement can be reused.
+         */
+        boolean reset() {
+            try {
+                ResultSet resultSet = statement.getResultSet();
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearWarnings();
+                if (statement.getFetchSize() != defaultFetchSize) {
+                    statement.setFetchSize(defaultFetchSize);
+                }
+                if (statement.getMaxRows() != defaultMaxRows) {
+                    statement.setMaxRows(defaultMaxRows);
+                }
+                if (statement.getQueryTimeout() != defaultQueryTimeout) {
+                    statement.setQueryTimeout(defaultQueryTimeout);
+                }
+                return true;
+            } catch (SQLException e) {
+                log.debug("Could not reset a prepared statement; it will not be reused.", e);
+                return false;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.debug("Ignoring exception closing a cached prepared statement.", e);
+            }
+        }
+    }
+
+    private final class CheckedOutStatement extends AbstractInvocationHandler {
+        private final CachedStatement cachedStatement;
+
+        // Not synchronized, as statements may be cancelled from another thread while they execute.
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile boolean failed = false;
+
+        CheckedOutStatement(CachedStatement cachedStatement) {
+            this.cachedStatement = cachedStatement;
+        }
+
+        @Override
+        protected Object handleInvocation(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(cachedStatement, !failed);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get();
+                default:
+                    break;
+            }
+            if (closed.get()) {
+                throw new SQLException("The prepared statement has been closed.");
+            }
+            try {
+                return method.invoke(cachedStatement.statement, args);
+            } catch (InvocationTargetException e) {
+                if (method.getName().startsWith("execute")) {
+                    // Don't hand out a statement that the driver may have left in an unknown state.
+                    failed = true;
+                }
+                throw e.getTargetException();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass()).add("sql", cachedStatement.sql).toString();
+        }
+    }
+}
@@ -177,6 +177,12 @@ public abstract class BasicSQL {
             PreparedStatements.setObject(ps, i, converted);
         } else if (obj instanceof Number) {
             setNumber(ps, i, obj);
+        } else if (obj instanceof byte[][]) {
+            checkArraysSupported(c);
+            PreparedStatements.setString(ps, i, PostgresArrayLiterals.byteaArray((byte[][]) obj));
+        } else if (obj instanceof long[]) {
+            checkArraysSupported(c);
+            PreparedStatements.setString(ps, i, PostgresArrayLiterals.int8Array((long[]) obj));
         } else {
             assert !(obj instanceof InputStream) : "InputStreams must be passed as PTInputStreams so we know the length"; //$NON-NLS-1$
             PreparedStatements.setObject(ps, i, obj);
@@ -184,6 +190,16 @@ public abstract class BasicSQL {
         return null;
     }
 
+    /**
+     * Array parameters ({@code byte[][]} and {@code long[]}) are bound as Postgres array literals, so the query
+     * must cast them, e.g. {@code CAST(? AS bytea[])}.
+     */
+    private static void checkArraysSupported(Connection c) throws PalantirSqlException {
+        if (DBType.getTypeFromConnection(c) != DBType.POSTGRESQL) {
+            throw new IllegalArgumentException("Array parameters are only supported on Postgres"); //$NON-NLS-1$
+        }
+    }
+
     /**
      * Sets the specified joda {@link DateTime} on the prepared statement.
      */
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.sql;
+
+/**
+ * Encodes array parameters as Postgres array literals, to be bound as text and cast in the query, e.g.
+ * {@code m.row_name = ANY(CAST(? AS bytea[]))}.
+ * <p>
+ * Binding arrays this way keeps the SQL text of a query the same however many values it is given. We encode
+ * them ourselves because our version of the Postgres driver cannot create arrays of {@code bytea}.
+ */
+final class PostgresArrayLiterals {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private PostgresArrayLiterals() {
+        // utility
+    }
+
+    /**
+     * @return a literal that casts to {@code bytea[]}, with each element in hex format.
+     */
+    static String byteaArray(byte[][] values) {
+        int length = 2;
+        for (byte[] value : values) {
+            length += 2 * value.length + 6;
+        }
+        StringBuilder builder = new StringBuilder(length).append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            // The backslash of the bytea hex prefix has to be escaped inside a quoted array element.
+            builder.append("\"\\\\x");
+            for (byte b : values[i]) {
+                builder.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+            builder.append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * @return a literal that casts to {@code int8[]}.
+     */
+    static String int8Array(long[] values) {
+        StringBuilder builder = new StringBuilder(2 + 20 * values.length).append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(values[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
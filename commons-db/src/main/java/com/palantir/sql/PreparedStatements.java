@@ -69,6 +69,14 @@ public class PreparedStatements {
         }
     }
 
+    public static void setString(PreparedStatement ps, int index, String string) throws PalantirSqlException {
+        try {
+            ps.setString(index, string);
+        } catch (SQLException e) {
+            throw BasicSQL.handleInterruptions(0, e);
+        }
+    }
+
     public static void setBinaryStream(PreparedStatement ps, int index, InputStream stream, int length) throws PalantirSqlException {
         try {
             ps.setBinaryStream(index, stream, length);
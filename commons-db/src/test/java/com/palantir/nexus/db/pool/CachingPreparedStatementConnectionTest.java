@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.reflect.AbstractInvocationHandler;
+
+public class CachingPreparedStatementConnectionTest {
+    private static final String QUERY_1 = "SELECT 1";
+    private static final String QUERY_2 = "SELECT 2";
+    private static final String QUERY_3 = "SELECT 3";
+
+    private final FakeConnection fakeConnection = new FakeConnection();
+    private final Connection connection = CachingPreparedStatementConnection.wrap(fakeConnection.proxy(), 2);
+
+    @Test
+    public void reusesAClosedStatementForTheSameSql() throws SQLException {
+        connection.prepareStatement(QUERY_1).close();
+        connection.prepareStatement(QUERY_1).close();
+
+        assertEquals(1, fakeConnection.statements.size());
+        FakeStatement statement = fakeConnection.statements.get(0);
+        assertFalse(statement.closed);
+        assertEquals(2, statement.clearParametersCalls);
+    }
+
+    @Test
+    public void preparesAnotherStatementWhileTheCachedOneIsInUse() throws SQLException {
+        PreparedStatement first = connection.prepareStatement(QUERY_1);
+        PreparedStatement second = connection.prepareStatement(QUERY_1);
+
+        assertEquals(2, fakeConnection.statements.size());
+        first.close();
+        second.close();
+        assertFalse(fakeConnection.statements.get(0).closed);
+        assertTrue("only one statement per SQL is kept", fakeConnection.statements.get(1).closed);
+    }
+
+    @Test
+    public void closedStatementHandlesCannotBeUsed() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(QUERY_1);
+        statement.close();
+        PreparedStatement reused = connection.prepareStatement(QUERY_1);
+
+        assertNotSame(statement, reused);
+        assertTrue(statement.isClosed());
+        assertFalse(reused.isClosed());
+        try {
+            statement.executeQuery();
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedStatementWhenFull() throws SQLException {
+        connection.prepareStatement(QUERY_1).close();
+        connection.prepareStatement(QUERY_2).close();
+        connection.prepareStatement(QUERY_1).close();
+        connection.prepareStatement(QUERY_3).close();
+
+        assertEquals(3, fakeConnection.statements.size());
+        assertFalse(fakeConnection.statementFor(QUERY_1).closed);
+        assertTrue(fakeConnection.statementFor(QUERY_2).closed);
+        assertFalse(fakeConnection.statementFor(QUERY_3).closed);
+    }
+
+    @Test
+    public void doesNotReuseStatementsThatFailedToExecute() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(QUERY_1);
+        fakeConnection.statementFor(QUERY_1).failExecution = true;
+        try {
+            statement.executeQuery();
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+        statement.close();
+
+        assertTrue(fakeConnection.statementFor(QUERY_1).closed);
+        connection.prepareStatement(QUERY_1).close();
+        assertEquals(2, fakeConnection.statements.size());
+    }
+
+    @Test
+    public void closingTheConnectionClosesCachedStatements() throws SQLException {
+        connection.prepareStatement(QUERY_1).close();
+        PreparedStatement inUse = connection.prepareStatement(QUERY_2);
+
+        connection.close();
+        assertTrue(fakeConnection.closed);
+        assertTrue(fakeConnection.statementFor(QUERY_1).closed);
+        assertFalse(fakeConnection.statementFor(QUERY_2).closed);
+
+        inUse.close();
+        assertTrue(fakeConnection.statementFor(QUERY_2).closed);
+    }
+
+    private static final class FakeConnection extends AbstractInvocationHandler {
+        private final List<FakeStatement> statements = new ArrayList<>();
+        private boolean closed = false;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class[] {Connection.class}, this);
+        }
+
+        FakeStatement statementFor(String sql) {
+            FakeStatement result = null;
+            for (FakeStatement statement : statements) {
+                if (statement.sql.equals(sql)) {
+                    result = statement;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        protected Object handleInvocation(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    FakeStatement statement = new FakeStatement((String) args[0]);
+                    statements.add(statement);
+                    return statement.proxy();
+                case "close":
+                    closed = true;
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    private static final class FakeStatement extends AbstractInvocationHandler {
+        private final String sql;
+        private boolean closed = false;
+        private boolean failExecution = false;
+        private int clearParametersCalls = 0;
+
+        FakeStatement(String sql) {
+            this.sql = sql;
+        }
+
+        PreparedStatement proxy() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class[] {PreparedStatement.class}, this);
+        }
+
+        @Override
+        protected Object handleInvocation(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "getFetchSize":
+                case "getMaxRows":
+                case "getQueryTimeout":
+                    return 0;
+                case "getResultSet":
+                case "clearWarnings":
+                    return null;
+                case "clearParameters":
+                    clearParametersCalls++;
+                    return null;
+                case "executeQuery":
+                    if (failExecution) {
+                        throw new SQLException("failed");
+                    }
+                    return null;
+                case "close":
+                    closed = true;
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
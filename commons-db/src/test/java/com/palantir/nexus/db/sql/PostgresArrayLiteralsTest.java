@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PostgresArrayLiteralsTest {
+    @Test
+    public void encodesByteArraysInHexFormat() {
+        byte[][] values = {{0x00, 0x0f}, {(byte) 0xab, 0x7f, (byte) 0x80}};
+        assertEquals("{\"\\\\x000f\",\"\\\\xab7f80\"}", PostgresArrayLiterals.byteaArray(values));
+    }
+
+    @Test
+    public void encodesEmptyByteArrays() {
+        assertEquals("{\"\\\\x\"}", PostgresArrayLiterals.byteaArray(new byte[][] {{}}));
+        assertEquals("{}", PostgresArrayLiterals.byteaArray(new byte[0][]));
+    }
+
+    @Test
+    public void encodesLongs() {
+        assertEquals("{1,-2,9223372036854775807}", PostgresArrayLiterals.int8Array(new long[] {1, -2, Long.MAX_VALUE}));
+        assertEquals("{}", PostgresArrayLiterals.int8Array(new long[0]));
+    }
+}
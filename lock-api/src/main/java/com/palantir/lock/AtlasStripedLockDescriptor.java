@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Ints;
+
+/**
+ * A descriptor for one of a fixed number of lock stripes covering a table. Rows (or cells) are
+ * mapped onto stripes with {@link #getStripe(byte[], int)}, so a writer holding the stripe for a
+ * key excludes every other writer of that key.
+ * <p>
+ * The encoding is a marker byte, a 32 bit hash of the table name and the stripe index, so every
+ * descriptor is nine bytes long no matter how long the table name is. Two tables whose names
+ * hash to the same value share stripes, which only causes extra contention.
+ * <p>
+ * All writers of a table must agree on the number of stripes; a writer taking striped locks does
+ * not exclude one taking {@link AtlasRowLockDescriptor row} or {@link AtlasCellLockDescriptor cell}
+ * locks on the same table.
+ */
+public class AtlasStripedLockDescriptor {
+    /** Table names are never empty, so no row or cell descriptor starts with this byte. */
+    private static final byte MARKER = 0;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private AtlasStripedLockDescriptor() {
+        // cannot instantiate
+    }
+
+    /** Returns a {@code LockDescriptor} instance for the given table and stripe. */
+    public static LockDescriptor of(String tableName, int stripe) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(tableName));
+        Preconditions.checkArgument(stripe >= 0, "stripe must be non-negative, but was %s", stripe);
+        byte[] tableHash = Ints.toByteArray(HASH_FUNCTION.hashString(tableName, Charsets.UTF_8).asInt());
+        byte[] stripeBytes = Ints.toByteArray(stripe);
+        byte[] bytes = new byte[1 + tableHash.length + stripeBytes.length];
+        bytes[0] = MARKER;
+        System.arraycopy(tableHash, 0, bytes, 1, tableHash.length);
+        System.arraycopy(stripeBytes, 0, bytes, 1 + tableHash.length, stripeBytes.length);
+        return new LockDescriptor(bytes);
+    }
+
+    /** Returns the stripe in {@code [0, numStripes)} that the given row or cell key maps to. */
+    public static int getStripe(byte[] key, int numStripes) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkArgument(numStripes > 0, "numStripes must be positive, but was %s", numStripes);
+        return toStripe(HASH_FUNCTION.hashBytes(key).asInt(), numStripes);
+    }
+
+    /** Returns the stripe in {@code [0, numStripes)} that the given cell maps to. */
+    public static int getStripe(byte[] rowName, byte[] colName, int numStripes) {
+        Preconditions.checkNotNull(rowName);
+        Preconditions.checkNotNull(colName);
+        Preconditions.checkArgument(numStripes > 0, "numStripes must be positive, but was %s", numStripes);
+        int hash = HASH_FUNCTION.newHasher()
+                .putInt(rowName.length)
+                .putBytes(rowName)
+                .putBytes(colName)
+                .hash()
+                .asInt();
+        return toStripe(hash, numStripes);
+    }
+
+    private static int toStripe(int hash, int numStripes) {
+        return (hash & Integer.MAX_VALUE) % numStripes;
+    }
+}
@@ -139,6 +139,16 @@ public abstract class ForwardingLockService extends ForwardingObject implements
         return delegate().getLockServerOptions();
     }
 
+    @Override
+    public LockLease refreshLockLeases(Set<LockRefreshToken> tokens) {
+        return delegate().refreshLockLeases(tokens);
+    }
+
+    @Override
+    public void awaitWriteLockRelease(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        delegate().awaitWriteLockRelease(lockDescriptors);
+    }
+
     @Override
     public long currentTimeMillis() {
         return delegate().currentTimeMillis();
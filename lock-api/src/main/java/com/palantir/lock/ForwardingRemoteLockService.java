@@ -51,6 +51,16 @@ public abstract class ForwardingRemoteLockService extends ForwardingObject imple
         return delegate().getMinLockedInVersionId(client);
     }
 
+    @Override
+    public LockLease refreshLockLeases(Set<LockRefreshToken> tokens) {
+        return delegate().refreshLockLeases(tokens);
+    }
+
+    @Override
+    public void awaitWriteLockRelease(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        delegate().awaitWriteLockRelease(lockDescriptors);
+    }
+
     @Override
     public long currentTimeMillis() {
         return delegate().currentTimeMillis();
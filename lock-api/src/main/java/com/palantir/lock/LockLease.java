@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The result of {@link RemoteLockService#refreshLockLeases(Set)}: the tokens which were still valid
+ * and have been refreshed, and for how long the lock server guarantees that they stay valid.
+ * <p>
+ * The lease starts no earlier than the moment the request was sent, so a client may treat the
+ * refreshed tokens as valid for {@link #getLeaseMillis()} after it sent the request, measured with its
+ * own monotonic clock. A lease of zero means that the server gives no such guarantee.
+ */
+@Immutable
+public final class LockLease implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ImmutableSet<LockRefreshToken> refreshedTokens;
+    private final long leaseMillis;
+
+    @JsonCreator
+    public LockLease(@JsonProperty("refreshedTokens") Set<LockRefreshToken> refreshedTokens,
+                     @JsonProperty("leaseMillis") long leaseMillis) {
+        Preconditions.checkArgument(leaseMillis >= 0, "leaseMillis must not be negative, but was %s", leaseMillis);
+        this.refreshedTokens = ImmutableSet.copyOf(refreshedTokens);
+        this.leaseMillis = leaseMillis;
+    }
+
+    public Set<LockRefreshToken> getRefreshedTokens() {
+        return refreshedTokens;
+    }
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return refreshedTokens.hashCode() * 31 + (int) (leaseMillis ^ (leaseMillis >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        LockLease other = (LockLease) obj;
+        return leaseMillis == other.leaseMillis && refreshedTokens.equals(other.refreshedTokens);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("refreshedTokens", refreshedTokens)
+                .add("leaseMillis", leaseMillis)
+                .toString();
+    }
+}
@@ -83,6 +83,22 @@ import com.google.common.base.Objects;
         return SimpleTimeDuration.of(1, TimeUnit.HOURS);
     }
 
+    /**
+     * Returns how long the lock server guarantees that tokens refreshed with
+     * {@link RemoteLockService#refreshLockLeases(java.util.Set)} stay valid. The
+     * lease is never longer than the lock timeout of the refreshed tokens.
+     * <p>
+     * A lock server with a non-zero lease does not grant any lock, and does
+     * not report a minimum locked version, for the length of one lease after it
+     * is created. Leases handed out by a previous leader therefore run out
+     * before their locks can be granted again, and before the immutable
+     * timestamp (and so sweep) can move past a version locked under them. The
+     * default value is zero, which disables leases.
+     */
+    public TimeDuration getLockLeaseDuration() {
+        return SimpleTimeDuration.of(0, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Returns the number of bits used to create random lock token IDs. The
      * default value is 64 bits.
@@ -100,6 +116,7 @@ import com.google.common.base.Objects;
                 && Objects.equal(getMaxAllowedClockDrift(), other.getMaxAllowedClockDrift())
                 && Objects.equal(getMaxAllowedBlockingDuration(), other.getMaxAllowedBlockingDuration())
                 && Objects.equal(getMaxNormalLockAge(), other.getMaxNormalLockAge())
+                && Objects.equal(getLockLeaseDuration(), other.getLockLeaseDuration())
                 && (getRandomBitCount() == other.getRandomBitCount());
     }
 
@@ -109,6 +126,7 @@ import com.google.common.base.Objects;
                 getMaxAllowedClockDrift(),
                 getMaxAllowedBlockingDuration(),
                 getMaxNormalLockAge(),
+                getLockLeaseDuration(),
                 getRandomBitCount());
     }
 
@@ -119,6 +137,7 @@ import com.google.common.base.Objects;
                 .add("maxAllowedClockDrift", getMaxAllowedClockDrift())
                 .add("maxAllowedBlockingDuration", getMaxAllowedBlockingDuration())
                 .add("maxNormalLockAge", getMaxNormalLockAge())
+                .add("lockLeaseDuration", getLockLeaseDuration())
                 .add("randomBitCount", getRandomBitCount())
                 .toString();
     }
@@ -140,6 +159,7 @@ import com.google.common.base.Objects;
         private final SimpleTimeDuration maxAllowedClockDrift;
         private final SimpleTimeDuration maxAllowedBlockingDuration;
         private final SimpleTimeDuration maxNormalLockAge;
+        private final SimpleTimeDuration lockLeaseDuration;
         private final int randomBitCount;
 
         SerializationProxy(LockServerOptions lockServerOptions) {
@@ -152,6 +172,8 @@ import com.google.common.base.Objects;
                     lockServerOptions.getMaxAllowedBlockingDuration());
             maxNormalLockAge = SimpleTimeDuration.of(
                     lockServerOptions.getMaxNormalLockAge());
+            lockLeaseDuration = SimpleTimeDuration.of(
+                    lockServerOptions.getLockLeaseDuration());
             randomBitCount = lockServerOptions.getRandomBitCount();
         }
 
@@ -173,6 +195,10 @@ import com.google.common.base.Objects;
                 @Override public TimeDuration getMaxNormalLockAge() {
                     return maxNormalLockAge;
                 }
+                @Override public TimeDuration getLockLeaseDuration() {
+                    // Absent when deserializing options written before leases existed.
+                    return lockLeaseDuration != null ? lockLeaseDuration : DEFAULT.getLockLeaseDuration();
+                }
                 @Override public int getRandomBitCount() {
                     return randomBitCount;
                 }
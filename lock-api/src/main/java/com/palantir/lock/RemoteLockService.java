@@ -27,7 +27,12 @@ import javax.ws.rs.core.MediaType;
 
 import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.annotation.NonIdempotent;
+import com.palantir.common.remoting.AtlasDbMediaTypes;
 
+/**
+ * Requests and responses may be encoded as Smile, a binary encoding of the JSON documents, instead of JSON.
+ * JSON is listed first, so clients which do not ask for Smile keep using JSON.
+ */
 @Path("/lock")
 public interface RemoteLockService {
     /**
@@ -36,8 +41,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("lock/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
     @Nullable
     LockRefreshToken lock(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
@@ -47,8 +52,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("try-lock/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
     HeldLocksToken lockAndGetHeldLocks(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
     /**
@@ -64,8 +69,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("unlock")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
     @NonIdempotent boolean unlock(LockRefreshToken token);
 
     /**
@@ -75,10 +80,40 @@ public interface RemoteLockService {
      */
     @POST
     @Path("refresh-lock-tokens")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens);
 
+    /**
+     * Refreshes the given lock tokens, like {@link #refreshLockRefreshTokens(Iterable)}, and returns
+     * how long the refreshed tokens are guaranteed to stay valid.
+     * <p>
+     * Within the lease, the refreshed locks cannot expire, and a lock server which takes over
+     * leadership does not grant any lock until the leases given out by its predecessor have run out.
+     * Locks can still be released within the lease by unlocking their token.
+     * The lease is zero unless the server is configured with a
+     * {@link LockServerOptions#getLockLeaseDuration() lock lease duration}.
+     */
+    @POST
+    @Path("refresh-lock-leases")
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Idempotent LockLease refreshLockLeases(Set<LockRefreshToken> tokens);
+
+    /**
+     * Blocks until none of the given locks is held in {@link LockMode#WRITE} mode, without acquiring
+     * any of them. Locks which are not currently held are skipped.
+     * <p>
+     * This behaves like a {@link LockRequest.Builder#lockAndRelease() lockAndRelease} request for
+     * {@link LockMode#READ} locks, but no lock is ever granted, so the server does no lock-grant
+     * bookkeeping, and waiters do not queue behind other lock requests.
+     */
+    @POST
+    @Path("await-write-lock-release")
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Idempotent void awaitWriteLockRelease(Set<LockDescriptor> lockDescriptors) throws InterruptedException;
+
     /**
      * Returns the minimum version ID for all locks that are currently acquired
      * (by everyone), or {@code null} if none of these active locks specified a
@@ -86,14 +121,14 @@ public interface RemoteLockService {
      */
     @POST
     @Path("min-locked-in-version/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent @Nullable Long getMinLockedInVersionId(@PathParam("client") String client);
 
     /** Returns the current time in milliseconds on the server. */
     @POST
     @Path("current-time-millis")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, AtlasDbMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent long currentTimeMillis();
 
     @POST
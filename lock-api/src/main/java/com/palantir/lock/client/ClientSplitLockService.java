@@ -15,9 +15,12 @@
  */
 package com.palantir.lock.client;
 
+import java.util.Set;
+
 import com.palantir.lock.BlockingMode;
 import com.palantir.lock.ForwardingRemoteLockService;
 import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockGroupBehavior;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
@@ -44,6 +47,11 @@ public class ClientSplitLockService extends ForwardingRemoteLockService {
         return nonBlockingClient;
     }
 
+    @Override
+    public void awaitWriteLockRelease(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        blockingClient.awaitWriteLockRelease(lockDescriptors);
+    }
+
     @Override
     public LockRefreshToken lock(String client, LockRequest request)
             throws InterruptedException {
@@ -95,6 +95,14 @@ public class LockRefreshingRemoteLockService extends ForwardingRemoteLockService
         return ret;
     }
 
+    /**
+     * Refreshes a token that was acquired some other way, e.g. as part of starting a transaction, until it is
+     * unlocked through this service.
+     */
+    public void registerLockForRefresh(LockRefreshToken token) {
+        toRefresh.add(token);
+    }
+
     @Override
     public boolean unlock(LockRefreshToken token) {
         toRefresh.remove(token);
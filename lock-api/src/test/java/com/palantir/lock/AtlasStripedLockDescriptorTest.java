@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+public class AtlasStripedLockDescriptorTest {
+    private static final String TABLE = "default.table";
+    private static final String OTHER_TABLE = "default.other_table";
+
+    @Test
+    public void descriptorSizeDoesNotDependOnTableName() {
+        assertThat(AtlasStripedLockDescriptor.of(TABLE, 3).getBytes().length, equalTo(9));
+        assertThat(AtlasStripedLockDescriptor.of(Strings.repeat("t", 1000), 3).getBytes().length, equalTo(9));
+    }
+
+    @Test
+    public void descriptorsIdentifyTableAndStripe() {
+        assertThat(AtlasStripedLockDescriptor.of(TABLE, 3), equalTo(AtlasStripedLockDescriptor.of(TABLE, 3)));
+        assertThat(AtlasStripedLockDescriptor.of(TABLE, 3), not(equalTo(AtlasStripedLockDescriptor.of(TABLE, 4))));
+        assertThat(AtlasStripedLockDescriptor.of(TABLE, 3),
+                not(equalTo(AtlasStripedLockDescriptor.of(OTHER_TABLE, 3))));
+    }
+
+    @Test
+    public void stripesAreInRangeAndDeterministic() {
+        for (int i = 0; i < 1000; i++) {
+            byte[] row = ("row" + i).getBytes(Charsets.UTF_8);
+            int stripe = AtlasStripedLockDescriptor.getStripe(row, 7);
+            assertThat(stripe, greaterThanOrEqualTo(0));
+            assertThat(stripe, lessThan(7));
+            assertThat(AtlasStripedLockDescriptor.getStripe(row.clone(), 7), equalTo(stripe));
+
+            int cellStripe = AtlasStripedLockDescriptor.getStripe(row, "col".getBytes(Charsets.UTF_8), 7);
+            assertThat(cellStripe, greaterThanOrEqualTo(0));
+            assertThat(cellStripe, lessThan(7));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveStripeCounts() {
+        AtlasStripedLockDescriptor.getStripe(new byte[] {1}, 0);
+    }
+}
@@ -35,4 +35,10 @@ public interface ClientAwareReadWriteLock {
 
     /** Returns {@code true} iff the lock is in a frozen state. */
     boolean isFrozen();
+
+    /**
+     * Blocks until neither the write lock is held nor the lock is frozen. This
+     * does not acquire the lock or queue behind threads waiting to acquire it.
+     */
+    void awaitWriteRelease() throws InterruptedException;
 }
@@ -58,6 +58,11 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         return sync.isFrozen();
     }
 
+    @Override
+    public void awaitWriteRelease() throws InterruptedException {
+        sync.awaitWriteRelease();
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass().getSimpleName())
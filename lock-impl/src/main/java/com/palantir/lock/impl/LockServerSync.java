@@ -37,6 +37,7 @@ class LockServerSync extends AbstractQueuedSynchronizer {
     private @GuardedBy("this") boolean frozen;
     private @GuardedBy("this") int writeLockHolder = 0;
     private @GuardedBy("this") TIntIntMap readLockHolders;
+    private @GuardedBy("this") int releaseWaiters = 0;
 
     public LockServerSync(LockClientIndices clients) {
         this.clients = Preconditions.checkNotNull(clients);
@@ -89,6 +90,9 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         if (newWriteCount == 0 && !isReadLockHeld()) {
             frozen = false;
         }
+        if (newWriteCount == 0) {
+            notifyReleaseWaiters();
+        }
         return newWriteCount == 0;
     }
 
@@ -113,11 +117,34 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         decrementReadCount(clientIndex);
         if (!isReadLockHeld() && getState() == 0) {
             frozen = false;
+            notifyReleaseWaiters();
             return true;
         }
         return false;
     }
 
+    /**
+     * Waits on this object's monitor rather than in the synchronizer's queue, so waiters are never
+     * granted the lock and do not hold back threads trying to acquire it.
+     */
+    synchronized void awaitWriteRelease() throws InterruptedException {
+        releaseWaiters++;
+        try {
+            while (getState() > 0 || frozen) {
+                wait();
+            }
+        } finally {
+            releaseWaiters--;
+        }
+    }
+
+    @GuardedBy("this")
+    private void notifyReleaseWaiters() {
+        if (releaseWaiters > 0) {
+            notifyAll();
+        }
+    }
+
     synchronized void unlockAndFreeze(int clientIndex) {
         if (isAnonymous(clientIndex)) {
             throw LockServerLock.throwIllegalMonitorStateException(
@@ -68,6 +68,7 @@ import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.TreeMultiset;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -82,6 +83,7 @@ import com.palantir.lock.LockClient;
 import com.palantir.lock.LockCollection;
 import com.palantir.lock.LockCollections;
 import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockLease;
 import com.palantir.lock.LockGroupBehavior;
 import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
@@ -109,8 +111,13 @@ import com.palantir.util.Pair;
     private static final Logger log = LoggerFactory.getLogger(LockServiceImpl.class);
     private static final Logger requestLogger = LoggerFactory.getLogger("lock.request");
 
-    /** Executor for the reaper threads. */
-    private final ExecutorService executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
+    private static final int NUM_REAPER_THREADS = 2;
+
+    /**
+     * Executor for the reaper threads. They run for the lifetime of the lock service, so they get dedicated
+     * threads rather than ones from a cached or shared pool.
+     */
+    private final ExecutorService executor = Tracers.wrap(PTExecutors.newFixedThreadPool(NUM_REAPER_THREADS,
             new NamedThreadFactory(LockServiceImpl.class.getName(), true)));
 
     private static final Function<HeldLocksToken, String> TOKEN_TO_ID =
@@ -156,7 +163,13 @@ import com.palantir.util.Pair;
     private final TimeDuration maxAllowedClockDrift;
     private final TimeDuration maxAllowedBlockingDuration;
     private final TimeDuration maxNormalLockAge;
+    private final TimeDuration lockLeaseDuration;
     private final int randomBitCount;
+    /**
+     * No lock is granted, and no minimum locked version is reported, before this time; see
+     * {@link LockServerOptions#getLockLeaseDuration()}.
+     */
+    private final long leaseGracePeriodEndNanos;
     private final Runnable callOnClose;
     private volatile boolean isShutDown = false;
 
@@ -239,7 +252,9 @@ import com.palantir.util.Pair;
         maxAllowedClockDrift = SimpleTimeDuration.of(options.getMaxAllowedClockDrift());
         maxAllowedBlockingDuration = SimpleTimeDuration.of(options.getMaxAllowedBlockingDuration());
         maxNormalLockAge = SimpleTimeDuration.of(options.getMaxNormalLockAge());
+        lockLeaseDuration = SimpleTimeDuration.of(options.getLockLeaseDuration());
         randomBitCount = options.getRandomBitCount();
+        leaseGracePeriodEndNanos = System.nanoTime() + lockLeaseDuration.toNanos();
         executor.execute(new Runnable() {
             @Override
             public void run() {
@@ -332,6 +347,7 @@ import com.palantir.util.Pair;
         if (isShutDown) {
             throw new ServiceNotAvailableException("This lock server is shut down.");
         }
+        awaitLeaseGracePeriod();
         try {
             boolean indefinitelyBlocking = isIndefinitelyBlocking(request.getBlockingMode());
             if (indefinitelyBlocking) {
@@ -421,6 +437,48 @@ import com.palantir.util.Pair;
         }
     }
 
+    @Override
+    public void awaitWriteLockRelease(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        if (isShutDown) {
+            throw new ServiceNotAvailableException("This lock server is shut down.");
+        }
+        indefinitelyBlockingThreads.add(Thread.currentThread());
+        try {
+            for (LockDescriptor descriptor : lockDescriptors) {
+                // A lock which is not in the map is not held, and holding a reference to it keeps it in the map.
+                ClientAwareReadWriteLock lock = descriptorToLockMap.getIfPresent(descriptor);
+                if (lock != null) {
+                    lock.awaitWriteRelease();
+                }
+            }
+        } finally {
+            indefinitelyBlockingThreads.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Clients of a previous leader may still rely on leases for locks this server does not know about.
+     * Those leases run out within one lease duration of this server being created.
+     */
+    private void awaitLeaseGracePeriod() throws InterruptedException {
+        long remainingNanos = leaseGracePeriodEndNanos - System.nanoTime();
+        if (remainingNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        }
+    }
+
+    /**
+     * The minimum locked version bounds the immutable timestamp, and so how far sweep may go. A lock on a version
+     * held through a lease from a previous leader is invisible to us, so we must not report a minimum until those
+     * leases have run out; otherwise sweep could delete values that a transaction trusting its lease still reads.
+     */
+    private void awaitLeaseGracePeriodUninterruptibly() {
+        long remainingNanos = leaseGracePeriodEndNanos - System.nanoTime();
+        if (remainingNanos > 0) {
+            Uninterruptibles.sleepUninterruptibly(remainingNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
     private boolean isIndefinitelyBlocking(BlockingMode blockingMode) {
         return BlockingMode.BLOCK_INDEFINITELY.equals(blockingMode) ||
                 BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE.equals(blockingMode);
@@ -650,6 +708,21 @@ import com.palantir.util.Pair;
         return ImmutableSet.copyOf(Iterables.transform(refreshTokens(fakeTokens), HeldLocksTokens.getRefreshTokenFun()));
     }
 
+    @Override
+    public LockLease refreshLockLeases(Set<LockRefreshToken> tokens) {
+        Set<LockRefreshToken> refreshedTokens = refreshLockRefreshTokens(tokens);
+        long leaseMillis = lockLeaseDuration.toMillis();
+        if (leaseMillis == 0) {
+            return new LockLease(refreshedTokens, 0L);
+        }
+        // The lease may not outlive any of the refreshed tokens.
+        long now = currentTimeMillis();
+        for (LockRefreshToken token : refreshedTokens) {
+            leaseMillis = Math.min(leaseMillis, token.getExpirationDateMs() - now);
+        }
+        return new LockLease(refreshedTokens, Math.max(leaseMillis, 0L));
+    }
+
     @Nullable private HeldLocksToken refreshToken(HeldLocksToken token) {
         Preconditions.checkNotNull(token);
         @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
@@ -875,6 +948,7 @@ import com.palantir.util.Pair;
 
     @Override
     @Nullable public Long getMinLockedInVersionId(LockClient client) {
+        awaitLeaseGracePeriodUninterruptibly();
         Long versionId = null;
         synchronized (versionIdMap) {
             Collection<Long> versionsForClient = versionIdMap.get(client);
@@ -952,6 +1026,9 @@ import com.palantir.util.Pair;
             @Override public TimeDuration getMaxAllowedBlockingDuration() {
                 return maxAllowedBlockingDuration;
             }
+            @Override public TimeDuration getLockLeaseDuration() {
+                return lockLeaseDuration;
+            }
             @Override public int getRandomBitCount() {
                 return randomBitCount;
             }
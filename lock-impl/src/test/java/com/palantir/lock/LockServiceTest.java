@@ -385,6 +385,93 @@ public abstract class LockServiceTest {
         server.unlock(resp2.getToken());
     }
 
+    /** Tests that awaitWriteLockRelease blocks on write locks only, and grants nothing */
+    @Test public void testAwaitWriteLockRelease() throws Exception {
+        LockResponse writeResponse = server.lockWithFullLockResponse(LockClient.ANONYMOUS,
+                LockRequest.builder(ImmutableSortedMap.of(lock2, LockMode.WRITE)).build());
+        Assert.assertTrue(writeResponse.success());
+        LockResponse readResponse = server.lockWithFullLockResponse(client,
+                LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.READ)).build());
+        Assert.assertTrue(readResponse.success());
+
+        // locks which are unheld or only read locked do not block
+        server.awaitWriteLockRelease(ImmutableSet.of(lock1, StringLockDescriptor.of("unheld lock")));
+
+        Future<?> future = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                server.awaitWriteLockRelease(ImmutableSet.of(lock1, lock2));
+                return null;
+            }
+        });
+
+        Thread.sleep(10);
+        try {
+            future.get(1, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // good
+        }
+
+        server.unlock(writeResponse.getToken());
+        future.get(150, TimeUnit.SECONDS);
+
+        Assert.assertEquals(ImmutableSet.of(readResponse.getToken()), server.getTokens(client));
+        HeldLocksToken token = server.lockWithFullLockResponse(client, LockRequest.builder(
+                ImmutableSortedMap.of(lock2, LockMode.WRITE)).doNotBlock().build()).getToken();
+        Assert.assertNotNull(token);
+        server.unlock(token);
+        server.unlock(readResponse.getToken());
+    }
+
+    /** Tests that lock leases are not granted unless the server is configured with a lease duration. */
+    @Test public void testRefreshLockLeasesWithoutLeaseDuration() throws InterruptedException {
+        LockRefreshToken token = server.lock(client.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.WRITE)).doNotBlock().build());
+        LockRefreshToken unlockedToken = server.lock(client.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(lock2, LockMode.WRITE)).doNotBlock().build());
+        server.unlock(unlockedToken);
+
+        LockLease lease = server.refreshLockLeases(ImmutableSet.of(token, unlockedToken));
+        Assert.assertEquals(ImmutableSet.of(token), lease.getRefreshedTokens());
+        Assert.assertEquals(0L, lease.getLeaseMillis());
+        server.unlock(token);
+    }
+
+    /** Tests that a server with a lock lease grants no locks during its grace period, and bounds leases. */
+    @Test public void testLockLeases() throws InterruptedException {
+        final long leaseMillis = 200;
+        server = LockServiceImpl.create(new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+            @Override public TimeDuration getLockLeaseDuration() {
+                return SimpleTimeDuration.of(leaseMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        long startNanos = System.nanoTime();
+        LockRefreshToken token = server.lock(client.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.WRITE)).doNotBlock().build());
+        Assert.assertNotNull(token);
+        Assert.assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(leaseMillis));
+
+        LockLease lease = server.refreshLockLeases(ImmutableSet.of(token));
+        Assert.assertEquals(ImmutableSet.of(token), lease.getRefreshedTokens());
+        Assert.assertTrue(lease.getLeaseMillis() > 0);
+        Assert.assertTrue(lease.getLeaseMillis() <= leaseMillis);
+
+        // the lease may not outlive the lock timeout
+        LockRefreshToken shortToken = server.lock(client.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(lock2, LockMode.WRITE))
+                        .timeoutAfter(SimpleTimeDuration.of(50, TimeUnit.MILLISECONDS))
+                        .doNotBlock().build());
+        lease = server.refreshLockLeases(ImmutableSet.of(token, shortToken));
+        Assert.assertEquals(ImmutableSet.of(token, shortToken), lease.getRefreshedTokens());
+        Assert.assertTrue(lease.getLeaseMillis() <= 50);
+
+        server.unlock(token);
+        server.unlock(shortToken);
+        Assert.assertTrue(server.refreshLockLeases(ImmutableSet.of(token)).getRefreshedTokens().isEmpty());
+    }
+
     /** Tests lockAsManyAsPossible() */
     @Test public void testLockAsManyAsPossible() throws InterruptedException {
         LockRequest request1 = LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.WRITE))
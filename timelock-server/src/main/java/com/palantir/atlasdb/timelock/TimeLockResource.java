@@ -21,6 +21,7 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
 import com.palantir.lock.LockService;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampService;
@@ -48,6 +49,11 @@ public class TimeLockResource {
         return getTimeLockServicesForClient(client).getTimestampManagementService();
     }
 
+    @Path("/transactions")
+    public TransactionStartService getTransactionStartService(@PathParam("client") String client) {
+        return getTimeLockServicesForClient(client).getTransactionStartService();
+    }
+
     private TimeLockServices getTimeLockServicesForClient(String client) {
         TimeLockServices services = clientToServices.get(client);
         if (services == null) {
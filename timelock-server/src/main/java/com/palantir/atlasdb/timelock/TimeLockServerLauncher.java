@@ -21,6 +21,8 @@ import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.LifeCycle;
 
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.timelock.config.TimeLockServerConfiguration;
@@ -29,6 +31,7 @@ import com.palantir.remoting1.servers.jersey.HttpRemotingJerseyFeature;
 import com.palantir.tritium.metrics.MetricRegistries;
 
 import io.dropwizard.Application;
+import io.dropwizard.jackson.Jackson;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 
@@ -73,6 +76,7 @@ public class TimeLockServerLauncher extends Application<TimeLockServerConfigurat
                 serverImpl::createInvalidatingTimeLockServices));
 
         environment.jersey().register(HttpRemotingJerseyFeature.DEFAULT);
+        environment.jersey().register(new JacksonSmileProvider(Jackson.newObjectMapper(new SmileFactory())));
         environment.jersey().register(new TimeLockResource(clientToServices));
     }
 
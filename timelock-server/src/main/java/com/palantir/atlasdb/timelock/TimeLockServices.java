@@ -15,14 +15,22 @@
  */
 package com.palantir.atlasdb.timelock;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
 import org.immutables.value.Value;
 
+import com.google.common.collect.Sets;
+
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.atlasdb.transaction.impl.LockingTransactionStartService;
 import com.palantir.lock.LockService;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampService;
 
 @Value.Immutable
-public interface TimeLockServices {
+public interface TimeLockServices extends Closeable {
     static TimeLockServices create(
             TimestampService timestampService,
             LockService lockService,
@@ -31,10 +39,28 @@ public interface TimeLockServices {
                 .timestampService(timestampService)
                 .lockService(lockService)
                 .timestampManagementService(timestampManagementService)
+                .transactionStartService(new LockingTransactionStartService(timestampService, lockService))
                 .build();
     }
 
     TimestampManagementService getTimestampManagementService();
     TimestampService getTimestampService();
     LockService getLockService();
+    TransactionStartService getTransactionStartService();
+
+    /**
+     * Closes those of the services that are {@link Closeable}, e.g. when they are discarded after losing leadership.
+     */
+    @Override
+    default void close() throws IOException {
+        Set<Object> services = Sets.newIdentityHashSet();
+        services.add(getTimestampService());
+        services.add(getTimestampManagementService());
+        services.add(getLockService());
+        for (Object service : services) {
+            if (service instanceof Closeable) {
+                ((Closeable) service).close();
+            }
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.timelock.atomix;
 
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -27,6 +28,7 @@ import com.palantir.atlasdb.timelock.TimeLockServices;
 import com.palantir.atlasdb.timelock.config.AtomixConfiguration;
 import com.palantir.atlasdb.timelock.config.AtomixSslConfiguration;
 import com.palantir.atlasdb.timelock.config.TimeLockServerConfiguration;
+import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.remoting1.config.ssl.SslConfiguration;
 
@@ -45,10 +47,12 @@ public class AtomixTimeLockServer implements TimeLockServer {
 
     private AtomixReplica replica;
     private LocalMember localMember;
+    private LockServerOptions lockServerOptions;
 
     @Override
     public void onStartup(TimeLockServerConfiguration configuration) {
         AtomixConfiguration atomix = (AtomixConfiguration) configuration.algorithm();
+        lockServerOptions = configuration.lockServerOptions();
         replica = AtomixReplica.builder(new Address(configuration.cluster().localServer()))
                 .withStorage(Storage.builder()
                         .withDirectory(atomix.storageDirectory())
@@ -108,8 +112,14 @@ public class AtomixTimeLockServer implements TimeLockServer {
         DistributedValue<LeaderAndTerm> leaderInfo = DistributedValues.getLeaderInfo(replica);
         DistributedLong timestamp = DistributedValues.getTimestampForClient(replica, client);
         Supplier<TimeLockServices> timeLockSupplier = () -> {
-            AtomixTimestampService atomixTimestampService = new AtomixTimestampService(timestamp);
-            return TimeLockServices.create(atomixTimestampService, LockServiceImpl.create(), atomixTimestampService);
+            LeaderAndTerm termAtCreation = AtomixRetryer.getWithRetry(leaderInfo::get);
+            AtomixTimestampService atomixTimestampService = new AtomixTimestampService(
+                    timestamp,
+                    () -> Objects.equals(termAtCreation, AtomixRetryer.getWithRetry(leaderInfo::get)));
+            return TimeLockServices.create(
+                    atomixTimestampService,
+                    LockServiceImpl.create(lockServerOptions),
+                    atomixTimestampService);
         };
         return InvalidatingLeaderProxy.create(
                 localMember,
@@ -15,6 +15,14 @@
  */
 package com.palantir.atlasdb.timelock.atomix;
 
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.ws.rs.ServiceUnavailableException;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.Futures;
@@ -24,17 +32,55 @@ import com.palantir.timestamp.TimestampService;
 
 import io.atomix.variables.DistributedLong;
 
-public class AtomixTimestampService implements TimestampService, TimestampManagementService {
+/**
+ * A timestamp service backed by a {@link DistributedLong}, which holds an upper bound on every timestamp that has
+ * been handed out for a client.
+ * <p>
+ * Rather than advancing the distributed value for every request, timestamps are reserved from it in blocks of
+ * {@link #ALLOCATION_BUFFER_SIZE} with a single atomic update, and then handed out locally without locking until
+ * the block runs out. A service must only be used while its node is the leader for a single term, and must be
+ * closed when that term ends; the service for the next term reserves a new block above every block reserved so
+ * far, and any timestamps left over in this block are discarded.
+ * <p>
+ * Checking for leadership before a request is not enough, since a node that stalls after the check could hand out
+ * timestamps from its old block after a new leader has handed out greater ones. Every range is therefore only
+ * returned once the term is confirmed to be unchanged after the range was allocated.
+ */
+@ThreadSafe
+public class AtomixTimestampService implements TimestampService, TimestampManagementService, Closeable {
     /**
      * Maximum number of timestamps that may be granted at once.
      */
     @VisibleForTesting
     static final int MAX_GRANT_SIZE = 10_000;
 
+    /**
+     * Number of timestamps reserved from the distributed value at once.
+     */
+    @VisibleForTesting
+    static final long ALLOCATION_BUFFER_SIZE = 1_000_000;
+
     private final DistributedLong timestamp;
+    private final BooleanSupplier isStillInTerm;
+
+    private final AtomicLong lastHandedOut = new AtomicLong(Long.MIN_VALUE);
+    // Only written while holding the lock, but read without it when handing out timestamps.
+    private volatile long upperLimit = Long.MIN_VALUE;
+    @GuardedBy("this")
+    private boolean closed = false;
 
-    public AtomixTimestampService(DistributedLong timestamp) {
+    @VisibleForTesting
+    AtomixTimestampService(DistributedLong timestamp) {
+        this(timestamp, () -> true);
+    }
+
+    /**
+     * @param isStillInTerm checked after every allocation; must return true only if the term this service was
+     * created for is still current, as observed by a linearizable read
+     */
+    public AtomixTimestampService(DistributedLong timestamp, BooleanSupplier isStillInTerm) {
         this.timestamp = timestamp;
+        this.isStillInTerm = isStillInTerm;
     }
 
     @Override
@@ -49,21 +95,70 @@ public class AtomixTimestampService implements TimestampService, TimestampManage
         Preconditions.checkArgument(numTimestampsRequested <= MAX_GRANT_SIZE,
                 "Must request at most %s timestamps, requested: %s", MAX_GRANT_SIZE, numTimestampsRequested);
 
-        long lastTimestampHandedOut = AtomixRetryer.getWithRetry(() -> timestamp.getAndAdd(numTimestampsRequested));
-
-        return TimestampRange.createInclusiveRange(
-                lastTimestampHandedOut + 1,
-                lastTimestampHandedOut + numTimestampsRequested);
+        while (true) {
+            // Read lastHandedOut before upperLimit: reserving a new block raises lastHandedOut to the bottom of the
+            // block before publishing its top, so a stale lastHandedOut paired with a new upperLimit fails the CAS.
+            long lastTimestampHandedOut = lastHandedOut.get();
+            long newLastTimestampHandedOut = lastTimestampHandedOut + numTimestampsRequested;
+            if (newLastTimestampHandedOut <= upperLimit) {
+                if (lastHandedOut.compareAndSet(lastTimestampHandedOut, newLastTimestampHandedOut)) {
+                    checkStillInTerm();
+                    return TimestampRange.createInclusiveRange(
+                            lastTimestampHandedOut + 1,
+                            newLastTimestampHandedOut);
+                }
+            } else {
+                reserveTimestamps(numTimestampsRequested);
+            }
+        }
     }
 
     @Override
     public void fastForwardTimestamp(long currentTimestamp) {
+        checkNotClosed();
         long latestTimestampFromService = Futures.getUnchecked(timestamp.get());
         while (latestTimestampFromService < currentTimestamp) {
             if (Futures.getUnchecked(timestamp.compareAndSet(latestTimestampFromService, currentTimestamp))) {
-                return;
+                break;
             }
             latestTimestampFromService = Futures.getUnchecked(timestamp.get());
         }
+        // Any block reserved from now on starts above currentTimestamp, so we only need to skip ahead in this one.
+        lastHandedOut.accumulateAndGet(currentTimestamp, Math::max);
+    }
+
+    /**
+     * Discards the timestamps reserved by this service. Requests that have not been granted timestamps yet will
+     * fail, so that a service that is no longer the leader cannot hand out timestamps below those of the new leader.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        upperLimit = Long.MIN_VALUE;
+    }
+
+    private synchronized void reserveTimestamps(int numTimestampsRequested) {
+        checkNotClosed();
+        if (lastHandedOut.get() + numTimestampsRequested <= upperLimit) {
+            // Another request reserved a block while we were waiting.
+            return;
+        }
+        long lastTimestampReserved = AtomixRetryer.getWithRetry(() -> timestamp.getAndAdd(ALLOCATION_BUFFER_SIZE));
+        lastHandedOut.accumulateAndGet(lastTimestampReserved, Math::max);
+        upperLimit = lastTimestampReserved + ALLOCATION_BUFFER_SIZE;
+    }
+
+    private void checkStillInTerm() {
+        if (!isStillInTerm.getAsBoolean()) {
+            close();
+            throw new ServiceUnavailableException(
+                    "This timestamp service lost leadership while handing out timestamps", 0L);
+        }
+    }
+
+    private synchronized void checkNotClosed() {
+        if (closed) {
+            throw new ServiceUnavailableException("This timestamp service was closed after losing leadership", 0L);
+        }
     }
 }
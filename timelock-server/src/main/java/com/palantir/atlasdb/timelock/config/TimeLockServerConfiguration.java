@@ -16,11 +16,16 @@
 package com.palantir.atlasdb.timelock.config;
 
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.timelock.paxos.PaxosTimeLockConstants;
+import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.TimeDuration;
 
 import io.dropwizard.Configuration;
 
@@ -30,17 +35,30 @@ public class TimeLockServerConfiguration extends Configuration {
     private final TimeLockAlgorithmConfiguration algorithm;
     private final ClusterConfiguration cluster;
     private final Set<String> clients;
+    private final long lockLeaseDurationMillis;
 
+    public TimeLockServerConfiguration(
+            TimeLockAlgorithmConfiguration algorithm,
+            ClusterConfiguration cluster,
+            Set<String> clients) {
+        this(algorithm, cluster, clients, null);
+    }
+
+    @JsonCreator
     public TimeLockServerConfiguration(
             @JsonProperty(value = "algorithm", required = false) TimeLockAlgorithmConfiguration algorithm,
             @JsonProperty(value = "cluster", required = true) ClusterConfiguration cluster,
-            @JsonProperty(value = "clients", required = true) Set<String> clients) {
+            @JsonProperty(value = "clients", required = true) Set<String> clients,
+            @JsonProperty(value = "lockLeaseDurationMillis", required = false) Long lockLeaseDurationMillis) {
         Preconditions.checkState(!clients.isEmpty(), "'clients' should have at least one entry");
         checkClientNames(clients);
 
         this.algorithm = MoreObjects.firstNonNull(algorithm, AtomixConfiguration.DEFAULT);
         this.cluster = cluster;
         this.clients = clients;
+        this.lockLeaseDurationMillis = MoreObjects.firstNonNull(lockLeaseDurationMillis, 0L);
+        Preconditions.checkState(this.lockLeaseDurationMillis >= 0,
+                "'lockLeaseDurationMillis' must not be negative; found '%s'.", this.lockLeaseDurationMillis);
     }
 
     private void checkClientNames(Set<String> clientNames) {
@@ -65,4 +83,24 @@ public class TimeLockServerConfiguration extends Configuration {
     public Set<String> clients() {
         return clients;
     }
+
+    public long lockLeaseDurationMillis() {
+        return lockLeaseDurationMillis;
+    }
+
+    /**
+     * Options for the lock services of all clients. Only the lock lease duration differs from the defaults; see
+     * {@link LockServerOptions#getLockLeaseDuration()}.
+     */
+    public LockServerOptions lockServerOptions() {
+        TimeDuration lockLeaseDuration = SimpleTimeDuration.of(lockLeaseDurationMillis, TimeUnit.MILLISECONDS);
+        return new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public TimeDuration getLockLeaseDuration() {
+                return lockLeaseDuration;
+            }
+        };
+    }
 }
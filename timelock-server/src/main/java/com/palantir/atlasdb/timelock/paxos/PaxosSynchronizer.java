@@ -19,7 +19,6 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
@@ -28,10 +27,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosQuorumChecker;
 import com.palantir.paxos.PaxosResponse;
 import com.palantir.paxos.PaxosValue;
+import com.palantir.remoting1.tracing.Tracers;
 
 public final class PaxosSynchronizer {
     private static final Logger log = LoggerFactory.getLogger(PaxosSynchronizer.class);
@@ -57,12 +58,20 @@ public final class PaxosSynchronizer {
     }
 
     private static Optional<PaxosValue> getMostRecentLearnedValue(List<PaxosLearner> paxosLearners) {
-        ExecutorService executor = Executors.newCachedThreadPool();
-        List<PaxosValueResponse> responses = PaxosQuorumChecker.collectAsManyResponsesAsPossible(
-                ImmutableList.copyOf(paxosLearners),
-                learner -> ImmutablePaxosValueResponse.of(learner.getGreatestLearnedValue()),
-                executor,
-                PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS);
+        // Paxos requests get their own threads, so that they are not held up behind other work.
+        ExecutorService executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
+                PTExecutors.newNamedThreadFactory(true)));
+        List<PaxosValueResponse> responses;
+        try {
+            responses = PaxosQuorumChecker.collectAsManyResponsesAsPossible(
+                    ImmutableList.copyOf(paxosLearners),
+                    learner -> ImmutablePaxosValueResponse.of(learner.getGreatestLearnedValue()),
+                    executor,
+                    PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS);
+        } finally {
+            // Lets requests that timed out finish, then releases the threads.
+            executor.shutdown();
+        }
         return responses.stream()
                 .filter(response -> response.paxosValue() != null)
                 .map(PaxosValueResponse::paxosValue)
@@ -20,7 +20,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLSocketFactory;
@@ -43,21 +42,23 @@ import com.palantir.atlasdb.timelock.TimeLockServices;
 import com.palantir.atlasdb.timelock.config.PaxosConfiguration;
 import com.palantir.atlasdb.timelock.config.TimeLockServerConfiguration;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.PingableLeader;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
+import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
 import com.palantir.remoting.ssl.SslSocketFactories;
+import com.palantir.remoting1.tracing.Tracers;
 import com.palantir.timestamp.PersistentTimestampService;
 
 import io.dropwizard.setup.Environment;
 
 public class PaxosTimeLockServer implements TimeLockServer {
-
     private final PaxosConfiguration paxosConfiguration;
     private final Environment environment;
 
@@ -65,6 +66,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private Optional<SSLSocketFactory> optionalSecurity = Optional.absent();
     private LeaderElectionService leaderElectionService;
     private PaxosResource paxosResource;
+    private LockServerOptions lockServerOptions;
 
     public PaxosTimeLockServer(PaxosConfiguration configuration, Environment environment) {
         this.paxosConfiguration = configuration;
@@ -73,6 +75,8 @@ public class PaxosTimeLockServer implements TimeLockServer {
 
     @Override
     public void onStartup(TimeLockServerConfiguration configuration) {
+        lockServerOptions = configuration.lockServerOptions();
+
         registerPaxosResource();
 
         optionalSecurity = constructOptionalSslSocketFactory(paxosConfiguration);
@@ -155,7 +159,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
                 LockService.class,
                 AwaitingLeadershipProxy.newProxyInstance(
                         LockService.class,
-                        LockServiceImpl::create,
+                        () -> LockServiceImpl.create(lockServerOptions),
                         leaderElectionService),
                 client);
         return TimeLockServices.create(timestampService, lockService, timestampService);
@@ -168,10 +172,12 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private ManagedTimestampService createPaxosBackedTimestampService(String client) {
         paxosResource.addClient(client);
 
-        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        // Consensus requests get their own threads rather than sharing a pool with other work, so that quorum
+        // checks are never held up behind it.
+        ExecutorService executor = Tracers.wrap(PTExecutors.newCachedThreadPool(new ThreadFactoryBuilder()
                 .setNameFormat("atlas-consensus-" + client + "-%d")
                 .setDaemon(true)
-                .build());
+                .build()));
 
         Set<String> namespacedUris = PaxosTimeLockUriUtils.getClientPaxosUris(remoteServers, client);
         List<PaxosAcceptor> acceptors = Leaders.createProxyAndLocalList(
@@ -61,4 +61,14 @@ public class TimeLockResourceTest {
     public void throwWhenLockServiceDoesntExist() {
         RESOURCE.getLockService(NON_EXISTING_CLIENT);
     }
+
+    @Test
+    public void canGetExistingTransactionStartService() {
+        RESOURCE.getTransactionStartService(EXISTING_CLIENT);
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void throwWhenTransactionStartServiceDoesntExist() {
+        RESOURCE.getTransactionStartService(NON_EXISTING_CLIENT);
+    }
 }
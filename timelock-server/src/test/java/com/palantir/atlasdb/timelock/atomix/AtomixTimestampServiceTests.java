@@ -15,10 +15,19 @@
  */
 package com.palantir.atlasdb.timelock.atomix;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.ServiceUnavailableException;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.util.concurrent.Futures;
 import com.palantir.atlasdb.timestamp.AbstractTimestampServiceTests;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampService;
@@ -34,6 +43,7 @@ import io.atomix.variables.DistributedLong;
 public class AtomixTimestampServiceTests extends AbstractTimestampServiceTests {
     private static final Address LOCAL_ADDRESS = new Address("localhost", 8700);
     private static final String CLIENT_KEY = "client";
+    private static final AtomicInteger OTHER_CLIENT_COUNTER = new AtomicInteger();
     private static final AtomixReplica ATOMIX_REPLICA = AtomixReplica.builder(LOCAL_ADDRESS)
             .withStorage(Storage.builder()
                     .withStorageLevel(StorageLevel.MEMORY)
@@ -76,7 +86,87 @@ public class AtomixTimestampServiceTests extends AbstractTimestampServiceTests {
         getTimestampService().getFreshTimestamps(AtomixTimestampService.MAX_GRANT_SIZE + 1);
     }
 
-    @Override
-    public void canReturnManyUniqueTimestampsInParallel() {
+    @Test
+    public void reservesTimestampsInBlocks() {
+        DistributedLong distributedLong = getTimestampForNewClient();
+        AtomixTimestampService timestampService = new AtomixTimestampService(distributedLong);
+
+        long firstTimestamp = timestampService.getFreshTimestamp();
+        for (int i = 0; i < 100; i++) {
+            timestampService.getFreshTimestamps(AtomixTimestampService.MAX_GRANT_SIZE / 2);
+        }
+
+        assertThat(Futures.getUnchecked(distributedLong.get()))
+                .isEqualTo(firstTimestamp - 1 + AtomixTimestampService.ALLOCATION_BUFFER_SIZE);
+    }
+
+    @Test
+    public void reservesAnotherBlockWhenTheFirstRunsOut() {
+        DistributedLong distributedLong = getTimestampForNewClient();
+        AtomixTimestampService timestampService = new AtomixTimestampService(distributedLong);
+
+        long numTimestamps = 0;
+        while (numTimestamps <= AtomixTimestampService.ALLOCATION_BUFFER_SIZE) {
+            numTimestamps += timestampService.getFreshTimestamps(AtomixTimestampService.MAX_GRANT_SIZE).size();
+        }
+
+        assertThat(timestampService.getFreshTimestamp()).isGreaterThan(AtomixTimestampService.ALLOCATION_BUFFER_SIZE);
+        assertThat(Futures.getUnchecked(distributedLong.get()))
+                .isEqualTo(2 * AtomixTimestampService.ALLOCATION_BUFFER_SIZE);
+    }
+
+    @Test
+    public void serviceForANewTermHandsOutTimestampsAboveThePreviousBlock() {
+        DistributedLong distributedLong = getTimestampForNewClient();
+        AtomixTimestampService oldLeader = new AtomixTimestampService(distributedLong);
+        long oldLeaderTimestamp = oldLeader.getFreshTimestamp();
+        oldLeader.close();
+
+        AtomixTimestampService newLeader = new AtomixTimestampService(distributedLong);
+
+        assertThat(newLeader.getFreshTimestamp())
+                .isGreaterThan(oldLeaderTimestamp + AtomixTimestampService.ALLOCATION_BUFFER_SIZE - 1);
+    }
+
+    @Test
+    public void closedServiceDoesNotHandOutItsRemainingTimestamps() {
+        AtomixTimestampService timestampService = new AtomixTimestampService(getTimestampForNewClient());
+        timestampService.getFreshTimestamp();
+        timestampService.close();
+
+        assertThatThrownBy(timestampService::getFreshTimestamp).isInstanceOf(ServiceUnavailableException.class);
+        assertThatThrownBy(() -> timestampService.fastForwardTimestamp(1_000L))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    public void serviceThatLostItsTermAfterTheLeadershipCheckDoesNotHandOutTimestamps() {
+        AtomicBoolean stillInTerm = new AtomicBoolean(true);
+        AtomixTimestampService timestampService = new AtomixTimestampService(
+                getTimestampForNewClient(),
+                stillInTerm::get);
+        timestampService.getFreshTimestamp();
+
+        stillInTerm.set(false);
+
+        assertThatThrownBy(timestampService::getFreshTimestamp).isInstanceOf(ServiceUnavailableException.class);
+        stillInTerm.set(true);
+        assertThatThrownBy(timestampService::getFreshTimestamp).isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    public void fastForwardWithinTheReservedBlockSkipsAhead() {
+        AtomixTimestampService timestampService = new AtomixTimestampService(getTimestampForNewClient());
+        long firstTimestamp = timestampService.getFreshTimestamp();
+
+        timestampService.fastForwardTimestamp(firstTimestamp + 1_000L);
+
+        assertThat(timestampService.getFreshTimestamp()).isEqualTo(firstTimestamp + 1_001L);
+    }
+
+    private static DistributedLong getTimestampForNewClient() {
+        return DistributedValues.getTimestampForClient(
+                ATOMIX_REPLICA,
+                CLIENT_KEY + "-" + OTHER_CLIENT_COUNTER.incrementAndGet());
     }
 }
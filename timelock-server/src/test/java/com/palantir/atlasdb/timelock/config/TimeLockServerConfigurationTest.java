@@ -19,11 +19,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.timelock.paxos.PaxosTimeLockConstants;
+import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.SimpleTimeDuration;
 
 public class TimeLockServerConfigurationTest {
     private static final String ADDRESS = "localhost:8701";
@@ -65,4 +68,24 @@ public class TimeLockServerConfigurationTest {
         assertThatThrownBy(() -> new TimeLockServerConfiguration(null, CLUSTER, ImmutableSet.of("")))
                 .isInstanceOf(IllegalStateException.class);
     }
+
+    @Test
+    public void shouldDisableLockLeasesByDefault() {
+        TimeLockServerConfiguration configuration = new TimeLockServerConfiguration(null, CLUSTER, CLIENTS);
+        assertThat(configuration.lockServerOptions().getLockLeaseDuration())
+                .isEqualTo(LockServerOptions.DEFAULT.getLockLeaseDuration());
+    }
+
+    @Test
+    public void shouldConfigureLockLeaseDuration() {
+        TimeLockServerConfiguration configuration = new TimeLockServerConfiguration(null, CLUSTER, CLIENTS, 2000L);
+        assertThat(configuration.lockServerOptions().getLockLeaseDuration())
+                .isEqualTo(SimpleTimeDuration.of(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRejectNegativeLockLeaseDuration() {
+        assertThatThrownBy(() -> new TimeLockServerConfiguration(null, CLUSTER, CLIENTS, -1L))
+                .isInstanceOf(IllegalStateException.class);
+    }
 }
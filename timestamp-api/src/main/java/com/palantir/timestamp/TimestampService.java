@@ -21,6 +21,11 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 
+/**
+ * Responses may be encoded as Smile, a binary encoding of the JSON documents, instead of JSON.
+ * JSON is listed first, so clients which do not ask for Smile keep using JSON. The Smile media type is spelled
+ * out, rather than taken from a shared constant, so that this module only depends on the JAX-RS API.
+ */
 @Path("/timestamp")
 public interface TimestampService {
     /**
@@ -29,7 +34,7 @@ public interface TimestampService {
      */
     @POST // This has to be POST because we can't allow caching.
     @Path("fresh-timestamp")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, "application/x-jackson-smile"})
     long getFreshTimestamp();
 
     /**
@@ -38,6 +43,6 @@ public interface TimestampService {
      */
     @POST // This has to be POST because we can't allow caching.
     @Path("fresh-timestamps")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, "application/x-jackson-smile"})
     TimestampRange getFreshTimestamps(@QueryParam("number") int numTimestampsRequested);
 }